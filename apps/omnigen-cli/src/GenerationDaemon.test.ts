@@ -0,0 +1,84 @@
+import * as net from 'net';
+import * as readline from 'readline';
+import {describe, test, vi} from 'vitest';
+import {z} from 'zod';
+import {ModelSnapshotCache} from '@omnigen/core';
+import {PluginManager} from '@omnigen/plugin';
+import {DAEMON_PORT_PREFIX, DaemonRequest, DaemonResponse, GenerationDaemon} from './GenerationDaemon';
+
+describe('GenerationDaemon', () => {
+
+  function createPluginManager(): PluginManager {
+
+    const pm = new PluginManager({includeAuto: false});
+    pm.createPlugin('write', z.object({file: z.string()}), z.object({writtenFiles: z.array(z.string())}), async ctx => ({writtenFiles: [`${ctx.file}.out`]}));
+    return pm;
+  }
+
+  function send(port: number, request: DaemonRequest): Promise<DaemonResponse> {
+
+    return new Promise((resolve, reject) => {
+      const socket = net.connect(port, '127.0.0.1');
+      socket.once('error', reject);
+      readline.createInterface({input: socket}).once('line', line => {
+        socket.end();
+        resolve(JSON.parse(line) as DaemonResponse);
+      });
+      socket.write(`${JSON.stringify(request)}\n`);
+    });
+  }
+
+  test('plans once for requests with the same arguments', async ctx => {
+
+    const pm = createPluginManager();
+    const daemon = new GenerationDaemon(pm);
+    const spy = vi.spyOn(pm, 'findExecutionPath');
+    try {
+      const first = await daemon.generate({input: ['a.json'], output: 'out'});
+      const second = await daemon.generate({input: ['a.json'], output: 'out'});
+      ctx.expect(spy).toHaveBeenCalledTimes(1);
+      ctx.expect(first.writtenFiles).toEqual(['a.json.out']);
+      ctx.expect(second.writtenFiles).toEqual(['a.json.out']);
+
+      const other = await daemon.generate({input: ['b.json'], output: 'out'});
+      ctx.expect(spy).toHaveBeenCalledTimes(2);
+      ctx.expect(other.writtenFiles).toEqual(['b.json.out']);
+    } finally {
+      spy.mockRestore();
+      ModelSnapshotCache.setRetainInMemory(false);
+    }
+  });
+
+  test('reports the picked port and rejects requests without the token', async ctx => {
+
+    const daemon = new GenerationDaemon(createPluginManager());
+    const written: string[] = [];
+    const spy = vi.spyOn(process.stdout, 'write').mockImplementation(chunk => {
+      written.push(String(chunk));
+      return true;
+    });
+
+    try {
+      const listening = daemon.listen('0', 0, 'secret');
+      await vi.waitFor(() => {
+        if (!written.some(it => it.startsWith(DAEMON_PORT_PREFIX))) {
+          throw new Error(`Port not reported yet`);
+        }
+      });
+
+      const port = Number.parseInt(written.find(it => it.startsWith(DAEMON_PORT_PREFIX))!.substring(DAEMON_PORT_PREFIX.length), 10);
+      ctx.expect(port).toBeGreaterThan(0);
+
+      ctx.expect((await send(port, {command: 'ping'})).ok).toEqual(false);
+      ctx.expect((await send(port, {command: 'ping', token: 'wrong'})).ok).toEqual(false);
+      ctx.expect((await send(port, {command: 'shutdown'})).ok).toEqual(false);
+      ctx.expect((await send(port, {command: 'ping', token: 'secret'})).ok).toEqual(true);
+
+      ctx.expect((await send(port, {command: 'shutdown', token: 'secret'})).ok).toEqual(true);
+      await listening;
+    } finally {
+      spy.mockRestore();
+      ModelSnapshotCache.setRetainInMemory(false);
+    }
+  });
+});
@@ -0,0 +1,359 @@
+import * as crypto from 'crypto';
+import * as fs from 'fs';
+import * as net from 'net';
+import * as os from 'os';
+import * as path from 'path';
+import * as readline from 'readline';
+import {LoggerFactory} from '@omnigen/core-log';
+import {BaseContext, FileContext} from '@omnigen/core-plugin';
+import {FindPathResult, PluginManager} from '@omnigen/plugin';
+import {ZodObject} from 'zod';
+import {DocumentDependencies, ModelSnapshotCache} from '@omnigen/core';
+import {createGenerationArguments, GenerationRequest} from './GenerationRequest';
+
+const logger = LoggerFactory.create(import.meta.url);
+
+/**
+ * Max number of execution plans that are kept, after which the least recently used are let go of.
+ */
+const MAX_PLANS = 32;
+
+/**
+ * Environment variable with the token that every request to the daemon must have, if set.
+ */
+export const DAEMON_TOKEN_VARIABLE = 'OMNIGEN_DAEMON_TOKEN';
+
+/**
+ * Start of the line written to stdout with the port that the daemon listens to, for clients that asked for port 0.
+ */
+export const DAEMON_PORT_PREFIX = 'omnigen-daemon-port: ';
+
+export interface GenerationResult {
+  writtenFiles: string[];
+  /**
+   * Absolute paths or uris of all documents that were read, including the inputs.
+   */
+  dependencies: string[];
+  timeMs: number;
+}
+
+/**
+ * One line of JSON sent to the daemon socket. Each request gets one line of JSON back, a {@link DaemonResponse}.
+ */
+export type DaemonRequest = (
+  | ({ command: 'generate' } & GenerationRequest)
+  | { command: 'ping' }
+  | { command: 'shutdown' }
+  ) & { token?: string | undefined };
+
+export interface DaemonResponse {
+  ok: boolean;
+  writtenFiles?: string[] | undefined;
+  timeMs?: number | undefined;
+  error?: string | undefined;
+}
+
+/**
+ * @return The socket that the daemon of the current user listens to if no other is given, a named pipe on Windows.
+ */
+export function getDefaultSocketPath(): string {
+
+  const user = os.userInfo().username.replace(/[^\w.-]/g, '_');
+  return process.platform === 'win32'
+    ? `\\\\.\\pipe\\omnigen-${user}`
+    : path.join(os.tmpdir(), `omnigen-${user}.sock`);
+}
+
+/**
+ * Runs generations in a process that stays alive, so that everything that is expensive to set up is only done once.
+ *
+ * The plugins stay imported, and the execution plan of the plugin manager is kept for each distinct set of arguments, since those are what the plan starts from.
+ * Compiled meta-schema validators are kept for the whole process already, and parsed models are retained in memory by {@link ModelSnapshotCache}.
+ *
+ * Generations run one at a time, in the order they were requested, since plugins are not written to run concurrently in the same process.
+ */
+export class GenerationDaemon {
+
+  private readonly _pluginManager: PluginManager;
+  private readonly _plans = new Map<string, FindPathResult<ZodObject<any>>>();
+  private _queue: Promise<unknown> = Promise.resolve();
+
+  constructor(pluginManager: PluginManager) {
+    this._pluginManager = pluginManager;
+    ModelSnapshotCache.setRetainInMemory(true);
+  }
+
+  generate(request: GenerationRequest): Promise<GenerationResult> {
+
+    const result = this._queue.then(() => this.execute(request));
+    this._queue = result.catch(() => undefined);
+    return result;
+  }
+
+  private async execute(request: GenerationRequest): Promise<GenerationResult> {
+
+    const startTime = Date.now();
+    const args = createGenerationArguments(request);
+    const ctx: BaseContext & FileContext = {
+      arguments: args,
+      file: args['file'],
+    };
+
+    const plan = this.getPlan(args, ctx);
+    const {result: execution, dependencies} = await DocumentDependencies.track(() => this._pluginManager.execute({ctx: ctx, plan: plan}));
+
+    const resultCtx = execution.result.ctx;
+    const writtenFiles = ('writtenFiles' in resultCtx && Array.isArray(resultCtx.writtenFiles)) ? resultCtx.writtenFiles as string[] : [];
+
+    return {
+      writtenFiles: writtenFiles,
+      dependencies: [...new Set([...request.input.map(it => path.resolve(it)), ...dependencies])],
+      timeMs: Date.now() - startTime,
+    };
+  }
+
+  private getPlan(args: Record<string, string>, ctx: BaseContext & FileContext): FindPathResult<ZodObject<any>> {
+
+    // The context is made from the arguments alone, so equal arguments give an equal context.
+    const key = JSON.stringify(Object.entries(args).sort(([a], [b]) => a.localeCompare(b)));
+
+    let plan = this._plans.get(key);
+    if (plan) {
+      this._plans.delete(key);
+    } else {
+      plan = this._pluginManager.findExecutionPath({inCtx: ctx});
+    }
+
+    // Kept last, so the map is ordered from least to most recently used.
+    this._plans.set(key, plan);
+    for (const oldest of this._plans.keys()) {
+      if (this._plans.size <= MAX_PLANS) {
+        break;
+      }
+      this._plans.delete(oldest);
+    }
+
+    return plan;
+  }
+
+  /**
+   * Generates, and then generates again whenever one of the documents that the last generation read is changed.
+   *
+   * Directories are watched rather than the documents themselves, since editors often save by replacing the file.
+   * Remote documents are not watched.
+   */
+  async watch(request: GenerationRequest, debounceMs = 200): Promise<void> {
+
+    let dependencies = new Set(request.input.map(it => path.resolve(it)));
+    const watchers = new Map<string, fs.FSWatcher>();
+    let timer: ReturnType<typeof setTimeout> | undefined;
+
+    const updateWatchers = () => {
+
+      const directories = new Set([...dependencies]
+        .filter(it => !it.startsWith('http:') && !it.startsWith('https:'))
+        .map(it => path.dirname(it)));
+
+      for (const [directory, watcher] of watchers) {
+        if (!directories.has(directory)) {
+          watcher.close();
+          watchers.delete(directory);
+        }
+      }
+
+      for (const directory of directories) {
+        if (!watchers.has(directory) && fs.existsSync(directory)) {
+          watchers.set(directory, fs.watch(directory, (_, fileName) => onChange(directory, fileName)));
+        }
+      }
+    };
+
+    const regenerate = async () => {
+
+      try {
+        const result = await this.generate(request);
+        dependencies = new Set(result.dependencies);
+        logger.info(`Generated ${result.writtenFiles.length} files in ${result.timeMs}ms`);
+      } catch (ex) {
+
+        // The documents of the last successful generation are still watched, so fixing the error triggers a new generation.
+        logger.error(ex, `Generation failed, will try again when a document changes`);
+      }
+
+      updateWatchers();
+    };
+
+    const onChange = (directory: string, fileName: string | Buffer | null) => {
+
+      if (fileName && !dependencies.has(path.resolve(directory, fileName.toString()))) {
+        return;
+      }
+
+      logger.debug(`Change in ${directory}${fileName ? ` to ${fileName}` : ''}, will generate again`);
+      clearTimeout(timer);
+      timer = setTimeout(() => void regenerate(), debounceMs);
+    };
+
+    await regenerate();
+    logger.info(`Watching ${watchers.size} directories for changes`);
+  }
+
+  /**
+   * Accepts requests on a local socket until a `shutdown` request is received, or there have been no requests for a while.
+   *
+   * @param socketPath Path of a unix socket or Windows named pipe, or a port number to listen to on the loopback interface for clients that cannot use either.
+   *  With port 0 a free port is picked, which is written to stdout on a line starting with {@link DAEMON_PORT_PREFIX}
+   * @param idleTimeoutMs Stop after this long without requests, never stops if 0
+   * @param token Requests without this token are rejected, since anyone on the machine can connect to a port
+   */
+  async listen(socketPath: string, idleTimeoutMs = 0, token?: string): Promise<void> {
+
+    const port = /^\d+$/.test(socketPath) ? Number.parseInt(socketPath, 10) : undefined;
+    if (port !== undefined && token === undefined) {
+      logger.warn(`Listening to a port without a token, so any local process can make the daemon read and write files`);
+    }
+
+    if (port === undefined && process.platform !== 'win32' && fs.existsSync(socketPath)) {
+      if (await GenerationDaemon.isListening(socketPath)) {
+        throw new Error(`There is already a daemon listening to ${socketPath}`);
+      }
+
+      // Left behind by a daemon that did not shut down cleanly.
+      fs.rmSync(socketPath, {force: true});
+    }
+
+    const sockets = new Set<net.Socket>();
+    let idleTimer: ReturnType<typeof setTimeout> | undefined;
+    let active = 0;
+
+    return new Promise((resolve, reject) => {
+
+      const server = net.createServer(socket => {
+
+        sockets.add(socket);
+        socket.on('close', () => sockets.delete(socket));
+        socket.on('error', ex => logger.debug(`Daemon client error: ${ex}`));
+
+        readline.createInterface({input: socket}).on('line', line => {
+
+          active++;
+          clearTimeout(idleTimer);
+
+          void this.handle(line, token)
+            .then(([response, shutdown]) => {
+              socket.write(`${JSON.stringify(response)}\n`);
+              if (shutdown) {
+                close();
+              }
+            })
+            .finally(() => {
+              active--;
+              resetIdleTimer();
+            });
+        });
+      });
+
+      const close = () => {
+        clearTimeout(idleTimer);
+        server.close(() => resolve());
+        for (const socket of sockets) {
+          socket.end();
+        }
+      };
+
+      const resetIdleTimer = () => {
+        if (idleTimeoutMs > 0 && active === 0) {
+          clearTimeout(idleTimer);
+          idleTimer = setTimeout(() => {
+            logger.info(`No requests for ${idleTimeoutMs}ms, shutting down`);
+            close();
+          }, idleTimeoutMs);
+        }
+      };
+
+      server.on('error', reject);
+      const onListening = () => {
+
+        const address = server.address();
+        if (address && typeof address === 'object') {
+          process.stdout.write(`${DAEMON_PORT_PREFIX}${address.port}\n`);
+          logger.info(`Listening for generation requests on port ${address.port}`);
+        } else {
+          logger.info(`Listening for generation requests on ${socketPath}`);
+        }
+
+        resetIdleTimer();
+      };
+
+      if (port !== undefined) {
+        server.listen(port, '127.0.0.1', onListening);
+      } else {
+        server.listen(socketPath, onListening);
+      }
+    });
+  }
+
+  /**
+   * @return The response, and if the daemon should shut down after it has been sent.
+   */
+  private async handle(line: string, token: string | undefined): Promise<[DaemonResponse, boolean]> {
+
+    let request: DaemonRequest;
+    try {
+      request = JSON.parse(line) as DaemonRequest;
+    } catch (ex) {
+      return [{ok: false, error: `Request is not valid JSON: ${ex}`}, false];
+    }
+
+    if (token !== undefined && !GenerationDaemon.isSameToken(request.token, token)) {
+      logger.warn(`Rejected a request without the expected token`);
+      return [{ok: false, error: `Request does not have the expected token`}, false];
+    }
+
+    switch (request.command) {
+      case 'ping':
+        return [{ok: true}, false];
+      case 'shutdown':
+        return [{ok: true}, true];
+      case 'generate':
+        try {
+          if (!Array.isArray(request.input) || request.input.length === 0 || !request.output) {
+            return [{ok: false, error: `A generate request must have 'input' and 'output'`}, false];
+          }
+
+          const result = await this.generate(request);
+          logger.info(`Generated ${result.writtenFiles.length} files into ${request.output} in ${result.timeMs}ms`);
+          return [{ok: true, writtenFiles: result.writtenFiles, timeMs: result.timeMs}, false];
+        } catch (ex) {
+          logger.error(ex, `Generation into ${request.output} failed`);
+          return [{ok: false, error: ex instanceof Error ? ex.message : String(ex)}, false];
+        }
+      default:
+        return [{ok: false, error: `Unknown command in ${line}`}, false];
+    }
+  }
+
+  private static isSameToken(given: unknown, expected: string): boolean {
+
+    if (typeof given !== 'string') {
+      return false;
+    }
+
+    // Compared in constant time, so the token cannot be guessed by timing the responses.
+    const givenBuffer = Buffer.from(given, 'utf-8');
+    const expectedBuffer = Buffer.from(expected, 'utf-8');
+    return givenBuffer.length === expectedBuffer.length && crypto.timingSafeEqual(givenBuffer, expectedBuffer);
+  }
+
+  private static isListening(socketPath: string): Promise<boolean> {
+
+    return new Promise(resolve => {
+      const socket = net.connect(socketPath);
+      socket.once('connect', () => {
+        socket.end();
+        resolve(true);
+      });
+      socket.once('error', () => resolve(false));
+    });
+  }
+}
@@ -0,0 +1,55 @@
+/**
+ * What to generate, as given on the command line or sent to a running daemon.
+ */
+export interface GenerationRequest {
+  input: string[];
+  output: string;
+  types?: string[] | undefined;
+  /**
+   * Extra arguments that will be used by system and plugins.
+   */
+  args?: Record<string, string> | undefined;
+}
+
+/**
+ * @param args Extra arguments in `key=value` form
+ */
+export function parseKeyValueArguments(args: ReadonlyArray<string>): Record<string, string> {
+
+  const parsed: Record<string, string> = {};
+  for (const [key, value] of args.map(it => it.split('='))) {
+    if (key !== undefined && value !== undefined) {
+      parsed[key] = value;
+    }
+  }
+
+  return parsed;
+}
+
+/**
+ * @return The arguments that the plugins are executed with for the request.
+ */
+export function createGenerationArguments(request: GenerationRequest): Record<string, string> {
+
+  const args: Record<string, string> = {...request.args};
+
+  if (request.types) {
+    if (request.types.length > 1) {
+      args['targets'] = request.types.join(',');
+    } else {
+      const [first] = request.types;
+      if (first !== undefined) {
+        args['target'] = first;
+      }
+    }
+  }
+
+  args['file'] = request.input.join(',');
+
+  args['outputDirBase'] = request.output;
+  if (request.output) {
+    args['outputFiles'] = 'true';
+  }
+
+  return args;
+}
@@ -0,0 +1,54 @@
+import * as fs from 'fs';
+import * as path from 'path';
+import {createRequire} from 'module';
+import {fileURLToPath} from 'url';
+import {LoggerFactory} from '@omnigen/core-log';
+
+const logger = LoggerFactory.create(import.meta.url);
+
+/**
+ * Id of the run manifest entry for a run that is not split into jobs, and so covers all inputs and targets at once.
+ */
+export const WHOLE_RUN_ID = '*';
+
+/**
+ * @return The id of the run manifest entry for one job of a parallel generation.
+ */
+export function getJobRunId(file: string, target: string | undefined): string {
+  return `${file}|${target ?? ''}`;
+}
+
+/**
+ * Describes the version of the generator, which is part of the key of every run manifest entry so an upgrade regenerates everything.
+ *
+ * The built-in plugins are bundled into the CLI, so the bundle itself stands in for their versions.
+ * Imported plugins are described by the version in their `package.json`.
+ *
+ * @return Nothing if the CLI does not run from its bundle, such as from its sources with `tsx`, since a change to any of the sources
+ *  it imports would then go unnoticed. Incremental generation cannot be used then.
+ */
+export function getGeneratorVersion(plugins: ReadonlyArray<string>): Record<string, string> | undefined {
+
+  const cliPath = fileURLToPath(import.meta.url);
+  if (path.extname(cliPath) !== '.js') {
+    return undefined;
+  }
+
+  const version: Record<string, string> = {};
+
+  const cliStat = fs.statSync(cliPath);
+  version['cli'] = `${cliStat.size}:${cliStat.mtimeMs}`;
+
+  const require = createRequire(import.meta.url);
+  for (const plugin of plugins) {
+    try {
+      const packageJson = JSON.parse(fs.readFileSync(require.resolve(`${plugin}/package.json`), 'utf-8')) as { version?: string };
+      version[plugin] = packageJson.version ?? '';
+    } catch (ex) {
+      logger.warn(`Could not find the version of plugin '${plugin}', changes to it will not be noticed by incremental generation`);
+      version[plugin] = '';
+    }
+  }
+
+  return version;
+}
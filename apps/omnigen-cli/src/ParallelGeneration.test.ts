@@ -0,0 +1,88 @@
+import fs from 'fs';
+import os from 'os';
+import path from 'path';
+import {describe, test} from 'vitest';
+import {createGenerationJobs, GenerationJobResult, mergeCompilationUnits, runGenerationJobs, TransferableCompilationUnit} from './ParallelGeneration';
+
+describe('ParallelGeneration', () => {
+
+  function unit(directories: string[], fileName: string, content: string): TransferableCompilationUnit {
+    return {name: fileName, fileName: fileName, directories: directories, content: content};
+  }
+
+  function getPaths(units: TransferableCompilationUnit[]): string[] {
+    return units.map(it => [...it.directories, it.fileName].join('/'));
+  }
+
+  test('creates one job per input and target, in input order, sharing the content of each input', async ctx => {
+
+    const dir = fs.mkdtempSync(path.join(os.tmpdir(), 'omnigen-jobs-'));
+    const first = path.join(dir, 'first.json');
+    const second = path.join(dir, 'second.json');
+    fs.writeFileSync(first, '{"a": 1}');
+    fs.writeFileSync(second, '{"b": 2}');
+
+    const jobs = createGenerationJobs([first, second], ['java', 'typescript'], {targets: 'java,typescript', target: 'csharp', other: 'x'}, ['plugin']);
+
+    ctx.expect(jobs.map(it => it.index)).toEqual([0, 1, 2, 3]);
+    ctx.expect(jobs.map(it => [path.basename(it.file), it.target])).toEqual([
+      ['first.json', 'java'],
+      ['first.json', 'typescript'],
+      ['second.json', 'java'],
+      ['second.json', 'typescript'],
+    ]);
+
+    ctx.expect(jobs[0].fileContent).toBe(jobs[1].fileContent);
+    ctx.expect(jobs[0].fileContent).not.toBe(jobs[2].fileContent);
+    ctx.expect(Buffer.from(new Uint8Array(jobs[2].fileContent)).toString('utf8')).toEqual('{"b": 2}');
+
+    ctx.expect(jobs[1].arguments).toEqual({file: first, outputFiles: 'false', target: 'typescript', other: 'x'});
+    ctx.expect(jobs[1].plugins).toEqual(['plugin']);
+  });
+
+  test('a job without a target does not keep the target of the arguments', async ctx => {
+
+    const dir = fs.mkdtempSync(path.join(os.tmpdir(), 'omnigen-jobs-'));
+    const input = path.join(dir, 'input.json');
+    fs.writeFileSync(input, '{}');
+
+    const jobs = createGenerationJobs([input], [undefined], {target: 'java'}, []);
+
+    ctx.expect(jobs).toHaveLength(1);
+    ctx.expect(jobs[0].target).toBeUndefined();
+    ctx.expect(jobs[0].arguments).toEqual({file: input, outputFiles: 'false'});
+  });
+
+  test('merges in job order and by path, whichever order the jobs finished in', async ctx => {
+
+    const results: GenerationJobResult[] = [
+      {index: 1, compilationUnits: [unit(['b'], 'Z.java', 'z'), unit(['a'], 'Y.java', 'y')], dependencies: []},
+      {index: 0, compilationUnits: [unit(['c'], 'X.java', 'x'), unit(['a'], 'W.java', 'w')], dependencies: []},
+    ];
+
+    const merged = getPaths(mergeCompilationUnits(results));
+    ctx.expect(merged).toEqual(['a/W.java', 'c/X.java', 'a/Y.java', 'b/Z.java']);
+    ctx.expect(getPaths(mergeCompilationUnits([...results].reverse()))).toEqual(merged);
+  });
+
+  test('keeps a file produced by several jobs once if the content is the same, and fails if it differs', async ctx => {
+
+    const same = mergeCompilationUnits([
+      {index: 0, compilationUnits: [unit(['a'], 'Shared.java', 'same')], dependencies: []},
+      {index: 1, compilationUnits: [unit(['a'], 'Shared.java', 'same'), unit(['a'], 'Other.java', 'other')], dependencies: []},
+    ]);
+    ctx.expect(getPaths(same)).toEqual(['a/Shared.java', 'a/Other.java']);
+
+    ctx.expect(() => mergeCompilationUnits([
+      {index: 0, compilationUnits: [unit(['a'], 'Shared.java', 'first')], dependencies: []},
+      {index: 1, compilationUnits: [unit(['a'], 'Shared.java', 'second')], dependencies: []},
+    ])).toThrow(/'a\/Shared\.java' with different content/);
+  });
+
+  test('rejects a pool size that is not a positive integer', async ctx => {
+
+    for (const poolSize of [Number.NaN, 0, -1, 1.5]) {
+      await ctx.expect(runGenerationJobs([], new URL(import.meta.url), os.tmpdir(), poolSize)).rejects.toThrow(/positive integer/);
+    }
+  });
+});
@@ -0,0 +1,240 @@
+import {parentPort, Worker} from 'worker_threads';
+import * as fs from 'fs';
+import * as os from 'os';
+import * as path from 'path';
+import {LoggerFactory} from '@omnigen/core-log';
+import {BaseContext, FileContext} from '@omnigen/core-plugin';
+import {PluginManager} from '@omnigen/plugin';
+import {DocumentDependencies, FileWriter, RunManifest} from '@omnigen/core';
+import {RenderedCompilationUnit} from '@omnigen/api';
+import {getJobRunId} from './IncrementalGeneration';
+
+const logger = LoggerFactory.create(import.meta.url);
+
+/**
+ * One independent generation, of one input for one target, that can run in its own worker.
+ */
+export interface GenerationJob {
+  index: number;
+  file: string;
+  /**
+   * The content of the file, read once by the main thread and shared with all the workers without being copied.
+   */
+  fileContent: SharedArrayBuffer;
+  target: string | undefined;
+  arguments: Record<string, string>;
+  plugins: string[];
+}
+
+export type TransferableCompilationUnit = Omit<RenderedCompilationUnit, 'node'>;
+
+export interface GenerationJobResult {
+  index: number;
+  compilationUnits: TransferableCompilationUnit[];
+  /**
+   * Absolute paths or uris of the documents that were read by the job, besides its input file.
+   */
+  dependencies: string[];
+  error?: string | undefined;
+}
+
+export interface IncrementalGenerationOptions {
+  manifest: RunManifest;
+  generator: Record<string, string>;
+}
+
+/**
+ * Creates one job per input and target, where each input is read once and shared between the jobs that use it.
+ */
+export function createGenerationJobs(inputs: string[], targets: (string | undefined)[], args: Record<string, string>, plugins: string[]): GenerationJob[] {
+
+  const jobs: GenerationJob[] = [];
+  for (const input of inputs) {
+
+    const content = fs.readFileSync(input);
+    const shared = new SharedArrayBuffer(content.byteLength);
+    new Uint8Array(shared).set(content);
+
+    for (const target of targets) {
+
+      const jobArgs: Record<string, string> = {...args, file: input, outputFiles: 'false'};
+      delete jobArgs['targets'];
+      if (target) {
+        jobArgs['target'] = target;
+      } else {
+        delete jobArgs['target'];
+      }
+
+      jobs.push({index: jobs.length, file: input, fileContent: shared, target: target, arguments: jobArgs, plugins: plugins});
+    }
+  }
+
+  return jobs;
+}
+
+/**
+ * Runs the jobs in a pool of worker threads, and writes the merged result.
+ *
+ * @param workerUrl The module that the workers start, which must call `runGenerationWorker` when it is not the main thread
+ * @param poolSize Max number of workers, by default as many as there are cores
+ * @param incremental If given, then jobs whose documents, options and plugins have not changed since the last run are skipped
+ */
+export async function runGenerationJobs(
+  allJobs: GenerationJob[],
+  workerUrl: URL,
+  outputDir: string,
+  poolSize = os.cpus().length,
+  incremental?: IncrementalGenerationOptions,
+): Promise<string[]> {
+
+  if (!Number.isInteger(poolSize) || poolSize < 1) {
+    throw new Error(`The pool size must be a positive integer, but was ${poolSize}`);
+  }
+
+  const getKey = (job: GenerationJob) => RunManifest.createKey({arguments: job.arguments, generator: incremental?.generator});
+  const jobs = incremental
+    ? allJobs.filter(job => !incremental.manifest.isUpToDate(getJobRunId(job.file, job.target), getKey(job)))
+    : allJobs;
+
+  if (jobs.length < allJobs.length) {
+    logger.info(`Skipping ${allJobs.length - jobs.length} of ${allJobs.length} generation(s) that have not changed since the last run`);
+  }
+  if (jobs.length === 0) {
+    return [];
+  }
+
+  const size = Math.max(1, Math.min(poolSize, jobs.length));
+  logger.info(`Running ${jobs.length} generation(s) in ${size} worker(s)`);
+
+  const results: GenerationJobResult[] = [];
+  const queue = [...jobs];
+
+  const runWorker = async () => {
+
+    const worker = new Worker(workerUrl, {execArgv: process.execArgv});
+    try {
+      for (let job = queue.shift(); job; job = queue.shift()) {
+        results.push(await runInWorker(worker, job));
+      }
+    } finally {
+      await worker.terminate();
+    }
+  };
+
+  const workers: Promise<void>[] = [];
+  for (let i = 0; i < size; i++) {
+    workers.push(runWorker());
+  }
+  await Promise.all(workers);
+
+  const failed = results.filter(it => it.error !== undefined);
+  if (failed.length > 0) {
+    const messages = failed.map(it => `${allJobs[it.index].file} (${allJobs[it.index].target ?? 'any'}): ${it.error}`);
+    throw new Error(`${failed.length} generation(s) failed:\n${messages.join('\n')}`);
+  }
+
+  const written = await new FileWriter(outputDir).writeAll(mergeCompilationUnits(results));
+
+  if (incremental) {
+    for (const result of results) {
+      const job = allJobs[result.index];
+      const outputs = result.compilationUnits.map(it => FileWriter.getRelativePath(it));
+      incremental.manifest.set(getJobRunId(job.file, job.target), getKey(job), [path.resolve(job.file), ...result.dependencies], outputs);
+    }
+    incremental.manifest.save();
+  }
+
+  return written;
+}
+
+function runInWorker(worker: Worker, job: GenerationJob): Promise<GenerationJobResult> {
+
+  return new Promise((resolve, reject) => {
+
+    const onMessage = (result: GenerationJobResult) => {
+      worker.off('error', onError);
+      resolve(result);
+    };
+    const onError = (error: Error) => {
+      worker.off('message', onMessage);
+      reject(error);
+    };
+
+    worker.once('message', onMessage);
+    worker.once('error', onError);
+    worker.postMessage(job);
+  });
+}
+
+/**
+ * Merges the results in job order, and each job's units by their path, so the output does not depend on which worker finished first.
+ * The same file from several jobs is only kept once, as long as the content is the same.
+ */
+export function mergeCompilationUnits(results: GenerationJobResult[]): TransferableCompilationUnit[] {
+
+  const byPath = new Map<string, TransferableCompilationUnit>();
+  for (const result of [...results].sort((a, b) => a.index - b.index)) {
+
+    const units = [...result.compilationUnits].sort((a, b) => getUnitPath(a).localeCompare(getUnitPath(b)));
+    for (const unit of units) {
+
+      const unitPath = getUnitPath(unit);
+      const existing = byPath.get(unitPath);
+      if (existing && existing.content !== unit.content) {
+        throw new Error(`Several generations produced '${unitPath}' with different content`);
+      }
+
+      byPath.set(unitPath, unit);
+    }
+  }
+
+  return [...byPath.values()];
+}
+
+function getUnitPath(unit: TransferableCompilationUnit): string {
+  return [...unit.directories, unit.fileName].join('/');
+}
+
+/**
+ * The worker side, which executes each job it is given and responds with the rendered compilation units.
+ */
+export function runGenerationWorker(): void {
+
+  if (!parentPort) {
+    throw new Error(`Must be started as a worker thread`);
+  }
+
+  const port = parentPort;
+  const importedPlugins = new Set<string>();
+  const pluginManager = new PluginManager();
+
+  port.on('message', async (job: GenerationJob) => {
+
+    try {
+      for (const plugin of job.plugins) {
+        if (!importedPlugins.has(plugin)) {
+          importedPlugins.add(plugin);
+          await pluginManager.importPlugin({packageName: plugin});
+        }
+      }
+
+      const ctx: BaseContext & FileContext = {
+        arguments: job.arguments,
+        file: job.file,
+        fileContent: new Uint8Array(job.fileContent),
+      };
+
+      const {result: execution, dependencies} = await DocumentDependencies.track(() => pluginManager.execute({ctx: ctx}));
+      const rendered = ('compilationUnits' in execution.result.ctx ? execution.result.ctx.compilationUnits : []) as RenderedCompilationUnit[];
+
+      port.postMessage({
+        index: job.index,
+        compilationUnits: rendered.map(it => ({name: it.name, fileName: it.fileName, directories: [...it.directories], content: it.content})),
+        dependencies: dependencies,
+      } satisfies GenerationJobResult);
+
+    } catch (ex) {
+      port.postMessage({index: job.index, compilationUnits: [], dependencies: [], error: String(ex instanceof Error ? (ex.stack ?? ex.message) : ex)} satisfies GenerationJobResult);
+    }
+  });
+}
@@ -12,7 +12,13 @@ import {OpenRpcPlugins} from '@omnigen/parser-openrpc';
 import {JavaPlugins} from '@omnigen/target-java';
 import {TypeScriptPlugins} from '@omnigen/target-typescript';
 import {CSharpPlugins} from '@omnigen/target-csharp';
-import {CorePlugins} from '@omnigen/core';
+import {CorePlugins, DocumentDependencies, RunManifest} from '@omnigen/core';
+
+import {isMainThread} from 'worker_threads';
+import {createGenerationJobs, runGenerationJobs, runGenerationWorker} from './ParallelGeneration';
+import {getGeneratorVersion, WHOLE_RUN_ID} from './IncrementalGeneration';
+import {createGenerationArguments, GenerationRequest, parseKeyValueArguments} from './GenerationRequest';
+import {DAEMON_TOKEN_VARIABLE, GenerationDaemon, getDefaultSocketPath} from './GenerationDaemon';
 
 import figlet from 'figlet';
 // @ts-ignore
@@ -23,98 +29,167 @@ LoggerFactory.consumeDebug();
 
 const logger = LoggerFactory.create(import.meta.url);
 
-try {
-  figlet.parseFont('Chunky', chunky);
-  logger.info(`\n${figlet.textSync('Omnigen', {
-    font: 'Chunky'
-  })}`);
-} catch (ex) {
-  logger.info(`Omnigen`);
-}
+if (!isMainThread) {
 
-console.log(`Loaded: ${[CorePlugins, JsonSchemaPlugins, OpenApiPlugins, OpenRpcPlugins, JavaPlugins, TypeScriptPlugins, CSharpPlugins].length} plugins`);
-
-(async () => {
-
-  const program = new Command();
-  const options = program
-    .version('1.0.0')
-    .description('Node CLI for running Omnigen')
-    .option('-l, --ls', 'List all available inputs and output')
-    .option('-p, --plugins <value...>', 'Set root directories/file paths for plugin discovery, as globs')
-    // .option('-a, --allow', 'Set allowed filename pattern for plugin discovery', '.*')
-    // .option('-d, --disallow', 'Set disallowed filename pattern for plugin discovery')
-    .requiredOption('-i, --input <value...>', 'Specify input schemas or configuration file(s)')
-    .requiredOption('-o, --output <value>', 'Output dir')
-    .option('-t, --types <value...>', 'Output type(s). If none, then uses first suitable plugin')
-    .option('-v, --verbose [enabled]', 'Enable extra logs while processing')
-    .option('-a, --args <args...>', 'Extra arguments that will be used by system and plugins, in key=value form')
-    .parse(process.argv)
-    .showHelpAfterError()
-    .opts();
-
-  const pluginManager = new PluginManager();
-
-  if (options.verbose) {
-    console.table(options);
+  // This same module is started as the worker threads of a parallel generation, see `--jobs`.
+  logger.debug(`Loaded ${[CorePlugins, JsonSchemaPlugins, OpenApiPlugins, OpenRpcPlugins, JavaPlugins, TypeScriptPlugins, CSharpPlugins].length} plugins in worker`);
+  runGenerationWorker();
+} else {
+
+  try {
+    figlet.parseFont('Chunky', chunky);
+    logger.info(`\n${figlet.textSync('Omnigen', {
+      font: 'Chunky'
+    })}`);
+  } catch (ex) {
+    logger.info(`Omnigen`);
   }
 
-  const args: Record<string, string> = {};
-  for (const [key, value] of (options.args ?? []).map(it => it.split('='))) {
-    if (key !== undefined && value !== undefined) {
-      args[key] = value;
+  console.log(`Loaded: ${[CorePlugins, JsonSchemaPlugins, OpenApiPlugins, OpenRpcPlugins, JavaPlugins, TypeScriptPlugins, CSharpPlugins].length} plugins`);
+
+  (async () => {
+
+    const program = new Command();
+    const options = program
+      .version('1.0.0')
+      .description('Node CLI for running Omnigen')
+      .option('-l, --ls', 'List all available inputs and output')
+      .option('-p, --plugins <value...>', 'Set root directories/file paths for plugin discovery, as globs')
+      // .option('-a, --allow', 'Set allowed filename pattern for plugin discovery', '.*')
+      // .option('-d, --disallow', 'Set disallowed filename pattern for plugin discovery')
+      .option('-i, --input <value...>', 'Specify input schemas or configuration file(s). Required unless only listening to --socket')
+      .option('-o, --output <value>', 'Output dir. Required unless only listening to --socket')
+      .option('-t, --types <value...>', 'Output type(s). If none, then uses first suitable plugin')
+      .option('-v, --verbose [enabled]', 'Enable extra logs while processing')
+      .option('-a, --args <args...>', 'Extra arguments that will be used by system and plugins, in key=value form')
+      .option('-j, --jobs [count]', 'Generate each input and output type in parallel worker threads, by default as many as there are cores')
+      .option('--incremental', 'Skip generation if no input document, argument or plugin has changed since the last run into the same output. With --jobs this is decided per input and output type. Only when running the built CLI')
+      .option('-w, --watch', 'Keep running, and generate again whenever a document that the input reads is changed')
+      .option('--socket [path]', `Keep running, and accept generation requests as lines of JSON on a local socket, by default one per user in the temp directory. A port number listens on the loopback interface instead, and 0 picks a free port. If ${DAEMON_TOKEN_VARIABLE} is set, requests must have that token`)
+      .option('--idle-timeout <seconds>', 'Stop listening to --socket after this many seconds without requests')
+      .parse(process.argv)
+      .showHelpAfterError()
+      .opts();
+
+    const pluginManager = new PluginManager();
+
+    if (options.verbose) {
+      console.table(options);
     }
-  }
 
-  if (options.types) {
-    if (options.types.length > 1) {
-      args['targets'] = options.types.join(',');
-    } else {
-      const [first] = options.types;
-      if (first !== undefined) {
-        args['target'] = first;
+    const input = options.input ?? [];
+    const output = options.output ?? '';
+    if ((input.length === 0 || !output) && !options.socket) {
+      program.error(`error: options '-i, --input <value...>' and '-o, --output <value>' are required, unless only listening to --socket`);
+    }
+
+    // A count that is not a number would otherwise start no workers, and finish without generating anything.
+    const poolSize = typeof options.jobs === 'string' ? Number(options.jobs) : undefined;
+    if (poolSize !== undefined && (!Number.isInteger(poolSize) || poolSize < 1)) {
+      program.error(`error: option '-j, --jobs [count]' must be a positive integer, but was '${options.jobs}'`);
+    }
+
+    const importPlugins = async () => {
+      if (options.plugins) {
+        for (const plugin of options.plugins) {
+          console.log(`Importing plugin ${plugin}`);
+          await pluginManager.importPlugin({
+            packageName: plugin,
+          });
+        }
+
+        const registered = pluginManager.getPlugins().map(it => it.name).join(', ');
+        logger.info(`Plugins registered: [${registered}]`);
+      } else {
+
+        const registered = pluginManager.getPlugins().map(it => it.name).join(', ');
+        logger.debug(`Will not import any plugins, will execute based on those already auto-registered: [${registered}]`);
+      }
+    };
+
+    const request: GenerationRequest = {
+      input: input,
+      output: output,
+      types: options.types,
+      args: parseKeyValueArguments(options.args ?? []),
+    };
+
+    if (options.watch || options.socket) {
+
+      await importPlugins();
+      const daemon = new GenerationDaemon(pluginManager);
+
+      if (options.watch && input.length > 0) {
+        await daemon.watch(request);
+      }
+
+      if (options.socket) {
+        const socketPath = typeof options.socket === 'string' ? options.socket : getDefaultSocketPath();
+        const idleTimeout = options.idleTimeout ? Number.parseFloat(options.idleTimeout) * 1000 : 0;
+        const token = process.env[DAEMON_TOKEN_VARIABLE] || undefined;
+
+        // Not passed on to anything that the plugins might start.
+        delete process.env[DAEMON_TOKEN_VARIABLE];
+        await daemon.listen(socketPath, idleTimeout, token);
+        process.exit(0);
       }
+
+      // Only watching, so the watchers keep the process alive.
+      return;
     }
-  }
 
-  args['file'] = options.input.join(',');
+    const args = createGenerationArguments(request);
 
-  args['outputDirBase'] = options.output;
-  if (options.output) {
-    args['outputFiles'] = 'true';
-  }
+    const startTime = new Date();
 
-  const startTime = new Date();
-  const runOptions: BaseContext & FileContext = {
-    arguments: args,
-    file: args['file'],
-  };
-
-  if (options.plugins) {
-    for (const plugin of options.plugins) {
-      console.log(`Importing plugin ${plugin}`);
-      await pluginManager.importPlugin({
-        packageName: plugin,
-      });
+    const generator = options.incremental ? getGeneratorVersion(options.plugins ?? []) : undefined;
+    if (options.incremental && !generator) {
+      logger.warn(`Not running from the built CLI, so changes to the generator cannot be noticed, and --incremental is ignored`);
     }
 
-    const registered = pluginManager.getPlugins().map(it => it.name).join(', ');
-    logger.info(`Plugins registered: [${registered}]`);
-  } else {
+    const manifest = generator ? new RunManifest(output) : undefined;
 
-    const registered = pluginManager.getPlugins().map(it => it.name).join(', ');
-    logger.debug(`Will not import any plugins, will execute based on those already auto-registered: [${registered}]`);
-  }
+    const targets = options.types && options.types.length > 0 ? options.types : [undefined];
+    if (options.jobs && input.length * targets.length > 1) {
 
-  const execution = await pluginManager.execute({ctx: runOptions, debug: true});
+      const jobs = createGenerationJobs(input, targets, args, options.plugins ?? []);
+      const incremental = manifest && generator ? {manifest: manifest, generator: generator} : undefined;
+      const written = await runGenerationJobs(jobs, new URL(import.meta.url), output, poolSize, incremental);
 
-  const stopTime = new Date();
-  const timeTaken = stopTime.getTime() - startTime.getTime();
-  logger.info(`Execution finished in ${timeTaken}ms: %o`, Object.keys(execution.result.ctx));
+      logger.info(`Parallel execution finished in ${new Date().getTime() - startTime.getTime()}ms, wrote ${written.length} files`);
+      process.exit(0);
+    }
+
+    const runKey = RunManifest.createKey({arguments: args, generator: generator});
+    if (manifest && manifest.isUpToDate(WHOLE_RUN_ID, runKey)) {
+      logger.info(`Nothing has changed since the last run into ${output}, skipping generation`);
+      process.exit(0);
+    }
 
-  process.exit(0);
+    const runOptions: BaseContext & FileContext = {
+      arguments: args,
+      file: args['file'],
+    };
 
-  if (options.ls) {
-    logger.info(`This is when we should list the inputs and outputs, all registered dynamically`);
-  }
-})();
+    await importPlugins();
+
+    const {result: execution, dependencies} = await DocumentDependencies.track(() => pluginManager.execute({ctx: runOptions, debug: true}));
+
+    if (manifest) {
+      const resultCtx = execution.result.ctx;
+      const writtenFiles = ('writtenFiles' in resultCtx && Array.isArray(resultCtx.writtenFiles)) ? resultCtx.writtenFiles as string[] : [];
+      manifest.set(WHOLE_RUN_ID, runKey, dependencies, writtenFiles);
+      manifest.save();
+    }
+
+    const stopTime = new Date();
+    const timeTaken = stopTime.getTime() - startTime.getTime();
+    logger.info(`Execution finished in ${timeTaken}ms: %o`, Object.keys(execution.result.ctx));
+
+    process.exit(0);
+
+    if (options.ls) {
+      logger.info(`This is when we should list the inputs and outputs, all registered dynamically`);
+    }
+  })();
+}
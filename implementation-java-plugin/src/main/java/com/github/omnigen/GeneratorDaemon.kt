@@ -0,0 +1,269 @@
+package com.github.omnigen
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.node.ObjectNode
+import org.slf4j.LoggerFactory
+import java.io.BufferedReader
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.InputStreamReader
+import java.io.OutputStreamWriter
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.net.Socket
+import java.nio.charset.StandardCharsets
+import java.security.SecureRandom
+import java.util.Base64
+import java.util.WeakHashMap
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+/**
+ * A generator started with `omnigen-cli --socket 0`, which stays alive and takes generation requests as lines of JSON.
+ *
+ * One daemon is started per Maven session and shared by every execution of the plugin in it, also from parallel (`-T`) builds.
+ * Every request is sent on its own connection, and the daemon runs them one after the other.
+ * The daemon stops by itself after being idle for a while, and is asked to stop when the JVM exits.
+ *
+ * The daemon picks a free port itself and reports it on stdout. Any local process can connect to the port,
+ * so every request carries a random token that the daemon was given through its environment, and requests without it are rejected.
+ */
+class GeneratorDaemon private constructor(
+  private val port: Int,
+  private val token: String,
+  private val process: Process,
+  private val logFile: File,
+  private val requestTimeoutSeconds: Int
+) {
+
+  fun generate(request: ObjectNode): JsonNode {
+    return send(request, requestTimeoutSeconds)
+  }
+
+  private fun ping(): Boolean {
+    val request = objectMapper.createObjectNode()
+    request.put("command", "ping")
+    return send(request, CONTROL_TIMEOUT_SECONDS).path("ok").asBoolean(false)
+  }
+
+  /**
+   * A running process is not enough, since after its idle timeout the daemon stops listening a while before it exits.
+   * The ping also restarts the idle timeout, so the daemon stays for the request that comes after it.
+   */
+  private fun isResponsive(): Boolean {
+    if (!process.isAlive) {
+      return false
+    }
+
+    return try {
+      ping()
+    } catch (ex: IOException) {
+      log.debug("Generator daemon on port {} no longer responds, starting a new one: {}", port, ex.message)
+      false
+    }
+  }
+
+  private fun shutdown() {
+    if (!process.isAlive) {
+      return
+    }
+
+    try {
+      val request = objectMapper.createObjectNode()
+      request.put("command", "shutdown")
+      send(request, CONTROL_TIMEOUT_SECONDS)
+      process.waitFor(5, TimeUnit.SECONDS)
+    } catch (ex: Exception) {
+      log.debug("Could not ask generator daemon to shut down: {}", ex.message)
+    }
+
+    if (process.isAlive) {
+      process.destroy()
+    }
+  }
+
+  /**
+   * @param timeoutSeconds How long to wait for the response, after which the daemon is considered hung
+   */
+  private fun send(request: ObjectNode, timeoutSeconds: Int): JsonNode {
+
+    Socket().use { socket ->
+
+      socket.connect(InetSocketAddress(InetAddress.getLoopbackAddress(), port), TimeUnit.SECONDS.toMillis(CONTROL_TIMEOUT_SECONDS.toLong()).toInt())
+      socket.soTimeout = TimeUnit.SECONDS.toMillis(timeoutSeconds.toLong()).toInt()
+
+      request.put("token", token)
+      val writer = OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)
+      writer.write(objectMapper.writeValueAsString(request))
+      writer.write("\n")
+      writer.flush()
+
+      val reader = BufferedReader(InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))
+      val line = reader.readLine() ?: throw IOException("Generator daemon closed the connection without responding, see $logFile")
+      return objectMapper.readTree(line)
+    }
+  }
+
+  companion object {
+    private val log = LoggerFactory.getLogger(GeneratorDaemon::class.java)
+    private val objectMapper = ObjectMapper()
+
+    /**
+     * Environment variable that the daemon reads the token from, see `DAEMON_TOKEN_VARIABLE` of `omnigen-cli`.
+     */
+    private const val TOKEN_VARIABLE = "OMNIGEN_DAEMON_TOKEN"
+
+    /**
+     * Start of the line that the daemon writes to stdout with its port, see `DAEMON_PORT_PREFIX` of `omnigen-cli`.
+     */
+    private const val PORT_PREFIX = "omnigen-daemon-port: "
+
+    /**
+     * Timeout of connecting, and of the responses to requests that do not generate anything.
+     */
+    private const val CONTROL_TIMEOUT_SECONDS = 10
+
+    private val random = SecureRandom()
+
+    /**
+     * Daemons by the session they were started for. Weak, so a finished session does not keep its daemon client around.
+     */
+    private val daemons = WeakHashMap<Any, GeneratorDaemon>()
+
+    /**
+     * Every daemon that was started and might still run, which the one shutdown hook asks to stop.
+     */
+    private val started = mutableListOf<GeneratorDaemon>()
+    private var shutdownHookAdded = false
+
+    /**
+     * Returns the daemon of the session, and starts it if there is none or if it no longer responds.
+     * Executions that ask at the same time wait for the same daemon to start, instead of starting one each.
+     *
+     * @param command The command that starts `omnigen-cli`, to which the socket arguments are added
+     * @param requestTimeoutSeconds How long to wait for a generation, including the time it waits for generations of other executions
+     */
+    @JvmStatic
+    fun getOrStart(
+      session: Any,
+      command: List<String>,
+      workingDirectory: File,
+      idleTimeoutSeconds: Int,
+      startupTimeoutSeconds: Int,
+      requestTimeoutSeconds: Int
+    ): GeneratorDaemon {
+
+      synchronized(daemons) {
+        val existing = daemons[session]
+        if (existing != null && existing.isResponsive()) {
+          return existing
+        }
+        existing?.shutdown()
+
+        val daemon = start(command, workingDirectory, idleTimeoutSeconds, startupTimeoutSeconds, requestTimeoutSeconds)
+        daemons[session] = daemon
+
+        started.removeIf { !it.process.isAlive }
+        started.add(daemon)
+        if (!shutdownHookAdded) {
+          Runtime.getRuntime().addShutdownHook(Thread { shutdownAll() })
+          shutdownHookAdded = true
+        }
+
+        return daemon
+      }
+    }
+
+    private fun shutdownAll() {
+      val toStop = synchronized(daemons) { started.toList() }
+      for (daemon in toStop) {
+        daemon.shutdown()
+      }
+    }
+
+    private fun start(
+      command: List<String>,
+      workingDirectory: File,
+      idleTimeoutSeconds: Int,
+      startupTimeoutSeconds: Int,
+      requestTimeoutSeconds: Int
+    ): GeneratorDaemon {
+
+      val fullCommand = command + listOf("--socket", "0", "--idle-timeout", idleTimeoutSeconds.toString())
+
+      workingDirectory.mkdirs()
+      val logFile = File(workingDirectory, "omnigen-daemon.log")
+      log.info("Starting generator daemon: '{}' in '{}', logging to '{}'", fullCommand.joinToString("' '"), workingDirectory.absolutePath, logFile.absolutePath)
+
+      val tokenBytes = ByteArray(32)
+      random.nextBytes(tokenBytes)
+      val token = Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes)
+
+      val processBuilder = ProcessBuilder(fullCommand)
+        .directory(workingDirectory)
+        .redirectErrorStream(true)
+      processBuilder.environment()[TOKEN_VARIABLE] = token
+      val process = processBuilder.start()
+
+      val port = readPort(process, logFile)
+      val listeningPort = try {
+        port.get(startupTimeoutSeconds.toLong(), TimeUnit.SECONDS)
+      } catch (ex: TimeoutException) {
+        process.destroy()
+        throw IOException("Generator daemon was not ready within $startupTimeoutSeconds seconds, see $logFile")
+      } catch (ex: ExecutionException) {
+        process.waitFor(5, TimeUnit.SECONDS)
+        val exitValue = if (process.isAlive) "nothing" else process.exitValue().toString()
+        throw IOException("Generator daemon exited with $exitValue before it was ready, see $logFile", ex.cause)
+      }
+
+      val daemon = GeneratorDaemon(listeningPort, token, process, logFile, requestTimeoutSeconds)
+      if (!daemon.ping()) {
+        daemon.shutdown()
+        throw IOException("Generator daemon did not accept requests on port $listeningPort, see $logFile")
+      }
+
+      log.info("Generator daemon is listening on port {}", listeningPort)
+      return daemon
+    }
+
+    /**
+     * Copies the output of the daemon to the log file for as long as it runs, and picks out the port it reports on the way.
+     */
+    private fun readPort(process: Process, logFile: File): CompletableFuture<Int> {
+
+      val port = CompletableFuture<Int>()
+      val thread = Thread({
+        try {
+          BufferedReader(InputStreamReader(process.inputStream, StandardCharsets.UTF_8)).use { reader ->
+            OutputStreamWriter(FileOutputStream(logFile, true), StandardCharsets.UTF_8).use { writer ->
+              while (true) {
+                val line = reader.readLine() ?: break
+                val reported = if (line.startsWith(PORT_PREFIX)) line.substring(PORT_PREFIX.length).trim().toIntOrNull() else null
+                if (reported != null) {
+                  port.complete(reported)
+                }
+
+                writer.write(line)
+                writer.write(System.lineSeparator())
+                writer.flush()
+              }
+            }
+          }
+        } catch (ex: Exception) {
+          port.completeExceptionally(ex)
+        }
+
+        port.completeExceptionally(IOException("Generator daemon output ended without a port"))
+      }, "omnigen-daemon-output")
+
+      thread.isDaemon = true
+      thread.start()
+      return port
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.github.omnigen
 
 import com.fasterxml.jackson.core.io.JsonStringEncoder
+import com.fasterxml.jackson.databind.JsonNode
 import com.fasterxml.jackson.databind.ObjectMapper
 import com.fasterxml.jackson.databind.node.ObjectNode
 import com.github.omnigen.CommandHelper.executeCommand
@@ -14,6 +15,7 @@ import org.apache.maven.model.PluginExecution
 import org.apache.maven.plugin.AbstractMojo
 import org.apache.maven.plugin.BuildPluginManager
 import org.apache.maven.plugin.MojoExecution
+import org.apache.maven.plugin.MojoExecutionException
 import org.apache.maven.plugins.annotations.*
 import org.apache.maven.project.MavenProject
 import org.codehaus.plexus.util.xml.Xpp3Dom
@@ -73,6 +75,43 @@ class OmnigenMojo : AbstractMojo() {
   @Parameter(property = "nodeWorkingPath")
   private var nodeWorkingPath: File? = null
 
+  /**
+   * Send the generation to a generator daemon that is shared by all executions in the build, instead of running npm for each execution.
+   * Only used if there are [inputs], since the npm script decides the inputs by itself.
+   */
+  @Parameter(property = "omnigen.daemon", defaultValue = "true")
+  var daemon = true
+
+  @Parameter(property = "omnigen.inputs")
+  private var inputs: List<File>? = null
+
+  @Parameter(property = "omnigen.types")
+  private var types: List<String>? = null
+
+  /**
+   * Extra arguments that will be used by system and plugins.
+   */
+  @Parameter
+  private var arguments: Map<String, String>? = null
+
+  /**
+   * Command that starts the generator, to which the daemon arguments are added. By default `npm exec -- omnigen-cli`.
+   */
+  @Parameter
+  private var daemonCommand: List<String>? = null
+
+  @Parameter(property = "omnigen.daemonIdleTimeout", defaultValue = "120")
+  var daemonIdleTimeout = 120
+
+  @Parameter(property = "omnigen.daemonStartupTimeout", defaultValue = "60")
+  var daemonStartupTimeout = 60
+
+  /**
+   * Seconds to wait for the daemon to generate, including the time spent waiting for the generations of other executions.
+   */
+  @Parameter(property = "omnigen.daemonRequestTimeout", defaultValue = "600")
+  var daemonRequestTimeout = 600
+
   override fun execute() {
 
     if (nodeWorkingPath == null) {
@@ -112,6 +151,12 @@ class OmnigenMojo : AbstractMojo() {
 //    }
 
     val objectMapper = ObjectMapper()
+    val inputFiles = inputs ?: emptyList()
+    if (daemon && inputFiles.isNotEmpty()) {
+      generateWithDaemon(objectMapper, inputFiles)
+      return
+    }
+
     val optionsJson: ObjectNode = objectMapper.createObjectNode()
     optionsJson.put("targetDir", generatedSourcesBaseDir.absolutePath)
 
@@ -123,6 +168,43 @@ class OmnigenMojo : AbstractMojo() {
 
   }
 
+  private fun generateWithDaemon(objectMapper: ObjectMapper, inputFiles: List<File>) {
+
+    val request: ObjectNode = objectMapper.createObjectNode()
+    request.put("command", "generate")
+    val inputArray = request.putArray("input")
+    for (input in inputFiles) {
+      inputArray.add(input.absolutePath)
+    }
+    request.put("output", generatedSourcesBaseDir.absolutePath)
+    types?.let { request.putArray("types").addAll(it.map { type -> objectMapper.nodeFactory.textNode(type) }) }
+    arguments?.let { request.set<JsonNode>("args", objectMapper.valueToTree<JsonNode>(it)) }
+
+    val command = daemonCommand ?: listOf(getNpmFile().absolutePath, "exec", "--", "omnigen-cli")
+
+    // The request is shared by all projects of the session, also when they are built in parallel, while each project gets its own session copy.
+    val sessionKey: Any = mavenSession?.request ?: this
+    val response = try {
+      GeneratorDaemon.getOrStart(sessionKey, command, nodeWorkingPath!!, daemonIdleTimeout, daemonStartupTimeout, daemonRequestTimeout).generate(request)
+    } catch (ex: Exception) {
+      throw MojoExecutionException("Could not generate with the generator daemon: ${ex.message}", ex)
+    }
+
+    if (!response.path("ok").asBoolean(false)) {
+      throw MojoExecutionException("Generation into '${generatedSourcesBaseDir.absolutePath}' failed: ${response.path("error").asText("unknown error")}")
+    }
+
+    log.info("Generated ${response.path("writtenFiles").size()} files into '${generatedSourcesBaseDir.absolutePath}' in ${response.path("timeMs").asLong()}ms")
+  }
+
+  private fun getNpmFile(): File {
+    return if (npmInstallPath.isDirectory) {
+      getNpmFileInDirectory(npmInstallPath)
+    } else {
+      npmInstallPath
+    }
+  }
+
   private fun executeNodePlugin(vararg arguments: String) {
 
     val plugin = MojoExecutor.plugin(
@@ -132,11 +214,7 @@ class OmnigenMojo : AbstractMojo() {
     )
     plugin.extensions = "true"
 
-    val npmFile: File = if (npmInstallPath.isDirectory) {
-      getNpmFileInDirectory(npmInstallPath)
-    } else {
-      npmInstallPath
-    }
+    val npmFile: File = getNpmFile()
 
     val workingAbsolutePath = nodeWorkingPath!!.absolutePath;
 
@@ -66,6 +66,28 @@ export const ZodParserOptions = ZodOptions.extend({
 
   literalUnionMaxCount: z.number().default(5),
 
+  /**
+   * File where the content hashes of schema documents that passed meta-schema validation are kept between runs.
+   * Documents whose hash is found in the file are not validated again. Validation is done for every document if not set.
+   */
+  schemaValidationCacheFile: z.string().optional(),
+
+  /**
+   * Directory where remote (`http`/`https`) schema documents are cached between runs, and revalidated with their `ETag`/`Last-Modified`.
+   */
+  remoteCacheDir: z.string().optional(),
+
+  /**
+   * Never fetch remote schema documents, only use what is already in `remoteCacheDir`.
+   */
+  offline: ZodCoercedBoolean.default('f'),
+
+  /**
+   * Directory where parsed models are kept between runs, keyed by the schema documents and these options.
+   * A run with the same documents and options loads the model from there instead of parsing again.
+   */
+  modelCacheDir: z.string().optional(),
+
   debug: ZodCoercedBoolean.default('false'),
 });
 
@@ -3,10 +3,17 @@ import {TargetOptions} from '../../interpret';
 import {ParserOptions} from '../ParserOptions';
 import {OmniModelTransformer2ndPassArgs} from './OmniModelTransformer2ndPassArgs';
 
-export interface OmniModelTransformer<TParserOpt extends ParserOptions = ParserOptions> {
+/**
+ * Set to `true` by transformers which never change which types extend which, so the cached type hierarchy of the model can be kept after they have run.
+ */
+export interface TypeHierarchyAware {
+  readonly keepsTypeHierarchy?: boolean;
+}
+
+export interface OmniModelTransformer<TParserOpt extends ParserOptions = ParserOptions> extends TypeHierarchyAware {
   transformModel(args: OmniModelTransformerArgs<TParserOpt>): void;
 }
 
-export interface OmniModel2ndPassTransformer<TOpt extends ParserOptions & TargetOptions = ParserOptions & TargetOptions> {
+export interface OmniModel2ndPassTransformer<TOpt extends ParserOptions & TargetOptions = ParserOptions & TargetOptions> extends TypeHierarchyAware {
   transformModel2ndPass(args: OmniModelTransformer2ndPassArgs<TOpt>): void;
 }
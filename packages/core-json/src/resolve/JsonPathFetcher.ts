@@ -2,6 +2,7 @@ import fetch from 'sync-fetch';
 import fs from 'fs';
 import pointer, {JsonObject} from 'json-pointer';
 import {LoggerFactory} from '@omnigen/core-log';
+import {DocumentDependencies} from '@omnigen/core';
 import {JsonUri} from '@omnigen-org/json-expander';
 import {DocumentStore} from './DocumentStore.ts';
 
@@ -24,6 +25,7 @@ export class JsonPathFetcher {
     }
 
     logger.silent(`Loading document '${path.absoluteFilePath}'`);
+    DocumentDependencies.record(path.absoluteFilePath);
     if (path.protocol === 'file') {
       document = JsonPathFetcher.file<JsonObject>(path.absoluteFilePath);
     } else if (path.protocol === 'http' || path.protocol === 'https') {
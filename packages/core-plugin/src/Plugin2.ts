@@ -5,6 +5,7 @@ import {
   OmniTypeLibrary,
   Renderer, TargetFeatures,
   ZodCoercedBoolean,
+  ZodCoercedNumber,
   ZodModelTransformOptions,
   ZodOptions,
   ZodPackageOptions,
@@ -63,6 +64,10 @@ export const ZodFilesContext = ZodBaseContext.extend({
 
 export const ZodFileContext = ZodBaseContext.extend({
   file: z.string(),
+  /**
+   * Already read content of `file`, for example shared between worker threads, so that it is not read again.
+   */
+  fileContent: z.instanceof(Uint8Array).optional(),
 });
 
 export const ZodTargetOptionsContext = ZodBaseContext.extend({
@@ -76,6 +81,19 @@ export const ZodPackageOptionsContext = ZodBaseContext.extend({
 export const ZodFileWriteOptions = ZodOptions.extend({
   outputFiles: ZodCoercedBoolean.default('f'),
   outputDirBase: z.string().default('./.generated'),
+  /**
+   * Write each compilation unit as soon as it is rendered and then let go of it, instead of first rendering all of them.
+   * Only used by targets that can render one unit at a time, and only if `outputDirBase` is a directory.
+   */
+  streamOutput: ZodCoercedBoolean.default('f'),
+  /**
+   * Max number of files that are written at the same time.
+   */
+  writeConcurrency: ZodCoercedNumber.default(16),
+  /**
+   * Keep a manifest of the written files in `outputDirBase`, and delete the files of the previous run that were not written again.
+   */
+  deleteStaleFiles: ZodCoercedBoolean.default('f'),
 });
 
 export const ZodFileWriteOptionsContext = z.object({
@@ -15,7 +15,7 @@ import {
   ZodTypeLibraryContext,
 } from '@omnigen/core-plugin';
 import {z} from 'zod';
-import {ConflictingIntersectionModelTransformer, SchemaFile, SimplifyInheritanceModelTransformer} from './parse';
+import {ConflictingIntersectionModelTransformer, OmniUtil, SchemaFile, SimplifyInheritanceModelTransformer} from './parse';
 import {
   OmniModel2ndPassTransformer,
   OmniModelTransformer,
@@ -30,6 +30,7 @@ import {DefaultOmniTypeLibrary} from './parse/DefaultOmniTypeLibrary';
 import {FileWriter} from './write';
 import {DefaultOmniModelLibrary} from './parse/DefaultOmniModelLibrary';
 import {LoggerFactory} from '@omnigen/core-log';
+import {RemoteDocumentCache} from './util';
 import {SimplifyNullablePrimitivesModelTransformer} from './parse/transform/SimplifyNullablePrimitivesModelTransformer.ts';
 
 const logger = LoggerFactory.create(import.meta.url);
@@ -74,8 +75,8 @@ export const CorePlugin = createPlugin(
     const parserOptions = ZodParserOptions.parse(currentArguments);
     const targetOptions = ZodTargetOptions.parse(currentArguments);
 
-    const schemaFile = new SchemaFile(ctx.file, ctx.file);
-    await schemaFile.prepare();
+    const schemaFile = new SchemaFile(ctx.fileContent ? Buffer.from(ctx.fileContent.buffer, ctx.fileContent.byteOffset, ctx.fileContent.byteLength) : ctx.file, ctx.file);
+    await schemaFile.prepare(new RemoteDocumentCache(parserOptions));
 
     return {
       ...ctx,
@@ -112,11 +113,10 @@ export const CommonTransformPlugin = createPlugin(
       options: {...ctx.parserOptions, ...ctx.modelTransformOptions},
     };
 
-    for (const transformer of transformers) {
+    // The parser might have looked at the type hierarchy while it was still building the model, so it is built again from the finished model.
+    OmniUtil.invalidateTypeHierarchy(transformArgs.model);
 
-      logger.trace(`Running ${transformer.constructor.name}`);
-      transformer.transformModel(transformArgs);
-    }
+    OmniUtil.runModelTransformers(transformers, transformArgs);
 
     return {
       ...ctx,
@@ -150,11 +150,7 @@ export const CommonTransform2Plugin = createPlugin(
       features: ctx.targetFeatures,
     };
 
-    for (const transformer of transformers) {
-
-      logger.trace(`Running ${transformer.constructor.name}`);
-      transformer.transformModel2ndPass(args);
-    }
+    OmniUtil.runModelTransformers2ndPass(transformers, args);
 
     return {
       ...ctx,
@@ -177,19 +173,19 @@ export const fileWriter = createPlugin(
 
     const currentArguments = {...ctx.defaults, ...ctx.arguments};
     const fileWriteOptions = ZodFileWriteOptions.parse(currentArguments);
-    const filesWritten: string[] = [];
+    let filesWritten: string[] = [];
 
     logger.debug(`Will start writing '${ctx.compilationUnits.length}' files: ${ctx.compilationUnits.map(it => it.fileName)}`);
 
-    if (fileWriteOptions.outputFiles) {
+    // Units that were streamed to disk already while rendering are not among the compilation units, but are still written files.
+    const alreadyWritten = ('writtenFiles' in ctx && Array.isArray(ctx.writtenFiles)) ? ctx.writtenFiles as string[] : [];
 
-      const fileWriter = new FileWriter(fileWriteOptions.outputDirBase);
+    if (fileWriteOptions.outputFiles) {
 
-      const parts = ctx.fileWriteOptions.outputDirBase.split('/');
-      const fileName = parts[parts.length - 1];
-      const isFileName = fileName.match(/\w+\.\w{1,3}/);
+      const fileWriter = new FileWriter(fileWriteOptions.outputDirBase, fileWriteOptions.writeConcurrency);
+      const isFilePath = FileWriter.isFilePath(ctx.fileWriteOptions.outputDirBase);
 
-      if (isFileName) {
+      if (isFilePath) {
         if (ctx.compilationUnits.length === 1) {
 
           // We are only outputting one file, and the output path is a file name, so we will just remove the filename and the directory will be the filename.
@@ -201,17 +197,17 @@ export const fileWriter = createPlugin(
         }
       }
 
-      for (const rcu of ctx.compilationUnits) {
+      filesWritten = await fileWriter.writeAll(ctx.compilationUnits);
 
-        await fileWriter.write(rcu);
-        filesWritten.push(rcu.fileName);
+      if (fileWriteOptions.deleteStaleFiles && !isFilePath) {
+        await fileWriter.updateManifest([...alreadyWritten, ...filesWritten], true);
       }
     }
 
     return {
       ...ctx,
       fileWriteOptions: fileWriteOptions,
-      writtenFiles: filesWritten,
+      writtenFiles: [...alreadyWritten, ...filesWritten],
     };
   },
 );
@@ -43,3 +43,35 @@ test('Object w/ diff nested name', async ctx => {
 
   ctx.expect(hash1).not.toEqual(hash2);
 });
+
+test('Object w/ different key order', async ctx => {
+
+  const hash1 = HashUtil.getStructuralHashOf({kind: OmniTypeKind.OBJECT, properties: [], name: 'a'});
+  const hash2 = HashUtil.getStructuralHashOf({name: 'a', properties: [], kind: OmniTypeKind.OBJECT});
+
+  ctx.expect(hash1).toEqual(hash2);
+});
+
+test('Recursive objects', async ctx => {
+
+  const a: Record<string, unknown> = {kind: OmniTypeKind.OBJECT, name: 'a'};
+  a.self = a;
+  const b: Record<string, unknown> = {kind: OmniTypeKind.OBJECT, name: 'a'};
+  b.self = b;
+  const c: Record<string, unknown> = {kind: OmniTypeKind.OBJECT, name: 'a'};
+  c.self = {kind: OmniTypeKind.OBJECT, name: 'a', self: c};
+
+  ctx.expect(HashUtil.getStructuralHashOf(a)).toEqual(HashUtil.getStructuralHashOf(b));
+  ctx.expect(HashUtil.getStructuralHashOf(a)).not.toEqual(HashUtil.getStructuralHashOf(c));
+});
+
+test('Already hashed objects are not hashed again', async ctx => {
+
+  const nested = {kind: OmniTypeKind.OBJECT, properties: [], name: 'nested'};
+  const otherHashes = new Map<object, string>([[nested, 'known']]);
+
+  const hash1 = HashUtil.getStructuralHashOf({kind: OmniTypeKind.ARRAY, of: nested}, undefined, otherHashes);
+  const hash2 = HashUtil.getStructuralHashOf({kind: OmniTypeKind.ARRAY, of: {kind: OmniTypeKind.OBJECT, properties: [], name: 'nested'}}, undefined, otherHashes);
+
+  ctx.expect(hash1).not.toEqual(hash2);
+});
@@ -1,46 +1,185 @@
-import hash from 'object-hash';
-import crypto from 'crypto';
 import {Naming} from './Naming';
 import {TypeName} from '@omnigen/api';
 
-export class HashUtil {
+const EXCLUDED_KEYS = new Set(['parent', 'owner', 'debug']);
 
-  public static getStructuralHashOf(item: object, parent?: unknown, otherHashes?: Map<any, string>): string {
+/**
+ * Non-cryptographic streaming 64-bit hash, as two 32-bit multiply-xor lanes (in the style of cyrb53/murmur).
+ * Collisions are possible but very unlikely for the sizes of models we hash, and it is many times faster than MD5 over a serialized copy.
+ */
+class Hash64 {
+
+  private _h1 = 0xdeadbeef;
+  private _h2 = 0x41c6ce57;
+
+  update(value: string): this {
+    for (let i = 0; i < value.length; i++) {
+      const ch = value.charCodeAt(i);
+      this._h1 = Math.imul(this._h1 ^ ch, 2654435761);
+      this._h2 = Math.imul(this._h2 ^ ch, 1597334677);
+    }
+
+    // Separator, so that `['ab', 'c']` and `['a', 'bc']` do not give the same hash.
+    this._h1 = Math.imul(this._h1 ^ 0xff, 2654435761);
+    this._h2 = Math.imul(this._h2 ^ 0xff, 1597334677);
+
+    return this;
+  }
+
+  digest(): string {
 
-    // TODO: This is way too hacky and weird. Need to have a better solution. Custom that visits type?
-
-    let result = hash(item, {
-      algorithm: 'md5',
-      encoding: 'base64',
-      respectType: false,
-      excludeKeys: key => {
-        return key == 'parent' || key == 'owner' || key == 'debug';
-      },
-      replacer: v => {
-        // If values exists among already hashed objects, then use that instead.
-        // This way we *should* be able to avoid recursive calculations.
-        const otherHash = otherHashes?.get(v);
-        if (otherHash) {
-          return otherHash;
+    let h1 = Math.imul(this._h1 ^ (this._h1 >>> 16), 2246822507);
+    h1 ^= Math.imul(this._h2 ^ (this._h2 >>> 13), 3266489909);
+    let h2 = Math.imul(this._h2 ^ (this._h2 >>> 16), 2246822507);
+    h2 ^= Math.imul(h1 ^ (h1 >>> 13), 3266489909);
+    h1 = Math.imul(h1 ^ (h2 >>> 15), 2246822507);
+
+    return (h2 >>> 0).toString(16).padStart(8, '0') + (h1 >>> 0).toString(16).padStart(8, '0');
+  }
+}
+
+interface VisitResult {
+  hash: string;
+  /**
+   * The lowest index on the visiting stack that the value refers back to, or `Infinity` if it has no cyclic references.
+   * A value that refers to something above itself is hashed relative to that position, and can therefore not be memoized.
+   */
+  lowestBackReference: number;
+}
+
+/**
+ * Hashes one value and everything it references, memoizing the hash of each object that is visited more than once.
+ */
+class StructuralHasher {
+
+  private readonly _memo = new Map<object, string>();
+  private readonly _stack: object[] = [];
+
+  constructor(private readonly _otherHashes: Map<any, string> | undefined) {
+  }
+
+  hash(value: unknown): string {
+    return this.visit(value).hash;
+  }
+
+  private visit(value: unknown): VisitResult {
+
+    if (value === null) {
+      return {hash: 'null', lowestBackReference: Infinity};
+    }
+
+    switch (typeof value) {
+      case 'string':
+        return {hash: `s${value}`, lowestBackReference: Infinity};
+      case 'number':
+      case 'boolean':
+      case 'bigint':
+        return {hash: `${typeof value}${String(value)}`, lowestBackReference: Infinity};
+      case 'undefined':
+      case 'function':
+      case 'symbol':
+        return {hash: 'u', lowestBackReference: Infinity};
+    }
+
+    const obj = value as object;
+    if (obj instanceof RegExp) {
+      return {hash: `r${String(obj)}`, lowestBackReference: Infinity};
+    }
+
+    // If values exists among already hashed objects, then use that instead.
+    const otherHash = this._otherHashes?.get(obj);
+    if (otherHash) {
+      return {hash: otherHash, lowestBackReference: Infinity};
+    }
+
+    const memoized = this._memo.get(obj);
+    if (memoized) {
+      return {hash: memoized, lowestBackReference: Infinity};
+    }
+
+    const stackIndex = this._stack.indexOf(obj);
+    if (stackIndex !== -1) {
+
+      // A cycle. It is hashed as its distance upwards, so the same recursive structure gives the same hash wherever it is found.
+      return {hash: `c${this._stack.length - stackIndex}`, lowestBackReference: stackIndex};
+    }
+
+    const ownIndex = this._stack.length;
+    this._stack.push(obj);
+
+    const hasher = new Hash64();
+    let lowestBackReference = Infinity;
+    try {
+      if (Array.isArray(obj)) {
+        hasher.update('[');
+        for (const item of obj) {
+          const result = this.visit(item);
+          hasher.update(result.hash);
+          lowestBackReference = Math.min(lowestBackReference, result.lowestBackReference);
         }
+      } else {
+        hasher.update('{');
+        for (const key of Object.keys(obj).sort()) {
+          if (EXCLUDED_KEYS.has(key)) {
+            continue;
+          }
 
-        if (typeof v == 'object' && 'name' in v) {
+          let child = (obj as Record<string, unknown>)[key];
+          if (child === undefined) {
+            continue;
+          }
+
+          if (key === 'name') {
 
-          // A hack, but should be safe for our code. Better ways should exist.
-          const resolvedName = Naming.unwrap(v.name as TypeName);
-          if (resolvedName && resolvedName !== v.name) {
-            return {...v, name: resolvedName};
+            // Only the first resolved name is considered, which is a shortcut that should be safe enough for our code.
+            const resolvedName = Naming.unwrap(child as TypeName);
+            if (resolvedName) {
+              child = resolvedName;
+            }
           }
+
+          const result = this.visit(child);
+          hasher.update(key).update(result.hash);
+          lowestBackReference = Math.min(lowestBackReference, result.lowestBackReference);
         }
+      }
+    } finally {
+      this._stack.pop();
+    }
+
+    const digest = hasher.digest();
+    if (lowestBackReference >= ownIndex) {
+      this._memo.set(obj, digest);
+    }
+
+    return {hash: digest, lowestBackReference: lowestBackReference >= ownIndex ? Infinity : lowestBackReference};
+  }
+}
+
+export class HashUtil {
+
+  /**
+   * @return If the key is one of the back-references that {@link getStructuralHashOf} leaves out of the hash.
+   */
+  public static isExcludedKey(key: string): boolean {
+    return EXCLUDED_KEYS.has(key);
+  }
+
+  /**
+   * Hashes the structure of the given item, ignoring back-references such as `parent` and `owner`, and using the first resolved name of any `name`.
+   *
+   * @param item What to hash
+   * @param parent If given and found among `otherHashes`, then its hash is mixed into the result so that the same structure under different parents differ.
+   * @param otherHashes Hashes of already hashed objects, which are used as-is instead of hashing those objects again.
+   */
+  public static getStructuralHashOf(item: object, parent?: unknown, otherHashes?: Map<any, string>): string {
 
-        return v;
-      },
-    });
+    const result = new StructuralHasher(otherHashes).hash(item);
 
     if (parent) {
       const parentHash = otherHashes?.get(parent);
       if (parentHash) {
-        result = crypto.createHash('md5').update(result).update(parentHash).digest('base64');
+        return new Hash64().update(result).update(parentHash).digest();
       }
     }
 
@@ -0,0 +1,128 @@
+import {describe, test} from 'vitest';
+import fs from 'fs';
+import os from 'os';
+import path from 'path';
+import {ModelSnapshotCache} from './ModelSnapshotCache';
+import {SchemaFile} from './SchemaFile';
+import {DocumentDependencies} from '../util';
+
+describe('ModelSnapshotCache', () => {
+
+  async function setup() {
+
+    const dir = fs.mkdtempSync(path.join(os.tmpdir(), 'omnigen-snapshot-'));
+    const rootPath = path.join(dir, 'root.json');
+    const refPath = path.join(dir, 'ref.json');
+    fs.writeFileSync(rootPath, '{"$ref": "./ref.json"}');
+    fs.writeFileSync(refPath, '{"type": "string"}');
+
+    const schemaFile = new SchemaFile(rootPath, rootPath);
+    await schemaFile.prepare();
+
+    const cache = new ModelSnapshotCache({modelCacheDir: path.join(dir, 'cache')});
+    let parseCount = 0;
+    const parse = async () => {
+      parseCount++;
+      DocumentDependencies.record(refPath);
+
+      const a: Record<string, unknown> = {name: 'A', pattern: /^x-/, variables: new Map([['k', 1]])};
+      const b: Record<string, unknown> = {name: 'B', other: a};
+      a['other'] = b;
+      return {types: [a, b]};
+    };
+
+    return {refPath, schemaFile, cache, parse, getParseCount: () => parseCount};
+  }
+
+  test('loads the snapshot, keeping cycles, maps and regular expressions', async ctx => {
+
+    const {schemaFile, cache, parse, getParseCount} = await setup();
+
+    await cache.getOrCreate(schemaFile, 'test', {debug: false}, parse);
+    const loaded = await cache.getOrCreate(schemaFile, 'test', {debug: false}, parse);
+
+    ctx.expect(getParseCount()).toEqual(1);
+
+    const [a, b] = loaded.types;
+    ctx.expect(a['other']).toBe(b);
+    ctx.expect(b['other']).toBe(a);
+    ctx.expect(a['pattern']).toBeInstanceOf(RegExp);
+    ctx.expect((a['variables'] as Map<string, number>).get('k')).toEqual(1);
+  });
+
+  test('parses again when options or referenced documents change', async ctx => {
+
+    const {refPath, schemaFile, cache, parse, getParseCount} = await setup();
+
+    await cache.getOrCreate(schemaFile, 'test', {debug: false}, parse);
+    await cache.getOrCreate(schemaFile, 'test', {debug: true}, parse);
+    ctx.expect(getParseCount()).toEqual(2);
+
+    fs.writeFileSync(refPath, '{"type": "number"}');
+    await cache.getOrCreate(schemaFile, 'test', {debug: false}, parse);
+    ctx.expect(getParseCount()).toEqual(3);
+  });
+
+  test('retains snapshots in memory without a cache directory', async ctx => {
+
+    const {schemaFile, parse, getParseCount} = await setup();
+    const cache = new ModelSnapshotCache();
+
+    ModelSnapshotCache.setRetainInMemory(true);
+    try {
+      const first = await cache.getOrCreate(schemaFile, 'test', {debug: false}, parse, {complete: true});
+      const second = await cache.getOrCreate(schemaFile, 'test', {debug: false}, parse, {complete: true});
+
+      ctx.expect(getParseCount()).toEqual(1);
+      ctx.expect(second).not.toBe(first);
+      ctx.expect(second.types[0]['name']).toEqual('A');
+    } finally {
+      ModelSnapshotCache.setRetainInMemory(false);
+    }
+  });
+
+  test('does not retain snapshots in memory when the dependencies might not all be recorded', async ctx => {
+
+    const {schemaFile, parse, getParseCount} = await setup();
+    const cache = new ModelSnapshotCache();
+
+    ModelSnapshotCache.setRetainInMemory(true);
+    try {
+      await cache.getOrCreate(schemaFile, 'test', {debug: false}, parse);
+      await cache.getOrCreate(schemaFile, 'test', {debug: false}, parse);
+
+      ctx.expect(getParseCount()).toEqual(2);
+    } finally {
+      ModelSnapshotCache.setRetainInMemory(false);
+    }
+  });
+
+  test('parses again when a document read before parsing changes', async ctx => {
+
+    const {refPath, schemaFile, cache} = await setup();
+
+    // Like a parser that reads the referenced documents while it is prepared, outside of what is tracked.
+    let count = 0;
+    const parse = async () => ({types: [{name: `${++count}`}]});
+
+    await cache.getOrCreate(schemaFile, 'test', {debug: false}, parse, {read: [refPath]});
+    await cache.getOrCreate(schemaFile, 'test', {debug: false}, parse, {read: [refPath]});
+    ctx.expect(count).toEqual(1);
+
+    fs.writeFileSync(refPath, '{"type": "number"}');
+    const loaded = await cache.getOrCreate(schemaFile, 'test', {debug: false}, parse, {read: [refPath]});
+    ctx.expect(count).toEqual(2);
+    ctx.expect(loaded.types[0].name).toEqual('2');
+  });
+
+  test('never caches when an option is a function', async ctx => {
+
+    const {schemaFile, cache, parse, getParseCount} = await setup();
+
+    const options = {mapper: (it: string) => it};
+    await cache.getOrCreate(schemaFile, 'test', options, parse);
+    await cache.getOrCreate(schemaFile, 'test', options, parse);
+
+    ctx.expect(getParseCount()).toEqual(2);
+  });
+});
@@ -0,0 +1,247 @@
+import * as fs from 'fs';
+import * as path from 'path';
+import * as v8 from 'v8';
+import crypto from 'crypto';
+import {LoggerFactory} from '@omnigen/core-log';
+import {SchemaFile} from './SchemaFile';
+import {DocumentDependencies} from '../util/DocumentDependencies';
+import {RunManifest} from '../write/RunManifest';
+
+const logger = LoggerFactory.create(import.meta.url);
+
+/**
+ * Bumped whenever the shape of what parsers produce changes, so snapshots of older versions are never loaded.
+ */
+const SNAPSHOT_VERSION = 1;
+
+/**
+ * Max number of snapshots that are retained in memory, after which the least recently used are let go of.
+ */
+const MAX_RETAINED = 64;
+
+interface SnapshotEntry {
+  /**
+   * The sha256 of every document read by the parser besides the root document, by their absolute path.
+   */
+  dependencies: Record<string, string>;
+}
+
+export interface ModelSnapshotCacheOptions {
+  /**
+   * Directory where snapshots of parsed models are kept between runs. Nothing is cached if not set.
+   */
+  modelCacheDir?: string | undefined;
+}
+
+export interface ModelSnapshotDependencies {
+  /**
+   * Documents that were already read before parsing, like when preparing the parser, which the result depends on as well.
+   */
+  read?: ReadonlyArray<string> | undefined;
+  /**
+   * If every document that the result depends on is recorded, either in `read` or while parsing.
+   * Only then is the snapshot retained in memory, since a long-running process would otherwise keep using a model of documents that have changed.
+   */
+  complete?: boolean | undefined;
+}
+
+/**
+ * Keeps the result of parsing a schema file on disk, so the next run with the same documents and options can load it instead of parsing again.
+ *
+ * Snapshots are written with the structured clone format of `v8.serialize`, which is compact and keeps the cycles between types,
+ * as well as the `Map`s and `RegExp`s that the model contains. Parsed models are plain objects, so nothing is lost by not keeping prototypes.
+ *
+ * A snapshot is keyed by the content of the root document, the name of the parser and its options.
+ * The documents that the root document references are only known after parsing, so their hashes are stored with the snapshot and checked when it is loaded.
+ *
+ * A long-running process can also retain snapshots in memory, see {@link setRetainInMemory}, for parsers that record all the documents they read.
+ * It is the serialized snapshot that is retained and not the model, since transformers change the model they are given.
+ */
+export class ModelSnapshotCache {
+
+  private static _retainInMemory = false;
+  private static readonly _retained = new Map<string, { entry: SnapshotEntry, snapshot: Buffer }>();
+
+  private readonly _dir: string | undefined;
+
+  constructor(options?: ModelSnapshotCacheOptions) {
+    this._dir = options?.modelCacheDir ? path.resolve(options.modelCacheDir) : undefined;
+  }
+
+  /**
+   * Keep snapshots in memory for the rest of the process as well, whether `modelCacheDir` is set or not.
+   */
+  static setRetainInMemory(retain: boolean): void {
+    ModelSnapshotCache._retainInMemory = retain;
+    if (!retain) {
+      ModelSnapshotCache._retained.clear();
+    }
+  }
+
+  /**
+   * @param parser Name of the parser, since different parsers can make different models from the same file
+   * @param options Everything other than the documents that the result depends on
+   * @param create Parses the schema file, called if there is no usable snapshot
+   * @param dependencies What is known about the documents that the result depends on, besides those recorded while parsing
+   */
+  async getOrCreate<R>(schemaFile: SchemaFile, parser: string, options: object, create: () => Promise<R>, dependencies: ModelSnapshotDependencies = {}): Promise<R> {
+
+    const retain = ModelSnapshotCache._retainInMemory && (dependencies.complete ?? false);
+    const key = (this._dir || retain) ? this.createKey(schemaFile, parser, options) : undefined;
+    if (!key) {
+      return create();
+    }
+
+    const cached = this.load<R>(key, retain);
+    if (cached !== undefined) {
+      logger.info(`Loaded parsed model of ${schemaFile.getAbsolutePath() ?? parser} from snapshot cache`);
+      return cached;
+    }
+
+    const {result, dependencies: recorded} = await DocumentDependencies.track(create);
+    this.store(key, schemaFile, [...new Set([...(dependencies.read ?? []), ...recorded])], result, retain);
+    return result;
+  }
+
+  private createKey(schemaFile: SchemaFile, parser: string, options: object): string | undefined {
+
+    const functionOption = Object.entries(options).find(([, value]) => typeof value === 'function');
+    if (functionOption) {
+      logger.debug(`Will not use snapshot cache since option '${functionOption[0]}' is a function, which cannot be part of the key`);
+      return undefined;
+    }
+
+    return RunManifest.createKey({
+      version: SNAPSHOT_VERSION,
+      v8: process.versions.v8,
+      parser: parser,
+      options: options,
+      content: crypto.createHash('sha256').update(schemaFile.asString()).digest('hex'),
+    });
+  }
+
+  private load<R>(key: string, retain: boolean): R | undefined {
+
+    const retained = retain ? ModelSnapshotCache._retained.get(key) : undefined;
+    if (retained) {
+
+      // Move it last, so the map is ordered from least to most recently used.
+      ModelSnapshotCache._retained.delete(key);
+      if (ModelSnapshotCache.isCurrent(retained.entry)) {
+        ModelSnapshotCache._retained.set(key, retained);
+        return v8.deserialize(retained.snapshot) as R;
+      }
+    }
+
+    if (!this._dir) {
+      return undefined;
+    }
+
+    const entryPath = this.getEntryPath(key);
+    const snapshotPath = this.getSnapshotPath(key);
+    if (!fs.existsSync(entryPath) || !fs.existsSync(snapshotPath)) {
+      return undefined;
+    }
+
+    try {
+      const entry = JSON.parse(fs.readFileSync(entryPath, 'utf-8')) as SnapshotEntry;
+      if (!ModelSnapshotCache.isCurrent(entry)) {
+        return undefined;
+      }
+
+      const snapshot = fs.readFileSync(snapshotPath);
+      const result = v8.deserialize(snapshot) as R;
+      if (retain) {
+        ModelSnapshotCache.retain(key, entry, snapshot);
+      }
+      return result;
+    } catch (ex) {
+      logger.warn(`Ignoring unreadable model snapshot ${snapshotPath}: ${ex}`);
+      return undefined;
+    }
+  }
+
+  private store(key: string, schemaFile: SchemaFile, dependencies: string[], result: unknown, retain: boolean): void {
+
+    const root = schemaFile.getAbsolutePath();
+    const entry: SnapshotEntry = {dependencies: {}};
+    for (const dependency of dependencies.filter(it => it !== root).sort()) {
+
+      if (dependency.startsWith('http:') || dependency.startsWith('https:') || !fs.existsSync(dependency)) {
+        logger.debug(`Will not snapshot model since it references '${dependency}', which is not a local file`);
+        return;
+      }
+
+      entry.dependencies[dependency] = ModelSnapshotCache.hashFile(dependency);
+    }
+
+    try {
+      const snapshot = v8.serialize(result);
+      if (retain) {
+        ModelSnapshotCache.retain(key, entry, snapshot);
+      }
+      if (this._dir) {
+        ModelSnapshotCache.writeAtomic(this.getSnapshotPath(key), snapshot);
+        ModelSnapshotCache.writeAtomic(this.getEntryPath(key), JSON.stringify(entry, undefined, 2));
+      }
+      logger.debug(`Stored model snapshot of ${snapshot.byteLength} bytes for ${root ?? key}`);
+    } catch (ex) {
+      logger.warn(`Could not store model snapshot of ${root ?? key}: ${ex}`);
+    }
+  }
+
+  /**
+   * @return If all referenced documents are unchanged, in which case they are recorded as dependencies of the current parse.
+   */
+  private static isCurrent(entry: SnapshotEntry): boolean {
+
+    for (const [dependency, hash] of Object.entries(entry.dependencies)) {
+      if (!fs.existsSync(dependency) || ModelSnapshotCache.hashFile(dependency) !== hash) {
+        logger.debug(`Referenced document '${dependency}' has changed since the snapshot was taken`);
+        return false;
+      }
+    }
+
+    // Whoever tracks what this parse depends on must see the same documents as if it was not cached.
+    for (const dependency of Object.keys(entry.dependencies)) {
+      DocumentDependencies.record(dependency);
+    }
+
+    return true;
+  }
+
+  private static retain(key: string, entry: SnapshotEntry, snapshot: Buffer): void {
+
+    ModelSnapshotCache._retained.delete(key);
+    ModelSnapshotCache._retained.set(key, {entry: entry, snapshot: snapshot});
+    for (const oldest of ModelSnapshotCache._retained.keys()) {
+      if (ModelSnapshotCache._retained.size <= MAX_RETAINED) {
+        break;
+      }
+      ModelSnapshotCache._retained.delete(oldest);
+    }
+  }
+
+  private getEntryPath(key: string): string {
+    return path.join(this._dir!, `${key}.json`);
+  }
+
+  private getSnapshotPath(key: string): string {
+    return path.join(this._dir!, `${key}.bin`);
+  }
+
+  private static hashFile(filePath: string): string {
+    return crypto.createHash('sha256').update(fs.readFileSync(filePath)).digest('hex');
+  }
+
+  /**
+   * Writes to a temporary file and renames it, so concurrent runs sharing the cache never see a half-written file.
+   */
+  private static writeAtomic(filePath: string, content: string | Buffer): void {
+
+    fs.mkdirSync(path.dirname(filePath), {recursive: true});
+    const tempPath = `${filePath}.${process.pid}.${crypto.randomBytes(4).toString('hex')}.tmp`;
+    fs.writeFileSync(tempPath, content);
+    fs.renameSync(tempPath, filePath);
+  }
+}
@@ -111,6 +111,61 @@ test('Supertype (Diff levels)', async ctx => {
   ], ctx);
 });
 
+test('Similar (Nested Object Properties)', async ctx => {
+
+  const o1 = createObject('o', undefined, createPrimitive('y'));
+  const o2 = createObject('o', undefined, createPrimitive('y'));
+
+  const a1 = createObject('a', undefined, createProperty('x', o1));
+  const a2 = createObject('a', undefined, createProperty('x', o2));
+
+  const replacements = OmniModelMerge.getReplacements(a1, a2).filter(byObjects);
+  ctx.expect(replacements).toHaveLength(4);
+  ctx.expect(replacements.some(it => it.root === a2 && it.from === o2 && it.to === o1)).toEqual(true);
+  ctx.expect(replacements.some(it => it.root === a2 && it.from === a2 && it.to === a1)).toEqual(true);
+});
+
+test('Similar (Diff Nested Object Properties)', async ctx => {
+
+  const a1 = createObject('a', undefined, createProperty('x', createObject('o', undefined, createPrimitive('y', OmniTypeKind.DOUBLE))));
+  const a2 = createObject('a', undefined, createProperty('x', createObject('o', undefined, createPrimitive('y', OmniTypeKind.INTEGER))));
+
+  const replacements = OmniModelMerge.getReplacements(a1, a2).filter(byObjects);
+  ctx.expect(replacements).toHaveLength(0);
+});
+
+for (const kind of [OmniTypeKind.UNION, OmniTypeKind.INTERSECTION, OmniTypeKind.EXCLUSIVE_UNION] as const) {
+
+  test(`Similar (Same ${kind})`, async ctx => {
+
+    const c1: OmniType = {kind: kind, types: [createObject('a', undefined, createPrimitive('x')), {kind: OmniTypeKind.STRING}]};
+    const c2: OmniType = {kind: kind, types: [createObject('a', undefined, createPrimitive('x')), {kind: OmniTypeKind.STRING}]};
+
+    compare(OmniModelMerge.getReplacements(c1, c2).filter(it => it.from.kind === kind), [
+      {root: c1, from: c1, to: c1},
+      {root: c2, from: c2, to: c1},
+    ], ctx);
+  });
+
+  test(`Similar (Diff ${kind} Members)`, async ctx => {
+
+    const c1: OmniType = {kind: kind, types: [createObject('a', undefined, createPrimitive('x')), {kind: OmniTypeKind.STRING}]};
+    const c2: OmniType = {kind: kind, types: [createObject('a', undefined, createPrimitive('x')), {kind: OmniTypeKind.INTEGER}]};
+
+    const replacements = OmniModelMerge.getReplacements(c1, c2).filter(it => it.from.kind === kind);
+    ctx.expect(replacements).toHaveLength(0);
+  });
+}
+
+test('Not Similar (Union and Exclusive Union)', async ctx => {
+
+  const c1: OmniType = {kind: OmniTypeKind.UNION, types: [{kind: OmniTypeKind.STRING}, {kind: OmniTypeKind.INTEGER}]};
+  const c2: OmniType = {kind: OmniTypeKind.EXCLUSIVE_UNION, types: [{kind: OmniTypeKind.STRING}, {kind: OmniTypeKind.INTEGER}]};
+
+  const replacements = OmniModelMerge.getReplacements(c1, c2).filter(it => OmniUtil.isComposition(it.from));
+  ctx.expect(replacements).toHaveLength(0);
+});
+
 function compare(expected: Replacement<OmniType>[], given: Partial<Replacement<OmniType>>[], ctx: TestContext): void {
 
   if (expected.length != given.length) {
@@ -151,6 +206,15 @@ function createObject(name: string, extendedBy?: OmniSuperTypeCapableType, ...pr
   };
 }
 
+function createProperty(name: string, type: OmniType): OmniProperty {
+
+  return {
+    kind: OmniItemKind.PROPERTY,
+    type: type,
+    name: name,
+  };
+}
+
 function createPrimitive(name: string, primitiveKind: OmniPrimitiveTangibleKind = OmniTypeKind.DOUBLE): OmniProperty {
 
   return {
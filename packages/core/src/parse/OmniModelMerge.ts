@@ -9,13 +9,18 @@ import {Options} from '@omnigen/api';
 import {HashUtil} from './HashUtil.js';
 import {LoggerFactory} from '@omnigen/core-log';
 import {OmniUtil} from './OmniUtil.js';
-import {TypeOwner} from '@omnigen/api';
+import {TypeName, TypeOwner} from '@omnigen/api';
 import {ProxyReducerOmni2} from '../reducer2/ProxyReducerOmni2.ts';
 import {ANY_KIND} from '../reducer2/types.ts';
 import {Naming} from './Naming.ts';
 
 const logger = LoggerFactory.create(import.meta.url);
 
+/**
+ * How deep into values that are not types the structural match goes, before it gives up and takes the types as different.
+ */
+const MAX_MATCH_DEPTH = 32;
+
 export interface Replacement<T extends TypeOwner> {
   root: T;
   from: OmniType;
@@ -99,29 +104,57 @@ export class OmniModelMerge {
           const hash = HashUtil.getStructuralHashOf(ctx.type, ctx.parent, hashMap);
           hashMap.set(ctx.type, hash);
 
-          const options = (optionsMap.has(hash) ? optionsMap : optionsMap.set(hash, [])).get(hash)!;
+          // Bucket by kind as well, so the diffing below only ever compares types that could possibly be the same.
+          const bucketKey = `${ctx.type.kind}:${hash}`;
+          const options = (optionsMap.has(bucketKey) ? optionsMap : optionsMap.set(bucketKey, [])).get(bucketKey)!;
           options.push({root: model, from: ctx.type});
         }
       }
     }
 
-    for (const [_hash, options] of optionsMap.entries()) {
+    let consideredPairs = 0;
+    for (const options of optionsMap.values()) {
 
       if (options.length < 2) {
         continue;
       }
 
-      // We do not actually move any types here.
-      // We simply build up the result of all the types that are similar and can be replaced.
+      // The hash is not cryptographic, so the types in a bucket are confirmed to be the same with a structural match before being replaced.
+      // Each type is only compared against the first type of every group found so far, which is one comparison in the common case.
+      const groups: ReplacementOption<T>[][] = [];
       for (const option of options) {
-        replacements.push({
-          root: option.root,
-          from: option.from,
-          to: options[0].from,
+
+        const group = groups.find(it => {
+          consideredPairs++;
+          return OmniModelMerge.isSameStructure(it[0].from, hashMaps.get(it[0].root), option.from, hashMaps.get(option.root), 0);
         });
+
+        if (group) {
+          group.push(option);
+        } else {
+          groups.push([option]);
+        }
+      }
+
+      // We do not actually move any types here.
+      // We simply build up the result of all the types that are similar and can be replaced.
+      for (const group of groups) {
+        if (group.length < 2) {
+          continue;
+        }
+
+        for (const option of group) {
+          replacements.push({
+            root: option.root,
+            from: option.from,
+            to: group[0].from,
+          });
+        }
       }
     }
 
+    logger.debug(`Considered ${consideredPairs} pairs of types in ${optionsMap.size} buckets when looking for merge replacements`);
+
     return replacements;
   }
 
@@ -238,6 +271,70 @@ export class OmniModelMerge {
     };
   }
 
+  /**
+   * Compares the same things that the structural hash is made from, but only as deep as the closest types.
+   * Those types have already been hashed, so they are compared by their hashes instead of by walking them again.
+   * This is what the hash of the compared types was calculated from, so a match only fails if the hashes collided.
+   */
+  private static isSameStructure(a: unknown, aHashes: Map<OmniType, string> | undefined, b: unknown, bHashes: Map<OmniType, string> | undefined, depth: number): boolean {
+
+    if (a === b) {
+      return true;
+    }
+
+    if (typeof a !== 'object' || typeof b !== 'object' || a === null || b === null) {
+      return (a === undefined || typeof a === 'function' || typeof a === 'symbol') && (b === undefined || typeof b === 'function' || typeof b === 'symbol');
+    }
+
+    if (depth > 0) {
+      const aHash = aHashes?.get(a as OmniType);
+      const bHash = bHashes?.get(b as OmniType);
+      if (aHash !== undefined || bHash !== undefined) {
+        return aHash === bHash;
+      }
+    }
+
+    if (depth > MAX_MATCH_DEPTH) {
+      return false;
+    }
+
+    if (a instanceof RegExp || b instanceof RegExp) {
+      return String(a) === String(b);
+    }
+
+    if (Array.isArray(a) || Array.isArray(b)) {
+      return Array.isArray(a) && Array.isArray(b) && a.length === b.length
+        && a.every((item, idx) => OmniModelMerge.isSameStructure(item, aHashes, b[idx], bHashes, depth + 1));
+    }
+
+    const aRecord = a as Record<string, unknown>;
+    const bRecord = b as Record<string, unknown>;
+    const aKeys = OmniModelMerge.getStructuralKeys(aRecord);
+    const bKeys = OmniModelMerge.getStructuralKeys(bRecord);
+    if (aKeys.length !== bKeys.length || aKeys.some((key, idx) => key !== bKeys[idx])) {
+      return false;
+    }
+
+    for (const key of aKeys) {
+
+      if (key === 'name') {
+        const aName = Naming.unwrap(aRecord[key] as TypeName) || aRecord[key];
+        const bName = Naming.unwrap(bRecord[key] as TypeName) || bRecord[key];
+        if (!OmniModelMerge.isSameStructure(aName, aHashes, bName, bHashes, depth + 1)) {
+          return false;
+        }
+      } else if (!OmniModelMerge.isSameStructure(aRecord[key], aHashes, bRecord[key], bHashes, depth + 1)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static getStructuralKeys(record: Record<string, unknown>): string[] {
+    return Object.keys(record).filter(key => record[key] !== undefined && !HashUtil.isExcludedKey(key)).sort();
+  }
+
   private static matchesMultiple<T>(arrays: T[][], predicate: { (array: T[]): boolean }): boolean {
     let matchCount = 0;
     for (const array of arrays) {
@@ -1,4 +1,4 @@
-import {CommonDenominatorType, OMNI_GENERIC_FEATURES, OmniItemKind, OmniPrimitiveType, OmniProperty, OmniType, OmniTypeKind, TargetFeatures, TypeDiffKind} from '@omnigen/api';
+import {CommonDenominatorType, OMNI_GENERIC_FEATURES, OmniItemKind, OmniModel, OmniObjectType, OmniPrimitiveType, OmniProperty, OmniType, OmniTypeKind, TargetFeatures, TypeDiffKind} from '@omnigen/api';
 import {Diff, DiffKind, OmniUtil, PropertyTypeDiff} from './OmniUtil';
 import {describe, test, TestContext} from 'vitest';
 import {CombineOptions, CreateMode} from '../util';
@@ -282,6 +282,41 @@ describe('OmniUtil', () => {
     ctx.expect(uniqueDiffs).toHaveLength(1);
     ctx.expect(uniqueDiffs[0]).toEqual({kind: DiffKind.EXTRA_PROPERTY, propertyName: OmniUtil.getPropertyName(aIntProp.name, true)} satisfies Diff);
   });
+
+  test('TypeHierarchy is cached until invalidated', ctx => {
+
+    const a: OmniObjectType = {kind: OmniTypeKind.OBJECT, name: 'A', properties: []};
+    const b: OmniObjectType = {kind: OmniTypeKind.OBJECT, name: 'B', properties: [], extendedBy: a};
+    const c: OmniObjectType = {kind: OmniTypeKind.OBJECT, name: 'C', properties: []};
+    const model: OmniModel = {kind: OmniItemKind.MODEL, schemaType: 'other', types: [a, b, c], endpoints: []};
+
+    const hierarchy = OmniUtil.getTypeHierarchy(model);
+    ctx.expect(hierarchy.getSubTypes(a)).toEqual([b]);
+    ctx.expect(hierarchy.getSuperTypes(b)).toEqual([a]);
+    ctx.expect(OmniUtil.getTypesThatInheritFrom(model, a)).toEqual([b]);
+    ctx.expect(OmniUtil.getTypeHierarchy(model)).toBe(hierarchy);
+
+    c.extendedBy = a;
+    ctx.expect(OmniUtil.getTypeHierarchy(model).getSubTypes(a)).toEqual([b]);
+
+    // Parsers ask for the inheritors while they are still changing the model, so those are never answered from the cached hierarchy.
+    ctx.expect(OmniUtil.getTypesThatInheritFrom(model, a)).toEqual([b, c]);
+
+    OmniUtil.invalidateTypeHierarchy(model);
+    ctx.expect(OmniUtil.getTypeHierarchy(model)).not.toBe(hierarchy);
+    ctx.expect(OmniUtil.getTypeHierarchy(model).getSubTypes(a)).toEqual([b, c]);
+  });
+
+  test('getTypesThatInheritFrom only finds inheritors that are not inside other objects', ctx => {
+
+    const a: OmniObjectType = {kind: OmniTypeKind.OBJECT, name: 'A', properties: []};
+    const b: OmniObjectType = {kind: OmniTypeKind.OBJECT, name: 'B', properties: [], extendedBy: a};
+    const nested: OmniObjectType = {kind: OmniTypeKind.OBJECT, name: 'Nested', properties: [], extendedBy: a};
+    const c: OmniObjectType = {kind: OmniTypeKind.OBJECT, name: 'C', properties: [{kind: OmniItemKind.PROPERTY, name: 'nested', type: nested}]};
+    const model: OmniModel = {kind: OmniItemKind.MODEL, schemaType: 'other', types: [a, b, c], endpoints: []};
+
+    ctx.expect(OmniUtil.getTypesThatInheritFrom(model, a)).toEqual([b]);
+  });
 });
 
 const expectA = (ctx: TestContext, a: OmniPrimitiveType, b: OmniPrimitiveType): void => {
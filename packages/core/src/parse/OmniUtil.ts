@@ -21,6 +21,10 @@ import {
   OmniGenericTargetType,
   OmniHardcodedReferenceType,
   OmniModel,
+  OmniModel2ndPassTransformer,
+  OmniModelTransformer,
+  OmniModelTransformer2ndPassArgs,
+  OmniModelTransformerArgs,
   OmniNode,
   OmniObjectType,
   OmniOptionallyNamedType,
@@ -39,8 +43,10 @@ import {
   OmniTypeKind,
   OmniTypeOf,
   OmniUnknownType,
+  ParserOptions,
   SmartUnwrappedType,
   TargetFeatures,
+  TargetOptions,
   TypeDiffKind,
   TypeName,
   TypeUseKind,
@@ -54,6 +60,7 @@ import {ProxyReducerOmni2} from '../reducer2/ProxyReducerOmni2.ts';
 import {ANY_KIND} from '../reducer2/types.ts';
 import {OmniTypeUtil} from './OmniTypeUtil.ts';
 import {OmniDescribeUtils} from './OmniDescribeUtils.ts';
+import {TypeHierarchy} from './TypeHierarchy.ts';
 
 const logger = LoggerFactory.create(import.meta.url);
 
@@ -72,6 +79,8 @@ const EMPTY_ARRAY: ReadonlyArray<any> = Object.freeze([]);
 
 export class OmniUtil {
 
+  private static readonly _typeHierarchies = new WeakMap<OmniModel, TypeHierarchy>();
+
   public static isGenericAllowedType(type: OmniType): boolean {
     if (OmniUtil.isPrimitive(type)) {
 
@@ -213,6 +222,10 @@ export class OmniUtil {
     return type.kind === OmniTypeKind.OBJECT || type.kind === OmniTypeKind.ARRAY_PROPERTIES_BY_POSITION;
   }
 
+  /**
+   * @return The objects whose `extendedBy` is exactly the given type, not counting objects that are only found inside other objects.
+   *  It is not answered from the {@link getTypeHierarchy} index, since it is used by parsers before the model is finished and handed over to transformation.
+   */
   public static getTypesThatInheritFrom(model: OmniModel, type: OmniType): OmniType[] {
 
     const types: OmniType[] = [];
@@ -279,11 +292,64 @@ export class OmniUtil {
   }
 
   /**
-   * Heavy operation, use sparingly
+   * The type hierarchy of the model, which is built on first use and then kept until {@link invalidateTypeHierarchy} is called for the model.
+   * Prefer this over the map getters when only looking up a few types, since it avoids copying.
    */
-  public static getSubTypeToSuperTypesMap(model: OmniModel): Map<OmniSubTypeCapableType, OmniSuperTypeCapableType[]> {
+  public static getTypeHierarchy(model: OmniModel): TypeHierarchy {
+
+    let hierarchy = OmniUtil._typeHierarchies.get(model);
+    if (!hierarchy) {
+      hierarchy = OmniUtil.createTypeHierarchy(model);
+      OmniUtil._typeHierarchies.set(model, hierarchy);
+    }
+
+    return hierarchy;
+  }
+
+  /**
+   * Must be called after changing the inheritance of any type in the model, such as setting `extendedBy` or adding types, so the next lookup rebuilds the hierarchy.
+   */
+  public static invalidateTypeHierarchy(model: OmniModel): void {
+    OmniUtil._typeHierarchies.delete(model);
+  }
+
+  /**
+   * Runs the transformers in order, and invalidates the type hierarchy after each one that does not declare that it keeps it.
+   */
+  public static runModelTransformers<TOpt extends ParserOptions>(transformers: ReadonlyArray<OmniModelTransformer<TOpt>>, args: OmniModelTransformerArgs<TOpt>): void {
+
+    for (const transformer of transformers) {
+      logger.trace(`Running ${transformer.constructor.name}`);
+      transformer.transformModel(args);
+      if (!transformer.keepsTypeHierarchy) {
+        OmniUtil.invalidateTypeHierarchy(args.model);
+      }
+    }
+  }
+
+  /**
+   * Same as {@link runModelTransformers}, but for the second pass transformers, which also know the target.
+   */
+  public static runModelTransformers2ndPass<TOpt extends ParserOptions & TargetOptions>(
+    transformers: ReadonlyArray<OmniModel2ndPassTransformer<TOpt>>,
+    args: OmniModelTransformer2ndPassArgs<TOpt>,
+  ): void {
 
-    const map = new Map<OmniSubTypeCapableType, OmniSuperTypeCapableType[]>();
+    for (const transformer of transformers) {
+      logger.trace(`Running ${transformer.constructor.name}`);
+      transformer.transformModel2ndPass(args);
+      if (!transformer.keepsTypeHierarchy) {
+        OmniUtil.invalidateTypeHierarchy(args.model);
+      }
+    }
+  }
+
+  /**
+   * Heavy operation, use sparingly. Use {@link getTypeHierarchy} to get the cached variant.
+   */
+  public static createTypeHierarchy(model: OmniModel): TypeHierarchy {
+
+    const subToSuper = new Map<OmniSubTypeCapableType, OmniSuperTypeCapableType[]>();
 
     const visitor = ProxyReducerOmni2.builder().options({immutable: true}).build({
       [ANY_KIND]: (n, r) => {
@@ -305,8 +371,7 @@ export class OmniUtil {
         if (subType.extendedBy) {
           const superTypes = OmniUtil.getFlattenedSuperTypes(subType.extendedBy);
 
-          // const actualSubType = ProxyReducer.getTarget(subType);
-          const uniqueSuperTypesOfSubType = (map.has(subType) ? map : map.set(subType, [])).get(subType)!;
+          const uniqueSuperTypesOfSubType = (subToSuper.has(subType) ? subToSuper : subToSuper.set(subType, [])).get(subType)!;
           for (const superType of superTypes) {
             if (!uniqueSuperTypesOfSubType.includes(superType)) {
               uniqueSuperTypesOfSubType.push(superType);
@@ -315,70 +380,26 @@ export class OmniUtil {
         }
 
         return r.callBase();
-        // return r.next(n);
       },
     });
 
     visitor.reduce(model);
 
-    // OmniUtil.visitTypesDepthFirst(model, ctx => {
-    //   if (!OmniUtil.asSubType(ctx.type)) {
-    //     return;
-    //   }
-    //
-    //   const subType = OmniUtil.getUnwrappedType(ctx.type);
-    //   if (!subType) {
-    //     return;
-    //   }
-    //
-    //   if (OmniUtil.isComposition(subType)) {
-    //     // NOTE: This should likely be removed. A composition can be a subtype and/or supertype depending on target and contents.
-    //     return;
-    //   }
-    //
-    //   if (subType.extendedBy) {
-    //     const superTypes = OmniUtil.getFlattenedSuperTypes(subType.extendedBy);
-    //
-    //     const uniqueSuperTypesOfSubType = (map.has(subType) ? map : map.set(subType, [])).get(subType)!;
-    //     for (const superType of superTypes) {
-    //       if (!uniqueSuperTypesOfSubType.includes(superType)) {
-    //         uniqueSuperTypesOfSubType.push(superType);
-    //       }
-    //     }
-    //   }
-    // });
+    return new TypeHierarchy(subToSuper);
+  }
 
-    return map;
+  /**
+   * @return A mutable copy of the cached sub-to-super map of the model.
+   */
+  public static getSubTypeToSuperTypesMap(model: OmniModel): Map<OmniSubTypeCapableType, OmniSuperTypeCapableType[]> {
+    return OmniUtil.getTypeHierarchy(model).copySubTypeToSuperTypes();
   }
 
   /**
-   * Heavy operation, mostly useful for testing or diagnostics
+   * @return A mutable copy of the cached super-to-sub map of the model.
    */
   public static getSuperTypeToSubTypesMap(model: OmniModel): Map<OmniSuperTypeCapableType, OmniSubTypeCapableType[]> {
-
-    // We just take the sub-to-super map and flip it around.
-    const subToSuperMap = OmniUtil.getSubTypeToSuperTypesMap(model);
-    const superToSubMap = new Map<OmniSuperTypeCapableType, OmniSubTypeCapableType[]>();
-    for (const entry of subToSuperMap.entries()) {
-
-      const subType = entry[0];
-      const superTypes = entry[1];
-
-      for (const superType of superTypes) {
-
-        let mapEntry = superToSubMap.get(superType);
-        if (!mapEntry) {
-          mapEntry = [];
-          superToSubMap.set(superType, mapEntry);
-        }
-
-        if (!mapEntry.includes(subType)) {
-          mapEntry.push(subType);
-        }
-      }
-    }
-
-    return superToSubMap;
+    return OmniUtil.getTypeHierarchy(model).copySuperTypeToSubTypes();
   }
 
   /**
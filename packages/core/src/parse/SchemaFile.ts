@@ -4,6 +4,8 @@ import {LoggerFactory} from '@omnigen/core-log';
 import {PathLike} from 'fs';
 import {SchemaSource} from '@omnigen/api';
 import * as YAML from 'yaml';
+import {RemoteDocumentCache} from '../util/RemoteDocumentCache';
+import {DocumentDependencies} from '../util/DocumentDependencies';
 
 const logger = LoggerFactory.create(import.meta.url);
 
@@ -59,7 +61,10 @@ export class SchemaFile implements SchemaSource {
     }
   }
 
-  async prepare(): Promise<void> {
+  /**
+   * @param cache Used if the input is a remote url, to not fetch it again if it has not changed since the last run.
+   */
+  async prepare(cache?: RemoteDocumentCache): Promise<void> {
 
 
     if (typeof this._input === 'string') {
@@ -76,10 +81,15 @@ export class SchemaFile implements SchemaSource {
     }
 
     const path = this.getAbsolutePath() || '';
+    DocumentDependencies.record(path);
     if (path.startsWith('http:') || path.startsWith('https:')) {
       logger.info(`Will fetch from URL: ${path}`);
-      const response = await fetch(path, {method: 'GET'});
-      this._readContent = await response.text();
+      if (cache) {
+        this._readContent = await cache.fetch(path);
+      } else {
+        const response = await fetch(path, {method: 'GET'});
+        this._readContent = await response.text();
+      }
       return;
     }
 
@@ -0,0 +1,66 @@
+import {OmniSubTypeCapableType, OmniSuperTypeCapableType} from '@omnigen/api';
+
+const EMPTY_ARRAY: ReadonlyArray<never> = Object.freeze([]);
+
+/**
+ * Index of which types extend which other types in a model, with constant time lookups in both directions.
+ *
+ * Get it through `OmniUtil.getTypeHierarchy` which builds it once per model and keeps it until `OmniUtil.invalidateTypeHierarchy` is called.
+ * It is a snapshot, so it must never be mutated, and it does not follow changes made to the model after it was built.
+ */
+export class TypeHierarchy {
+
+  private readonly _subToSuper: Map<OmniSubTypeCapableType, OmniSuperTypeCapableType[]>;
+  private readonly _superToSub: Map<OmniSuperTypeCapableType, OmniSubTypeCapableType[]>;
+
+  constructor(subToSuper: Map<OmniSubTypeCapableType, OmniSuperTypeCapableType[]>) {
+    this._subToSuper = subToSuper;
+
+    // We just take the sub-to-super map and flip it around.
+    this._superToSub = new Map<OmniSuperTypeCapableType, OmniSubTypeCapableType[]>();
+    for (const [subType, superTypes] of subToSuper) {
+      for (const superType of superTypes) {
+
+        let subTypes = this._superToSub.get(superType);
+        if (!subTypes) {
+          subTypes = [];
+          this._superToSub.set(superType, subTypes);
+        }
+
+        if (!subTypes.includes(subType)) {
+          subTypes.push(subType);
+        }
+      }
+    }
+  }
+
+  get subTypeToSuperTypes(): ReadonlyMap<OmniSubTypeCapableType, ReadonlyArray<OmniSuperTypeCapableType>> {
+    return this._subToSuper;
+  }
+
+  get superTypeToSubTypes(): ReadonlyMap<OmniSuperTypeCapableType, ReadonlyArray<OmniSubTypeCapableType>> {
+    return this._superToSub;
+  }
+
+  getSuperTypes(type: OmniSubTypeCapableType): ReadonlyArray<OmniSuperTypeCapableType> {
+    return this._subToSuper.get(type) ?? EMPTY_ARRAY;
+  }
+
+  getSubTypes(type: OmniSuperTypeCapableType): ReadonlyArray<OmniSubTypeCapableType> {
+    return this._superToSub.get(type) ?? EMPTY_ARRAY;
+  }
+
+  /**
+   * @return Mutable copy of the sub-to-super map, for callers that want to change it as they go.
+   */
+  copySubTypeToSuperTypes(): Map<OmniSubTypeCapableType, OmniSuperTypeCapableType[]> {
+    return new Map([...this._subToSuper].map(([k, v]) => [k, [...v]]));
+  }
+
+  /**
+   * @return Mutable copy of the super-to-sub map, for callers that want to change it as they go.
+   */
+  copySuperTypeToSubTypes(): Map<OmniSuperTypeCapableType, OmniSubTypeCapableType[]> {
+    return new Map([...this._superToSub].map(([k, v]) => [k, [...v]]));
+  }
+}
@@ -3,6 +3,7 @@ export * from './OmniModelMerge';
 export * from './OmniUtil';
 export * from './Naming';
 export * from './PropertyUtil';
+export * from './TypeHierarchy';
 
 export * from './transform';
 export * from './NamePair';
@@ -10,3 +11,4 @@ export * from './ResolvedNamePair';
 export * from './NameCallback';
 
 export * from './SchemaFile';
+export * from './ModelSnapshotCache';
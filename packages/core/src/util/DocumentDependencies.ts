@@ -0,0 +1,29 @@
+/**
+ * Records which documents are read while running an action, so a later run can tell if any of them changed.
+ *
+ * Loaders of documents call `record` with the absolute path or uri of what they read.
+ * Recording is per thread, and actions that are tracked at the same time will all see each other's documents,
+ * which only makes the recorded dependencies wider than needed, never narrower.
+ */
+export class DocumentDependencies {
+
+  private static readonly _recorders = new Set<Set<string>>();
+
+  static record(uri: string): void {
+    for (const recorder of DocumentDependencies._recorders) {
+      recorder.add(uri);
+    }
+  }
+
+  static async track<R>(action: () => Promise<R>): Promise<{ result: R, dependencies: string[] }> {
+
+    const recorder = new Set<string>();
+    DocumentDependencies._recorders.add(recorder);
+    try {
+      const result = await action();
+      return {result: result, dependencies: [...recorder]};
+    } finally {
+      DocumentDependencies._recorders.delete(recorder);
+    }
+  }
+}
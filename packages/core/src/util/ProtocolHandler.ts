@@ -2,10 +2,17 @@ import * as fs from 'fs';
 // import http from 'http';
 // import https from 'https';
 import syncFetch from 'sync-fetch';
+import {RemoteDocumentCache} from './RemoteDocumentCache';
+import {DocumentDependencies} from './DocumentDependencies';
 
 export class ProtocolHandler {
 
-  public static http<R>(uri: string): Promise<R> {
+  public static http<R>(uri: string, cache?: RemoteDocumentCache): Promise<R> {
+
+    DocumentDependencies.record(uri);
+    if (cache) {
+      return JSON.parse(cache.fetchSync(uri)) as R;
+    }
 
     // const get = (uri.startsWith('http:') ? http : https).get;
 
@@ -35,8 +42,31 @@ export class ProtocolHandler {
     // });
   }
 
+  public static async httpAsync<R>(uri: string, cache?: RemoteDocumentCache): Promise<R> {
+
+    DocumentDependencies.record(uri);
+    if (cache) {
+      return JSON.parse(await cache.fetch(uri)) as R;
+    }
+
+    const response = await fetch(uri);
+    if (!response.ok) {
+      throw new Error(`Failed to download '${uri}': ${response.status} ${response.statusText}`);
+    }
+
+    return (await response.json()) as R;
+  }
+
+  public static async fileAsync<R>(uri: string): Promise<R> {
+
+    DocumentDependencies.record(uri);
+    const fileContents = await fs.promises.readFile(uri, 'utf-8');
+    return JSON.parse(fileContents) as R;
+  }
+
   public static file<R>(uri: string): R {
 
+    DocumentDependencies.record(uri);
     const fileBuffer = fs.readFileSync(uri);
     const fileContents = fileBuffer.toString();
     return JSON.parse(fileContents) as R;
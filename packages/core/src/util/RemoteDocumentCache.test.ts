@@ -0,0 +1,79 @@
+import {afterAll, beforeAll, describe, test} from 'vitest';
+import fs from 'fs';
+import http from 'http';
+import os from 'os';
+import path from 'path';
+import {AddressInfo} from 'net';
+import {RemoteDocumentCache} from './RemoteDocumentCache';
+
+const ETAG = '"v1"';
+
+describe('RemoteDocumentCache', () => {
+
+  const requests: (string | undefined)[] = [];
+  let server: http.Server;
+  let baseUrl: string;
+
+  beforeAll(async () => {
+    server = http.createServer((req, res) => {
+      const ifNoneMatch = req.headers['if-none-match'];
+      requests.push(ifNoneMatch);
+      if (ifNoneMatch === ETAG) {
+        res.writeHead(304);
+        res.end();
+      } else {
+        res.writeHead(200, {'ETag': ETAG, 'Content-Type': 'application/json'});
+        res.end(JSON.stringify({$id: req.url}));
+      }
+    });
+
+    await new Promise<void>(resolve => server.listen(0, '127.0.0.1', resolve));
+    baseUrl = `http://127.0.0.1:${(server.address() as AddressInfo).port}`;
+  });
+
+  afterAll(() => {
+    server.close();
+  });
+
+  const createDir = () => fs.mkdtempSync(path.join(os.tmpdir(), 'omnigen-remote-'));
+
+  test('revalidates with etag', async ctx => {
+
+    requests.length = 0;
+    const dir = createDir();
+    const uri = `${baseUrl}/a.json`;
+
+    ctx.expect(JSON.parse(await new RemoteDocumentCache({remoteCacheDir: dir}).fetch(uri))).toEqual({$id: '/a.json'});
+    ctx.expect(JSON.parse(await new RemoteDocumentCache({remoteCacheDir: dir}).fetch(uri))).toEqual({$id: '/a.json'});
+    ctx.expect(requests).toEqual([undefined, ETAG]);
+  });
+
+  test('offline uses cache only', async ctx => {
+
+    requests.length = 0;
+    const dir = createDir();
+    const uri = `${baseUrl}/b.json`;
+
+    await ctx.expect(new RemoteDocumentCache({remoteCacheDir: dir, offline: true}).fetch(uri)).rejects.toThrow(/offline/);
+
+    await new RemoteDocumentCache({remoteCacheDir: dir}).fetch(uri);
+    ctx.expect(JSON.parse(await new RemoteDocumentCache({remoteCacheDir: dir, offline: true}).fetch(uri))).toEqual({$id: '/b.json'});
+    ctx.expect(requests).toHaveLength(1);
+  });
+
+  test('tampered cached content is fetched again', async ctx => {
+
+    requests.length = 0;
+    const dir = createDir();
+    const uri = `${baseUrl}/c.json`;
+
+    await new RemoteDocumentCache({remoteCacheDir: dir}).fetch(uri);
+    const objectsDir = path.join(dir, 'objects');
+    for (const file of fs.readdirSync(objectsDir)) {
+      fs.writeFileSync(path.join(objectsDir, file), '{}');
+    }
+
+    ctx.expect(JSON.parse(await new RemoteDocumentCache({remoteCacheDir: dir}).fetch(uri))).toEqual({$id: '/c.json'});
+    ctx.expect(requests).toEqual([undefined, undefined]);
+  });
+});
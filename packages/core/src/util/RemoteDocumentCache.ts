@@ -0,0 +1,212 @@
+import * as fs from 'fs';
+import * as path from 'path';
+import crypto from 'crypto';
+import syncFetch from 'sync-fetch';
+import {LoggerFactory} from '@omnigen/core-log';
+
+const logger = LoggerFactory.create(import.meta.url);
+
+interface CacheEntry {
+  uri: string;
+  /**
+   * The sha256 of the content, which is also the name of the file in the `objects` directory that holds it.
+   */
+  hash: string;
+  etag?: string | undefined;
+  lastModified?: string | undefined;
+  fetchedAt: string;
+}
+
+interface FetchResponse {
+  status: number;
+  headers: { get(name: string): string | null };
+  text(): string | Promise<string>;
+}
+
+export interface RemoteDocumentCacheOptions {
+  /**
+   * Directory where fetched documents are kept between runs. Nothing is cached if not set.
+   */
+  remoteCacheDir?: string | undefined;
+  /**
+   * If true then no requests are made, and remote documents must already be in the cache.
+   */
+  offline?: boolean | undefined;
+}
+
+/**
+ * Fetches remote documents over `http`/`https`, keeping them in a cache directory between runs.
+ *
+ * Contents are stored by their sha256 under `objects/`, and which content belongs to which uri is stored under `entries/`.
+ * A cached document is revalidated with `If-None-Match`/`If-Modified-Since` so unchanged documents are not downloaded again,
+ * and a document whose content no longer matches its recorded hash is treated as not cached.
+ */
+export class RemoteDocumentCache {
+
+  private readonly _dir: string | undefined;
+  private readonly _offline: boolean;
+
+  constructor(options?: RemoteDocumentCacheOptions) {
+    this._dir = options?.remoteCacheDir ? path.resolve(options.remoteCacheDir) : undefined;
+    this._offline = options?.offline ?? false;
+  }
+
+  async fetch(uri: string): Promise<string> {
+
+    const entry = this.getEntry(uri);
+    const cached = entry ? this.readContent(entry) : undefined;
+    if (this._offline) {
+      return this.getOffline(uri, cached);
+    }
+
+    let response: FetchResponse;
+    try {
+      response = await fetch(uri, {method: 'GET', headers: this.getConditionalHeaders(cached !== undefined ? entry : undefined)});
+    } catch (ex) {
+      return this.getAfterFailure(uri, cached, ex);
+    }
+
+    return this.handleResponse(uri, response, cached, await response.text());
+  }
+
+  fetchSync(uri: string): string {
+
+    const entry = this.getEntry(uri);
+    const cached = entry ? this.readContent(entry) : undefined;
+    if (this._offline) {
+      return this.getOffline(uri, cached);
+    }
+
+    let response: FetchResponse;
+    try {
+      response = syncFetch(uri, {method: 'GET', headers: this.getConditionalHeaders(cached !== undefined ? entry : undefined)});
+    } catch (ex) {
+      return this.getAfterFailure(uri, cached, ex);
+    }
+
+    return this.handleResponse(uri, response, cached, response.text() as string);
+  }
+
+  private handleResponse(uri: string, response: FetchResponse, cached: string | undefined, body: string): string {
+
+    if (response.status === 304 && cached !== undefined) {
+      logger.debug(`Remote document ${uri} is unchanged, using cached copy`);
+      return cached;
+    }
+
+    if (response.status < 200 || response.status >= 300) {
+      return this.getAfterFailure(uri, cached, new Error(`${response.status}`));
+    }
+
+    this.store(uri, body, response.headers.get('etag') ?? undefined, response.headers.get('last-modified') ?? undefined);
+    return body;
+  }
+
+  private getOffline(uri: string, cached: string | undefined): string {
+
+    if (cached === undefined) {
+      throw new Error(`Remote document '${uri}' is not cached and cannot be fetched in offline mode`);
+    }
+
+    return cached;
+  }
+
+  private getAfterFailure(uri: string, cached: string | undefined, ex: unknown): string {
+
+    if (cached === undefined) {
+      throw new Error(`Failed to fetch '${uri}': ${ex}`, {cause: ex});
+    }
+
+    logger.warn(`Failed to fetch '${uri}', using cached copy: ${ex}`);
+    return cached;
+  }
+
+  private getConditionalHeaders(entry: CacheEntry | undefined): Record<string, string> {
+
+    const headers: Record<string, string> = {};
+    if (entry?.etag) {
+      headers['If-None-Match'] = entry.etag;
+    }
+    if (entry?.lastModified) {
+      headers['If-Modified-Since'] = entry.lastModified;
+    }
+
+    return headers;
+  }
+
+  private getEntry(uri: string): CacheEntry | undefined {
+
+    if (!this._dir) {
+      return undefined;
+    }
+
+    const entryPath = this.getEntryPath(uri);
+    if (!fs.existsSync(entryPath)) {
+      return undefined;
+    }
+
+    try {
+      const entry = JSON.parse(fs.readFileSync(entryPath, 'utf-8')) as CacheEntry;
+      return entry.uri === uri ? entry : undefined;
+    } catch (ex) {
+      logger.warn(`Ignoring unreadable cache entry ${entryPath}: ${ex}`);
+      return undefined;
+    }
+  }
+
+  private readContent(entry: CacheEntry): string | undefined {
+
+    const objectPath = this.getObjectPath(entry.hash);
+    if (!fs.existsSync(objectPath)) {
+      return undefined;
+    }
+
+    const content = fs.readFileSync(objectPath, 'utf-8');
+    if (RemoteDocumentCache.hash(content) !== entry.hash) {
+      logger.warn(`Cached copy of ${entry.uri} does not match its hash, it will be fetched again`);
+      return undefined;
+    }
+
+    return content;
+  }
+
+  private store(uri: string, content: string, etag: string | undefined, lastModified: string | undefined): void {
+
+    if (!this._dir) {
+      return;
+    }
+
+    const hash = RemoteDocumentCache.hash(content);
+    const entry: CacheEntry = {uri: uri, hash: hash, etag: etag, lastModified: lastModified, fetchedAt: new Date().toISOString()};
+
+    try {
+      RemoteDocumentCache.writeAtomic(this.getObjectPath(hash), content);
+      RemoteDocumentCache.writeAtomic(this.getEntryPath(uri), JSON.stringify(entry, undefined, 2));
+    } catch (ex) {
+      logger.warn(`Could not cache remote document ${uri}: ${ex}`);
+    }
+  }
+
+  private getEntryPath(uri: string): string {
+    return path.join(this._dir!, 'entries', `${RemoteDocumentCache.hash(uri)}.json`);
+  }
+
+  private getObjectPath(hash: string): string {
+    return path.join(this._dir!, 'objects', hash);
+  }
+
+  private static hash(value: string): string {
+    return crypto.createHash('sha256').update(value).digest('hex');
+  }
+
+  /**
+   * Writes to a temporary file and renames it, so concurrent runs sharing the cache never see a half-written file.
+   */
+  private static writeAtomic(filePath: string, content: string): void {
+
+    fs.mkdirSync(path.dirname(filePath), {recursive: true});
+    const tempPath = `${filePath}.${process.pid}.${crypto.randomBytes(4).toString('hex')}.tmp`;
+    fs.writeFileSync(tempPath, content);
+    fs.renameSync(tempPath, filePath);
+  }
+}
@@ -119,4 +119,30 @@ export class Util {
 
     return array;
   }
+
+  /**
+   * Maps all items with an async callback, with at most `concurrency` callbacks running at the same time.
+   *
+   * @return The results in the same order as the input, regardless of in which order they completed.
+   */
+  public static async mapWithConcurrency<T, R>(input: ReadonlyArray<T>, concurrency: number, callback: (v: T, index: number) => Promise<R>): Promise<Array<R>> {
+
+    const results = new Array<R>(input.length);
+    let next = 0;
+
+    const worker = async () => {
+      while (next < input.length) {
+        const index = next++;
+        results[index] = await callback(input[index], index);
+      }
+    };
+
+    const workers: Promise<void>[] = [];
+    for (let i = 0; i < Math.min(Math.max(1, concurrency), input.length); i++) {
+      workers.push(worker());
+    }
+
+    await Promise.all(workers);
+    return results;
+  }
 }
@@ -2,6 +2,8 @@ import {Simplify, Something} from './TsTypes';
 import {AstNode, TypeNode} from '@omnigen/api';
 
 export * from './ProtocolHandler';
+export * from './RemoteDocumentCache';
+export * from './DocumentDependencies';
 export * from './Sorters';
 export * from './ToString';
 export * from './Case';
@@ -0,0 +1,78 @@
+import {describe, test} from 'vitest';
+import fs from 'fs';
+import os from 'os';
+import path from 'path';
+import {FILE_WRITER_MANIFEST, FileWriter} from './FileWriter';
+
+describe('FileWriter', () => {
+
+  test('writeAll writes each unit before the next is taken', async ctx => {
+
+    const dir = fs.mkdtempSync(path.join(os.tmpdir(), 'omnigen-write-'));
+    const writer = new FileWriter(dir, 1);
+
+    const existingWhenTaken: boolean[] = [];
+    function* units() {
+      for (let i = 0; i < 3; i++) {
+        existingWhenTaken.push(i > 0 && fs.existsSync(path.join(dir, 'a', `U${i - 1}.txt`)));
+        yield {name: `U${i}`, fileName: `U${i}.txt`, directories: ['a'], content: `${i}`};
+      }
+    }
+
+    const written = await writer.writeAll(units());
+
+    ctx.expect(written).toEqual(['a/U0.txt', 'a/U1.txt', 'a/U2.txt']);
+    ctx.expect(existingWhenTaken).toEqual([false, true, true]);
+    ctx.expect(fs.readFileSync(path.join(dir, 'a', 'U2.txt'), 'utf-8')).toEqual('2');
+  });
+
+  test('writeAll does not write files with unchanged content', async ctx => {
+
+    const dir = fs.mkdtempSync(path.join(os.tmpdir(), 'omnigen-write-'));
+    const units = [
+      {name: 'A', fileName: 'A.txt', directories: ['x', 'y'], content: 'a'},
+      {name: 'B', fileName: 'B.txt', directories: ['x', 'y'], content: 'b'},
+    ];
+
+    await new FileWriter(dir).writeAll(units);
+    const past = new Date(2000, 0, 1);
+    fs.utimesSync(path.join(dir, 'x', 'y', 'A.txt'), past, past);
+    fs.utimesSync(path.join(dir, 'x', 'y', 'B.txt'), past, past);
+
+    const writer = new FileWriter(dir);
+    await writer.writeAll([units[0], {...units[1], content: 'c'}]);
+
+    ctx.expect(writer.writtenCount).toEqual(1);
+    ctx.expect(writer.unchangedCount).toEqual(1);
+    ctx.expect(fs.statSync(path.join(dir, 'x', 'y', 'A.txt')).mtime.getTime()).toEqual(past.getTime());
+    ctx.expect(fs.readFileSync(path.join(dir, 'x', 'y', 'B.txt'), 'utf-8')).toEqual('c');
+  });
+
+  test('updateManifest deletes files that were not written again', async ctx => {
+
+    const dir = fs.mkdtempSync(path.join(os.tmpdir(), 'omnigen-write-'));
+
+    const first = new FileWriter(dir);
+    await first.updateManifest(await first.writeAll([
+      {name: 'A', fileName: 'A.txt', directories: ['p'], content: 'a'},
+      {name: 'B', fileName: 'B.txt', directories: ['p'], content: 'b'},
+    ]), true);
+
+    fs.writeFileSync(path.join(dir, 'Unrelated.txt'), 'u');
+
+    const second = new FileWriter(dir);
+    await second.updateManifest(await second.writeAll([
+      {name: 'A', fileName: 'A.txt', directories: ['p'], content: 'a'},
+    ]), true);
+
+    ctx.expect(fs.existsSync(path.join(dir, 'p', 'A.txt'))).toEqual(true);
+    ctx.expect(fs.existsSync(path.join(dir, 'p', 'B.txt'))).toEqual(false);
+    ctx.expect(fs.existsSync(path.join(dir, 'Unrelated.txt'))).toEqual(true);
+    ctx.expect(JSON.parse(fs.readFileSync(path.join(dir, FILE_WRITER_MANIFEST), 'utf-8'))).toEqual(['p/A.txt']);
+  });
+
+  test('isFilePath', ctx => {
+    ctx.expect(FileWriter.isFilePath('./out/Model.java')).toEqual(true);
+    ctx.expect(FileWriter.isFilePath('./out/generated')).toEqual(false);
+  });
+});
@@ -1,39 +1,193 @@
 import {RenderedCompilationUnit, Writer} from '@omnigen/api';
 import fs from 'fs/promises';
+import crypto from 'crypto';
 import path from 'path';
 import {LoggerFactory} from '@omnigen/core-log';
 
 const logger = LoggerFactory.create(import.meta.url);
 
+/**
+ * Name of the file in the output directory that lists the files written by the previous run, relative to the output directory.
+ */
+export const FILE_WRITER_MANIFEST = '.omnigen-manifest.json';
+
+const DEFAULT_CONCURRENCY = 16;
+
+/**
+ * Writes rendered compilation units to files below an output directory.
+ *
+ * A file that already has the exact same content is not written again, so its modification time is kept and
+ * build tools that look at timestamps (incremental compilation, up-to-date checks) see it as unchanged.
+ */
 export class FileWriter implements Writer {
 
   private readonly _outputBaseDir: string;
+  private readonly _concurrency: number;
+  private readonly _directories = new Map<string, Promise<void>>();
 
-  constructor(outputBaseDir: string) {
+  private _writtenCount = 0;
+  private _unchangedCount = 0;
+
+  constructor(outputBaseDir: string, concurrency = DEFAULT_CONCURRENCY) {
     this._outputBaseDir = outputBaseDir;
+    this._concurrency = Math.max(1, concurrency);
   }
 
-  async write(rcu: RenderedCompilationUnit): Promise<void> {
+  get writtenCount(): number {
+    return this._writtenCount;
+  }
 
-    const targetPath = path.resolve(this._outputBaseDir, ...rcu.directories, rcu.fileName);
+  get unchangedCount(): number {
+    return this._unchangedCount;
+  }
 
-    const directoryPath = path.dirname(targetPath);
+  /**
+   * @return If the output path looks like the path to a file rather than a directory, in which case only one unit can be written to it.
+   */
+  static isFilePath(outputBaseDir: string): boolean {
+    const parts = outputBaseDir.split('/');
+    const fileName = parts[parts.length - 1];
+    return fileName.match(/\w+\.\w{1,3}/) !== null;
+  }
 
-    try {
-      const created = await fs.mkdir(directoryPath, {recursive: true});
-      if (created) {
-        logger.info(`Created directory ${created}`);
+  /**
+   * @return The path of the unit relative to the output directory, which is how files are listed in the manifest.
+   */
+  static getRelativePath(rcu: Omit<RenderedCompilationUnit, 'node'>): string {
+    return [...rcu.directories, rcu.fileName].filter(it => it.length > 0).join('/');
+  }
+
+  /**
+   * Writes the units with a bounded number of writes running at the same time.
+   * Units are taken from the iterable as writes complete, so with a lazy iterable only that many units need to be in memory at a time.
+   *
+   * @return The paths of the units relative to the output directory
+   */
+  async writeAll(units: Iterable<Omit<RenderedCompilationUnit, 'node'>>): Promise<string[]> {
+
+    const written: string[] = [];
+    const inFlight = new Set<Promise<void>>();
+
+    for (const rcu of units) {
+
+      const promise: Promise<void> = this.write(rcu).finally(() => inFlight.delete(promise));
+      inFlight.add(promise);
+      written.push(FileWriter.getRelativePath(rcu));
+
+      if (inFlight.size >= this._concurrency) {
+        await Promise.race(inFlight);
       }
-    } catch (ex) {
-      logger.warn(ex, `Failed directory creation of '${directoryPath}', but will try to continue`);
+    }
+
+    await Promise.all(inFlight);
+
+    logger.info(`Wrote ${this._writtenCount} files and left ${this._unchangedCount} unchanged files in '${this._outputBaseDir}'`);
+    return written;
+  }
+
+  /**
+   * @param rcu Only the rendered parts are used, so units that come from a worker thread without their node can be written as well.
+   */
+  async write(rcu: Omit<RenderedCompilationUnit, 'node'>): Promise<void> {
+
+    const targetPath = path.resolve(this._outputBaseDir, ...rcu.directories, rcu.fileName);
+
+    await this.createDirectory(path.dirname(targetPath));
+
+    if (await FileWriter.hasSameContent(targetPath, rcu.content)) {
+      logger.debug(`Skipping '${rcu.name}' since '${targetPath}' is unchanged`);
+      this._unchangedCount++;
+      return;
     }
 
     try {
-      logger.info(`Writing '${rcu.name}' to '${targetPath}'`);
+      logger.debug(`Writing '${rcu.name}' to '${targetPath}'`);
       await fs.writeFile(targetPath, rcu.content, {encoding: 'utf8'});
+      this._writtenCount++;
     } catch (ex) {
       logger.error(ex, `Could not write file ${targetPath}`);
       return Promise.reject(ex);
     }
   }
+
+  /**
+   * Remembers the files of this run in the manifest of the output directory, and deletes the files that the previous run wrote but this run did not.
+   *
+   * @param relativePaths All files written by this run, relative to the output directory
+   * @param deleteStale If files of the previous run that are not part of this run should be deleted
+   */
+  async updateManifest(relativePaths: ReadonlyArray<string>, deleteStale: boolean): Promise<void> {
+
+    const manifestPath = path.resolve(this._outputBaseDir, FILE_WRITER_MANIFEST);
+    const current = [...new Set(relativePaths)].sort();
+
+    if (deleteStale) {
+
+      let previous: string[] = [];
+      try {
+        previous = JSON.parse(await fs.readFile(manifestPath, 'utf8')) as string[];
+      } catch (ex) {
+        logger.debug(`No previous manifest at '${manifestPath}', nothing to delete`);
+      }
+
+      const keep = new Set(current);
+      for (const stale of previous.filter(it => !keep.has(it))) {
+
+        const stalePath = path.resolve(this._outputBaseDir, stale);
+        if (path.relative(this._outputBaseDir, stalePath).startsWith('..')) {
+          logger.warn(`Will not delete '${stalePath}' since it is outside of '${this._outputBaseDir}'`);
+          continue;
+        }
+
+        logger.info(`Deleting stale file '${stalePath}'`);
+        await fs.rm(stalePath, {force: true});
+      }
+    }
+
+    await this.createDirectory(path.dirname(manifestPath));
+    await fs.writeFile(manifestPath, JSON.stringify(current, undefined, 2), {encoding: 'utf8'});
+  }
+
+  private createDirectory(directoryPath: string): Promise<void> {
+
+    let promise = this._directories.get(directoryPath);
+    if (!promise) {
+      promise = fs.mkdir(directoryPath, {recursive: true})
+        .then(created => {
+          if (created) {
+            logger.info(`Created directory ${created}`);
+          }
+        })
+        .catch(ex => {
+          logger.warn(ex, `Failed directory creation of '${directoryPath}', but will try to continue`);
+        });
+
+      this._directories.set(directoryPath, promise);
+    }
+
+    return promise;
+  }
+
+  /**
+   * Compares the size first, and only reads and hashes the existing file if the sizes are the same.
+   */
+  private static async hasSameContent(targetPath: string, content: string): Promise<boolean> {
+
+    let size: number;
+    try {
+      size = (await fs.stat(targetPath)).size;
+    } catch (ex) {
+      return false;
+    }
+
+    if (size !== Buffer.byteLength(content, 'utf8')) {
+      return false;
+    }
+
+    const existing = await fs.readFile(targetPath);
+    const existingHash = crypto.createHash('sha256').update(existing).digest();
+    const newHash = crypto.createHash('sha256').update(content, 'utf8').digest();
+
+    return existingHash.equals(newHash);
+  }
 }
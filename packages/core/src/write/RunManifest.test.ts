@@ -0,0 +1,72 @@
+import {describe, test} from 'vitest';
+import fs from 'fs';
+import os from 'os';
+import path from 'path';
+import {RunManifest} from './RunManifest';
+
+describe('RunManifest', () => {
+
+  function setup() {
+    const dir = fs.mkdtempSync(path.join(os.tmpdir(), 'omnigen-run-'));
+    const input = path.join(dir, 'input.json');
+    const output = path.join(dir, 'out');
+    fs.writeFileSync(input, '{"type": "string"}');
+    fs.mkdirSync(path.join(output, 'a'), {recursive: true});
+    fs.writeFileSync(path.join(output, 'a', 'A.java'), 'class A {}');
+
+    const manifest = new RunManifest(output);
+    manifest.set('run', RunManifest.createKey({x: 1, y: 2}), [input], ['a/A.java']);
+    manifest.save();
+
+    return {input, output};
+  }
+
+  test('up to date when nothing changed', ctx => {
+
+    const {output} = setup();
+
+    ctx.expect(new RunManifest(output).isUpToDate('run', RunManifest.createKey({y: 2, x: 1}))).toEqual(true);
+    ctx.expect(new RunManifest(output).isUpToDate('other', RunManifest.createKey({y: 2, x: 1}))).toEqual(false);
+  });
+
+  test('not up to date when the key changed', ctx => {
+
+    const {output} = setup();
+
+    ctx.expect(new RunManifest(output).isUpToDate('run', RunManifest.createKey({x: 1, y: 3}))).toEqual(false);
+  });
+
+  test('not up to date when a document changed', ctx => {
+
+    const {input, output} = setup();
+    fs.writeFileSync(input, '{"type": "number"}');
+
+    ctx.expect(new RunManifest(output).isUpToDate('run', RunManifest.createKey({x: 1, y: 2}))).toEqual(false);
+  });
+
+  test('up to date when a document was only touched', ctx => {
+
+    const {input, output} = setup();
+    const future = new Date(Date.now() + 60_000);
+    fs.utimesSync(input, future, future);
+
+    ctx.expect(new RunManifest(output).isUpToDate('run', RunManifest.createKey({x: 1, y: 2}))).toEqual(true);
+  });
+
+  test('not up to date when an output is missing', ctx => {
+
+    const {output} = setup();
+    fs.rmSync(path.join(output, 'a', 'A.java'));
+
+    ctx.expect(new RunManifest(output).isUpToDate('run', RunManifest.createKey({x: 1, y: 2}))).toEqual(false);
+  });
+
+  test('remote documents are always changed', ctx => {
+
+    const {input, output} = setup();
+    const manifest = new RunManifest(output);
+    manifest.set('remote', 'k', [input, 'https://example.com/schema.json'], []);
+
+    ctx.expect(manifest.isUpToDate('remote', 'k')).toEqual(false);
+  });
+});
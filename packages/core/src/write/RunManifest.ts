@@ -0,0 +1,196 @@
+import * as fs from 'fs';
+import * as path from 'path';
+import crypto from 'crypto';
+import {LoggerFactory} from '@omnigen/core-log';
+import {FileWriter} from './FileWriter';
+
+const logger = LoggerFactory.create(import.meta.url);
+
+/**
+ * Name of the file in the output directory that holds the manifest of the previous runs.
+ */
+export const RUN_MANIFEST = '.omnigen-run.json';
+
+const RUN_MANIFEST_VERSION = 1;
+
+interface FileStamp {
+  size: number;
+  mtimeMs: number;
+  hash: string;
+}
+
+export interface RunManifestEntry {
+  /**
+   * Hash of everything other than documents that the output depends on, like the options and the versions of the plugins.
+   */
+  key: string;
+  /**
+   * Stamps of the documents that were read by the run, by their absolute path or uri. Remote documents have no stamp.
+   */
+  dependencies: Record<string, FileStamp | null>;
+  /**
+   * Stamps of the files that were written by the run, by their path relative to the output directory.
+   */
+  outputs: Record<string, FileStamp | null>;
+}
+
+interface RunManifestFile {
+  version: number;
+  entries: Record<string, RunManifestEntry>;
+}
+
+/**
+ * Remembers what each generation in an output directory was made from, so a generation can be skipped if none of it has changed.
+ *
+ * A generation is up to date if its key is the same, all documents it read have the same content,
+ * and all files it wrote are still there untouched. Documents fetched over `http`/`https` are always considered changed.
+ * Size and modification time are compared first, and only if those differ is the content hashed.
+ */
+export class RunManifest {
+
+  private readonly _outputDir: string;
+  private readonly _entries: Record<string, RunManifestEntry>;
+
+  constructor(outputDir: string) {
+    this._outputDir = path.resolve(outputDir);
+    this._entries = RunManifest.read(this.getManifestPath());
+  }
+
+  /**
+   * @return A stable hash of the value, no matter the order that the properties of its objects were added in.
+   */
+  static createKey(value: unknown): string {
+    return crypto.createHash('sha256').update(RunManifest.stableStringify(value)).digest('hex');
+  }
+
+  isUpToDate(id: string, key: string): boolean {
+
+    const entry = this._entries[id];
+    if (!entry) {
+      logger.debug(`No previous run of '${id}'`);
+      return false;
+    }
+
+    if (entry.key !== key) {
+      logger.debug(`Options or plugins of '${id}' have changed`);
+      return false;
+    }
+
+    for (const [dependency, stamp] of Object.entries(entry.dependencies)) {
+      if (!RunManifest.isSame(dependency, stamp)) {
+        logger.debug(`Document '${dependency}' of '${id}' has changed`);
+        return false;
+      }
+    }
+
+    for (const [output, stamp] of Object.entries(entry.outputs)) {
+      if (!RunManifest.isSame(path.resolve(this._outputDir, output), stamp)) {
+        logger.debug(`Output '${output}' of '${id}' has changed or is missing`);
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * @param dependencies Absolute paths or uris of all documents that were read
+   * @param outputs Paths of all written files, relative to the output directory
+   */
+  set(id: string, key: string, dependencies: Iterable<string>, outputs: Iterable<string>): void {
+
+    const entry: RunManifestEntry = {key: key, dependencies: {}, outputs: {}};
+    for (const dependency of [...new Set(dependencies)].sort()) {
+      entry.dependencies[dependency] = RunManifest.createStamp(dependency);
+    }
+
+    for (const output of [...new Set(outputs)].sort()) {
+      entry.outputs[output] = RunManifest.createStamp(path.resolve(this._outputDir, output));
+    }
+
+    this._entries[id] = entry;
+  }
+
+  delete(id: string): void {
+    delete this._entries[id];
+  }
+
+  save(): void {
+
+    const manifestPath = this.getManifestPath();
+    const content: RunManifestFile = {version: RUN_MANIFEST_VERSION, entries: this._entries};
+
+    try {
+      fs.mkdirSync(path.dirname(manifestPath), {recursive: true});
+      const tempPath = `${manifestPath}.${process.pid}.${crypto.randomBytes(4).toString('hex')}.tmp`;
+      fs.writeFileSync(tempPath, JSON.stringify(content, undefined, 2));
+      fs.renameSync(tempPath, manifestPath);
+    } catch (ex) {
+      logger.warn(`Could not save run manifest ${manifestPath}, next run will not be able to skip anything: ${ex}`);
+    }
+  }
+
+  private getManifestPath(): string {
+
+    // If the output is a single file, then the manifest is kept beside it.
+    return FileWriter.isFilePath(this._outputDir)
+      ? `${this._outputDir}${RUN_MANIFEST}`
+      : path.join(this._outputDir, RUN_MANIFEST);
+  }
+
+  private static read(manifestPath: string): Record<string, RunManifestEntry> {
+
+    if (!fs.existsSync(manifestPath)) {
+      return {};
+    }
+
+    try {
+      const content = JSON.parse(fs.readFileSync(manifestPath, 'utf-8')) as RunManifestFile;
+      return content.version === RUN_MANIFEST_VERSION ? content.entries : {};
+    } catch (ex) {
+      logger.warn(`Ignoring unreadable run manifest ${manifestPath}: ${ex}`);
+      return {};
+    }
+  }
+
+  private static createStamp(filePath: string): FileStamp | null {
+
+    if (filePath.startsWith('http:') || filePath.startsWith('https:') || !fs.existsSync(filePath)) {
+      return null;
+    }
+
+    const stat = fs.statSync(filePath);
+    if (!stat.isFile()) {
+      return null;
+    }
+
+    return {size: stat.size, mtimeMs: stat.mtimeMs, hash: RunManifest.hashFile(filePath)};
+  }
+
+  private static isSame(filePath: string, stamp: FileStamp | null): boolean {
+
+    if (!stamp || !fs.existsSync(filePath)) {
+      return false;
+    }
+
+    const stat = fs.statSync(filePath);
+    if (stat.size !== stamp.size) {
+      return false;
+    }
+
+    return stat.mtimeMs === stamp.mtimeMs || RunManifest.hashFile(filePath) === stamp.hash;
+  }
+
+  private static hashFile(filePath: string): string {
+    return crypto.createHash('sha256').update(fs.readFileSync(filePath)).digest('hex');
+  }
+
+  private static stableStringify(value: unknown): string {
+    return JSON.stringify(value, (_, v) => {
+      if (v && typeof v === 'object' && !Array.isArray(v)) {
+        return Object.fromEntries(Object.entries(v).sort(([a], [b]) => a.localeCompare(b)));
+      }
+      return v;
+    });
+  }
+}
@@ -1,2 +1,3 @@
 
 export * from './FileWriter.js';
+export * from './RunManifest.js';
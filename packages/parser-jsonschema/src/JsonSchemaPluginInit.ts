@@ -1,4 +1,4 @@
-import {ZodSchemaFileContext} from '@omnigen/core';
+import {ModelSnapshotCache, ZodSchemaFileContext} from '@omnigen/core';
 import {ActionKind, createPlugin, ZodModelContext, ZodParserOptionsContext} from '@omnigen/core-plugin';
 import {z} from 'zod';
 import {DefaultJsonSchemaParser} from './parse';
@@ -52,13 +52,15 @@ export const JsonSchemaPlugin = createPlugin(
       }
     }
 
-    const parser = new DefaultJsonSchemaParser(ctx.schemaFile, ctx.parserOptions);
-    const model = parser.parse();
+    const model = await new ModelSnapshotCache(ctx.parserOptions).getOrCreate(ctx.schemaFile, 'jsonschema', ctx.parserOptions, async () => {
+      const parser = new DefaultJsonSchemaParser(ctx.schemaFile, ctx.parserOptions);
+      return (await parser.parseAsync()).model;
+    }, {complete: true});
 
     return {
       ...ctx,
       source: 'jsonschema',
-      model: model.model,
+      model: model,
     } as const;
   },
 );
@@ -31,10 +31,10 @@ import {
 } from '@omnigen/api';
 import {LoggerFactory} from '@omnigen/core-log';
 import {DiscriminatorAware} from './DiscriminatorAware.js';
-import {Case, CompositionUtil, isDefined, Naming, OmniUtil, SchemaFile, ToDefined, TypeNameUtil, Util} from '@omnigen/core';
+import {Case, CompositionUtil, isDefined, Naming, OmniUtil, RemoteDocumentCache, SchemaFile, ToDefined, TypeNameUtil, Util} from '@omnigen/core';
 import {ApplyIdJsonSchemaTransformerFactory, SimplifyJsonSchemaTransformerFactory} from '../transform';
-import {DefaultJsonSchema9Visitor, ExternalDocumentsFinder, JsonSchema9Visitor, RefResolver, ToSingle} from '../visit';
-import Ajv2020, {ErrorObject} from 'ajv/dist/2020';
+import {DefaultJsonSchema9Visitor, ExternalDocumentsFinder, JsonSchema9Visitor, ProtocolDocumentLoader, RefResolver, ToSingle} from '../visit';
+import {MetaSchemaValidator} from './MetaSchemaValidator';
 import {JsonSchemaMigrator} from '../migrate';
 import {JSONSchema9, JSONSchema9Definition, JSONSchema9Type, JSONSchema9TypeName, PROP_ID, PROP_SKIPPED_AGGREGATION} from '../definitions';
 import {DocumentStore, JsonPathFetcher, ObjectVisitor} from '@omnigen/core-json';
@@ -81,14 +81,48 @@ export class DefaultJsonSchemaParser implements Parser {
 
   parse(): OmniModelParserResult<ParserOptions> {
 
+    const roots = this.preProcessRoots();
+    const fileUri = this.getFileUri();
+
+    return this.parseRoots(roots, this.createDocumentsFinder(fileUri, roots[0]).create());
+  }
+
+  /**
+   * Same as `parse` but loads external documents concurrently, which is much faster when there are many of them.
+   */
+  async parseAsync(): Promise<OmniModelParserResult<ParserOptions>> {
+
+    const roots = this.preProcessRoots();
+    const fileUri = this.getFileUri();
+
+    return this.parseRoots(roots, await this.createDocumentsFinder(fileUri, roots[0]).createAsync());
+  }
+
+  private createDocumentsFinder(fileUri: string, root: AnyJSONSchema): ExternalDocumentsFinder {
+    return new ExternalDocumentsFinder(fileUri, root, undefined, {loader: new ProtocolDocumentLoader(new RemoteDocumentCache(this._parserOptions))});
+  }
+
+  private getFileUri(): string {
+    return this._schemaFiles.map(it => it.getAbsolutePath()).find(Boolean) ?? '';
+  }
+
+  private preProcessRoots(): AnyJSONSchema[] {
+
     const docStore = new DocumentStore();
     // const roots = Util.mapToDefined(this._schemaFiles, it => it.asObject<AnyJSONSchema>());
     const roots: AnyJSONSchema[] = [];
     for (let i = 0; i < this._schemaFiles.length; i++) {
       const root = this._schemaFiles[i].asObject<AnyJSONSchema>();
-      roots.push(JsonSchemaParser.preProcessSchema(this._schemaFiles[i].getAbsolutePath(), DefaultJsonSchema9Visitor, root, 'schema', docStore));
+      roots.push(JsonSchemaParser.preProcessSchema(
+        this._schemaFiles[i].getAbsolutePath(), DefaultJsonSchema9Visitor, root, 'schema', docStore, undefined, this._parserOptions.schemaValidationCacheFile,
+      ));
     }
 
+    return roots;
+  }
+
+  private parseRoots(roots: AnyJSONSchema[], refResolver: RefResolver): OmniModelParserResult<ParserOptions> {
+
     const model: OmniModel = {
       kind: OmniItemKind.MODEL,
       name: roots.map(it => it.$schema || it.$id).find(Boolean) || '',
@@ -100,11 +134,7 @@ export class DefaultJsonSchemaParser implements Parser {
       types: [],
     };
 
-    const fileUri = this._schemaFiles.map(it => it.getAbsolutePath()).find(Boolean) ?? '';
     const root = roots[0];
-
-    const refResolver = (new ExternalDocumentsFinder(fileUri, root).create());
-
     const jsonSchemaParser = new JsonSchemaParser(refResolver, this._parserOptions);
 
     for (const [nameOptions, jsonPath, s] of this.getAllSchemas(root, jsonSchemaParser)) {
@@ -161,7 +191,7 @@ export class JsonSchemaParser<TOpt extends ParserOptions> {
 
   private readonly _refResolver: RefResolver;
 
-  private readonly _options: TOpt;
+  protected readonly _options: TOpt;
 
   constructor(refResolver: RefResolver, options: TOpt) {
     this._refResolver = refResolver;
@@ -471,6 +501,7 @@ export class JsonSchemaParser<TOpt extends ParserOptions> {
     entryKey: keyof V, // DocVisitorTransformer<S, any>,
     docStore: DocumentStore,
     applyIdVisitor?: V,
+    validationCacheFile?: string,
   ): S {
 
     // TODO: Add schema version migration, should support from 04 -> 2020
@@ -481,16 +512,7 @@ export class JsonSchemaParser<TOpt extends ParserOptions> {
     const migrator = new JsonSchemaMigrator();
     migrator.migrate(root);
 
-    const ajv = new Ajv2020({allErrors: true, strict: false});
-    const schemaVersion = ajv.defaultMeta() ?? 'https://json-schema.org/draft/2020-12/schema';
-
-    const valid = ajv.validate(schemaVersion, root);
-    if (!valid) {
-
-      const errors = (ajv.errors || []);
-      const message = JsonSchemaParser.ajvErrorsToPrettyError(errors);
-      throw new Error(message || ajv.errorsText() || 'JSONSchema Unknown Validation Error');
-    }
+    MetaSchemaValidator.validate(root, validationCacheFile);
 
     // TODO: Need to fix these visitor transformers so the generics work.
     const simplifyVisitor = new SimplifyJsonSchemaTransformerFactory<JSONSchema9, V>(baseVisitor).create();
@@ -514,20 +536,6 @@ export class JsonSchemaParser<TOpt extends ParserOptions> {
     return root;
   }
 
-  private static ajvErrorsToPrettyError(errors: ErrorObject[]): string | undefined {
-
-    const messages: string[] = [];
-    for (const error of errors) {
-      messages.push(`@ ${error.schemaPath} => ${error.message}: ${JSON.stringify(error.params)}`);
-    }
-
-    if (messages.length === 0) {
-      return undefined;
-    }
-
-    return `\n${messages.join('\n')}`;
-  }
-
   private jsonSchemaToObjectType<S extends JSONSchema9>(
     jsonPath: string[],
     schema: AnyJsonDefinition<S>,
@@ -1865,7 +1873,9 @@ export class JsonSchemaParser<TOpt extends ParserOptions> {
     }
 
     let derefJsonSchema = this._refResolver.resolve(schema, jsonPath);
-    derefJsonSchema = JsonSchemaParser.preProcessSchema(undefined, DefaultJsonSchema9Visitor, derefJsonSchema, 'schema', docStore);
+    derefJsonSchema = JsonSchemaParser.preProcessSchema(
+      undefined, DefaultJsonSchema9Visitor, derefJsonSchema, 'schema', docStore, undefined, this._options.schemaValidationCacheFile,
+    );
 
     const omniType = this.jsonSchemaToType(jsonPath, derefJsonSchema, {
       alternatives: name,
@@ -0,0 +1,24 @@
+import {describe, test} from 'vitest';
+import fs from 'fs';
+import os from 'os';
+import path from 'path';
+import {MetaSchemaValidator} from './MetaSchemaValidator.ts';
+
+describe('MetaSchemaValidator', () => {
+
+  test('invalid document throws', ctx => {
+    ctx.expect(() => MetaSchemaValidator.validate({type: 123})).toThrow();
+  });
+
+  test('validated document hash is persisted to cache file', ctx => {
+
+    const cacheFile = path.join(fs.mkdtempSync(path.join(os.tmpdir(), 'omnigen-')), 'validated.txt');
+    const schema = {$defs: {A: {type: 'string', description: `unique-${Date.now()}`}}};
+
+    MetaSchemaValidator.validate(schema, cacheFile);
+    MetaSchemaValidator.validate(schema, cacheFile);
+
+    const lines = fs.readFileSync(cacheFile, 'utf-8').split('\n').filter(it => it.length > 0);
+    ctx.expect(lines).toHaveLength(1);
+  });
+});
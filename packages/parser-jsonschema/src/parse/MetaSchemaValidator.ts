@@ -0,0 +1,131 @@
+import Ajv2020, {ErrorObject, ValidateFunction} from 'ajv/dist/2020';
+import crypto from 'crypto';
+import fs from 'fs';
+import {LoggerFactory} from '@omnigen/core-log';
+
+const logger = LoggerFactory.create(import.meta.url);
+
+const DEFAULT_META_SCHEMA = 'https://json-schema.org/draft/2020-12/schema';
+
+/**
+ * Validates schema documents against their meta-schema.
+ *
+ * Compiling the meta-schema is by far the most expensive part of validating a document, so the compiled validators are kept for the whole process, one per draft.
+ * The content hashes of documents that have passed validation are remembered as well, and can be persisted to a file so later runs can skip validating unchanged documents.
+ */
+export class MetaSchemaValidator {
+
+  private static _ajv: Ajv2020 | undefined;
+  private static readonly _validators = new Map<string, ValidateFunction>();
+  private static readonly _validatedHashes = new Set<string>();
+  private static readonly _loadedCacheFiles = new Set<string>();
+
+  /**
+   * @param root The document to validate, which must already be migrated to the latest draft
+   * @param cacheFile Optional file with the content hashes of documents that have already passed validation in a previous run
+   */
+  public static validate(root: unknown, cacheFile?: string): void {
+
+    if (cacheFile) {
+      MetaSchemaValidator.loadCacheFile(cacheFile);
+    }
+
+    const hash = MetaSchemaValidator.getContentHash(root);
+    if (hash && MetaSchemaValidator._validatedHashes.has(hash)) {
+      logger.trace(`Skipping meta-schema validation of already validated document ${hash}`);
+      return;
+    }
+
+    const validator = MetaSchemaValidator.getValidator(root);
+    if (!validator(root)) {
+
+      const errors = (validator.errors || []);
+      const message = MetaSchemaValidator.ajvErrorsToPrettyError(errors);
+      throw new Error(message || MetaSchemaValidator.getAjv().errorsText(errors) || 'JSONSchema Unknown Validation Error');
+    }
+
+    if (hash) {
+      MetaSchemaValidator._validatedHashes.add(hash);
+      if (cacheFile) {
+        try {
+          fs.appendFileSync(cacheFile, `${hash}\n`);
+        } catch (ex) {
+          logger.warn(`Could not write validated schema hash to '${cacheFile}': ${ex}`);
+        }
+      }
+    }
+  }
+
+  private static getAjv(): Ajv2020 {
+    if (!MetaSchemaValidator._ajv) {
+      MetaSchemaValidator._ajv = new Ajv2020({allErrors: true, strict: false});
+    }
+
+    return MetaSchemaValidator._ajv;
+  }
+
+  private static getValidator(root: unknown): ValidateFunction {
+
+    const ajv = MetaSchemaValidator.getAjv();
+
+    // Only drafts that Ajv knows about can be used, anything else is validated as the default draft, like it has always been.
+    const declared = (root && typeof root === 'object' && '$schema' in root && typeof root.$schema === 'string') ? root.$schema : undefined;
+    const metaSchema = (declared && ajv.getSchema(declared)) ? declared : (ajv.defaultMeta() as string | undefined) ?? DEFAULT_META_SCHEMA;
+
+    let validator = MetaSchemaValidator._validators.get(metaSchema);
+    if (!validator) {
+      validator = ajv.getSchema(metaSchema);
+      if (!validator) {
+        throw new Error(`There is no meta-schema '${metaSchema}' to validate against`);
+      }
+
+      MetaSchemaValidator._validators.set(metaSchema, validator);
+    }
+
+    return validator;
+  }
+
+  private static getContentHash(root: unknown): string | undefined {
+
+    try {
+      return crypto.createHash('sha256').update(JSON.stringify(root)).digest('base64');
+    } catch (ex) {
+
+      // For example if the expanded document is recursive. Then it is simply always validated.
+      logger.trace(`Could not hash document, it will be validated: ${ex}`);
+      return undefined;
+    }
+  }
+
+  private static loadCacheFile(cacheFile: string): void {
+
+    if (MetaSchemaValidator._loadedCacheFiles.has(cacheFile)) {
+      return;
+    }
+
+    MetaSchemaValidator._loadedCacheFiles.add(cacheFile);
+    if (!fs.existsSync(cacheFile)) {
+      return;
+    }
+
+    for (const line of fs.readFileSync(cacheFile, 'utf-8').split('\n')) {
+      if (line.length > 0) {
+        MetaSchemaValidator._validatedHashes.add(line);
+      }
+    }
+  }
+
+  private static ajvErrorsToPrettyError(errors: ErrorObject[]): string | undefined {
+
+    const messages: string[] = [];
+    for (const error of errors) {
+      messages.push(`@ ${error.schemaPath} => ${error.message}: ${JSON.stringify(error.params)}`);
+    }
+
+    if (messages.length === 0) {
+      return undefined;
+    }
+
+    return `\n${messages.join('\n')}`;
+  }
+}
@@ -1,3 +1,4 @@
 
 export * from './DiscriminatorAware.js';
 export * from './JsonSchemaParser.js';
+export * from './MetaSchemaValidator.js';
@@ -0,0 +1,45 @@
+import {JsonObject} from 'json-pointer';
+import {ProtocolHandler, RemoteDocumentCache} from '@omnigen/core';
+import {JsonItemAbsoluteUri} from '@omnigen/core-json';
+
+/**
+ * Loads external documents that are referenced by `$ref`, for `ExternalDocumentsFinder`.
+ */
+export interface DocumentLoader {
+  load(uri: JsonItemAbsoluteUri): JsonObject;
+  loadAsync(uri: JsonItemAbsoluteUri): Promise<JsonObject>;
+}
+
+/**
+ * Loads documents from the file system or over `http`/`https`, depending on the protocol of the uri.
+ */
+export class ProtocolDocumentLoader implements DocumentLoader {
+
+  private readonly _cache: RemoteDocumentCache | undefined;
+
+  constructor(cache?: RemoteDocumentCache) {
+    this._cache = cache;
+  }
+
+  load(uri: JsonItemAbsoluteUri): JsonObject {
+
+    if (uri.protocol == 'file') {
+      return ProtocolHandler.file<JsonObject>(uri.absoluteDocumentUri);
+    } else if (uri.protocol == 'http' || uri.protocol == 'https') {
+      return ProtocolHandler.http<JsonObject>(uri.absoluteDocumentUri, this._cache);
+    } else {
+      throw new Error(`Unknown protocol ${uri.protocol}`);
+    }
+  }
+
+  loadAsync(uri: JsonItemAbsoluteUri): Promise<JsonObject> {
+
+    if (uri.protocol == 'file') {
+      return ProtocolHandler.fileAsync<JsonObject>(uri.absoluteDocumentUri);
+    } else if (uri.protocol == 'http' || uri.protocol == 'https') {
+      return ProtocolHandler.httpAsync<JsonObject>(uri.absoluteDocumentUri, this._cache);
+    } else {
+      return Promise.reject(new Error(`Unknown protocol ${uri.protocol}`));
+    }
+  }
+}
@@ -0,0 +1,126 @@
+import {describe, test} from 'vitest';
+import fs from 'fs';
+import os from 'os';
+import path from 'path';
+import {JsonObject} from 'json-pointer';
+import {JsonItemAbsoluteUri} from '@omnigen/core-json';
+import {ExternalDocumentsFinder} from './ExternalDocumentsFinder';
+import {DocumentLoader, ProtocolDocumentLoader} from './DocumentLoader';
+
+/**
+ * Writes a chain of documents to a temporary directory, where each document references the next one and a shared document.
+ */
+function writeDocuments(count: number): string {
+
+  const dir = fs.mkdtempSync(path.join(os.tmpdir(), 'omnigen-refs-'));
+  fs.writeFileSync(path.join(dir, 'shared.json'), JSON.stringify({$defs: {Shared: {type: 'string'}}}));
+
+  for (let i = 0; i < count; i++) {
+    const properties: Record<string, unknown> = {shared: {$ref: './shared.json#/$defs/Shared'}};
+    if (i + 1 < count) {
+      properties.next = {$ref: `./doc${i + 1}.json#/$defs/Doc`};
+    }
+
+    fs.writeFileSync(path.join(dir, `doc${i}.json`), JSON.stringify({$defs: {Doc: {type: 'object', properties: properties}}}));
+  }
+
+  return dir;
+}
+
+class CountingLoader implements DocumentLoader {
+
+  private readonly _delegate = new ProtocolDocumentLoader();
+  readonly loaded: string[] = [];
+
+  load(uri: JsonItemAbsoluteUri): JsonObject {
+    this.loaded.push(uri.absoluteDocumentUri);
+    return this._delegate.load(uri);
+  }
+
+  loadAsync(uri: JsonItemAbsoluteUri): Promise<JsonObject> {
+    this.loaded.push(uri.absoluteDocumentUri);
+    return this._delegate.loadAsync(uri);
+  }
+}
+
+describe('ExternalDocumentsFinder', () => {
+
+  test('loads more than 100 documents', async ctx => {
+
+    const dir = writeDocuments(150);
+    const rootPath = path.join(dir, 'root.json');
+    const root = {$ref: './doc0.json#/$defs/Doc'};
+
+    const loader = new CountingLoader();
+    const finder = new ExternalDocumentsFinder(rootPath, root, undefined, {loader: loader, concurrency: 4});
+    const resolver = await finder.createAsync();
+
+    ctx.expect([...finder.documents]).toHaveLength(152);
+    ctx.expect(new Set(loader.loaded).size).toEqual(loader.loaded.length);
+    ctx.expect(resolver.resolve({$ref: `${path.join(dir, 'doc149.json')}#/$defs/Doc`}, [])).toHaveProperty('type', 'object');
+  });
+
+  test('sync and async find the same documents', async ctx => {
+
+    const dir = writeDocuments(5);
+    const rootPath = path.join(dir, 'root.json');
+
+    const syncFinder = new ExternalDocumentsFinder(rootPath, {$ref: './doc0.json#/$defs/Doc'});
+    syncFinder.create();
+
+    const asyncFinder = new ExternalDocumentsFinder(rootPath, {$ref: './doc0.json#/$defs/Doc'});
+    await asyncFinder.createAsync();
+
+    ctx.expect([...asyncFinder.documents]).toEqual([...syncFinder.documents]);
+  });
+
+  test('equally close dynamic anchors in different documents resolve the same way, however documents are loaded', async ctx => {
+
+    // The root references 'a' and then 'b', and 'a' references 'c'. Every document has the anchor at the same json path.
+    const dir = fs.mkdtempSync(path.join(os.tmpdir(), 'omnigen-anchors-'));
+    const anchored = (title: string, extra: Record<string, unknown> = {}) => ({$defs: {Node: {$dynamicAnchor: 'node', title: title}}, ...extra});
+    fs.writeFileSync(path.join(dir, 'a.json'), JSON.stringify(anchored('a', {properties: {c: {$ref: './c.json#/$defs/Node'}}})));
+    fs.writeFileSync(path.join(dir, 'b.json'), JSON.stringify(anchored('b')));
+    fs.writeFileSync(path.join(dir, 'c.json'), JSON.stringify(anchored('c')));
+
+    const createRoot = () => ({
+      properties: {
+        a: {$ref: './a.json#/$defs/Node'},
+        b: {$ref: './b.json#/$defs/Node'},
+        x: {$dynamicRef: '#node'},
+      },
+    });
+
+    const rootPath = path.join(dir, 'root.json');
+    const syncRoot = createRoot();
+    const syncResolver = new ExternalDocumentsFinder(rootPath, syncRoot).create();
+    const asyncRoot = createRoot();
+    const asyncResolver = await new ExternalDocumentsFinder(rootPath, asyncRoot, undefined, {concurrency: 1}).createAsync();
+
+    // The documents were searched from a stack, so the last document referenced by the root was searched first, and its anchor wins.
+    ctx.expect(syncResolver.resolve(syncRoot.properties.x, ['properties', 'x'])).toHaveProperty('title', 'b');
+    ctx.expect(asyncResolver.resolve(asyncRoot.properties.x, ['properties', 'x'])).toHaveProperty('title', 'b');
+  });
+
+  test('resolved refs and dynamic refs are cached', ctx => {
+
+    const root = {
+      $defs: {
+        A: {type: 'string'},
+        Outer: {$dynamicAnchor: 'node', title: 'outer', properties: {x: {$dynamicRef: '#node'}}},
+        Inner: {$defs: {Node: {$dynamicAnchor: 'node', title: 'inner'}}, properties: {y: {$dynamicRef: '#node'}}},
+      },
+    };
+
+    const resolver = new ExternalDocumentsFinder('/root.json', root).create();
+
+    const a1 = resolver.resolve({$ref: '#/$defs/A'}, []);
+    const a2 = resolver.resolve({$ref: '#/$defs/A'}, []);
+    ctx.expect(a1).toBe(root.$defs.A);
+    ctx.expect(a2).toBe(a1);
+
+    ctx.expect(resolver.resolve(root.$defs.Outer.properties.x, ['$defs', 'Outer', 'properties', 'x'])).toHaveProperty('title', 'outer');
+    ctx.expect(resolver.resolve(root.$defs.Inner.properties.y, ['$defs', 'Inner', 'properties', 'y'])).toHaveProperty('title', 'inner');
+    ctx.expect(resolver.resolve(root.$defs.Outer.properties.x, ['$defs', 'Outer', 'properties', 'x'])).toHaveProperty('title', 'outer');
+  });
+});
@@ -1,7 +1,12 @@
 import pointer, {JsonObject} from 'json-pointer';
-import {getShallowPayloadString, ProtocolHandler, Util} from '@omnigen/core';
+import {getShallowPayloadString, Util} from '@omnigen/core';
 import {DocumentStore, JsonItemAbsoluteUri, JsonPathResolver, ObjectVisitor, PathItem} from '@omnigen/core-json';
-import {JSONSchema9} from '../definitions';
+import {LoggerFactory} from '@omnigen/core-log';
+import {DocumentLoader, ProtocolDocumentLoader} from './DocumentLoader';
+
+const logger = LoggerFactory.create(import.meta.url);
+
+const DEFAULT_CONCURRENCY = 8;
 
 export type WithoutRef<T> = T extends { $ref: string }
   ? Exclude<T, { $ref: string }>
@@ -17,7 +22,7 @@ export interface RefResolver {
   getFirstResolved<const T, R>(value: T, jsonPath: string[], mapper: (value: Partial<WithoutRef<T>>) => R | undefined): R | undefined;
 }
 
-type NewDocument = { uri: JsonItemAbsoluteUri, object: JsonObject };
+type FoundDocument = { uri: JsonItemAbsoluteUri, schema: JsonObject };
 
 export type DynamicAnchor = {
   documentUri: string;
@@ -25,6 +30,14 @@ export type DynamicAnchor = {
   jsonPath: string;
 }
 
+export interface ExternalDocumentsFinderOptions {
+  loader?: DocumentLoader;
+  /**
+   * Max number of documents that are loaded at the same time by `createAsync`.
+   */
+  concurrency?: number;
+}
+
 export class ExternalDocumentsFinder {
 
   private readonly _uri: string;
@@ -33,42 +46,156 @@ export class ExternalDocumentsFinder {
   private readonly _documents: DocumentStore;
   private readonly _anchors: DynamicAnchor[] = [];
 
-  constructor(uri: string, jsonSchema: JsonObject, docStore?: DocumentStore) {
+  /**
+   * Found while loading, by document uri, so the anchors can be ordered the same way however the documents were loaded, see `orderAnchors`.
+   */
+  private readonly _anchorsByDocument = new Map<string, DynamicAnchor[]>();
+  private readonly _referencesByDocument = new Map<string, string[]>();
+
+  /**
+   * Resolved elements by their `$ref`, so each distinct ref is only parsed and walked once.
+   * All documents are loaded before any ref is resolved, and relative refs are always relative to the root document, so the ref string is a safe key.
+   */
+  private readonly _resolvedRefs = new Map<string, unknown>();
+  /**
+   * Resolved elements by dynamic anchor name and the json path of the reference, since the closest anchor wins.
+   */
+  private readonly _resolvedDynamicRefs = new Map<string, unknown>();
+  private _anchorsByName: Map<string, DynamicAnchor[]> | undefined;
+
+  private readonly _loader: DocumentLoader;
+  private readonly _concurrency: number;
+
+  constructor(uri: string, jsonSchema: JsonObject, docStore?: DocumentStore, options?: ExternalDocumentsFinderOptions) {
     this._uri = uri;
     this._jsonSchema = jsonSchema;
     this._documents = docStore ?? new DocumentStore();
+    this._loader = options?.loader ?? new ProtocolDocumentLoader();
+    this._concurrency = Math.max(1, options?.concurrency ?? DEFAULT_CONCURRENCY);
   }
 
   get documents() {
     return this._documents.values();
   }
 
+  /**
+   * Finds and loads all external documents one at a time, blocking while they are read or downloaded.
+   * Prefer `createAsync` where possible.
+   */
   create(): RefResolver {
 
+    const root = this.getRootDocument();
+    let level = [root];
+    while (level.length > 0) {
+
+      const uris = this.searchLevel(level);
+      level = uris.map(uri => ({uri: uri, schema: this._loader.load(uri)}));
+      this.addDocuments(level);
+    }
+
+    this.orderAnchors(root);
+    return this.createResolver();
+  }
+
+  /**
+   * Finds and loads all external documents level by level, where all new documents found in one level are loaded concurrently.
+   */
+  async createAsync(): Promise<RefResolver> {
+
+    const start = Date.now();
+    let loaded = 0;
+
+    const root = this.getRootDocument();
+    let level = [root];
+    while (level.length > 0) {
+
+      // Each level only has uris that are not loaded yet, and each of them once.
+      const uris = this.searchLevel(level);
+      const schemas = await Util.mapWithConcurrency(uris, this._concurrency, uri => this._loader.loadAsync(uri));
+
+      level = uris.map((uri, i) => ({uri: uri, schema: schemas[i]}));
+      this.addDocuments(level);
+      loaded += level.length;
+    }
+
+    logger.debug(`Loaded ${loaded} external document(s) in ${Date.now() - start}ms`);
+    this.orderAnchors(root);
+    return this.createResolver();
+  }
+
+  private getRootDocument(): FoundDocument {
+
     const rootUri = JsonPathResolver.toAbsoluteUriParts(undefined, this._uri);
     this._documents.set(rootUri.absoluteDocumentUri, this._jsonSchema);
 
-    type QueueItem = { uri: JsonItemAbsoluteUri, schema: JsonObject };
-    const queue: QueueItem[] = [];
-    queue.push({uri: rootUri, schema: this._jsonSchema});
+    return {uri: rootUri, schema: this._jsonSchema};
+  }
+
+  /**
+   * @return The uris of documents referenced from the given documents that are not yet loaded, each uri only once and in the order they were found.
+   */
+  private searchLevel(level: FoundDocument[]): JsonItemAbsoluteUri[] {
+
+    const uris: JsonItemAbsoluteUri[] = [];
+    for (const item of level) {
+
+      const anchors: DynamicAnchor[] = [];
+      const references: JsonItemAbsoluteUri[] = [];
+      ExternalDocumentsFinder.searchInto(item.schema, item.uri, anchors, references);
 
-    for (let i = 0; i < 100; i++) {
+      this._anchorsByDocument.set(item.uri.absoluteDocumentUri, anchors);
+      this._referencesByDocument.set(item.uri.absoluteDocumentUri, references.map(it => it.absoluteDocumentUri));
 
-      const item = queue.pop();
-      if (!item) {
-        break;
+      for (const reference of references) {
+        if (!this._documents.has(reference.absoluteDocumentUri) && !uris.some(it => it.absoluteDocumentUri === reference.absoluteDocumentUri)) {
+          uris.push(reference);
+        }
       }
+    }
+
+    return uris;
+  }
+
+  /**
+   * Collects the anchors of all documents in the order that documents used to be searched, one at a time from a stack,
+   * starting with the last document referenced by the one searched before it.
+   * When anchors are equally close, `resolveDynamicRef` picks the first one, so this keeps the same pick as before documents were loaded level by level.
+   */
+  private orderAnchors(root: FoundDocument): void {
+
+    const rootUri = root.uri.absoluteDocumentUri;
+    const registered = new Set<string>([rootUri]);
+    const stack = [rootUri];
 
-      const newDocuments = ExternalDocumentsFinder.searchInto(item.schema, item.uri, this._documents, this._anchors);
+    this._anchors.length = 0;
+    for (let uri = stack.pop(); uri !== undefined; uri = stack.pop()) {
 
-      for (const newDocument of newDocuments) {
-        const subSchema = newDocument.object as JSONSchema9;
+      this._anchors.push(...(this._anchorsByDocument.get(uri) ?? []));
+      for (const reference of this._referencesByDocument.get(uri) ?? []) {
 
-        this._documents.set(newDocument.uri.absoluteDocumentUri, subSchema);
-        queue.push({uri: newDocument.uri, schema: subSchema});
+        // Documents that were already in the store when searching began are never searched, like before.
+        if (!registered.has(reference) && this._referencesByDocument.has(reference)) {
+          registered.add(reference);
+          stack.push(reference);
+        }
       }
     }
 
+    this._anchorsByName = undefined;
+  }
+
+  private addDocuments(documents: FoundDocument[]): void {
+    for (const document of documents) {
+      this._documents.set(document.uri.absoluteDocumentUri, document.schema);
+    }
+
+    this._resolvedRefs.clear();
+    this._resolvedDynamicRefs.clear();
+    this._anchorsByName = undefined;
+  }
+
+  private createResolver(): RefResolver {
+
     return {
       resolve: (v, jsonPath) => {
         if (v && typeof v == 'object' && '$ref' in v && typeof v.$ref == 'string') {
@@ -126,6 +253,11 @@ export class ExternalDocumentsFinder {
 
   private resolveRef<T>(ref: string, origin: T) {
 
+    const resolved = this._resolvedRefs.get(ref);
+    if (resolved !== undefined) {
+      return resolved;
+    }
+
     let uri = JsonPathResolver.toPartialUri(ref);
     if (!uri.documentUri) {
       uri = {
@@ -153,22 +285,46 @@ export class ExternalDocumentsFinder {
       throw new Error(`Could not find element '${uri.path}' inside ${uri.documentUri}`);
     }
 
+    this._resolvedRefs.set(ref, element);
     return element;
   }
 
+  private getAnchorsByName(): Map<string, DynamicAnchor[]> {
+
+    if (!this._anchorsByName) {
+      this._anchorsByName = new Map<string, DynamicAnchor[]>();
+      for (const anchor of this._anchors) {
+        const anchors = this._anchorsByName.get(anchor.anchorName);
+        if (anchors) {
+          anchors.push(anchor);
+        } else {
+          this._anchorsByName.set(anchor.anchorName, [anchor]);
+        }
+      }
+    }
+
+    return this._anchorsByName;
+  }
+
   private resolveDynamicRef<T>(ref: string, jsonPath: string[], origin: T) {
 
     const cleanRef = Util.trimAny(ref, '#');
     const originPath = `/${jsonPath.join('/')}`;
-    const foundAnchors = this._anchors.filter(it => it.anchorName === cleanRef);
 
+    const cacheKey = `${cleanRef}@${originPath}`;
+    const resolved = this._resolvedDynamicRefs.get(cacheKey);
+    if (resolved !== undefined) {
+      return resolved;
+    }
+
+    let foundAnchors = this.getAnchorsByName().get(cleanRef) ?? [];
     if (foundAnchors.length > 1 && originPath) {
 
-      foundAnchors.sort((a, b) => {
-        const aCommon = Util.getCommonPrefixLength(a.jsonPath, originPath);
-        const bCommon = Util.getCommonPrefixLength(b.jsonPath, originPath);
-        return bCommon - aCommon;
-      });
+      // Calculate the common prefix once per anchor, instead of twice per comparison. The sort is stable so equally close anchors keep their order.
+      foundAnchors = foundAnchors
+        .map(it => ({anchor: it, common: Util.getCommonPrefixLength(it.jsonPath, originPath)}))
+        .sort((a, b) => b.common - a.common)
+        .map(it => it.anchor);
     }
 
     // TODO: We should search for the most suitable anchor here rather than the first. Closest wins! Compare Json paths
@@ -182,6 +338,7 @@ export class ExternalDocumentsFinder {
       try {
         const element = pointer.get(schema, foundAnchor.jsonPath);
         if (element !== undefined) {
+          this._resolvedDynamicRefs.set(cacheKey, element);
           return element;
         }
       } catch (ex) {
@@ -197,11 +354,9 @@ export class ExternalDocumentsFinder {
   private static searchInto(
     schema: JsonObject,
     parentUri: JsonItemAbsoluteUri,
-    documents: DocumentStore,
     anchors: DynamicAnchor[],
-  ): NewDocument[] {
-
-    const newDocuments: NewDocument[] = [];
+    references: JsonItemAbsoluteUri[],
+  ): void {
 
     const visitor = new ObjectVisitor(args => {
 
@@ -213,9 +368,9 @@ export class ExternalDocumentsFinder {
       }
 
       if (path[path.length - 1] === '$ref') {
-        args.replaceWith = ExternalDocumentsFinder.relativeRefToAbsolute(obj, parentUri, documents, newDocuments);
+        args.replaceWith = ExternalDocumentsFinder.relativeRefToAbsolute(obj, parentUri, references);
       } else if (path[path.length - 3] === 'discriminator' && path[path.length - 2] === 'mapping') {
-        args.replaceWith = ExternalDocumentsFinder.relativeRefToAbsolute(obj, parentUri, documents, newDocuments);
+        args.replaceWith = ExternalDocumentsFinder.relativeRefToAbsolute(obj, parentUri, references);
       } else if (path[path.length - 1] === '$dynamicRef') {
         // We replace with an internal format so we can compare the different json paths without keeping track of the document location inside the parser.
         // args.replaceWith = `${args.obj}@/${path.slice(0, -1).join('/')}`;
@@ -233,30 +388,17 @@ export class ExternalDocumentsFinder {
     });
 
     visitor.visit(schema);
-
-    return newDocuments;
   }
 
-  private static relativeRefToAbsolute(obj: string, parentUri: JsonItemAbsoluteUri, documents: DocumentStore, newDocuments: NewDocument[]): string {
+  /**
+   * @param references The documents referenced so far, to which the referenced document is added if it is not already among them
+   */
+  private static relativeRefToAbsolute(obj: string, parentUri: JsonItemAbsoluteUri, references: JsonItemAbsoluteUri[]): string {
 
     const absoluteUri = JsonPathResolver.toAbsoluteUriParts(parentUri, obj);
 
-    if (!documents.has(absoluteUri.absoluteDocumentUri)) {
-
-      const newDocument = newDocuments.find(it => (it.uri.absoluteDocumentUri === absoluteUri.absoluteDocumentUri));
-      if (!newDocument) {
-
-        let object: JsonObject;
-        if (absoluteUri.protocol == 'file') {
-          object = ProtocolHandler.file<JsonObject>(absoluteUri.absoluteDocumentUri);
-        } else if (absoluteUri.protocol == 'http' || absoluteUri.protocol == 'https') {
-          object = ProtocolHandler.http<JsonObject>(absoluteUri.absoluteDocumentUri);
-        } else {
-          throw new Error(`Unknown protocol ${absoluteUri.protocol}`);
-        }
-
-        newDocuments.push({uri: absoluteUri, object: object});
-      }
+    if (!references.some(it => it.absoluteDocumentUri === absoluteUri.absoluteDocumentUri)) {
+      references.push(absoluteUri);
     }
 
     // Replace RELATIVE $ref with ABSOLUTE $ref
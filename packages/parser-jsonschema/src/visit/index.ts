@@ -1,3 +1,4 @@
+export * from './DocumentLoader';
 export * from './ExternalDocumentsFinder';
 export * from './helpers';
 
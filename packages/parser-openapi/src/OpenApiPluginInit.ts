@@ -1,8 +1,8 @@
-import {ZodSchemaFileContext} from '@omnigen/core';
+import {ModelSnapshotCache, RemoteDocumentCache, ZodSchemaFileContext} from '@omnigen/core';
 import {ActionKind, createPlugin, PluginAutoRegistry, ZodModelContext, ZodParserOptionsContext} from '@omnigen/core-plugin';
 import {z} from 'zod';
 import {OpenApiJsonSchemaParser} from './parse/OpenApiJsonSchemaParser';
-import {AnyJSONSchema, ExternalDocumentsFinder, JSONSchema9Definition} from '@omnigen/parser-jsonschema';
+import {AnyJSONSchema, ExternalDocumentsFinder, JSONSchema9Definition, ProtocolDocumentLoader} from '@omnigen/parser-jsonschema';
 import {OpenAPIV3_1} from 'openapi-types';
 
 export const ZodOpenApiSourceContext = z.object({
@@ -35,11 +35,16 @@ export const OpenApiPlugin = createPlugin(
       }
     }
 
-    const documentFinder = new ExternalDocumentsFinder(ctx.schemaFile.getAbsolutePath() ?? '', ctx.schemaFile.asObject());
-    const resolver = documentFinder.create();
-    const parser = new OpenApiJsonSchemaParser(resolver, ctx.parserOptions, ctx.schemaFile);
-    const root = ctx.schemaFile.asObject<OpenAPIV3_1.Document>();
-    const model = parser.parse(root);
+    const model = await new ModelSnapshotCache(ctx.parserOptions).getOrCreate(ctx.schemaFile, 'openapi', ctx.parserOptions, async () => {
+
+      const documentFinder = new ExternalDocumentsFinder(ctx.schemaFile.getAbsolutePath() ?? '', ctx.schemaFile.asObject(), undefined, {
+        loader: new ProtocolDocumentLoader(new RemoteDocumentCache(ctx.parserOptions)),
+      });
+      const resolver = await documentFinder.createAsync();
+      const parser = new OpenApiJsonSchemaParser(resolver, ctx.parserOptions, ctx.schemaFile);
+      const root = ctx.schemaFile.asObject<OpenAPIV3_1.Document>();
+      return parser.parse(root);
+    }, {complete: true});
 
     return {
       ...ctx,
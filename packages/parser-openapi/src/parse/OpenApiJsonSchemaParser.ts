@@ -233,6 +233,7 @@ export class OpenApiJsonSchemaParser<TOpt extends ParserOptions> extends JsonSch
 
       // TODO: Make sure we add the proper context stuff here
       alteredApplyIdTransformer,
+      this._options.schemaValidationCacheFile,
     );
 
     const model: OmniModel = {
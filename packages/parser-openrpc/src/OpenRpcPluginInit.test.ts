@@ -0,0 +1,76 @@
+import fs from 'fs';
+import os from 'os';
+import path from 'path';
+import {describe, test} from 'vitest';
+import {z} from 'zod';
+import {DEFAULT_PARSER_OPTIONS, OmniModel} from '@omnigen/api';
+import {ANY_KIND, OmniUtil, ProxyReducerOmni2, SchemaFile} from '@omnigen/core';
+import {OpenRpcPlugin} from './OpenRpcPluginInit';
+
+describe('OpenRpcPlugin', () => {
+
+  function writeRef(refPath: string, propertyName: string): void {
+    fs.writeFileSync(refPath, JSON.stringify({
+      definitions: {
+        Value: {type: 'object', properties: {[propertyName]: {type: 'string'}}},
+      },
+    }));
+  }
+
+  async function parse(rootPath: string, modelCacheDir: string): Promise<OmniModel> {
+
+    const schemaFile = new SchemaFile(rootPath, rootPath);
+    await schemaFile.prepare();
+
+    const result = await OpenRpcPlugin.execute({
+      arguments: {},
+      parserOptions: {...DEFAULT_PARSER_OPTIONS, modelCacheDir: modelCacheDir},
+      schemaFile: schemaFile,
+    });
+
+    if (result instanceof z.ZodError) {
+      throw result;
+    }
+
+    return result.model;
+  }
+
+  function getPropertyNames(model: OmniModel): string[] {
+
+    const names: string[] = [];
+    ProxyReducerOmni2.builder().reduce(model, {immutable: true}, {
+      [ANY_KIND]: (n, r) => {
+        if (OmniUtil.isType(n)) {
+          names.push(...OmniUtil.getPropertiesOf(n).map(it => OmniUtil.getPropertyName(it.name, true)));
+        }
+        r.callBase();
+      },
+    });
+
+    return names;
+  }
+
+  test('parses again when a referenced document changes between runs', async ctx => {
+
+    const dir = fs.mkdtempSync(path.join(os.tmpdir(), 'omnigen-openrpc-'));
+    const rootPath = path.join(dir, 'root.json');
+    const refPath = path.join(dir, 'ref.json');
+    const modelCacheDir = path.join(dir, 'cache');
+
+    fs.writeFileSync(rootPath, JSON.stringify({
+      openrpc: '1.2.6',
+      info: {title: 'Referencing', version: '1.0.0'},
+      methods: [
+        {name: 'get_value', params: [], result: {name: 'value', schema: {$ref: './ref.json#/definitions/Value'}}},
+      ],
+    }));
+
+    writeRef(refPath, 'before');
+    ctx.expect(getPropertyNames(await parse(rootPath, modelCacheDir))).toContain('before');
+
+    writeRef(refPath, 'after');
+    const names = getPropertyNames(await parse(rootPath, modelCacheDir));
+    ctx.expect(names).toContain('after');
+    ctx.expect(names).not.toContain('before');
+  });
+});
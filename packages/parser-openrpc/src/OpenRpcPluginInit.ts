@@ -1,7 +1,7 @@
 import {z} from 'zod';
 import {JsonRpcParserOptions, ZodJsonRpcParserOptions} from './options';
 import {createPlugin, PluginAutoRegistry, ZodModelContext, ZodPackageOptionsContext, ZodParserOptionsContext} from '@omnigen/core-plugin';
-import {ZodSchemaFileContext} from '@omnigen/core';
+import {DocumentDependencies, ModelSnapshotCache, ZodSchemaFileContext} from '@omnigen/core';
 import {OpenRpcParserBootstrapFactory} from './parse';
 import {PackageOptions, ParserOptions, ZodPackageOptions, ZodParserOptions} from '@omnigen/api';
 
@@ -44,7 +44,11 @@ export const OpenRpcPlugin = createPlugin(
     }
 
     const openRpcParserBootstrapFactory = new OpenRpcParserBootstrapFactory();
-    const openRpcParserBootstrap = (await openRpcParserBootstrapFactory.createParserBootstrap(ctx.schemaFile));
+
+    // The bootstrap reads the referenced documents, so the snapshot cache must be given them to know when it is stale.
+    const {result: openRpcParserBootstrap, dependencies: bootstrapDependencies} = await DocumentDependencies.track(
+      () => openRpcParserBootstrapFactory.createParserBootstrap(ctx.schemaFile),
+    );
     const schemaIncomingOptions = openRpcParserBootstrap.getIncomingOptions();
 
     // Arguments from CLI has higher precedence than the arguments from the schema.
@@ -66,8 +70,10 @@ export const OpenRpcPlugin = createPlugin(
       ...jsonRpcOptions,
     };
 
-    const openRpcParser = openRpcParserBootstrap.createParser(openRpcOptions);
-    const parseResult = openRpcParser.parse();
+    const parseResult = await new ModelSnapshotCache(openRpcOptions).getOrCreate(ctx.schemaFile, 'openrpc', openRpcOptions, async () => {
+      const openRpcParser = openRpcParserBootstrap.createParser(openRpcOptions);
+      return openRpcParser.parse();
+    }, {read: bootstrapDependencies, complete: true});
 
     // TODO: NEED TO UPDATE ALL OPTIONS AFTER WE HAVE FOUND NEW ONES IN THIS FILE!
     //          MUST HAVE A WAY OF RUNNING THIS EARLIER IN THE CHAIN! SPLIT INTO A PREP STEP AND THE ACTUAL PARSING!
@@ -0,0 +1,103 @@
+import hash from 'object-hash';
+import crypto from 'crypto';
+import {bench, describe} from 'vitest';
+import {DEFAULT_PARSER_OPTIONS, OmniModel, OmniType, TypeName} from '@omnigen/api';
+import {ANY_KIND, HashUtil, Naming, OmniUtil, ProxyReducerOmni2, SchemaFile, Util} from '@omnigen/core';
+import {OpenRpcParserBootstrapFactory} from './OpenRpcParser';
+import {DEFAULT_JSONRPC20_PARSER_OPTIONS} from '../options';
+
+async function parse(fileName: string): Promise<OmniModel> {
+
+  const schemaFile = new SchemaFile(Util.getPathFromRoot(`./packages/parser-openrpc/examples/${fileName}`));
+  await schemaFile.prepare();
+
+  const parserBootstrap = await new OpenRpcParserBootstrapFactory().createParserBootstrap(schemaFile);
+  const parser = parserBootstrap.createParser({...DEFAULT_PARSER_OPTIONS, ...DEFAULT_JSONRPC20_PARSER_OPTIONS, jsonRpcVersion: '2.0'});
+
+  return parser.parse().model;
+}
+
+function collectTypes(model: OmniModel): OmniType[] {
+
+  const types: OmniType[] = [];
+  ProxyReducerOmni2.builder().reduce(model, {immutable: true}, {
+    [ANY_KIND]: (n, r) => {
+      if (OmniUtil.isType(n)) {
+        types.push(n);
+      }
+      r.callBase();
+    },
+  });
+
+  return types;
+}
+
+/**
+ * The previous `object-hash` and MD5 based implementation of `HashUtil.getStructuralHashOf`, only kept here to benchmark against.
+ */
+function getObjectHashStructuralHashOf(item: object, parent?: unknown, otherHashes?: Map<any, string>): string {
+
+  let result = hash(item, {
+    algorithm: 'md5',
+    encoding: 'base64',
+    respectType: false,
+    excludeKeys: key => {
+      return key == 'parent' || key == 'owner' || key == 'debug';
+    },
+    replacer: v => {
+      // If values exists among already hashed objects, then use that instead.
+      // This way we *should* be able to avoid recursive calculations.
+      const otherHash = otherHashes?.get(v);
+      if (otherHash) {
+        return otherHash;
+      }
+
+      if (typeof v == 'object' && 'name' in v) {
+
+        // A hack, but should be safe for our code. Better ways should exist.
+        const resolvedName = Naming.unwrap(v.name as TypeName);
+        if (resolvedName && resolvedName !== v.name) {
+          return {...v, name: resolvedName};
+        }
+      }
+
+      return v;
+    },
+  });
+
+  if (parent) {
+    const parentHash = otherHashes?.get(parent);
+    if (parentHash) {
+      result = crypto.createHash('md5').update(result).update(parentHash).digest('base64');
+    }
+  }
+
+  return result;
+}
+
+/**
+ * Hashes every type of the model like `OmniModelMerge` does, from the deepest types and upwards so that nested types are looked up from the map.
+ */
+function hashAll(types: ReadonlyArray<OmniType>, hashFn: typeof HashUtil.getStructuralHashOf): void {
+
+  const hashes = new Map<OmniType, string>();
+  for (let i = types.length - 1; i >= 0; i--) {
+    hashes.set(types[i], hashFn(types[i], undefined, hashes));
+  }
+}
+
+for (const fileName of ['ethereum.json', 'petstore-expanded.json']) {
+
+  const types = collectTypes(await parse(fileName));
+
+  describe(`structural hash of ${fileName} (${types.length} types)`, () => {
+
+    bench('object-hash md5', () => {
+      hashAll(types, getObjectHashStructuralHashOf);
+    });
+
+    bench('structural hasher', () => {
+      hashAll(types, HashUtil.getStructuralHashOf);
+    });
+  });
+}
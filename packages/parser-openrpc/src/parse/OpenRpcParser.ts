@@ -131,7 +131,7 @@ export class OpenRpcParserBootstrapFactory implements ParserBootstrapFactory<Jso
     // TODO: Need to create a new ApplyIdSchemaTransformer for OpenRpc, and only re-use the JsonSchema one where applicable
 
     const documentFinder = new ExternalDocumentsFinder(absolutePath, document, docStore);
-    const refResolver = await (documentFinder.create());
+    const refResolver = await documentFinder.createAsync();
 
     for (const doc of documentFinder.documents) {
 
@@ -442,36 +442,43 @@ export class OpenRpcParser implements Parser<JsonRpcParserOptions & ParserOption
     }
 
     const requestTypeAndProperties = this.toRequestTypeAndPropertiesFromMethod(jsonPath, method, methodNames);
-    const resultJsonPath = [...jsonPath, 'result'];
-    const resolvedResult = this._refResolver.resolve(method.result, resultJsonPath);
-    const resultResponse = this.toOmniOutputFromContentDescriptor(resultJsonPath, method, resolvedResult, methodNames);
 
     const responses: OmniOutput[] = [];
+    let resultType: OmniType | undefined;
 
-    // One regular response
-    responses.push(resultResponse.output);
+    // A notification is never answered, so it has neither a result nor any errors.
+    if (!OpenRpcParser.isNotificationMethod(method)) {
 
-    // And then one response for each potential error
-    const errorsOrReferences: MethodObjectErrors = method.errors || [];
+      const resultJsonPath = [...jsonPath, 'result'];
+      const resolvedResult = this._refResolver.resolve(method.result, resultJsonPath);
+      const resultResponse = this.toOmniOutputFromContentDescriptor(resultJsonPath, method, resolvedResult, methodNames);
+      resultType = resultResponse.type;
 
-    // We will always add the generic error classes, since we can never trust that the server will be truthful.
-    errorsOrReferences.push({
-      code: UNKNOWN_ERROR_CODE,
-      message: 'Unknown Error',
-    });
+      // One regular response
+      responses.push(resultResponse.output);
 
-    const errorOutputs = errorsOrReferences.map((it, idx) => {
-      const errorJsonPath = [...jsonPath, 'errors', `${idx}`];
-      const deref = this._refResolver.resolve(it, errorJsonPath);
-      return this.errorToGenericOutput(errorJsonPath, Case.pascal(method.name), deref);
-    });
+      // And then one response for each potential error
+      const errorsOrReferences: MethodObjectErrors = method.errors || [];
 
-    responses.push(...errorOutputs);
+      // We will always add the generic error classes, since we can never trust that the server will be truthful.
+      errorsOrReferences.push({
+        code: UNKNOWN_ERROR_CODE,
+        message: 'Unknown Error',
+      });
+
+      const errorOutputs = errorsOrReferences.map((it, idx) => {
+        const errorJsonPath = [...jsonPath, 'errors', `${idx}`];
+        const deref = this._refResolver.resolve(it, errorJsonPath);
+        return this.errorToGenericOutput(errorJsonPath, Case.pascal(method.name), deref);
+      });
+
+      responses.push(...errorOutputs);
+    }
 
     const examples = (method.examples || []).map((it, idx) => {
       const exampleJsonPath = [...jsonPath, 'examples', `${idx}`];
       const deref = this._refResolver.resolve(it, exampleJsonPath);
-      return this.examplePairingToGenericExample(exampleJsonPath, resultResponse.type, requestTypeAndProperties.properties || [], deref);
+      return this.examplePairingToGenericExample(exampleJsonPath, resultType, requestTypeAndProperties.properties || [], deref);
     });
 
     // TODO: Needs to be implemented, or solved some other way(s)
@@ -531,6 +538,14 @@ export class OpenRpcParser implements Parser<JsonRpcParserOptions & ParserOption
     return 'x-callback' in method && Boolean(method['x-callback']);
   }
 
+  /**
+   * A method without a result can only be used as a notification, according to the OpenRPC specification.
+   * A method with a result can also be marked as only ever being sent as a notification, with `x-notification`.
+   */
+  private static isNotificationMethod(method: MethodObject) {
+    return !method.result || ('x-notification' in method && Boolean(method['x-notification']));
+  }
+
   private toOmniTypeFromContentDescriptor(
     jsonPath: string[],
     contentDescriptor: ContentDescriptorObject,
@@ -884,7 +899,7 @@ export class OpenRpcParser implements Parser<JsonRpcParserOptions & ParserOption
 
   private examplePairingToGenericExample(
     jsonPath: string[],
-    valueType: OmniType,
+    valueType: OmniType | undefined,
     inputProperties: OmniProperty[],
     example: ExamplePairingObject,
   ): OmniExamplePairing {
@@ -904,7 +919,7 @@ export class OpenRpcParser implements Parser<JsonRpcParserOptions & ParserOption
       description: example.description,
       summary: example['summary'] as string | undefined, // 'summary' does not exist in the OpenRPC object, but does in spec.
       params: params,
-      result: example.result ? this.toOmniExampleResultFromExampleObject(valueType, resolvedResult) : undefined,
+      result: (example.result && valueType) ? this.toOmniExampleResultFromExampleObject(valueType, resolvedResult) : undefined,
     };
   }
 
@@ -1215,7 +1230,8 @@ export class OpenRpcParser implements Parser<JsonRpcParserOptions & ParserOption
       debug: `Method literal (${method.name}) from OpenRpc Spec`,
     });
 
-    if (options.jsonRpcIdIncluded) {
+    // A request without an id is a notification, which the server must not respond to.
+    if (options.jsonRpcIdIncluded && !OpenRpcParser.isNotificationMethod(method)) {
 
       const requestIdType: OmniPrimitiveType = {
         kind: OmniTypeKind.STRING,
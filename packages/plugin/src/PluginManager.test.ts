@@ -1,7 +1,8 @@
 import {CompressTypeLevel, CompressTypeNaming, TargetOptions, ZodTargetOptions} from '@omnigen/api';
 import {PluginManager} from './PluginManager';
 import {z} from 'zod';
-import {describe, test} from 'vitest';
+import {describe, test, vi} from 'vitest';
+import {ZodUtils} from './ZodUtils';
 
 describe('object conversions', () => {
 
@@ -155,4 +156,57 @@ describe('plugin path', () => {
     ctx.expect(result.results[0].ctx).toMatchObject({b: '01'});
     ctx.expect(result.results[1].ctx).toMatchObject({c: '013'});
   });
+
+  test('plan independent plugins without exploring every order', ctx => {
+
+    const pm = new PluginManager({includeAuto: false});
+    for (let i = 0; i < 10; i++) {
+      pm.createPlugin(`p${i}`, z.object({a: z.string()}), z.object({[`k${i}`]: z.string()}), async ctx => ({[`k${i}`]: ctx.a}));
+    }
+
+    // Trying all 10! orders would take far longer than the test timeout.
+    const result = pm.findExecutionPath({inCtx: {a: '0'}});
+    ctx.expect(result.length).toEqual(11);
+  });
+
+  test('runtime schema of a context is created once for all candidates', async ctx => {
+
+    const pm = new PluginManager({includeAuto: false});
+    pm.createPlugin('p1', z.object({a: z.string()}), z.object({b: z.string()}), async ctx => ({b: `${ctx.a}1`}));
+    pm.createPlugin('p2_no', z.object({b: z.literal('no-match')}), z.object({c: z.string()}), async ctx => ({c: `${ctx.b}2`})).score = 5;
+    pm.createPlugin('p2_yes', z.object({b: z.literal('01')}), z.object({c: z.string()}), async ctx => ({c: `${ctx.b}3`})).score = 1;
+
+    const spy = vi.spyOn(ZodUtils, 'createZodSchemaFromObject');
+    try {
+      const result = await pm.execute({ctx: {a: '0'}});
+      ctx.expect(result.results[result.results.length - 1].ctx).toMatchObject({c: '013'});
+
+      // Only count the creations of runtime schemas, and not the recursive calls for properties, nor the start type of the path planning.
+      const runtimeCreations = spy.mock.calls.filter(it => it.length == 3 && (it[0] as Record<string, unknown>).b === '01');
+      ctx.expect(runtimeCreations).toHaveLength(1);
+    } finally {
+      spy.mockRestore();
+    }
+  });
+
+  test('executes a given plan without planning again', async ctx => {
+
+    const pm = new PluginManager({includeAuto: false});
+    pm.createPlugin('p1', z.object({a: z.string()}), z.object({b: z.string()}), async ctx => ({b: `${ctx.a}bar`}));
+    pm.createPlugin('p2', z.object({b: z.string()}), z.object({c: z.string()}), async ctx => ({c: `${ctx.b}baz`}));
+
+    const plan = pm.findExecutionPath({inCtx: {a: 'foo'}});
+
+    const spy = vi.spyOn(pm, 'findExecutionPath');
+    try {
+      const first = await pm.execute({ctx: {a: 'foo'}, plan: plan});
+      const second = await pm.execute({ctx: {a: 'foo'}, plan: plan});
+
+      ctx.expect(spy).not.toHaveBeenCalled();
+      ctx.expect(first.result.ctx).toEqual({a: 'foo', b: 'foobar', c: 'foobarbaz'});
+      ctx.expect(second.result.ctx).toEqual({a: 'foo', b: 'foobar', c: 'foobarbaz'});
+    } finally {
+      spy.mockRestore();
+    }
+  });
 });
@@ -22,6 +22,13 @@ export class PluginManager {
   private readonly _plugins: Plugin2[] = [];
   private readonly _options: Required<PluginManagerOptions>;
 
+  /**
+   * Runtime schemas of contexts, and the compatibility of plugins with them.
+   * Every plugin step creates a new context object, so the object itself is the context version. All candidates of a step share it.
+   */
+  private readonly _runtimeSchemas = new WeakMap<object, ZodType>();
+  private readonly _runtimeCompats = new WeakMap<object, Map<Plugin2, CompatResult>>();
+
   constructor(options: PluginManagerOptions = {}) {
     this._options = {
       includeAuto: options.includeAuto ?? true,
@@ -153,7 +160,7 @@ export class PluginManager {
     // Set long stacktrace limit, so it becomes easier to debug issues.
     Error.stackTraceLimit = 200;
 
-    const rootPath = this.findExecutionPath({
+    const rootPath = args.plan ?? this.findExecutionPath({
       inCtx: args.ctx,
       debug: args.debug,
       skip: args.skip,
@@ -261,14 +268,7 @@ ${ctxString}
       const needsEvaluation = PluginManager.needsEvaluation(pathItem);
       if (needsEvaluation) {
 
-        // TODO: Fix so that the literal creation cannot end up in endless recursion! But first try to figure out a way of getting a proper exception, for any future errors!!
-
-        const zodRuntimeSchema = ZodUtils.createZodSchemaFromObject(
-          args.inCtx, true,
-          ({keyPath}) => keyPath[0] == 'model' ? z.record(z.any()) : undefined,
-        );
-
-        const compat = ZodUtils.isCompatibleWith(pathItem.plugin.input, zodRuntimeSchema);
+        const compat = this.getRuntimeCompat(pathItem.plugin, args.inCtx);
         if (compat.v == Compat.DIFF) {
 
           logger.debug(`Skipping '${pathItem.plugin.name}' since current context did not match expected input validation schema: ${compat.error?.message}`);
@@ -340,12 +340,49 @@ ${ctxString}
     return {results: []};
   }
 
+  private getRuntimeCompat(plugin: Plugin2, ctx: object): CompatResult {
+
+    let compats = this._runtimeCompats.get(ctx);
+    if (!compats) {
+      compats = new Map<Plugin2, CompatResult>();
+      this._runtimeCompats.set(ctx, compats);
+    }
+
+    let compat = compats.get(plugin);
+    if (!compat) {
+
+      let zodRuntimeSchema = this._runtimeSchemas.get(ctx);
+      if (!zodRuntimeSchema) {
+
+        // TODO: Fix so that the literal creation cannot end up in endless recursion! But first try to figure out a way of getting a proper exception, for any future errors!!
+        zodRuntimeSchema = ZodUtils.createZodSchemaFromObject(
+          ctx, true,
+          ({keyPath}) => keyPath[0] == 'model' ? z.record(z.any()) : undefined,
+        );
+        this._runtimeSchemas.set(ctx, zodRuntimeSchema);
+      }
+
+      compat = ZodUtils.isCompatibleWith(plugin.input, zodRuntimeSchema);
+      compats.set(plugin, compat);
+    }
+
+    return compat;
+  }
+
   public findExecutionPath<Z extends ZodObject<any>, C extends z.infer<Z>>(args: FindPathArgs<Z, C>): FindPathResult<Z> {
 
+    const start = performance.now();
     const startType = args.inType ?? ZodUtils.createZodSchemaFromObject(args.inCtx, true);
     const plugins = this.getPlugins();
 
     const skipped: Record<string, string> | undefined = args.debug ? {} : undefined;
+    const memo: PlanMemo = {
+      pluginIds: new Map(plugins.map((it, idx) => [it, idx])),
+      fingerprints: new WeakMap(),
+      compats: new Map(),
+      items: new Map(),
+      stats: {compatChecks: 0, compatHits: 0, itemHits: 0},
+    };
 
     const matchItem: RootPluginPathItem = {score: 0, next: []};
 
@@ -361,6 +398,7 @@ ${ctxString}
         inType: startType as AnyZodObject,
         path: [plugin.name],
         skipped: skipped,
+        memo: memo,
       });
 
       if (item) {
@@ -372,6 +410,10 @@ ${ctxString}
       PluginManager.prune(plugins[0], matchItem, [plugins[0].name]);
     }
 
+    const stats = memo.stats;
+    logger.debug(`Planned execution path for ${plugins.length} plugins in ${(performance.now() - start).toFixed(1)}ms`
+      + ` (${stats.compatChecks} compatibility checks, ${stats.compatHits} cached; ${memo.items.size} subpaths, ${stats.itemHits} reused)`);
+
     return {
       path: matchItem,
       length: PluginManager.getLength(matchItem),
@@ -382,7 +424,27 @@ ${ctxString}
 
   private findExecutionPathsInner<Z extends ZodObject<any>>(args: FindPathInnerArgs<Z>): PluginPathItem | undefined {
 
-    const compat = ZodUtils.isCompatibleWith(args.plugin.input, args.inType);
+    const memo = args.memo;
+    const pluginId = memo.pluginIds.get(args.plugin);
+    const fingerprint = PluginManager.getFingerprint(memo, args.inType);
+
+    // Different orders of the same earlier plugins often give the same input type, and then the rest of the path will be the same as well.
+    // Not reused when collecting skipped paths for debugging, since then every path that was skipped should be reported.
+    const itemKey = `${pluginId}|${fingerprint}|${args.plugins.map(it => memo.pluginIds.get(it)).join(',')}`;
+    if (!args.skipped && memo.items.has(itemKey)) {
+      memo.stats.itemHits++;
+      return memo.items.get(itemKey);
+    }
+
+    const compatKey = `${pluginId}|${fingerprint}`;
+    let compat = memo.compats.get(compatKey);
+    if (compat) {
+      memo.stats.compatHits++;
+    } else {
+      memo.stats.compatChecks++;
+      compat = ZodUtils.isCompatibleWith(args.plugin.input, args.inType);
+      memo.compats.set(compatKey, compat);
+    }
 
     if (compat.v === Compat.DIFF) {
 
@@ -393,6 +455,7 @@ ${ctxString}
         args.skipped[args.path.join('>')] = message;
       }
 
+      memo.items.set(itemKey, undefined);
       return undefined;
     }
 
@@ -423,9 +486,21 @@ ${ctxString}
 
     PluginManager.prune(args.plugin, matchItem, args.path);
 
+    memo.items.set(itemKey, matchItem);
     return matchItem;
   }
 
+  private static getFingerprint(memo: PlanMemo, type: ZodObject<any>): string {
+
+    let fingerprint = memo.fingerprints.get(type);
+    if (fingerprint === undefined) {
+      fingerprint = ZodUtils.getShapeFingerprint(type);
+      memo.fingerprints.set(type, fingerprint);
+    }
+
+    return fingerprint;
+  }
+
   private static getLength(item: RootPluginPathItem | PluginPathItem): number {
 
     let longest = 0;
@@ -510,6 +585,10 @@ export interface ExecArgs<C extends z.infer<ZodObject<any>>, S extends ZodObject
   stopAt?: S | undefined;
   debug?: boolean | undefined;
   skip?: string[] | undefined;
+  /**
+   * Plan from an earlier {@link PluginManager.findExecutionPath} for an equal context and the same plugins, which is then executed instead of planning again.
+   */
+  plan?: FindPathResult<ZodObject<any>> | undefined;
 }
 
 export interface FindPathArgs<Z extends ZodObject<any>, C extends z.infer<Z>> {
@@ -526,6 +605,19 @@ type FindPathInnerArgs<Z extends ZodObject<any>> = {
   plugin: Plugin2;
   plugins: Plugin2[];
   skipped?: Record<string, string> | undefined;
+  memo: PlanMemo;
+}
+
+/**
+ * What has already been worked out while planning one execution path, so that the same sub-paths are not explored again.
+ * Resulting path items are shared between parents, which makes the plan a DAG rather than a tree.
+ */
+interface PlanMemo {
+  pluginIds: Map<Plugin2, number>;
+  fingerprints: WeakMap<ZodObject<any>, string>;
+  compats: Map<string, CompatResult>;
+  items: Map<string, PluginPathItem | undefined>;
+  stats: { compatChecks: number, compatHits: number, itemHits: number };
 }
 
 export interface FindPathResult<Z extends ZodObject<any>> {
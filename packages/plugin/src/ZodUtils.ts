@@ -47,6 +47,37 @@ const logger = LoggerFactory.create(import.meta.url);
  */
 export class ZodUtils {
 
+  private static readonly _schemaIds = new WeakMap<object, number>();
+  private static _nextSchemaId = 0;
+
+  /**
+   * Gives a string that is the same for two object schemas with the same keys pointing to the very same property schemas.
+   * Schemas created by `merge` share their property schemas with the merged schemas, so this recognizes the same merge result made in a different order.
+   * It does not look into the property schemas, so structurally equal but separately created property schemas give different fingerprints.
+   */
+  public static getShapeFingerprint(schema: ZodObject<any>): string {
+
+    const shape = schema.shape as ZodRawShape;
+    const parts: string[] = [];
+    for (const key of Object.keys(shape).sort()) {
+      parts.push(`${key}=${ZodUtils.getSchemaId(shape[key])}`);
+    }
+
+    parts.push(`#${schema._def.unknownKeys}`, `*${ZodUtils.getSchemaId(schema._def.catchall)}`);
+    return parts.join(',');
+  }
+
+  private static getSchemaId(schema: object): number {
+
+    let id = ZodUtils._schemaIds.get(schema);
+    if (id === undefined) {
+      id = ZodUtils._nextSchemaId++;
+      ZodUtils._schemaIds.set(schema, id);
+    }
+
+    return id;
+  }
+
   public static isCompatibleWith(expected: ZodTypeAny | ZodCustomNotSet, actual: ZodTypeAny | ZodCustomNotSet, path: string[] = [], silent = false): CompatResult {
 
     if (expected instanceof ZodNullable && actual instanceof ZodNull) {
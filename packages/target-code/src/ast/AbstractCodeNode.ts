@@ -57,6 +57,17 @@ export abstract class AbstractCodeNode implements AstNode {
     }
   }
 
+  /**
+   * A reducer can return the node it was given when nothing below it changed, so the same node can be found in more than one place of the tree.
+   * A reducer hook that wants to change such a node should change a copy of it instead.
+   *
+   * @return A new node of the same class with the same id, which shares all its children with this node.
+   */
+  public shallowCopy(): this {
+    const copy = Object.assign(Object.create(Object.getPrototypeOf(this)) as this, this);
+    return copy.setId(this.id);
+  }
+
   abstract visit<R>(visitor: CodeVisitor<R>): VisitResult<R>;
 
   abstract reduce(reducer: Reducer<CodeVisitor<unknown>>): ReducerResult<AstNode>;
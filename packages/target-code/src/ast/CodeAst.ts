@@ -37,6 +37,7 @@ export enum TokenKind {
   GTE,
   LTE,
   MULTIPLY,
+  DIVIDE,
   SUBTRACT,
 
   COALESCE_NULL,
@@ -1704,3 +1705,51 @@ export class IndexAccess extends AbstractCodeNode {
     return r.reduceIndexAccess(this, r);
   }
 }
+
+/**
+ * An anonymous function, like `(a, b) -> a + b` in Java or `(a, b) => a + b` in TypeScript.
+ * The body is either a single expression or a {@link Block}.
+ */
+export class Lambda extends AbstractCodeNode {
+
+  readonly parameters: ParameterList;
+  readonly body: AstNode;
+
+  constructor(parameters: ParameterList, body: AstNode) {
+    super();
+    this.parameters = parameters;
+    this.body = body;
+  }
+
+  visit<R>(v: CodeVisitor<R>): VisitResult<R> {
+    return v.visitLambda(this, v);
+  }
+
+  reduce(r: Reducer<CodeVisitor<unknown>>): ReducerResult<AstNode> {
+    return r.reduceLambda(this, r);
+  }
+}
+
+export class TryCatchStatement extends AbstractCodeNode {
+
+  readonly body: Block;
+  readonly catchParameter?: Parameter | undefined;
+  readonly catchBody?: Block | undefined;
+  readonly finallyBody?: Block | undefined;
+
+  constructor(body: Block, catchParameter?: Parameter, catchBody?: Block, finallyBody?: Block) {
+    super();
+    this.body = body;
+    this.catchParameter = catchParameter;
+    this.catchBody = catchBody;
+    this.finallyBody = finallyBody;
+  }
+
+  visit<R>(v: CodeVisitor<R>): VisitResult<R> {
+    return v.visitTryCatchStatement(this, v);
+  }
+
+  reduce(r: Reducer<CodeVisitor<unknown>>): ReducerResult<AstNode> {
+    return r.reduceTryCatchStatement(this, r);
+  }
+}
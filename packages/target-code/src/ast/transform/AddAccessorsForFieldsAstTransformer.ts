@@ -111,8 +111,10 @@ export class AddAccessorsForFieldsAstTransformer implements AstTransformer<CodeR
         const reduced = defaultReducer.reduceField(n, r);
         if (reduced && reduced.hasId(fieldsToPrefix) && reduced instanceof Code.Field) {
 
-          // TODO: Do not replace like this -- instead build a new Field, it should be readonly.
-          reduced.identifier = new Code.Identifier(`_${reduced.identifier.value}`, reduced.identifier.original ?? reduced.identifier.value);
+          // The reduced field might be the original one, which can be shared with other parts of the tree, so a copy is renamed instead.
+          const field = reduced.shallowCopy();
+          field.identifier = new Code.Identifier(`_${reduced.identifier.value}`, reduced.identifier.original ?? reduced.identifier.value);
+          return field;
         }
 
         return reduced;
@@ -121,12 +123,15 @@ export class AddAccessorsForFieldsAstTransformer implements AstTransformer<CodeR
       reduceBlock: (n, r) => {
 
         const reduced = defaultReducer.reduceBlock(n, r);
-        if (reduced) {
+        const toAdd = addToBlock.get(n.id);
+        if (reduced && toAdd) {
 
-          const toAdd = addToBlock.get(n.id);
-          if (toAdd) {
-            reduced.children.push(...toAdd);
-          }
+          // The reduced block might be the original one, so the accessors are added to a new block instead of the shared one.
+          const block = new Code.Block(...reduced.children, ...toAdd).withIdFrom(reduced);
+          block.enclosed = reduced.enclosed;
+          block.compact = reduced.compact;
+
+          return block;
         }
 
         return reduced;
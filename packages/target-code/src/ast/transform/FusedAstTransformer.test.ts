@@ -0,0 +1,106 @@
+import {describe, test} from 'vitest';
+import {AstTransformerArguments, DEFAULT_TARGET_OPTIONS, OMNI_GENERIC_FEATURES, OmniItemKind, OmniTypeKind} from '@omnigen/api';
+import * as Code from '../Code';
+import {CodeNodeKind, FusableAstTransformer, FusedAstTransformer, ReducerHooks} from './FusedAstTransformer';
+import {TestRootAstNode} from './TestRootAstNode';
+
+class RenameTransformer implements FusableAstTransformer {
+
+  readonly reads: ReadonlyArray<CodeNodeKind> = ['Identifier'];
+  readonly writes: ReadonlyArray<CodeNodeKind> = ['Identifier'];
+
+  constructor(private readonly suffix: string) {
+  }
+
+  transformAst(args: AstTransformerArguments<Code.CodeRootAstNode>): void {
+    FusedAstTransformer.reduce([this], args);
+  }
+
+  createHooks(): ReducerHooks {
+    return {
+      reduceIdentifier: n => new Code.Identifier(`${n.value}${this.suffix}`),
+    };
+  }
+}
+
+class FinalTransformer implements FusableAstTransformer {
+
+  readonly reads: ReadonlyArray<CodeNodeKind> = ['Field'];
+  readonly writes: ReadonlyArray<CodeNodeKind> = ['Field'];
+
+  transformAst(args: AstTransformerArguments<Code.CodeRootAstNode>): void {
+    FusedAstTransformer.reduce([this], args);
+  }
+
+  createHooks(): ReducerHooks {
+    return {
+      reduceField: n => {
+        const field = n.shallowCopy();
+        field.modifiers = new Code.ModifierList(...n.modifiers.children, new Code.Modifier(Code.ModifierKind.FINAL));
+        return field;
+      },
+    };
+  }
+}
+
+function createArgs(): AstTransformerArguments<Code.CodeRootAstNode> {
+
+  const root = new TestRootAstNode();
+  root.children.push(new Code.Field(new Code.EdgeType({kind: OmniTypeKind.STRING}), new Code.Identifier('value')));
+
+  return {
+    model: {kind: OmniItemKind.MODEL, schemaType: 'other', types: [], endpoints: []},
+    root: root,
+    options: {...DEFAULT_TARGET_OPTIONS},
+    features: OMNI_GENERIC_FEATURES,
+    externals: [],
+  };
+}
+
+describe('FusedAstTransformer', () => {
+
+  test('non-conflicting transformers share one reduction', ctx => {
+
+    const args = createArgs();
+    FusedAstTransformer.execute([new RenameTransformer('A'), new FinalTransformer()], args);
+
+    const field = args.root.children[0] as Code.Field;
+    ctx.expect((args.root as TestRootAstNode).reductions).toEqual(1);
+    ctx.expect(field.identifier.value).toEqual('valueA');
+    ctx.expect(field.modifiers.children.map(it => it.kind)).toContain(Code.ModifierKind.FINAL);
+  });
+
+  test('conflicting transformers are run one after the other, in order', ctx => {
+
+    const args = createArgs();
+    FusedAstTransformer.execute([new RenameTransformer('A'), new RenameTransformer('B')], args);
+
+    const field = args.root.children[0] as Code.Field;
+    ctx.expect((args.root as TestRootAstNode).reductions).toEqual(2);
+    ctx.expect(field.identifier.value).toEqual('valueAB');
+  });
+
+  test('non-fusable transformers break up the groups', ctx => {
+
+    const args = createArgs();
+    FusedAstTransformer.execute([new RenameTransformer('A'), {transformAst: () => {}}, new FinalTransformer()], args);
+
+    ctx.expect((args.root as TestRootAstNode).reductions).toEqual(2);
+  });
+
+  test('a node that is found in more than one place is changed as a copy', ctx => {
+
+    const args = createArgs();
+    const original = args.root.children[0] as Code.Field;
+    args.root.children.push(original);
+
+    FusedAstTransformer.execute([new FinalTransformer()], args);
+
+    const [first, second] = args.root.children as Code.Field[];
+    ctx.expect(first).not.toBe(original);
+    ctx.expect(first?.id).toEqual(original.id);
+    ctx.expect(first?.modifiers.children.filter(it => it.kind === Code.ModifierKind.FINAL)).toHaveLength(1);
+    ctx.expect(second?.modifiers.children.filter(it => it.kind === Code.ModifierKind.FINAL)).toHaveLength(1);
+    ctx.expect(original.modifiers.children.map(it => it.kind)).not.toContain(Code.ModifierKind.FINAL);
+  });
+});
@@ -0,0 +1,154 @@
+import {AstNode, AstTransformer, AstTransformerArguments, TargetOptions} from '@omnigen/api';
+import {LoggerFactory} from '@omnigen/core-log';
+import {CodeRootAstNode} from '../CodeRootAstNode';
+import {CodeReducer} from '../../reduce/CodeAstReducer';
+
+const logger = LoggerFactory.create(import.meta.url);
+
+/**
+ * The kind of node that a reduce function of the {@link CodeReducer} is responsible for, like `Field` for `reduceField`.
+ */
+export type CodeNodeKind = keyof CodeReducer extends infer K ? K extends `reduce${infer Kind}` ? (Kind extends '' ? never : Kind) : never : never;
+
+type ReducerKey = `reduce${CodeNodeKind}` & keyof CodeReducer;
+type ReducerNode<K extends ReducerKey> = Parameters<CodeReducer[K]>[0];
+
+/**
+ * Hooks that are given a node after all of its children have already been reduced, and return what the node should be replaced with.
+ *
+ * A hook must only look at the node it is given and the nodes below it, since nodes above it have not been reduced yet.
+ * The reducer is only needed for reducing new nodes that the hook creates.
+ */
+export type ReducerHooks = Partial<{ [K in ReducerKey]: (node: ReducerNode<K>, reducer: CodeReducer) => ReturnType<CodeReducer[K]> }>;
+
+/**
+ * A transformer whose whole work can be described as {@link ReducerHooks}, so that it can share one single traversal with other such transformers.
+ *
+ * It declares the kinds of nodes it reads and writes, which decides whether it can be fused with the transformers before it.
+ */
+export interface FusableAstTransformer<TRoot extends CodeRootAstNode = CodeRootAstNode, TOpt extends TargetOptions = TargetOptions> extends AstTransformer<TRoot, TOpt> {
+  readonly reads: ReadonlyArray<CodeNodeKind>;
+  readonly writes: ReadonlyArray<CodeNodeKind>;
+
+  /**
+   * @return The hooks for this run, or `undefined` if there is nothing to do, for example because of the given options.
+   */
+  createHooks(args: AstTransformerArguments<TRoot, TOpt>): ReducerHooks | undefined;
+}
+
+export const isFusable = <TRoot extends CodeRootAstNode, TOpt extends TargetOptions>(
+  transformer: AstTransformer<TRoot, TOpt>,
+): transformer is FusableAstTransformer<TRoot, TOpt> => {
+  return 'createHooks' in transformer && 'reads' in transformer && 'writes' in transformer;
+};
+
+/**
+ * Runs transformers in order, but lets neighbouring fusable transformers share one reduction of the tree instead of one each.
+ *
+ * A fusable transformer joins the group before it as long as it does not read or write anything that the group writes, and does not write anything the group reads.
+ * Inside the group, the hooks for the same node are called in the order of the transformers, on the output of the hook before it.
+ * Since every hook only looks downwards, and the reduction goes bottom-up, each hook sees the same tree as it would have if the transformers had run one by one.
+ */
+export class FusedAstTransformer {
+
+  static execute<TRoot extends CodeRootAstNode, TOpt extends TargetOptions>(
+    transformers: ReadonlyArray<AstTransformer<TRoot, TOpt>>,
+    args: AstTransformerArguments<TRoot, TOpt>,
+  ): void {
+
+    let group: FusableAstTransformer<TRoot, TOpt>[] = [];
+    const reads = new Set<CodeNodeKind>();
+    const writes = new Set<CodeNodeKind>();
+
+    const flush = () => {
+      if (group.length > 0) {
+        FusedAstTransformer.reduce(group, args);
+        group = [];
+        reads.clear();
+        writes.clear();
+      }
+    };
+
+    for (const transformer of transformers) {
+
+      if (!isFusable(transformer)) {
+        flush();
+        transformer.transformAst(args);
+        continue;
+      }
+
+      const conflicts = transformer.reads.some(it => writes.has(it)) || transformer.writes.some(it => writes.has(it) || reads.has(it));
+      if (conflicts) {
+        flush();
+      }
+
+      group.push(transformer);
+      transformer.reads.forEach(it => reads.add(it));
+      transformer.writes.forEach(it => writes.add(it));
+    }
+
+    flush();
+  }
+
+  /**
+   * Reduces the tree once, with the hooks of all the given transformers.
+   */
+  static reduce<TRoot extends CodeRootAstNode, TOpt extends TargetOptions>(
+    transformers: ReadonlyArray<FusableAstTransformer<TRoot, TOpt>>,
+    args: AstTransformerArguments<TRoot, TOpt>,
+  ): void {
+
+    const hooksPerKey = new Map<string, ((node: AstNode, reducer: CodeReducer) => AstNode | undefined)[]>();
+    for (const transformer of transformers) {
+      const hooks = transformer.createHooks(args);
+      if (!hooks) {
+        continue;
+      }
+
+      for (const [key, hook] of Object.entries(hooks)) {
+        const untypedHook = hook as (node: AstNode, reducer: CodeReducer) => AstNode | undefined;
+        const existing = hooksPerKey.get(key);
+        if (existing) {
+          existing.push(untypedHook);
+        } else {
+          hooksPerKey.set(key, [untypedHook]);
+        }
+      }
+    }
+
+    if (hooksPerKey.size == 0) {
+      return;
+    }
+
+    if (transformers.length > 1) {
+      logger.debug(`Fused ${transformers.map(it => it.constructor.name).join(', ')} into one reduction`);
+    }
+
+    const defaultReducer = args.root.createReducer();
+    const fused: Record<string, unknown> = {...defaultReducer};
+    for (const [key, hooks] of hooksPerKey) {
+
+      const base = defaultReducer[key as ReducerKey] as (n: AstNode, r: CodeReducer) => AstNode | undefined;
+      fused[key] = (n: AstNode, r: CodeReducer) => {
+
+        let reduced = base(n, r);
+        for (const hook of hooks) {
+
+          // Once a hook has replaced the node with another kind of node, the remaining hooks for the original kind no longer apply.
+          if (!reduced || reduced.constructor !== n.constructor) {
+            break;
+          }
+
+          reduced = hook(reduced, r);
+        }
+
+        return reduced;
+      };
+    }
+
+    const newRoot = args.root.reduce(fused as unknown as CodeReducer);
+    if (newRoot) {
+      args.root = newRoot as TRoot;
+    }
+  }
+}
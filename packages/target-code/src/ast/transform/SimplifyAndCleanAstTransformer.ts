@@ -1,44 +1,43 @@
-import {AstTransformer, AstTransformerArguments} from '@omnigen/api';
+import {AstTransformerArguments} from '@omnigen/api';
 import * as Code from '../Code';
 import {ModifierKind} from '../Code';
 import {LoggerFactory} from '@omnigen/core-log';
+import {CodeNodeKind, FusableAstTransformer, FusedAstTransformer, ReducerHooks} from './FusedAstTransformer';
 
 const logger = LoggerFactory.create(import.meta.url);
 
 /**
  * Flattens any unnecessary nodes, to make the structure a bit simpler.
  */
-export class SimplifyAndCleanAstTransformer implements AstTransformer<Code.CodeRootAstNode> {
+export class SimplifyAndCleanAstTransformer implements FusableAstTransformer<Code.CodeRootAstNode> {
+
+  readonly reads: ReadonlyArray<CodeNodeKind> = ['Block', 'Nodes', 'VirtualAnnotationNode', 'Constructor', 'SuperConstructorCall', 'EnumDeclaration', 'InterfaceDeclaration', 'ModifierList'];
+  readonly writes: ReadonlyArray<CodeNodeKind> = ['Block', 'VirtualAnnotationNode', 'Constructor', 'SuperConstructorCall', 'EnumDeclaration', 'InterfaceDeclaration'];
 
   transformAst(args: AstTransformerArguments<Code.CodeRootAstNode>): void {
+    FusedAstTransformer.reduce([this], args);
+  }
 
-    const defaultReducer = args.root.createReducer();
-    const newRoot = args.root.reduce({
-      ...defaultReducer,
-      reduceBlock: (n, r) => {
+  createHooks(): ReducerHooks {
 
-        const children = [...n.children];
-        for (let i = 0; i < children.length; i++) {
-          const child = children[i].reduce(r);
-          if (!child) {
-            children.splice(i, 1);
-          } else if (child instanceof Code.Nodes) {
-            children.splice(i, 1, ...child.children);
-          } else {
-            children[i] = child;
-          }
+    return {
+      reduceBlock: n => {
+
+        if (!n.children.some(it => it instanceof Code.Nodes)) {
+          return n;
         }
 
-        return new Code.Block(...children);
+        const reduced = new Code.Block(...n.children.flatMap(it => (it instanceof Code.Nodes) ? it.children : [it])).withIdFrom(n);
+        reduced.enclosed = n.enclosed;
+        reduced.compact = n.compact;
+        return reduced;
       },
       reduceVirtualAnnotationNode: () => {
         return undefined;
       },
-      reduceConstructor: (n, r) => {
+      reduceConstructor: reduced => {
 
-        const reduced = defaultReducer.reduceConstructor(n, r);
-
-        if (reduced && (!reduced.parameters || reduced.parameters.children.length == 0) && !reduced.superCall && (!reduced.body || reduced.body.children.length == 0)) {
+        if ((!reduced.parameters || reduced.parameters.children.length == 0) && !reduced.superCall && (!reduced.body || reduced.body.children.length == 0)) {
           return undefined;
         }
 
@@ -52,28 +51,22 @@ export class SimplifyAndCleanAstTransformer implements AstTransformer<Code.CodeR
 
         return n;
       },
-      reduceEnumDeclaration: (n, r) => {
-
-        const reduced = defaultReducer.reduceEnumDeclaration(n, r);
-        if (reduced && reduced instanceof Code.EnumDeclaration) {
-          reduced.modifiers = new Code.ModifierList(...reduced.modifiers.children.filter(it => it.kind !== ModifierKind.STATIC));
-        }
-
-        return reduced;
-      },
-      reduceInterfaceDeclaration: (n, r) => {
-
-        const reduced = defaultReducer.reduceInterfaceDeclaration(n, r);
-        if (reduced && reduced instanceof Code.InterfaceDeclaration) {
-          reduced.modifiers = new Code.ModifierList(...reduced.modifiers.children.filter(it => it.kind !== ModifierKind.STATIC));
-        }
+      reduceEnumDeclaration: reduced => this.withoutStaticModifier(reduced),
+      reduceInterfaceDeclaration: reduced => this.withoutStaticModifier(reduced),
+    };
+  }
 
-        return reduced;
-      },
-    });
+  /**
+   * Enums and interfaces are implicitly static, so the modifier is removed. The declaration is copied first, since it might be shared with other parts of the tree.
+   */
+  private withoutStaticModifier<T extends Code.EnumDeclaration | Code.InterfaceDeclaration>(declaration: T): T {
 
-    if (newRoot) {
-      args.root = newRoot;
+    if (!declaration.modifiers.children.some(it => it.kind === ModifierKind.STATIC)) {
+      return declaration;
     }
+
+    const copy = declaration.shallowCopy();
+    copy.modifiers = new Code.ModifierList(...declaration.modifiers.children.filter(it => it.kind !== ModifierKind.STATIC)).withIdFrom(declaration.modifiers);
+    return copy;
   }
 }
@@ -0,0 +1,27 @@
+import {ObjectNameResolver, Reducer, ReducerResult, TargetFunctions} from '@omnigen/api';
+import {isDefined} from '@omnigen/core';
+import * as Code from '../Code';
+import {CodeVisitor} from '../../visitor/CodeVisitor';
+
+/**
+ * Root node for tests of AST transformers that need no target, which counts how many times it has been reduced.
+ */
+export class TestRootAstNode extends Code.CodeRootAstNode {
+
+  reductions = 0;
+
+  getFunctions(): TargetFunctions {
+    throw new Error(`Not needed`);
+  }
+
+  getNameResolver(): ObjectNameResolver {
+    throw new Error(`Not needed`);
+  }
+
+  reduce(reducer: Reducer<CodeVisitor<unknown>>): ReducerResult<Code.CodeRootAstNode> {
+    const newRoot = new TestRootAstNode();
+    newRoot.reductions = this.reductions + 1;
+    newRoot.children.push(...this.children.map(it => it.reduce(reducer)).filter(isDefined));
+    return newRoot;
+  }
+}
@@ -0,0 +1,37 @@
+import {describe, test} from 'vitest';
+import {AstTransformerArguments, DEFAULT_TARGET_OPTIONS, OMNI_GENERIC_FEATURES, OmniItemKind} from '@omnigen/api';
+import * as Code from '../Code';
+import {ToConstructorBodySuperCallAstTransformer} from './ToConstructorBodySuperCallAstTransformer';
+import {TestRootAstNode} from './TestRootAstNode';
+
+describe('ToConstructorBodySuperCallAstTransformer', () => {
+
+  test('moves the super-call into a copy of the body, leaving the shared body as it was', ctx => {
+
+    const sharedBody = new Code.Block(new Code.Statement(new Code.Literal(1)));
+    const constructor = new Code.ConstructorDeclaration(undefined, sharedBody);
+    constructor.superCall = new Code.SuperConstructorCall(new Code.ArgumentList(new Code.Literal(2)));
+
+    const root = new TestRootAstNode();
+    root.children.push(constructor, sharedBody);
+
+    const args: AstTransformerArguments<Code.CodeRootAstNode> = {
+      model: {kind: OmniItemKind.MODEL, schemaType: 'other', types: [], endpoints: []},
+      root: root,
+      options: {...DEFAULT_TARGET_OPTIONS},
+      features: OMNI_GENERIC_FEATURES,
+      externals: [],
+    };
+
+    new ToConstructorBodySuperCallAstTransformer().transformAst(args);
+
+    const [reduced, body] = args.root.children;
+    ctx.expect(reduced).toBeInstanceOf(Code.ConstructorDeclaration);
+    ctx.expect((reduced as Code.ConstructorDeclaration).superCall).toBeUndefined();
+    ctx.expect((reduced as Code.ConstructorDeclaration).body?.children).toHaveLength(2);
+
+    ctx.expect(body).toBe(sharedBody);
+    ctx.expect(sharedBody.children).toHaveLength(1);
+    ctx.expect(constructor.superCall).toBeDefined();
+  });
+});
@@ -1,41 +1,43 @@
-import {AstTransformer, AstTransformerArguments} from '@omnigen/api';
+import {AstTransformerArguments} from '@omnigen/api';
 import {CodeRootAstNode} from '../CodeRootAstNode';
 import * as Code from '../CodeAst';
+import {CodeNodeKind, FusableAstTransformer, FusedAstTransformer, ReducerHooks} from './FusedAstTransformer';
 
 /**
  * Moving super-constructor call into the body of the constructor
  */
-export class ToConstructorBodySuperCallAstTransformer implements AstTransformer<CodeRootAstNode> {
+export class ToConstructorBodySuperCallAstTransformer implements FusableAstTransformer<CodeRootAstNode> {
 
-  transformAst(args: AstTransformerArguments<CodeRootAstNode>): void {
-
-    const baseReducer = args.root.createReducer();
-    const newRoot = args.root.reduce({
-      ...baseReducer,
+  readonly reads: ReadonlyArray<CodeNodeKind> = ['Constructor'];
+  readonly writes: ReadonlyArray<CodeNodeKind> = ['Constructor'];
 
-      reduceConstructor: (n, r) => {
+  transformAst(args: AstTransformerArguments<CodeRootAstNode>): void {
+    FusedAstTransformer.reduce([this], args);
+  }
 
-        const reduced = baseReducer.reduceConstructor(n, r);
+  createHooks(): ReducerHooks {
 
-        if (reduced && reduced.superCall) {
+    return {
+      reduceConstructor: reduced => {
 
-          // The super-call needs to be moved to the constructor body :)
-          const statement = new Code.Statement(reduced.superCall);
-          if (reduced.body) {
-            reduced.body.children.splice(0, 0, statement);
-          } else {
-            reduced.body = new Code.Block(statement);
-          }
+        if (!reduced.superCall) {
+          return reduced;
+        }
 
-          reduced.superCall = undefined;
+        // The super-call needs to be moved to the constructor body :)
+        // Both the constructor and its body might be shared with other parts of the tree, so they are copied before being changed.
+        const statement = new Code.Statement(reduced.superCall);
+        const constructor = reduced.shallowCopy();
+        if (reduced.body) {
+          constructor.body = reduced.body.shallowCopy();
+          constructor.body.children = [statement, ...reduced.body.children];
+        } else {
+          constructor.body = new Code.Block(statement);
         }
 
-        return reduced;
+        constructor.superCall = undefined;
+        return constructor;
       },
-    });
-
-    if (newRoot) {
-      args.root = newRoot;
-    }
+    };
   }
 }
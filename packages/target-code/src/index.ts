@@ -23,6 +23,7 @@ export * from './ast/transform/AddCompositionMembersCodeAstTransformer';
 export * from './ast/transform/SimplifyAndCleanAstTransformer';
 export * from './ast/transform/AddFinalToApplicableFieldsAstTransformer';
 export * from './ast/transform/PrettyCodeAstTransformer';
+export * from './ast/transform/FusedAstTransformer';
 
 export * from './visitor/CodeVisitor';
 export * from './visitor/FreeTextVisitor';
@@ -31,6 +32,7 @@ export * from './util/FreeTextUtils';
 export * from './util/CodeUtil';
 
 export * from './render/CodeRenderer';
+export * from './render/RenderBuffer';
 
 export * from './reduce/CodeAstReducer';
 
@@ -58,6 +58,8 @@ type Stages = 1 | 2;
  */
 export class ElevatePropertiesModelTransformer implements OmniModelTransformer, OmniModel2ndPassTransformer<ParserOptions & CodeOptions> {
 
+  readonly keepsTypeHierarchy = true;
+
   private readonly _forcePolymorphicLiterals?: boolean | undefined;
 
   constructor(forcePolymorphicLiterals?: boolean) {
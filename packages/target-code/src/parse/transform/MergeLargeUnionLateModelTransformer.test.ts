@@ -13,7 +13,7 @@ import {
   OmniUnionType,
   TargetFeatures,
 } from '@omnigen/api';
-import {GenericsModelTransformer, Naming, PropertyUtil} from '@omnigen/core';
+import {GenericsModelTransformer, Naming, OmniUtil, PropertyUtil} from '@omnigen/core';
 
 test('Test Merge', ctx => {
 
@@ -51,9 +51,7 @@ test('Test Merge', ctx => {
   ] as const;
 
   const args: OmniModelTransformer2ndPassArgs = {model, options, features: OMNI_GENERIC_FEATURES};
-  for (const transformer of transformers) {
-    transformer.transformModel2ndPass(args);
-  }
+  OmniUtil.runModelTransformers2ndPass(transformers, args);
 
   const transformers2 = [
     new GenericsModelTransformer(),
@@ -63,9 +61,7 @@ test('Test Merge', ctx => {
   const features: TargetFeatures = {...OMNI_GENERIC_FEATURES, unions: false};
 
   const args2: OmniModelTransformer2ndPassArgs = {model: args.model, options, features: features};
-  for (const transformer of transformers2) {
-    transformer.transformModel2ndPass(args2);
-  }
+  OmniUtil.runModelTransformers2ndPass(transformers2, args2);
 
   ctx.expect(a.extendedBy?.kind === OmniTypeKind.GENERIC_TARGET).toBeTruthy();
   ctx.expect(b.extendedBy?.kind === OmniTypeKind.GENERIC_TARGET).toBeTruthy();
@@ -12,6 +12,8 @@ const logger = LoggerFactory.create(import.meta.url);
  */
 export class RemoveUnnecessaryPropertyModelTransformer implements OmniModel2ndPassTransformer<ParserOptions & CodeOptions> {
 
+  readonly keepsTypeHierarchy = true;
+
   transformModel2ndPass(args: OmniModelTransformer2ndPassArgs<ParserOptions & CodeOptions>): void {
 
     const superTypeToSubTypes = OmniUtil.getSuperTypeToSubTypesMap(args.model);
@@ -0,0 +1,40 @@
+import {describe, test} from 'vitest';
+import {OmniTypeKind} from '@omnigen/api';
+import * as Code from '../ast/CodeAst';
+import {DefaultCodeReducer} from './CodeAstReducer';
+
+function createBlock() {
+  return new Code.Block(
+    new Code.Field(new Code.EdgeType({kind: OmniTypeKind.STRING}), new Code.Identifier('a')),
+    new Code.Field(new Code.EdgeType({kind: OmniTypeKind.STRING}), new Code.Identifier('b')),
+  );
+}
+
+describe('CodeAstReducer', () => {
+
+  test('unchanged tree is returned as-is', ctx => {
+
+    const block = createBlock();
+    ctx.expect(block.reduce(DefaultCodeReducer)).toBe(block);
+  });
+
+  test('only the path to a changed node is rebuilt', ctx => {
+
+    const block = createBlock();
+    const [a, b] = block.children as Code.Field[];
+
+    const reduced = block.reduce({
+      ...DefaultCodeReducer,
+      reduceIdentifier: n => n.value === 'a' ? new Code.Identifier('renamed') : n,
+    });
+
+    ctx.expect(reduced).not.toBe(block);
+    ctx.expect(reduced?.id).toEqual(block.id);
+
+    const [reducedA, reducedB] = (reduced as Code.Block).children as Code.Field[];
+    ctx.expect(reducedA).not.toBe(a);
+    ctx.expect(reducedA.identifier.value).toEqual('renamed');
+    ctx.expect(reducedA.type).toBe(a.type);
+    ctx.expect(reducedB).toBe(b);
+  });
+});
@@ -7,6 +7,25 @@ import {CodeVisitor} from '../visitor/CodeVisitor';
 
 export type FreeTextReducer = Reducer<AstFreeTextVisitor<unknown>>;
 
+/**
+ * Whether every reduced child is the exact same instance as the original child, in which case the original parent can be returned instead of rebuilding it.
+ * That way a reduction that only changes a few nodes only allocates new nodes along the path from the root down to those nodes.
+ */
+export const unchanged = (original: ReadonlyArray<unknown>, reduced: ReadonlyArray<unknown>): boolean => {
+
+  if (original.length !== reduced.length) {
+    return false;
+  }
+
+  for (let i = 0; i < original.length; i++) {
+    if (original[i] !== reduced[i]) {
+      return false;
+    }
+  }
+
+  return true;
+};
+
 export const createCodeFreeTextReducer = (partial?: Partial<FreeTextReducer>): FreeTextReducer => {
   return {
     reduce: (n, r) => n.reduce(r),
@@ -14,6 +33,8 @@ export const createCodeFreeTextReducer = (partial?: Partial<FreeTextReducer>): F
       const children = n.children.map(it => it.reduce(reducer)).filter(isDefined);
       if (children.length == 0) {
         return undefined;
+      } else if (unchanged(n.children, children)) {
+        return n;
       }
 
       return new FreeText.FreeTexts(...children).withIdFrom(n);
@@ -85,17 +106,28 @@ export const createCodeReducer = (partial?: Partial<CodeReducer>): Readonly<Code
     ...createCodeFreeTextReducer(partial),
     reduceEdgeType: n => n,
     reduceWildcardType: n => n,
-    reduceBoundedType: (n, r) => new Code.BoundedType(
-      n.omniType,
-      assertTypeNode(n.type.reduce(r)),
-      asTypeNode(n.upperBound?.reduce(r)),
-      asTypeNode(n.lowerBound?.reduce(r)),
-    ).withIdFrom(n),
-    reduceArrayType: (n, r) => new Code.ArrayType(n.omniType, assertTypeNode(n.itemTypeNode.reduce(r)), n.implementation).withIdFrom(n),
+    reduceBoundedType: (n, r) => {
+      const type = assertTypeNode(n.type.reduce(r));
+      const upperBound = asTypeNode(n.upperBound?.reduce(r));
+      const lowerBound = asTypeNode(n.lowerBound?.reduce(r));
+      if (unchanged([n.type, n.upperBound, n.lowerBound], [type, upperBound, lowerBound])) {
+        return n;
+      }
+
+      return new Code.BoundedType(n.omniType, type, upperBound, lowerBound).withIdFrom(n);
+    },
+    reduceArrayType: (n, r) => {
+      const itemTypeNode = assertTypeNode(n.itemTypeNode.reduce(r));
+      return itemTypeNode === n.itemTypeNode ? n : new Code.ArrayType(n.omniType, itemTypeNode, n.implementation).withIdFrom(n);
+    },
     reduceGenericType: (n, r) => {
       const baseType = n.baseType.reduce(r);
       if (baseType && baseType instanceof Code.EdgeType) {
         const genericArguments = n.genericArguments.map(it => it.reduce(r)).map(asTypeNode).filter(isDefined);
+        if (baseType === n.baseType && unchanged(n.genericArguments, genericArguments)) {
+          return n;
+        }
+
         return new Code.GenericType(baseType.omniType, baseType, genericArguments).withIdFrom(n);
       }
 
@@ -108,22 +140,27 @@ export const createCodeReducer = (partial?: Partial<CodeReducer>): Readonly<Code
         return undefined;
       }
 
-      return new Code.Parameter(
-        assertTypeNode(type),
-        assertDefined(n.identifier.reduce(r)),
-        n.annotations?.reduce(r),
-      ).withIdFrom(n);
+      const identifier = assertDefined(n.identifier.reduce(r));
+      const annotations = n.annotations?.reduce(r);
+      if (unchanged([n.type, n.identifier, n.annotations], [type, identifier, annotations])) {
+        return n;
+      }
+
+      return new Code.Parameter(assertTypeNode(type), identifier, annotations).withIdFrom(n);
+    },
+    reduceParameterList: (n, reducer) => {
+      const children = n.children.map(it => it.reduce(reducer)).filter(isDefined);
+      return unchanged(n.children, children) ? n : new Code.ParameterList(...children).withIdFrom(n);
     },
-    reduceParameterList: (n, reducer) => new Code.ParameterList(...n.children.map(it => it.reduce(reducer)).filter(isDefined)).withIdFrom(n),
     reduceIdentifier: n => n,
-    reduceGetterIdentifier: (n, r) => new Code.GetterIdentifier(
-      assertDefined(n.identifier.reduce(r)),
-      n.type,
-    ).withIdFrom(n),
-    reduceSetterIdentifier: (n, r) => new Code.SetterIdentifier(
-      assertDefined(n.identifier.reduce(r)),
-      n.type,
-    ).withIdFrom(n),
+    reduceGetterIdentifier: (n, r) => {
+      const identifier = assertDefined(n.identifier.reduce(r));
+      return identifier === n.identifier ? n : new Code.GetterIdentifier(identifier, n.type).withIdFrom(n);
+    },
+    reduceSetterIdentifier: (n, r) => {
+      const identifier = assertDefined(n.identifier.reduce(r));
+      return identifier === n.identifier ? n : new Code.SetterIdentifier(identifier, n.type).withIdFrom(n);
+    },
 
     reduceBinaryExpression: (n, r) => {
       const left = n.left.reduce(r);
@@ -131,21 +168,30 @@ export const createCodeReducer = (partial?: Partial<CodeReducer>): Readonly<Code
 
       if (!left || !right) {
         return undefined;
+      } else if (left === n.left && right === n.right) {
+        return n;
       }
 
       return new Code.BinaryExpression(left, n.token, right).withIdFrom(n);
     },
     reduceModifier: n => n,
     reduceField: (n, r) => {
-      const field = new Code.Field(
-        assertTypeNode(n.type.reduce(r)),
-        assertDefined(n.identifier.reduce(r)),
-        n.modifiers?.reduce(r),
-        n.initializer?.reduce(r),
-        n.annotations?.reduce(r),
-      ).withIdFrom(n);
+      const type = assertTypeNode(n.type.reduce(r));
+      const identifier = assertDefined(n.identifier.reduce(r));
+      const modifiers = n.modifiers?.reduce(r);
+      const initializer = n.initializer?.reduce(r);
+      const annotations = n.annotations?.reduce(r);
+      const comments = n.comments?.reduce(r);
+      if (unchanged(
+        [n.type, n.identifier, n.modifiers, n.initializer, n.annotations, n.comments],
+        [type, identifier, modifiers, initializer, annotations, comments],
+      )) {
+        return n;
+      }
+
+      const field = new Code.Field(type, identifier, modifiers, initializer, annotations).withIdFrom(n);
 
-      field.comments = n.comments?.reduce(r);
+      field.comments = comments;
       if (n.property) {
         field.property = n.property;
       }
@@ -156,6 +202,8 @@ export const createCodeReducer = (partial?: Partial<CodeReducer>): Readonly<Code
       const reducedTexts = n.text.reduce(r);
       if (!reducedTexts) {
         return undefined;
+      } else if (reducedTexts === n.text) {
+        return n;
       }
 
       return new Code.Comment(reducedTexts, n.kind).withIdFrom(n);
@@ -192,13 +240,17 @@ export const createCodeReducer = (partial?: Partial<CodeReducer>): Readonly<Code
       ).withIdFrom(n);
     },
     reduceMethodDeclaration: (n, r) => {
-      return new Code.MethodDeclaration(
-        assertDefined(n.signature.reduce(r)),
-        n.body?.reduce(r),
-      ).withIdFrom(n);
+      const signature = assertDefined(n.signature.reduce(r));
+      const body = n.body?.reduce(r);
+      if (signature === n.signature && body === n.body) {
+        return n;
+      }
+
+      return new Code.MethodDeclaration(signature, body).withIdFrom(n);
     },
     reduceMethodDeclarationSignature: (n, r) => {
-      return new Code.MethodDeclarationSignature(
+      const original = [n.identifier, n.type, n.parameters, n.modifiers, n.annotations, n.comments, n.throws, n.genericParameters] as const;
+      const reduced = [
         assertDefined(n.identifier.reduce(r)),
         assertTypeNode(n.type.reduce(r)),
         n.parameters?.reduce(r),
@@ -207,20 +259,37 @@ export const createCodeReducer = (partial?: Partial<CodeReducer>): Readonly<Code
         n.comments?.reduce(r),
         n.throws?.reduce(r),
         n.genericParameters?.reduce(r),
-      ).withIdFrom(n);
+      ] as const;
+
+      return unchanged(original, reduced) ? n : new Code.MethodDeclarationSignature(...reduced).withIdFrom(n);
+    },
+    reduceExtendsDeclaration: (n, r) => {
+      const types = assertDefined(n.types.reduce(r));
+      return types === n.types ? n : new Code.ExtendsDeclaration(types).withIdFrom(n);
+    },
+    reduceImplementsDeclaration: (n, r) => {
+      const types = assertDefined(n.types.reduce(r));
+      return types === n.types ? n : new Code.ImplementsDeclaration(types).withIdFrom(n);
+    },
+    reduceTypeList: (n, r) => {
+      const children = n.children.map(it => it.reduce(r)).map(asTypeNode).filter(isDefined);
+      return unchanged(n.children, children) ? n : new Code.TypeList(...children).withIdFrom(n);
     },
-    reduceExtendsDeclaration: (n, r) => new Code.ExtendsDeclaration(assertDefined(n.types.reduce(r))).withIdFrom(n),
-    reduceImplementsDeclaration: (n, r) => new Code.ImplementsDeclaration(assertDefined(n.types.reduce(r))).withIdFrom(n),
-    reduceTypeList: (n, r) => new Code.TypeList(...n.children.map(it => it.reduce(r)).map(asTypeNode).filter(isDefined)).withIdFrom(n),
     reduceLiteral: n => n,
-    reduceIfStatement: (n, r) => new Code.IfStatement(
-      assertDefined(n.predicate.reduce(r)),
-      assertDefined(n.body.reduce(r)),
-    ).withIdFrom(n),
-    reduceIfElseStatement: (n, r) => new Code.IfElseStatement(
-      n.ifStatements.map(it => it.reduce(r)).filter(isDefined),
-      n.elseBlock?.reduce(r),
-    ).withIdFrom(n),
+    reduceIfStatement: (n, r) => {
+      const predicate = assertDefined(n.predicate.reduce(r));
+      const body = assertDefined(n.body.reduce(r));
+      return (predicate === n.predicate && body === n.body) ? n : new Code.IfStatement(predicate, body).withIdFrom(n);
+    },
+    reduceIfElseStatement: (n, r) => {
+      const ifStatements = n.ifStatements.map(it => it.reduce(r)).filter(isDefined);
+      const elseBlock = n.elseBlock?.reduce(r);
+      if (elseBlock === n.elseBlock && unchanged(n.ifStatements, ifStatements)) {
+        return n;
+      }
+
+      return new Code.IfElseStatement(ifStatements, elseBlock).withIdFrom(n);
+    },
     reduceTernaryExpression: (n, r) => {
       const passing = n.passing.reduce(r);
       const failing = n.failing.reduce(r);
@@ -233,43 +302,80 @@ export const createCodeReducer = (partial?: Partial<CodeReducer>): Readonly<Code
         return passing;
       }
 
+      const predicate = assertDefined(n.predicate.reduce(r));
+      if (predicate === n.predicate && passing === n.passing && failing === n.failing) {
+        return n;
+      }
+
       return new Code.TernaryExpression(
-        assertDefined(n.predicate.reduce(r)),
+        predicate,
         assertDefined(passing),
         assertDefined(failing),
       ).withIdFrom(n);
     },
     reduceImportStatement: (n, r) => {
       const type = asTypeNode(n.type.reduce(r));
-      return !type ? undefined : new Code.ImportStatement(type).withIdFrom(n);
+      if (!type) {
+        return undefined;
+      }
+
+      return type === n.type ? n : new Code.ImportStatement(type).withIdFrom(n);
+    },
+    reduceImportList: (n, r) => {
+      const children = n.children.map(it => it.reduce(r)).filter(isDefined);
+      return unchanged(n.children, children) ? n : new Code.ImportList(...children).withIdFrom(n);
+    },
+    reduceMethodCall: (n, r) => {
+      const target = assertDefined(n.target.reduce(r));
+      const methodArguments = assertDefined(n.methodArguments?.reduce(r));
+      const genericArguments = n.genericArguments?.reduce(r);
+      if (unchanged([n.target, n.methodArguments, n.genericArguments], [target, methodArguments, genericArguments])) {
+        return n;
+      }
+
+      return new Code.MethodCall(target, methodArguments, genericArguments).withIdFrom(n);
+    },
+    reduceNewStatement: (n, r) => {
+      const type = assertTypeNode(n.type.reduce(r));
+      const constructorArguments = n.constructorArguments?.reduce(r);
+      if (type === n.type && constructorArguments === n.constructorArguments) {
+        return n;
+      }
+
+      return new Code.NewStatement(type, constructorArguments).withIdFrom(n);
+    },
+    reduceThrowStatement: (n, r) => {
+      const expression = assertDefined(n.expression.reduce(r));
+      return expression === n.expression ? n : new Code.ThrowStatement(expression).withIdFrom(n);
+    },
+    reduceArgumentList: (n, r) => {
+      const children = n.children.map(it => it.reduce(r)).filter(isDefined);
+      return unchanged(n.children, children) ? n : new Code.ArgumentList(...children).withIdFrom(n);
     },
-    reduceImportList: (n, r) => new Code.ImportList(...n.children.map(it => it.reduce(r)).filter(isDefined)).withIdFrom(n),
-    reduceMethodCall: (n, r) => new Code.MethodCall(
-      assertDefined(n.target.reduce(r)),
-      assertDefined(n.methodArguments?.reduce(r)),
-      n.genericArguments?.reduce(r),
-    ).withIdFrom(n),
-    reduceNewStatement: (n, r) => new Code.NewStatement(
-      assertTypeNode(n.type.reduce(r)),
-      n.constructorArguments?.reduce(r),
-    ).withIdFrom(n),
-    reduceThrowStatement: (n, r) => new Code.ThrowStatement(
-      assertDefined(n.expression.reduce(r)),
-    ).withIdFrom(n),
-    reduceArgumentList: (n, r) => new Code.ArgumentList(...n.children.map(it => it.reduce(r)).filter(isDefined)).withIdFrom(n),
     reduceReturnStatement: (n, r) => {
       const expr = n.expression.reduce(r);
-      return expr ? new Code.ReturnStatement(expr).withIdFrom(n) : undefined;
+      if (!expr) {
+        return undefined;
+      }
+
+      return expr === n.expression ? n : new Code.ReturnStatement(expr).withIdFrom(n);
+    },
+    reduceVariableDeclaration: (n, r) => {
+      const identifier = assertDefined(n.identifier.reduce(r));
+      const initializer = n.initializer?.reduce(r);
+      const type = asTypeNode(n.type?.reduce(r));
+      if (unchanged([n.identifier, n.initializer, n.type], [identifier, initializer, type])) {
+        return n;
+      }
+
+      return new Code.VariableDeclaration(identifier, initializer, type, n.immutable).withIdFrom(n);
     },
-    reduceVariableDeclaration: (n, r) => new Code.VariableDeclaration(
-      assertDefined(n.identifier.reduce(r)),
-      n.initializer?.reduce(r),
-      asTypeNode(n.type?.reduce(r)),
-      n.immutable,
-    ).withIdFrom(n),
     reduceDeclarationReference: n => n,
 
-    reduceAnnotationList: (n, r) => new Code.AnnotationList(n.children?.map(it => it.reduce(r)).filter(isDefined), n.multiline).withIdFrom(n),
+    reduceAnnotationList: (n, r) => {
+      const children = n.children.map(it => it.reduce(r)).filter(isDefined);
+      return unchanged(n.children, children) ? n : new Code.AnnotationList(children, n.multiline).withIdFrom(n);
+    },
     reduceAnnotation: (n, r) => {
 
       const type = assertDefined(n.type.reduce(r));
@@ -277,30 +383,46 @@ export const createCodeReducer = (partial?: Partial<CodeReducer>): Readonly<Code
         throw new Error(`Only allowed to have a hardcoded reference as annotation type`);
       }
 
+      const pairs = n.pairs?.reduce(r);
+      if (type === n.type && pairs === n.pairs) {
+        return n;
+      }
+
       return new Code.Annotation(
         type as Code.EdgeType<typeof type.omniType>,
-        n.pairs?.reduce(r),
+        pairs,
       ).withIdFrom(n);
     },
 
-    reduceAnnotationKeyValuePairList: (n, r) =>
-      new Code.AnnotationKeyValuePairList(...n.children.map(it => it.reduce(r)).filter(isDefined)).withIdFrom(n),
-    reduceAnnotationKeyValuePair: (n, r) => new Code.AnnotationKeyValuePair(
-      n.key?.reduce(r),
-      assertDefined(n.value.reduce(r)),
-    ).withIdFrom(n),
+    reduceAnnotationKeyValuePairList: (n, r) => {
+      const children = n.children.map(it => it.reduce(r)).filter(isDefined);
+      return unchanged(n.children, children) ? n : new Code.AnnotationKeyValuePairList(...children).withIdFrom(n);
+    },
+    reduceAnnotationKeyValuePair: (n, r) => {
+      const key = n.key?.reduce(r);
+      const value = assertDefined(n.value.reduce(r));
+      return (key === n.key && value === n.value) ? n : new Code.AnnotationKeyValuePair(key, value).withIdFrom(n);
+    },
     reduceVirtualAnnotationNode: n => n,
 
     reduceHardCoded: n => n,
     reduceBlock: (n, reducer) => {
-      const reduced = new Code.Block(...n.children.map(it => it.reduce(reducer)).filter(isDefined)).withIdFrom(n);
+      const children = n.children.map(it => it.reduce(reducer)).filter(isDefined);
+      if (unchanged(n.children, children)) {
+        return n;
+      }
+
+      const reduced = new Code.Block(...children).withIdFrom(n);
       reduced.enclosed = n.enclosed;
       reduced.compact = n.compact;
 
       return reduced;
     },
     reducePackage: n => n,
-    reduceModifierList: (n, r) => new Code.ModifierList(...n.children.map(it => it.reduce(r)).filter(isDefined)).withIdFrom(n),
+    reduceModifierList: (n, r) => {
+      const children = n.children.map(it => it.reduce(r)).filter(isDefined);
+      return unchanged(n.children, children) ? n : new Code.ModifierList(...children).withIdFrom(n);
+    },
     reduceCast: (n, r) => {
       const expression = n.expression.reduce(r);
       if (!expression) {
@@ -310,6 +432,8 @@ export const createCodeReducer = (partial?: Partial<CodeReducer>): Readonly<Code
       const toType = asTypeNode(n.toType.reduce(r));
       if (!toType) {
         return expression;
+      } else if (toType === n.toType && expression === n.expression) {
+        return n;
       }
 
       return new Code.Cast(toType, expression).withIdFrom(n);
@@ -321,42 +445,70 @@ export const createCodeReducer = (partial?: Partial<CodeReducer>): Readonly<Code
       throw new Error(`Should not be called when reducing`);
     },
     reduceClassDeclaration: (n, r) => {
-      const dec = new Code.ClassDeclaration(
-        assertTypeNode(n.type.reduce(r)),
-        assertDefined(n.name.reduce(r)),
-        assertDefined(n.body.reduce(r)),
-        n.modifiers?.reduce(r),
-      ).withIdFrom(n);
+      const type = assertTypeNode(n.type.reduce(r));
+      const name = assertDefined(n.name.reduce(r));
+      const body = assertDefined(n.body.reduce(r));
+      const modifiers = n.modifiers?.reduce(r);
+      const comments = n.comments?.reduce(r);
+      const annotations = n.annotations?.reduce(r);
+      const extendsDec = n.extends?.reduce(r);
+      const implementsDec = n.implements?.reduce(r);
+      const genericParameterList = n.genericParameterList?.reduce(r);
+      if (unchanged(
+        [n.type, n.name, n.body, n.modifiers, n.comments, n.annotations, n.extends, n.implements, n.genericParameterList],
+        [type, name, body, modifiers, comments, annotations, extendsDec, implementsDec, genericParameterList],
+      )) {
+        return n;
+      }
+
+      const dec = new Code.ClassDeclaration(type, name, body, modifiers).withIdFrom(n);
 
-      dec.comments = n.comments?.reduce(r);
-      dec.annotations = n.annotations?.reduce(r);
-      dec.extends = n.extends?.reduce(r);
-      dec.implements = n.implements?.reduce(r);
-      dec.genericParameterList = n.genericParameterList?.reduce(r);
+      dec.comments = comments;
+      dec.annotations = annotations;
+      dec.extends = extendsDec;
+      dec.implements = implementsDec;
+      dec.genericParameterList = genericParameterList;
 
       return dec;
     },
-    reduceGenericTypeDeclarationList: (n, r) =>
-      new Code.GenericTypeDeclarationList(...n.types.map(it => it.reduce(r)).filter(isDefined)).withIdFrom(n),
-    reduceGenericTypeDeclaration: (n, r) => new Code.GenericTypeDeclaration(
-      assertDefined(n.name.reduce(r)),
-      n.sourceIdentifier,
-      asTypeNode(n.upperBounds?.reduce(r)),
-      asTypeNode(n.lowerBounds?.reduce(r)),
-    ).withIdFrom(n),
+    reduceGenericTypeDeclarationList: (n, r) => {
+      const types = n.types.map(it => it.reduce(r)).filter(isDefined);
+      return unchanged(n.types, types) ? n : new Code.GenericTypeDeclarationList(...types).withIdFrom(n);
+    },
+    reduceGenericTypeDeclaration: (n, r) => {
+      const name = assertDefined(n.name.reduce(r));
+      const upperBounds = asTypeNode(n.upperBounds?.reduce(r));
+      const lowerBounds = asTypeNode(n.lowerBounds?.reduce(r));
+      if (unchanged([n.name, n.upperBounds, n.lowerBounds], [name, upperBounds, lowerBounds])) {
+        return n;
+      }
+
+      return new Code.GenericTypeDeclaration(name, n.sourceIdentifier, upperBounds, lowerBounds).withIdFrom(n);
+    },
     reduceInterfaceDeclaration: (n, r) => {
-      const dec = new Code.InterfaceDeclaration(
-        assertTypeNode(n.type.reduce(r)),
-        assertDefined(n.name.reduce(r)),
-        assertDefined(n.body.reduce(r)),
-        n.modifiers?.reduce(r),
-      ).withIdFrom(n);
+      const type = assertTypeNode(n.type.reduce(r));
+      const name = assertDefined(n.name.reduce(r));
+      const body = assertDefined(n.body.reduce(r));
+      const modifiers = n.modifiers?.reduce(r);
+      const comments = n.comments?.reduce(r);
+      const annotations = n.annotations?.reduce(r);
+      const extendsDec = n.extends?.reduce(r);
+      const implementsDec = n.implements?.reduce(r);
+      const genericParameterList = n.genericParameterList?.reduce(r);
+      if (unchanged(
+        [n.type, n.name, n.body, n.modifiers, n.comments, n.annotations, n.extends, n.implements, n.genericParameterList],
+        [type, name, body, modifiers, comments, annotations, extendsDec, implementsDec, genericParameterList],
+      )) {
+        return n;
+      }
+
+      const dec = new Code.InterfaceDeclaration(type, name, body, modifiers).withIdFrom(n);
 
-      dec.comments = n.comments?.reduce(r);
-      dec.annotations = n.annotations?.reduce(r);
-      dec.extends = n.extends?.reduce(r);
-      dec.implements = n.implements?.reduce(r);
-      dec.genericParameterList = n.genericParameterList?.reduce(r);
+      dec.comments = comments;
+      dec.annotations = annotations;
+      dec.extends = extendsDec;
+      dec.implements = implementsDec;
+      dec.genericParameterList = genericParameterList;
       dec.inline = n.inline;
 
       return dec;
@@ -371,28 +523,51 @@ export const createCodeReducer = (partial?: Partial<CodeReducer>): Readonly<Code
         throw new Error(`The enum declaration OmniType must be enum, not ${OmniUtil.describe(type.omniType)}`);
       }
 
+      const name = assertDefined(n.name.reduce(r));
+      const body = assertDefined(n.body.reduce(r));
+      const modifiers = n.modifiers?.reduce(r);
+      const comments = n.comments?.reduce(r);
+      const annotations = n.annotations?.reduce(r);
+      const extendsDec = n.extends?.reduce(r);
+      const implementsDec = n.implements?.reduce(r);
+      const genericParameterList = n.genericParameterList?.reduce(r);
+      if (unchanged(
+        [n.type, n.name, n.body, n.modifiers, n.comments, n.annotations, n.extends, n.implements, n.genericParameterList],
+        [type, name, body, modifiers, comments, annotations, extendsDec, implementsDec, genericParameterList],
+      )) {
+        return n;
+      }
+
       const dec = new Code.EnumDeclaration(
         type as Code.EdgeType<typeof type.omniType>,
-        assertDefined(n.name.reduce(r)),
-        assertDefined(n.body.reduce(r)),
-        n.modifiers?.reduce(r),
+        name,
+        body,
+        modifiers,
       ).withIdFrom(n);
 
-      dec.comments = n.comments?.reduce(r);
-      dec.annotations = n.annotations?.reduce(r);
-      dec.extends = n.extends?.reduce(r);
-      dec.implements = n.implements?.reduce(r);
-      dec.genericParameterList = n.genericParameterList?.reduce(r);
+      dec.comments = comments;
+      dec.annotations = annotations;
+      dec.extends = extendsDec;
+      dec.implements = implementsDec;
+      dec.genericParameterList = genericParameterList;
 
       return dec;
     },
-    reduceEnumItem: (n, r) => new Code.EnumItem(
-      assertDefined(n.identifier.reduce(r)),
-      n.value?.reduce(r),
-      n.comment?.reduce(r),
-      n.annotations?.reduce(r),
-    ).withIdFrom(n),
-    reduceEnumItemList: (n, r) => new Code.EnumItemList(...n.children.map(it => it.reduce(r)).filter(isDefined)).withIdFrom(n),
+    reduceEnumItem: (n, r) => {
+      const identifier = assertDefined(n.identifier.reduce(r));
+      const value = n.value?.reduce(r);
+      const comment = n.comment?.reduce(r);
+      const annotations = n.annotations?.reduce(r);
+      if (unchanged([n.identifier, n.value, n.comment, n.annotations], [identifier, value, comment, annotations])) {
+        return n;
+      }
+
+      return new Code.EnumItem(identifier, value, comment, annotations).withIdFrom(n);
+    },
+    reduceEnumItemList: (n, r) => {
+      const children = n.children.map(it => it.reduce(r)).filter(isDefined);
+      return unchanged(n.children, children) ? n : new Code.EnumItemList(...children).withIdFrom(n);
+    },
     reduceFieldReference: n => n,
     reduceCompilationUnit: (n, r) => {
       const children = n.children.map(it => it.reduce(r)).filter(isDefined);
@@ -400,31 +575,49 @@ export const createCodeReducer = (partial?: Partial<CodeReducer>): Readonly<Code
         return undefined;
       }
 
+      const packageDeclaration = assertDefined(n.packageDeclaration.reduce(r));
+      const imports = assertDefined(n.imports.reduce(r));
+      const comments = n.comments?.reduce(r);
+      if (unchanged(n.children, children) && unchanged([n.packageDeclaration, n.imports, n.comments], [packageDeclaration, imports, comments])) {
+        return n;
+      }
+
       const unit = new Code.CompilationUnit(
-        assertDefined(n.packageDeclaration.reduce(r)),
-        assertDefined(n.imports.reduce(r)),
+        packageDeclaration,
+        imports,
         ...children,
       ).withIdFrom(n);
-      unit.comments = n.comments?.reduce(r);
+      unit.comments = comments;
       return unit;
     },
     reduceConstructor: (n, r) => {
 
-      const dec = new Code.ConstructorDeclaration(
-        n.parameters?.reduce(r),
-        n.body?.reduce(r),
-        n.modifiers.reduce(r),
-      ).withIdFrom(n);
+      const parameters = n.parameters?.reduce(r);
+      const body = n.body?.reduce(r);
+      const modifiers = n.modifiers.reduce(r);
+      const comments = n.comments?.reduce(r);
+      const annotations = n.annotations?.reduce(r);
+      const superCall = n.superCall?.reduce(r);
+      if (unchanged(
+        [n.parameters, n.body, n.modifiers, n.comments, n.annotations, n.superCall],
+        [parameters, body, modifiers, comments, annotations, superCall],
+      )) {
+        return n;
+      }
+
+      const dec = new Code.ConstructorDeclaration(parameters, body, modifiers).withIdFrom(n);
 
-      dec.comments = n.comments?.reduce(r);
-      dec.annotations = n.annotations?.reduce(r);
-      dec.superCall = n.superCall?.reduce(r);
+      dec.comments = comments;
+      dec.annotations = annotations;
+      dec.superCall = superCall;
 
       return dec;
     },
 
-    reduceConstructorParameterList: (n, r) =>
-      new Code.ConstructorParameterList(...n.children.map(it => it.reduce(r)).filter(isDefined)).withIdFrom(n),
+    reduceConstructorParameterList: (n, r) => {
+      const children = n.children.map(it => it.reduce(r)).filter(isDefined);
+      return unchanged(n.children, children) ? n : new Code.ConstructorParameterList(...children).withIdFrom(n);
+    },
     reduceConstructorParameter: (n, r) => {
 
       const ref = n.ref.reduce(r);
@@ -438,72 +631,112 @@ export const createCodeReducer = (partial?: Partial<CodeReducer>): Readonly<Code
         return undefined;
       }
 
+      const type = assertTypeNode(n.type.reduce(r));
+      const identifier = assertDefined(n.identifier.reduce(r));
+      const annotations = n.annotations?.reduce(r);
+      if (unchanged([n.ref, n.type, n.identifier, n.annotations], [ref, type, identifier, annotations])) {
+        return n;
+      }
+
       return new Code.ConstructorParameter(
         ref as Reference<AstNode>,
-        assertTypeNode(n.type.reduce(r)),
-        assertDefined(n.identifier.reduce(r)),
-        n.annotations?.reduce(r),
+        type,
+        identifier,
+        annotations,
       ).withIdFrom(n);
     },
 
     reduceStatement: (n, r) => {
       const child = n.child.reduce(r);
-      return child ? new Code.Statement(child).withIdFrom(n) : undefined;
+      if (!child) {
+        return undefined;
+      }
+
+      return child === n.child ? n : new Code.Statement(child).withIdFrom(n);
+    },
+    reduceSuperConstructorCall: (n, r) => {
+      const args = assertDefined(n.arguments.reduce(r));
+      return args === n.arguments ? n : new Code.SuperConstructorCall(args).withIdFrom(n);
     },
-    reduceSuperConstructorCall: (n, r) => new Code.SuperConstructorCall(assertDefined(n.arguments.reduce(r))).withIdFrom(n),
 
-    reduceClassName: (n, r) => new Code.ClassName(assertTypeNode(n.type.reduce(r))).withIdFrom(n),
-    reduceClassReference: (n, r) => new Code.ClassReference(assertDefined(n.className.reduce(r))).withIdFrom(n),
-    reduceArrayInitializer: (n, r) => new Code.ArrayInitializer(...n.children.map(it => it.reduce(r)).filter(isDefined)).withIdFrom(n),
-    reduceStaticMemberReference: (n, r) => new Code.StaticMemberReference(
-      assertDefined(n.target.reduce(r)),
-      assertDefined(n.member.reduce(r)),
-    ).withIdFrom(n),
+    reduceClassName: (n, r) => {
+      const type = assertTypeNode(n.type.reduce(r));
+      return type === n.type ? n : new Code.ClassName(type).withIdFrom(n);
+    },
+    reduceClassReference: (n, r) => {
+      const className = assertDefined(n.className.reduce(r));
+      return className === n.className ? n : new Code.ClassReference(className).withIdFrom(n);
+    },
+    reduceArrayInitializer: (n, r) => {
+      const children = n.children.map(it => it.reduce(r)).filter(isDefined);
+      return unchanged(n.children, children) ? n : new Code.ArrayInitializer(...children).withIdFrom(n);
+    },
+    reduceStaticMemberReference: (n, r) => {
+      const target = assertDefined(n.target.reduce(r));
+      const member = assertDefined(n.member.reduce(r));
+      return (target === n.target && member === n.member) ? n : new Code.StaticMemberReference(target, member).withIdFrom(n);
+    },
     reduceSelfReference: n => n,
     reduceSuperReference: n => n,
     reduceNodes: (n, r) => {
       const children = n.children.map(it => it.reduce(r)).filter(isDefined);
-      return (children.length > 0) ? new Code.Nodes(...children).withIdFrom(n) : undefined;
+      if (children.length == 0) {
+        return undefined;
+      }
+
+      return unchanged(n.children, children) ? n : new Code.Nodes(...children).withIdFrom(n);
     },
     reduceDecoratingTypeNode: (n, r) => {
       const of = asTypeNode(n.of.reduce(r));
-      return of ? new Code.DecoratingTypeNode(of, n.omniType).withIdFrom(n) : undefined;
+      if (!of) {
+        return undefined;
+      }
+
+      return of === n.of ? n : new Code.DecoratingTypeNode(of, n.omniType).withIdFrom(n);
     },
 
-    reduceNamespace: (n, r) => new Code.Namespace(
-      assertDefined(n.name.reduce(r)),
-      assertDefined(n.block.reduce(r)),
-    ).withIdFrom(n),
+    reduceNamespace: (n, r) => {
+      const name = assertDefined(n.name.reduce(r));
+      const block = assertDefined(n.block.reduce(r));
+      return (name === n.name && block === n.block) ? n : new Code.Namespace(name, block).withIdFrom(n);
+    },
     reduceNamespaceBlock: (n, r) => {
 
-      const reduced = new Code.NamespaceBlock(
-        assertDefined(n.block.reduce(r)),
-      ).withIdFrom(n);
-
-      if (reduced.block.children.length == 0) {
+      const block = assertDefined(n.block.reduce(r));
+      if (block.children.length == 0) {
         return undefined;
       }
 
-      return reduced;
+      return block === n.block ? n : new Code.NamespaceBlock(block).withIdFrom(n);
     },
 
-    reduceTypeNamespace: (n, r) => new Code.TypePath(
-      n.parts.map(it => it.reduce(r)).filter(isDefined),
-      assertTypeNode(n.leaf.reduce(r)),
-    ).withIdFrom(n),
+    reduceTypeNamespace: (n, r) => {
+      const parts = n.parts.map(it => it.reduce(r)).filter(isDefined);
+      const leaf = assertTypeNode(n.leaf.reduce(r));
+      return (leaf === n.leaf && unchanged(n.parts, parts)) ? n : new Code.TypePath(parts, leaf).withIdFrom(n);
+    },
 
     reduceGenericRef: n => n,
 
-    reduceDelegate: (n, r) => new Code.Delegate(
-      n.parameterTypes.map(it => it.reduce(r)).map(asTypeNode).filter(isDefined),
-      assertTypeNode(n.returnType.reduce(r)),
-      n.kind,
-    ).withIdFrom(n),
-    reduceDelegateCall: (n, r) => new Code.DelegateCall(
-      assertDefined(n.target.reduce(r)),
-      assertDefined(n.delegateRef.reduce(r)),
-      assertDefined(n.args.reduce(r)),
-    ).withIdFrom(n),
+    reduceDelegate: (n, r) => {
+      const parameterTypes = n.parameterTypes.map(it => it.reduce(r)).map(asTypeNode).filter(isDefined);
+      const returnType = assertTypeNode(n.returnType.reduce(r));
+      if (returnType === n.returnType && unchanged(n.parameterTypes, parameterTypes)) {
+        return n;
+      }
+
+      return new Code.Delegate(parameterTypes, returnType, n.kind).withIdFrom(n);
+    },
+    reduceDelegateCall: (n, r) => {
+      const target = assertDefined(n.target.reduce(r));
+      const delegateRef = assertDefined(n.delegateRef.reduce(r));
+      const args = assertDefined(n.args.reduce(r));
+      if (unchanged([n.target, n.delegateRef, n.args], [target, delegateRef, args])) {
+        return n;
+      }
+
+      return new Code.DelegateCall(target, delegateRef, args).withIdFrom(n);
+    },
 
     reduceMemberAccess: (n, r) => {
       const member = n.member.reduce(r);
@@ -511,21 +744,41 @@ export const createCodeReducer = (partial?: Partial<CodeReducer>): Readonly<Code
         return undefined;
       }
 
-      return new Code.MemberAccess(
-        assertDefined(n.owner.reduce(r)),
-        member,
-      ).withIdFrom(n);
+      const owner = assertDefined(n.owner.reduce(r));
+      return (owner === n.owner && member === n.member) ? n : new Code.MemberAccess(owner, member).withIdFrom(n);
+    },
+    reduceIndexAccess: (n, r) => {
+      const owner = assertDefined(n.owner.reduce(r));
+      const index = assertDefined(n.index.reduce(r));
+      return (owner === n.owner && index === n.index) ? n : new Code.IndexAccess(owner, index).withIdFrom(n);
+    },
+    reduceLambda: (n, r) => {
+      const parameters = assertDefined(n.parameters.reduce(r));
+      const body = assertDefined(n.body.reduce(r));
+      return (parameters === n.parameters && body === n.body) ? n : new Code.Lambda(parameters, body).withIdFrom(n);
+    },
+    reduceTryCatchStatement: (n, r) => {
+      const body = assertDefined(n.body.reduce(r));
+      const catchParameter = n.catchParameter?.reduce(r);
+      const catchBody = n.catchBody?.reduce(r);
+      const finallyBody = n.finallyBody?.reduce(r);
+      if (unchanged([n.body, n.catchParameter, n.catchBody, n.finallyBody], [body, catchParameter, catchBody, finallyBody])) {
+        return n;
+      }
+
+      return new Code.TryCatchStatement(body, catchParameter, catchBody, finallyBody).withIdFrom(n);
     },
-    reduceIndexAccess: (n, r) => new Code.IndexAccess(
-      assertDefined(n.owner.reduce(r)),
-      assertDefined(n.index.reduce(r)),
-    ).withIdFrom(n),
 
-    reduceInstanceOf: (n, r) => new Code.InstanceOf(
-      assertDefined(n.target.reduce(r)),
-      assertDefined(n.comparison.reduce(r)),
-      n.narrowed?.reduce(r),
-    ).withIdFrom(n),
+    reduceInstanceOf: (n, r) => {
+      const target = assertDefined(n.target.reduce(r));
+      const comparison = assertDefined(n.comparison.reduce(r));
+      const narrowed = n.narrowed?.reduce(r);
+      if (unchanged([n.target, n.comparison, n.narrowed], [target, comparison, narrowed])) {
+        return n;
+      }
+
+      return new Code.InstanceOf(target, comparison, narrowed).withIdFrom(n);
+    },
 
     reduceFormatNewline: n => n,
   };
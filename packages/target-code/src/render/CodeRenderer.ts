@@ -5,6 +5,7 @@ import {AbortVisitingWithResult, assertUnreachable, OmniUtil, Visitor, VisitResu
 import * as Code from '../ast/Code';
 import {ModifierKind} from '../ast/Code';
 import {CodeRootAstNode} from '../ast/CodeRootAstNode';
+import {RenderBuffer} from './RenderBuffer';
 
 const logger = LoggerFactory.create(import.meta.url);
 
@@ -55,6 +56,8 @@ function getTokenTypeString(type: Code.TokenKind): string {
       return '-';
     case Code.TokenKind.MULTIPLY:
       return '*';
+    case Code.TokenKind.DIVIDE:
+      return '/';
     case Code.TokenKind.COMMA:
       return ',';
     case Code.TokenKind.OR:
@@ -72,16 +75,19 @@ function getTokenTypeString(type: Code.TokenKind): string {
 
 export type CodeRenderer = CodeVisitor<string> & Renderer;
 
+/**
+ * One buffer that all rendering appends to, where each rendering takes its own part back out when done, see `RenderBuffer.mark`.
+ * Rendering is synchronous, so nested renderings always take their parts out before the rendering around them does.
+ */
+const sharedBuffer = new RenderBuffer();
+
 export const join = (result: VisitResult<string>): string => {
-  if (Array.isArray(result)) {
-    return result.map(it => join(it)).join('');
-  } else {
-    if (typeof result == 'string') {
-      return result;
-    } else {
-      return '';
-    }
+  if (typeof result == 'string') {
+    return result;
   }
+
+  const mark = sharedBuffer.mark();
+  return sharedBuffer.append(result).takeFrom(mark);
 };
 
 export const render = <N extends AstNode, V extends AstVisitor<string>>(node: N | undefined, visitor: V): string => {
@@ -92,6 +98,29 @@ export const render = <N extends AstNode, V extends AstVisitor<string>>(node: N
   return join(node.visit(visitor));
 };
 
+/**
+ * Same as rendering each of the nodes and joining them with the separator, but with the rendered parts appended to one buffer.
+ */
+export const renderJoined = <N extends AstNode, V extends AstVisitor<string>>(nodes: ReadonlyArray<N>, separator: string, visitor: V): string => {
+
+  const mark = sharedBuffer.mark();
+  try {
+    for (let i = 0; i < nodes.length; i++) {
+      if (i > 0) {
+        sharedBuffer.append(separator);
+      }
+
+      // Each node is appended as soon as it is visited, so its rendering goes into the same buffer as the ones before it.
+      sharedBuffer.append(nodes[i].visit(visitor));
+    }
+  } catch (ex) {
+    sharedBuffer.takeFrom(mark);
+    throw ex;
+  }
+
+  return sharedBuffer.takeFrom(mark);
+};
+
 function renderListWithWrapping(children: AstNode[], visitor: CodeVisitor<string>, renderOptions: CodeRendererOptions): string {
 
   const listStrings = children.map(it => render(it, visitor));
@@ -108,6 +137,16 @@ function renderListWithWrapping(children: AstNode[], visitor: CodeVisitor<string
   return joinedListString;
 }
 
+export function renderLambda(n: Code.Lambda, arrow: string, visitor: CodeVisitor<string>): string {
+
+  const parameters = render(n.parameters, visitor);
+  if (n.body instanceof Code.Block) {
+    return `(${parameters}) ${arrow}${render(n.body, visitor).trimEnd()}`;
+  } else {
+    return `(${parameters}) ${arrow} ${render(n.body, visitor)}`;
+  }
+}
+
 function replaceWithHtml(text: string | undefined): string {
 
   if (!text) {
@@ -186,6 +225,22 @@ export interface CodeRenderContext {
   units: RenderedCompilationUnit[];
 }
 
+/**
+ * Renders the compilation units of the root one at a time, each one only when it is iterated to.
+ *
+ * Gives the same units as `executeRender` over the whole root, but without keeping the rendered result of the whole tree at once,
+ * so a consumer that is done with a unit before taking the next one only ever needs to keep one rendered unit in memory.
+ */
+export function* renderCompilationUnits(root: CodeRootAstNode, renderer: Renderer & AstVisitor<string>): Generator<RenderedCompilationUnit> {
+
+  for (const child of root.children) {
+
+    // The renderer re-uses its array of units between calls, so they are taken out before the next one is rendered.
+    const units = [...renderer.executeRender(child, renderer)];
+    yield* units;
+  }
+}
+
 const patternLineStart = new RegExp(/(?<!$)^/mg);
 const tokenPrefix = ' ';
 const tokenSuffix = ' ';
@@ -277,7 +332,7 @@ export const createCodeRenderer = (root: CodeRootAstNode, options: CodeOptions,
 
     visitBlock: (n, visitor) => {
       const indentation = getIndentation(1, renderOptions);
-      const blockContent = join(n.children.map(it => it.visit(visitor))).trim();
+      const blockContent = renderJoined(n.children, '', visitor).trim();
 
       const indentedContent = blockContent.replace(patternLineStart, indentation);
       if (n.enclosed) {
@@ -444,7 +499,7 @@ export const createCodeRenderer = (root: CodeRootAstNode, options: CodeOptions,
       ];
     },
 
-    visitEnumItemList: (node, visitor) => `${node.children.map(it => render(it, visitor)).join(',\n')};\n`,
+    visitEnumItemList: (node, visitor) => `${renderJoined(node.children, ',\n', visitor)};\n`,
 
     visitMethodDeclaration: (n, v) => {
       const signature = render(n.signature, v);
@@ -487,14 +542,14 @@ export const createCodeRenderer = (root: CodeRootAstNode, options: CodeOptions,
     // TODO: The "multiline" should be contextual and automatic
     //        There should be different methods:
     //        visitClassAnnotationList, visitFieldAnnotationList, visitMethodAnnotationList, visitParameterAnnotationList
-    visitAnnotationList: (n, v) => (n.children.map(it => render(it, v)).join(n.multiline ? '\n' : ' ')),
+    visitAnnotationList: (n, v) => renderJoined(n.children, n.multiline ? '\n' : ' ', v),
 
     visitAnnotation: (n, visitor) => {
       const pairs = n.pairs && n.pairs.children.length > 0 ? `(${render(n.pairs, visitor)})` : '';
       return (`@${render(n.type, visitor)}${pairs}`);
     },
 
-    visitAnnotationKeyValuePairList: (n, v) => (n.children.map(it => render(it, v)).join(', ')),
+    visitAnnotationKeyValuePairList: (n, v) => renderJoined(n.children, ', ', v),
     visitAnnotationKeyValuePair: (n, v) => {
       const key = n.key ? `${render(n.key, v)} = ` : '';
       return (`${key}${render(n.value, v)}`);
@@ -552,8 +607,8 @@ export const createCodeRenderer = (root: CodeRootAstNode, options: CodeOptions,
 
     visitParameterList: (n, v) => renderListWithWrapping(n.children, v, renderOptions),
 
-    visitArgumentList: (n, v) => n.children.map(it => render(it, v)).join(', '),
-    visitTypeList: (n, v) => n.children.map(it => render(it, v)).join(', '),
+    visitArgumentList: (n, v) => renderJoined(n.children, ', ', v),
+    visitTypeList: (n, v) => renderJoined(n.children, ', ', v),
 
     visitEdgeType: n => {
       const localName = n.getLocalName();
@@ -609,7 +664,7 @@ export const createCodeRenderer = (root: CodeRootAstNode, options: CodeOptions,
     },
 
     visitModifierList: (node, visitor) => {
-      return node.children.map(it => render(it, visitor)).join(' ');
+      return renderJoined(node.children, ' ', visitor);
     },
 
     visitModifier: node => {
@@ -734,6 +789,18 @@ export const createCodeRenderer = (root: CodeRootAstNode, options: CodeOptions,
 
     visitMemberAccess: (n, v) => `${n.owner.visit(v)}.${n.member.visit(v)}`,
     visitIndexAccess: (n, v) => `${n.owner.visit(v)}[${n.index.visit(v)}]`,
+    visitLambda: (n, v) => renderLambda(n, '=>', v),
+    visitTryCatchStatement: (n, v) => {
+      let rendered = `try${render(n.body, v).trimEnd()}`;
+      if (n.catchParameter && n.catchBody) {
+        rendered += ` catch (${render(n.catchParameter, v)})${render(n.catchBody, v).trimEnd()}`;
+      }
+      if (n.finallyBody) {
+        rendered += ` finally${render(n.finallyBody, v).trimEnd()}`;
+      }
+
+      return `${rendered}\n`;
+    },
 
     visitFormatNewline: () => '\n',
   };
@@ -0,0 +1,56 @@
+import {describe, test} from 'vitest';
+import {VisitResult} from '@omnigen/api';
+import {RenderBuffer} from './RenderBuffer';
+
+const recursiveJoin = (result: VisitResult<string>): string => {
+  if (Array.isArray(result)) {
+    return result.map(it => recursiveJoin(it)).join('');
+  }
+
+  return typeof result == 'string' ? result : '';
+};
+
+describe('RenderBuffer', () => {
+
+  test('append flattens like a recursive join', ctx => {
+
+    const result: VisitResult<string> = ['a', [['b', undefined], [], 'c'], [[['d']]], undefined, 'e'];
+    ctx.expect(new RenderBuffer().append(result).toString()).toEqual(recursiveJoin(result));
+    ctx.expect(new RenderBuffer().append(result).toString()).toEqual('abcde');
+  });
+
+  test('appendJoined only separates between results', ctx => {
+
+    const buffer = new RenderBuffer().appendJoined(['a', ['b', 'c'], undefined, 'd'], ', ');
+    ctx.expect(buffer.toString()).toEqual('a, bc, , d');
+    ctx.expect(buffer.length).toEqual('a, bc, , d'.length);
+  });
+
+  test('nested renderings take their own parts back out of a shared buffer', ctx => {
+
+    const buffer = new RenderBuffer().append('kept');
+
+    const outer = buffer.mark();
+    buffer.append(['a', 'b']);
+
+    const inner = buffer.mark();
+    buffer.append(['c', ['d']]);
+    ctx.expect(buffer.takeFrom(inner)).toEqual('cd');
+
+    buffer.append('e');
+    ctx.expect(buffer.takeFrom(outer)).toEqual('abe');
+
+    ctx.expect(buffer.length).toEqual('kept'.length);
+    ctx.expect(buffer.toString()).toEqual('kept');
+  });
+
+  test('deep nesting does not overflow the stack', ctx => {
+
+    let result: VisitResult<string> = 'x';
+    for (let i = 0; i < 100_000; i++) {
+      result = [result];
+    }
+
+    ctx.expect(new RenderBuffer().append(result).toString()).toEqual('x');
+  });
+});
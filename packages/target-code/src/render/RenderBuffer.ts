@@ -0,0 +1,116 @@
+import {VisitResult} from '@omnigen/api';
+
+/**
+ * Output buffer that rendered parts are appended to as chunks, and only concatenated once at the end.
+ *
+ * Visitors still return `VisitResult<string>`, which can be any nesting of arrays of strings.
+ * Appending such a result flattens it without recursion and without creating any intermediate arrays or strings,
+ * unlike mapping and joining every level of the nesting.
+ */
+export class RenderBuffer {
+
+  private readonly _chunks: string[] = [];
+  private _length = 0;
+
+  get length(): number {
+    return this._length;
+  }
+
+  append(result: VisitResult<string>): this {
+
+    if (typeof result === 'string') {
+      this.push(result);
+      return this;
+    } else if (!Array.isArray(result)) {
+      return this;
+    }
+
+    // Depth-first with an explicit stack of arrays and the index we are at in each of them.
+    const arrays: ReadonlyArray<VisitResult<string>>[] = [result];
+    const indexes: number[] = [0];
+
+    while (arrays.length > 0) {
+
+      const top = arrays.length - 1;
+      const array = arrays[top];
+      const index = indexes[top];
+
+      if (index >= array.length) {
+        arrays.pop();
+        indexes.pop();
+        continue;
+      }
+
+      indexes[top] = index + 1;
+      const item = array[index];
+      if (typeof item === 'string') {
+        this.push(item);
+      } else if (Array.isArray(item)) {
+        arrays.push(item);
+        indexes.push(0);
+      }
+    }
+
+    return this;
+  }
+
+  /**
+   * Appends each result with the separator between them, like `results.map(render).join(separator)` but without the intermediate strings.
+   */
+  appendJoined(results: ReadonlyArray<VisitResult<string>>, separator: string): this {
+
+    for (let i = 0; i < results.length; i++) {
+      if (i > 0) {
+        this.push(separator);
+      }
+
+      this.append(results[i]);
+    }
+
+    return this;
+  }
+
+  /**
+   * @return Position in the buffer, that everything appended after it can be taken back out from with `takeFrom`.
+   *  Marks are only valid as long as `toString` is not called, and are meant to be taken in the reverse order that they were made.
+   */
+  mark(): number {
+    return this._chunks.length;
+  }
+
+  /**
+   * Removes everything that was appended since the mark, and returns it as one string.
+   * This lets nested renderings share one buffer, where each one takes its own part back out when it is done.
+   */
+  takeFrom(mark: number): string {
+
+    let taken = '';
+    for (let i = mark; i < this._chunks.length; i++) {
+      taken += this._chunks[i];
+    }
+
+    this._chunks.length = Math.min(mark, this._chunks.length);
+    this._length -= taken.length;
+    return taken;
+  }
+
+  toString(): string {
+
+    if (this._chunks.length > 1) {
+
+      // Keep the single joined string, so calling this again is free.
+      const joined = this._chunks.join('');
+      this._chunks.length = 0;
+      this._chunks.push(joined);
+    }
+
+    return this._chunks.length > 0 ? this._chunks[0] : '';
+  }
+
+  private push(chunk: string): void {
+    if (chunk.length > 0) {
+      this._chunks.push(chunk);
+      this._length += chunk.length;
+    }
+  }
+}
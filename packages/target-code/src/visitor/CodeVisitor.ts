@@ -86,6 +86,8 @@ export interface CodeVisitor<R> extends AstVisitor<R>, AstFreeTextVisitor<R> {
 
   visitMemberAccess: CodeVisitFn<Code.MemberAccess, R>;
   visitIndexAccess: CodeVisitFn<Code.IndexAccess, R>;
+  visitLambda: CodeVisitFn<Code.Lambda, R>;
+  visitTryCatchStatement: CodeVisitFn<Code.TryCatchStatement, R>;
 
   visitGenericRef: <C extends AstNode>(n: Code.GenericRef<C>, v: CodeVisitor<R>) => VisitResult<R>;
   visitVirtualAnnotationNode: CodeVisitFn<Code.VirtualAnnotationNode, R>;
@@ -329,6 +331,16 @@ const createCodeVisitorInternal = <R>(partial?: Partial<CodeVisitor<R>>, noop?:
       n.owner.visit(v),
       n.index.visit(v),
     ],
+    visitLambda: (n, v) => [
+      n.parameters.visit(v),
+      n.body.visit(v),
+    ],
+    visitTryCatchStatement: (n, v) => [
+      n.body.visit(v),
+      n.catchParameter?.visit(v),
+      n.catchBody?.visit(v),
+      n.finallyBody?.visit(v),
+    ],
 
     visitInstanceOf: (n, v) => [n.target.visit(v), n.comparison.visit(v)],
     visitFormatNewline: () => noop,
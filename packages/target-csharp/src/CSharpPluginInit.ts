@@ -27,7 +27,7 @@ import {
   ZodTargetOptions,
 } from '@omnigen/api';
 import {z} from 'zod';
-import {AlignObjectWithInterfaceModelTransformer, GenericsModelTransformer, SimplifyGenericsModelTransformer, SpreadGenericsModelTransformer, ZodCompilationUnitsContext} from '@omnigen/core';
+import {AlignObjectWithInterfaceModelTransformer, GenericsModelTransformer, OmniUtil, SimplifyGenericsModelTransformer, SpreadGenericsModelTransformer, ZodCompilationUnitsContext} from '@omnigen/core';
 import {createCSharpRenderer} from './render';
 import {CSharpOptions, ZodCSharpOptions} from './options';
 import {LoggerFactory} from '@omnigen/core-log';
@@ -174,9 +174,7 @@ export const CSharpPlugin = createPlugin(
       new SimplifyUnnecessaryCompositionsModelTransformer(),
     ];
 
-    for (const transformer of transformers) {
-      transformer.transformModel(args);
-    }
+    OmniUtil.runModelTransformers(transformers, args);
 
     // Then do 2nd pass transforming
 
@@ -202,9 +200,7 @@ export const CSharpPlugin = createPlugin(
       new SpreadGenericsModelTransformer(),
     ] as const;
 
-    for (const transformer of transformers2) {
-      transformer.transformModel2ndPass(args2);
-    }
+    OmniUtil.runModelTransformers2ndPass(transformers2, args2);
 
     const astNode = new CSharpRootNode([]);
 
@@ -31,16 +31,17 @@ export class VarDecToTypeAliasCSharpAstTransformer implements AstTransformer<CSh
 
           const cu = defaultReducer.reduceCompilationUnit(n, r);
 
-          if (cu && newImports.length > 0) {
-
-            if (!cu.imports) {
-              cu.imports = new Code.ImportList();
-            }
-
-            cu.imports.children.push(...importStatements);
+          if (!cu || importStatements.length === 0) {
+            return cu;
           }
 
-          return cu;
+          // The reduced unit and its imports can be shared with the original tree, so they are copied rather than changed.
+          const copy = cu.shallowCopy();
+          copy.imports = cu.imports
+            ? new Code.ImportList(...cu.imports.children, ...importStatements).withIdFrom(cu.imports)
+            : new Code.ImportList(...importStatements);
+
+          return copy;
 
         } finally {
           newImports.pop();
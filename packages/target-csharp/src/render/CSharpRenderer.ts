@@ -1,7 +1,7 @@
 import {OmniTypeKind, PackageOptions, Renderer, TargetOptions, VisitResult} from '@omnigen/api';
 import {CSharpOptions, ReadonlyPropertyMode} from '../options';
 import {createCSharpVisitor, CSharpVisitor} from '../visit';
-import {Code, CodeRenderContext, CodeRendererOptions, createCodeRenderer, DefaultCodeRendererOptions, join, render} from '@omnigen/target-code';
+import {Code, CodeRenderContext, CodeRendererOptions, createCodeRenderer, DefaultCodeRendererOptions, join, render, renderJoined} from '@omnigen/target-code';
 import {CSharpRootNode} from '../ast';
 import {Case, OmniUtil} from '@omnigen/core';
 import {LoggerFactory} from '@omnigen/core-log';
@@ -273,7 +273,7 @@ export const createCSharpRenderer = (root: CSharpRootNode, options: PackageOptio
       return `${ifBlocks.join('else ').trim()}${elseBlock}`;
     },
 
-    visitEnumItemList: (n, v) => `${n.children.map(it => render(it, v)).join(',\n')},\n`,
+    visitEnumItemList: (n, v) => `${renderJoined(n.children, ',\n', v)},\n`,
     visitEnumItem: (n, v) => {
       const attributes = n.annotations ? `${render(n.annotations, v)}\n` : '';
       const value = n.value ? ` = ${render(n.value, v)}` : '';
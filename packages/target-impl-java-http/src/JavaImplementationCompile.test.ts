@@ -0,0 +1,104 @@
+import {spawnSync} from 'child_process';
+import fs from 'fs';
+import os from 'os';
+import path from 'path';
+import {describe, test} from 'vitest';
+import {Util} from '@omnigen/core';
+import {ImplementationOptions} from './client/ImplementationOptions';
+import {ImplementationTestUtils} from './util';
+
+/**
+ * Compiles the generated implementations together with their model, against the dependencies of the `implementation-java-test` example.
+ * Skipped where there is no `javac` or Maven to compile with.
+ */
+describe('JavaImplementationCompile', () => {
+
+  function isAvailable(command: string, ...args: string[]): boolean {
+    return spawnSync(command, args, {stdio: 'ignore'}).status === 0;
+  }
+
+  // Resolving the classpath the first time can download the dependencies.
+  const COMPILE_TIMEOUT = 300_000;
+  const canCompile = isAvailable('javac', '-version') && isAvailable('mvn', '--version');
+
+  function writeCallbackDocument(dir: string): string {
+
+    const filePath = path.join(dir, 'callbacks.json');
+    fs.writeFileSync(filePath, JSON.stringify({
+      openrpc: '1.2.6',
+      info: {title: 'Callbacks', version: '1.0.0'},
+      methods: [
+        {
+          name: 'pet_added',
+          'x-callback': true,
+          params: [{name: 'name', schema: {type: 'string'}}],
+          result: {name: 'ok', schema: {type: 'boolean'}},
+        },
+        {
+          name: 'get_pet',
+          params: [{name: 'id', schema: {type: 'integer'}}],
+          result: {name: 'pet', schema: {type: 'object', properties: {name: {type: 'string'}}}},
+        },
+      ],
+    }));
+
+    return filePath;
+  }
+
+  let classpath: string | undefined;
+  function getClasspath(dir: string): string {
+
+    if (classpath === undefined) {
+      const outputFile = path.join(dir, 'classpath.txt');
+      const result = spawnSync('mvn', [
+        '-B', '-q',
+        '-f', Util.getPathFromRoot('./implementation-java-test/pom.xml'),
+        'dependency:build-classpath',
+        '-Dmdep.includeScope=compile',
+        `-Dmdep.outputFile=${outputFile}`,
+      ], {encoding: 'utf8'});
+
+      if (result.status !== 0) {
+        throw new Error(`Could not resolve the classpath of the Java example:\n${result.stdout}${result.stderr}`);
+      }
+
+      classpath = fs.readFileSync(outputFile, 'utf8').trim();
+    }
+
+    return classpath;
+  }
+
+  async function compile(filePath: string, implOptions: Partial<ImplementationOptions>): Promise<string> {
+
+    const dir = fs.mkdtempSync(path.join(os.tmpdir(), 'omnigen-compile-'));
+    const sourceFiles: string[] = [];
+    for (const unit of await ImplementationTestUtils.renderFromPath(filePath, implOptions, true)) {
+      const sourceDir = path.join(dir, 'src', ...unit.directories);
+      fs.mkdirSync(sourceDir, {recursive: true});
+
+      const sourceFile = path.join(sourceDir, unit.fileName);
+      fs.writeFileSync(sourceFile, unit.content);
+      sourceFiles.push(sourceFile);
+    }
+
+    const result = spawnSync('javac', ['-d', path.join(dir, 'out'), '-cp', getClasspath(dir), ...sourceFiles], {encoding: 'utf8'});
+    return result.status === 0 ? '' : `${result.stdout}${result.stderr}`;
+  }
+
+  const examplePath = Util.getPathFromRoot('./packages/parser-openrpc/examples/petstore-expanded.json');
+
+  test.skipIf(!canCompile)('the HTTP client compiles, also with a concurrency limit', async ctx => {
+    ctx.expect(await compile(examplePath, {})).toEqual('');
+    ctx.expect(await compile(examplePath, {concurrencyLimit: true})).toEqual('');
+  }, COMPILE_TIMEOUT);
+
+  test.skipIf(!canCompile)('the WebSocket client compiles, with callbacks, batched notifications and a concurrency limit', async ctx => {
+    const callbacks = writeCallbackDocument(fs.mkdtempSync(path.join(os.tmpdir(), 'omnigen-callbacks-')));
+    ctx.expect(await compile(callbacks, {clientTransport: 'WEBSOCKET', concurrencyLimit: true, notificationBatchSize: 10})).toEqual('');
+    ctx.expect(await compile(examplePath, {clientTransport: 'WEBSOCKET'})).toEqual('');
+  }, COMPILE_TIMEOUT);
+
+  test.skipIf(!canCompile)('the reactive server compiles', async ctx => {
+    ctx.expect(await compile(examplePath, {generateClient: false, generateServer: true})).toEqual('');
+  }, COMPILE_TIMEOUT);
+});
@@ -1,12 +1,77 @@
 import {
-  ZodCoercedBoolean, DEFAULT_PACKAGE_OPTIONS,
+  ZodCoercedBoolean, ZodCoercedNumber, DEFAULT_PACKAGE_OPTIONS, getEnumValues, ToEnum,
 } from '@omnigen/api';
 import {z} from 'zod';
 
+export const ClientTransport = {
+  /**
+   * Each call is sent as its own blocking HTTP request.
+   */
+  HTTP: 'HTTP',
+  /**
+   * Calls are pipelined over one shared WebSocket connection, and each endpoint method returns a `CompletableFuture`.
+   */
+  WEBSOCKET: 'WEBSOCKET',
+} as const;
+export type ClientTransport = ToEnum<typeof ClientTransport>;
+
+export const SubscriptionOverflow = {
+  /**
+   * An item that does not fit in the buffer of a subscriber is dropped for that subscriber, which keeps its subscription.
+   */
+  DROP: 'DROP',
+  /**
+   * A subscriber whose buffer is full is given an error and unsubscribed, so it is never unaware that it has missed items.
+   */
+  FAIL: 'FAIL',
+} as const;
+export type SubscriptionOverflow = ToEnum<typeof SubscriptionOverflow>;
+
 export const ZodImplementationOptions = z.object({
   generateClient: ZodCoercedBoolean.default('t'),
   clientPackage: z.string().default(`${DEFAULT_PACKAGE_OPTIONS.package}.client`),
-  generateServer: ZodCoercedBoolean.default('t'),
+  clientTransport: z.enum(getEnumValues(ClientTransport)).default(ClientTransport.HTTP),
+  /**
+   * The number of received callback items that are buffered per subscriber.
+   */
+  subscriptionBufferSize: ZodCoercedNumber.default(256),
+  /**
+   * What happens to a received callback item when a subscriber has not kept up and its buffer is full.
+   * The transport never waits for a subscriber, since that would hold back every other call on the connection.
+   */
+  subscriptionOverflow: z.enum(getEnumValues(SubscriptionOverflow)).default(SubscriptionOverflow.FAIL),
+  /**
+   * If above 1, notifications are queued and sent together as one JsonRpc batch once this many are queued.
+   */
+  notificationBatchSize: ZodCoercedNumber.default(1),
+  /**
+   * The longest time in milliseconds that a queued notification waits for its batch to fill up, before it is sent anyway.
+   */
+  notificationFlushMillis: ZodCoercedNumber.default(10),
+  /**
+   * Gives each endpoint its own concurrency limit, which adapts to the latency of the calls.
+   * A call that does not fit below the limit fails right away with a `RejectedExecutionException`, instead of waiting.
+   */
+  concurrencyLimit: ZodCoercedBoolean.default('f'),
+  /**
+   * The limit that each endpoint starts out with, before it has adapted to any latency.
+   * Can be changed when the client is created with the system property `<clientPackage>.concurrencyLimitInitial`.
+   */
+  concurrencyLimitInitial: ZodCoercedNumber.default(20),
+  /**
+   * The limit never shrinks below this, however slow the calls get.
+   * Can be changed when the client is created with the system property `<clientPackage>.concurrencyLimitMin`.
+   */
+  concurrencyLimitMin: ZodCoercedNumber.default(1),
+  /**
+   * The limit never grows above this, however fast the calls are.
+   * Can be changed when the client is created with the system property `<clientPackage>.concurrencyLimitMax`.
+   */
+  concurrencyLimitMax: ZodCoercedNumber.default(200),
+  /**
+   * Generates a Spring WebFlux controller interface, with a `Mono` returning method per endpoint.
+   */
+  generateServer: ZodCoercedBoolean.default('f'),
   serverPackage: z.string().default(`${DEFAULT_PACKAGE_OPTIONS.package}.server`),
   onErrorThrowExceptions: ZodCoercedBoolean,
 });
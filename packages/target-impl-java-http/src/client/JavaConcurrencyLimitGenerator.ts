@@ -0,0 +1,349 @@
+import {AstNode, OmniHardcodedReferenceType, OmniTypeKind, RootAstNode} from '@omnigen/api';
+import {Java} from '@omnigen/target-java';
+import {Code} from '@omnigen/target-code';
+
+const ATOMIC_INTEGER: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'concurrent', 'atomic'], edgeName: 'AtomicInteger'}};
+const ATOMIC_LONG: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'concurrent', 'atomic'], edgeName: 'AtomicLong'}};
+const LONG: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'Long'}};
+const MATH: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'Math'}};
+const SYSTEM: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'System'}};
+
+/**
+ * How many times slower than the latency without load a call can be, and still be taken as a call that did not queue at the server.
+ */
+const RTT_TOLERANCE = 1.5;
+
+/**
+ * The latency without load moves this fraction of the way towards each slower latency, so it forgets a minimum that has not been seen in a while.
+ */
+const RTT_DECAY_DIVISOR = 100;
+
+/**
+ * The result of {@link JavaConcurrencyLimitGenerator#create}, with the members that the client needs to know about to guard a call.
+ */
+export interface ConcurrencyLimit {
+  declaration: Java.ClassDeclaration;
+  tryAcquireMethod: Java.MethodDeclaration;
+  releaseMethod: Java.MethodDeclaration;
+}
+
+/**
+ * Creates a lock-free concurrency limit, whose limit adapts to the latency of the calls it lets through.
+ *
+ * The adaptation follows the gradient algorithm of Netflix `concurrency-limits`. The lowest latency seen is taken as the latency without load,
+ * but it slowly decays towards the latencies that follow, so a server that has become slower for good is not measured against a latency it no longer has.
+ * A call that is no more than {@link RTT_TOLERANCE} times slower than that grows the limit by one,
+ * while a slower call multiplies the limit by how much slower it was, between half and all of it.
+ * So the limit grows while the latency stays low, and shrinks once the server starts to queue.
+ * Only calls that succeeded are measured, since a call that failed or timed out says nothing about how loaded the server is.
+ *
+ * A call is only let through if there is room below the limit. There is no waiting for room, so no thread is ever blocked by the limit.
+ */
+export class JavaConcurrencyLimitGenerator {
+
+  create(root: RootAstNode, name: string): ConcurrencyLimit {
+
+    const declaration = new Java.ClassDeclaration(
+      new Java.EdgeType({kind: OmniTypeKind.OBJECT, name: name, properties: []}, true),
+      new Java.Identifier(name),
+      new Java.Block(),
+    );
+
+    const privateFinal = () => new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE), new Java.Modifier(Java.ModifierKind.FINAL));
+    const intType = () => root.getAstUtils().createTypeNode({kind: OmniTypeKind.INTEGER});
+
+    const minLimitField = new Java.Field(intType(), new Java.Identifier('minLimit'), privateFinal());
+    const maxLimitField = new Java.Field(intType(), new Java.Identifier('maxLimit'), privateFinal());
+    const limitField = new Java.Field(new Java.EdgeType(ATOMIC_INTEGER), new Java.Identifier('limit'), privateFinal());
+    const inFlightField = new Java.Field(
+      new Java.EdgeType(ATOMIC_INTEGER),
+      new Java.Identifier('inFlight'),
+      privateFinal(),
+      new Java.NewStatement(new Java.EdgeType(ATOMIC_INTEGER), new Java.ArgumentList()),
+    );
+    const noLoadRttField = new Java.Field(
+      new Java.EdgeType(ATOMIC_LONG),
+      new Java.Identifier('noLoadRttNanos'),
+      privateFinal(),
+      new Java.NewStatement(new Java.EdgeType(ATOMIC_LONG), new Java.ArgumentList(
+        new Java.MemberAccess(new Java.ClassName(new Java.EdgeType(LONG)), new Java.Identifier('MAX_VALUE')),
+      )),
+    );
+
+    const adaptMethod = this.createAdaptMethod(root, minLimitField, maxLimitField);
+    const tryAcquireMethod = this.createTryAcquireMethod(root, limitField, inFlightField);
+    const releaseMethod = this.createReleaseMethod(root, limitField, inFlightField, noLoadRttField, adaptMethod);
+
+    declaration.body.children.push(
+      minLimitField,
+      maxLimitField,
+      limitField,
+      inFlightField,
+      noLoadRttField,
+      this.createConstructor(root, minLimitField, maxLimitField, limitField),
+      this.createGetLimitMethod(root, limitField),
+      tryAcquireMethod,
+      releaseMethod,
+      adaptMethod,
+    );
+
+    return {
+      declaration,
+      tryAcquireMethod,
+      releaseMethod,
+    };
+  }
+
+  private createConstructor(root: RootAstNode, minLimitField: Java.Field, maxLimitField: Java.Field, limitField: Java.Field): Java.ConstructorDeclaration {
+
+    const intType = () => root.getAstUtils().createTypeNode({kind: OmniTypeKind.INTEGER});
+    const initialLimitParameter = new Java.ConstructorParameter(new Java.FieldReference(limitField), intType(), new Java.Identifier('initialLimit'));
+    const minLimitParameter = new Java.ConstructorParameter(new Java.FieldReference(minLimitField), intType(), new Java.Identifier('minLimit'));
+    const maxLimitParameter = new Java.ConstructorParameter(new Java.FieldReference(maxLimitField), intType(), new Java.Identifier('maxLimit'));
+
+    const assign = (field: Java.Field, value: Code.AbstractCodeNode) => new Java.Statement(new Java.BinaryExpression(
+      new Java.MemberAccess(new Java.SelfReference(), new Java.FieldReference(field)),
+      Java.TokenKind.ASSIGN,
+      value,
+    ));
+
+    return new Java.ConstructorDeclaration(
+      new Java.ConstructorParameterList(initialLimitParameter, minLimitParameter, maxLimitParameter),
+      new Java.Block(
+        assign(minLimitField, new Java.DeclarationReference(minLimitParameter)),
+        assign(maxLimitField, new Java.DeclarationReference(maxLimitParameter)),
+        assign(limitField, new Java.NewStatement(new Java.EdgeType(ATOMIC_INTEGER), new Java.ArgumentList(new Java.DeclarationReference(initialLimitParameter)))),
+      ),
+    );
+  }
+
+  private createGetLimitMethod(root: RootAstNode, limitField: Java.Field): Java.MethodDeclaration {
+
+    const signature = new Java.MethodDeclarationSignature(
+      new Java.Identifier('getLimit'),
+      root.getAstUtils().createTypeNode({kind: OmniTypeKind.INTEGER}),
+    );
+    signature.comments = new Java.Comment('The number of calls that are currently allowed to be in flight at the same time.');
+
+    return new Java.MethodDeclaration(
+      signature,
+      new Java.Block(new Java.Statement(new Java.ReturnStatement(this.call(new Java.FieldReference(limitField), 'get')))),
+    );
+  }
+
+  private createTryAcquireMethod(root: RootAstNode, limitField: Java.Field, inFlightField: Java.Field): Java.MethodDeclaration {
+
+    const signature = new Java.MethodDeclarationSignature(
+      new Java.Identifier('tryAcquire'),
+      root.getAstUtils().createTypeNode({kind: OmniTypeKind.BOOL}),
+    );
+    signature.comments = new Java.Comment('Takes a slot if there is room below the limit. Every acquired slot must be given back with `release`.');
+
+    // Taking the slot before comparing means that two racing calls can never both take the last slot.
+    return new Java.MethodDeclaration(
+      signature,
+      new Java.Block(
+        new Java.IfStatement(
+          new Java.BinaryExpression(
+            this.call(new Java.FieldReference(inFlightField), 'incrementAndGet'),
+            Java.TokenKind.GT,
+            this.call(new Java.FieldReference(limitField), 'get'),
+          ),
+          new Java.Block(
+            new Java.Statement(this.call(new Java.FieldReference(inFlightField), 'decrementAndGet')),
+            new Java.Statement(new Java.ReturnStatement(new Java.Literal(false))),
+          ),
+        ),
+        new Java.Statement(new Java.ReturnStatement(new Java.Literal(true))),
+      ),
+    );
+  }
+
+  private createReleaseMethod(
+    root: RootAstNode,
+    limitField: Java.Field,
+    inFlightField: Java.Field,
+    noLoadRttField: Java.Field,
+    adaptMethod: Java.MethodDeclaration,
+  ): Java.MethodDeclaration {
+
+    const longType = () => root.getAstUtils().createTypeNode({kind: OmniTypeKind.LONG});
+    const startParameter = new Java.Parameter(longType(), new Java.Identifier('startNanos'));
+    const succeededParameter = new Java.Parameter(root.getAstUtils().createTypeNode({kind: OmniTypeKind.BOOL}), new Java.Identifier('succeeded'));
+
+    const rttDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('rtt'),
+      this.staticCall(
+        MATH,
+        'max',
+        new Java.Literal(1, OmniTypeKind.LONG),
+        new Java.BinaryExpression(this.staticCall(SYSTEM, 'nanoTime'), Java.TokenKind.SUBTRACT, new Java.DeclarationReference(startParameter)),
+      ),
+      undefined,
+      true,
+    );
+
+    // The number of calls that were in flight together with this one, which tells if the limit was actually put to use.
+    const sampleInFlightDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('sampleInFlight'),
+      this.call(new Java.FieldReference(inFlightField), 'getAndDecrement'),
+      undefined,
+      true,
+    );
+
+    const previousParameter = new Java.Parameter(longType(), new Java.Identifier('previous'));
+    const sampleParameter = new Java.Parameter(longType(), new Java.Identifier('sample'));
+    // A lower sample replaces the previous one, while a higher sample moves it a little bit towards itself.
+    const noLoadRttDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('noLoadRtt'),
+      this.call(
+        new Java.FieldReference(noLoadRttField),
+        'accumulateAndGet',
+        new Java.DeclarationReference(rttDeclaration),
+        new Java.Lambda(
+          new Java.ParameterList(previousParameter, sampleParameter),
+          this.staticCall(
+            MATH,
+            'min',
+            new Java.DeclarationReference(sampleParameter),
+            new Java.BinaryExpression(
+              new Java.DeclarationReference(previousParameter),
+              Java.TokenKind.ADD,
+              new Java.BinaryExpression(
+                new Java.BinaryExpression(new Java.DeclarationReference(sampleParameter), Java.TokenKind.SUBTRACT, new Java.DeclarationReference(previousParameter)),
+                Java.TokenKind.DIVIDE,
+                new Java.Literal(RTT_DECAY_DIVISOR),
+              ),
+            ),
+          ),
+        ),
+      ),
+      undefined,
+      true,
+    );
+
+    const currentParameter = new Java.Parameter(root.getAstUtils().createTypeNode({kind: OmniTypeKind.INTEGER}), new Java.Identifier('current'));
+
+    const signature = new Java.MethodDeclarationSignature(
+      new Java.Identifier('release'),
+      new Java.EdgeType({kind: OmniTypeKind.VOID}),
+      new Java.ParameterList(startParameter, succeededParameter),
+    );
+    signature.comments = new Java.Comment(
+      'Gives back a slot taken by `tryAcquire`, and adapts the limit to the latency of the call since `startNanos` if it `succeeded`.',
+    );
+
+    return new Java.MethodDeclaration(
+      signature,
+      new Java.Block(
+        new Java.Statement(sampleInFlightDeclaration),
+        new Java.IfStatement(
+          new Java.DeclarationReference(succeededParameter),
+          new Java.Block(
+            new Java.Statement(rttDeclaration),
+            new Java.Statement(noLoadRttDeclaration),
+            new Java.Statement(this.call(
+              new Java.FieldReference(limitField),
+              'updateAndGet',
+              new Java.Lambda(
+                new Java.ParameterList(currentParameter),
+                this.call(
+                  new Java.SelfReference(),
+                  adaptMethod.signature.identifier,
+                  new Java.DeclarationReference(currentParameter),
+                  new Java.DeclarationReference(sampleInFlightDeclaration),
+                  new Java.DeclarationReference(rttDeclaration),
+                  new Java.DeclarationReference(noLoadRttDeclaration),
+                ),
+              ),
+            )),
+          ),
+        ),
+      ),
+    );
+  }
+
+  private createAdaptMethod(root: RootAstNode, minLimitField: Java.Field, maxLimitField: Java.Field): Java.MethodDeclaration {
+
+    const intType = () => root.getAstUtils().createTypeNode({kind: OmniTypeKind.INTEGER});
+    const longType = () => root.getAstUtils().createTypeNode({kind: OmniTypeKind.LONG});
+
+    const currentParameter = new Java.Parameter(intType(), new Java.Identifier('current'));
+    const sampleInFlightParameter = new Java.Parameter(intType(), new Java.Identifier('sampleInFlight'));
+    const rttParameter = new Java.Parameter(longType(), new Java.Identifier('rtt'));
+    const noLoadRttParameter = new Java.Parameter(longType(), new Java.Identifier('noLoadRtt'));
+
+    const gradientDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('gradient'),
+      this.staticCall(MATH, 'max', new Java.Literal(0.5, OmniTypeKind.DOUBLE), this.staticCall(
+        MATH,
+        'min',
+        new Java.Literal(1, OmniTypeKind.DOUBLE),
+        new Java.BinaryExpression(
+          new Java.BinaryExpression(
+            new Java.Literal(RTT_TOLERANCE, OmniTypeKind.DOUBLE),
+            Java.TokenKind.MULTIPLY,
+            new Java.DeclarationReference(noLoadRttParameter),
+          ),
+          Java.TokenKind.DIVIDE,
+          new Java.DeclarationReference(rttParameter),
+        ),
+      )),
+      undefined,
+      true,
+    );
+
+    // Grows by one at a time while the server does not queue, instead of by a share of the limit, so a limit that is already high does not overshoot.
+    const nextDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('next'),
+      new Java.TernaryExpression(
+        new Java.BinaryExpression(new Java.DeclarationReference(gradientDeclaration), Java.TokenKind.GTE, new Java.Literal(1, OmniTypeKind.DOUBLE)),
+        new Java.BinaryExpression(new Java.DeclarationReference(currentParameter), Java.TokenKind.ADD, new Java.Literal(1, OmniTypeKind.DOUBLE)),
+        new Java.BinaryExpression(new Java.DeclarationReference(currentParameter), Java.TokenKind.MULTIPLY, new Java.DeclarationReference(gradientDeclaration)),
+      ),
+      undefined,
+      true,
+    );
+
+    return new Java.MethodDeclaration(
+      new Java.MethodDeclarationSignature(
+        new Java.Identifier('adapt'),
+        intType(),
+        new Java.ParameterList(currentParameter, sampleInFlightParameter, rttParameter, noLoadRttParameter),
+        new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE)),
+      ),
+      new Java.Block(
+        // A limit that is far from being reached says nothing about whether it is too low, so it is kept as it is.
+        new Java.IfStatement(
+          new Java.BinaryExpression(
+            new Java.BinaryExpression(new Java.DeclarationReference(sampleInFlightParameter), Java.TokenKind.MULTIPLY, new Java.Literal(2)),
+            Java.TokenKind.LT,
+            new Java.DeclarationReference(currentParameter),
+          ),
+          new Java.Block(
+            new Java.Statement(new Java.ReturnStatement(new Java.DeclarationReference(currentParameter))),
+          ),
+        ),
+        new Java.Statement(gradientDeclaration),
+        new Java.Statement(nextDeclaration),
+        new Java.Statement(new Java.ReturnStatement(
+          this.staticCall(MATH, 'max', new Java.FieldReference(minLimitField), this.staticCall(
+            MATH,
+            'min',
+            new Java.FieldReference(maxLimitField),
+            new Java.Cast(intType(), new Java.DeclarationReference(nextDeclaration)),
+          )),
+        )),
+      ),
+    );
+  }
+
+  private call(owner: Code.AbstractCodeNode, method: string | AstNode, ...methodArguments: Code.AbstractCodeNode[]): Java.MethodCall {
+    const member = (typeof method === 'string') ? new Java.Identifier(method) : method;
+    return new Java.MethodCall(new Java.MemberAccess(owner, member), new Java.ArgumentList(...methodArguments));
+  }
+
+  private staticCall(type: OmniHardcodedReferenceType, method: string, ...methodArguments: Code.AbstractCodeNode[]): Java.MethodCall {
+    return this.call(new Java.ClassName(new Java.EdgeType(type)), method, ...methodArguments);
+  }
+}
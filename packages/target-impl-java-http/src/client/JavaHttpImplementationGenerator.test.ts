@@ -0,0 +1,104 @@
+import {describe, test} from 'vitest';
+import fs from 'fs';
+import os from 'os';
+import path from 'path';
+import {ImplementationTestUtils} from '../util';
+
+describe('JavaHttpImplementationGenerator', () => {
+
+  function writeCallbackDocument(): string {
+
+    const filePath = path.join(fs.mkdtempSync(path.join(os.tmpdir(), 'omnigen-callbacks-')), 'callbacks.json');
+    fs.writeFileSync(filePath, JSON.stringify({
+      openrpc: '1.2.6',
+      info: {title: 'Callbacks', version: '1.0.0'},
+      methods: [
+        {
+          name: 'pet_added',
+          'x-callback': true,
+          params: [{name: 'name', schema: {type: 'string'}}],
+          result: {name: 'ok', schema: {type: 'boolean'}},
+        },
+      ],
+    }));
+
+    return filePath;
+  }
+
+  test('callback publisher offers items and removes its handler when the subscription ends', async ctx => {
+
+    const files = await ImplementationTestUtils.getFileContentsFromPath(writeCallbackDocument(), {clientTransport: 'WEBSOCKET'});
+
+    const client = files.get('ApiClient.java') ?? '';
+    ctx.expect(client).toMatch(/Flow\.Publisher<\w+> petAdded\(\)/);
+    ctx.expect(client).toContain('transport.onNotification("pet_added", handler);');
+    ctx.expect(client).toContain('() -> transport.removeNotification("pet_added", handler)');
+    ctx.expect(client).toMatch(/if \(publisher\.offer\(objectMapper\.convertValue\(message\.path\("params"\), \w+\.class\), null\) < 0\)/);
+    ctx.expect(client).toContain('publisher.closeExceptionally(new IllegalStateException("Subscriber fell more than 256 items behind"));');
+    ctx.expect(client).not.toContain('.submit(');
+    ctx.expect(client).not.toContain('TODO: Close the publishers');
+
+    const subscriber = files.get('CallbackSubscriber.java') ?? '';
+    ctx.expect(subscriber).toMatch(/public void cancel\(\) \{\s*onEnd\.run\(\);\s*subscription\.cancel\(\);\s*}/);
+    ctx.expect(subscriber).toMatch(/public void onComplete\(\) \{\s*onEnd\.run\(\);/);
+    ctx.expect(subscriber).toMatch(/public void onError\(Throwable error\) \{\s*onEnd\.run\(\);/);
+  });
+
+  test('callback items are dropped for a full subscriber with the DROP overflow', async ctx => {
+
+    const files = await ImplementationTestUtils.getFileContentsFromPath(writeCallbackDocument(), {clientTransport: 'WEBSOCKET', subscriptionOverflow: 'DROP'});
+    const client = files.get('ApiClient.java') ?? '';
+
+    ctx.expect(client).toMatch(/publisher\.offer\(objectMapper\.convertValue\(message\.path\("params"\), \w+\.class\), null\);/);
+    ctx.expect(client).not.toContain('fell more than');
+  });
+
+  test('the transport closes every handler when the connection closes', async ctx => {
+
+    const files = await ImplementationTestUtils.getFileContentsFromPath(writeCallbackDocument(), {clientTransport: 'WEBSOCKET'});
+    const transport = files.get('JsonRpcWebSocketTransport.java') ?? '';
+
+    ctx.expect(transport).toMatch(/public void removeNotification\(String method, BiConsumer<JsonNode, Throwable> handler\)/);
+
+    const onClose = transport.substring(transport.indexOf('onClose('), transport.indexOf('onError('));
+    ctx.expect(onClose).toContain('this.closeHandlers(null);');
+
+    const onError = transport.substring(transport.indexOf('onError('));
+    ctx.expect(onError).toContain('this.closeHandlers(error);');
+  });
+
+  test('requests and notifications are sent to the endpoint given to the client', async ctx => {
+
+    const files = await ImplementationTestUtils.getFileContentsFromFile('petstore-expanded.json', {generateServer: false});
+    const client = files.get('ApiClient.java') ?? '';
+
+    ctx.expect(client).toContain('private final URI endpoint;');
+    ctx.expect(client).toMatch(/HttpRequest\.newBuilder\(endpoint\)/);
+    ctx.expect(client).not.toContain('google.com');
+  });
+
+  test('the concurrency limit only measures calls that succeeded, and reads its bounds when the client is created', async ctx => {
+
+    const files = await ImplementationTestUtils.getFileContentsFromFile('petstore-expanded.json', {generateServer: false, concurrencyLimit: true});
+
+    const client = files.get('ApiClient.java') ?? '';
+    ctx.expect(client).toContain('Integer.getInteger("generated.omnigen.client.concurrencyLimitInitial", 20)');
+    ctx.expect(client).toContain('Integer.getInteger("generated.omnigen.client.concurrencyLimitMax", 200)');
+    ctx.expect(client).toMatch(/catch \(Throwable ex\) \{\s*failure = ex;\s*throw ex;\s*}/);
+    ctx.expect(client).toMatch(/\.release\(startNanos, failure == null\);/);
+
+    const limit = files.get('AdaptiveConcurrencyLimit.java') ?? '';
+    ctx.expect(limit).toMatch(/public void release\(long startNanos, boolean succeeded\)/);
+    ctx.expect(limit).toMatch(/Math\.min\(sample, previous \+ \(sample - previous\) \/ 100\)/);
+    ctx.expect(limit).not.toContain('Math.sqrt');
+  });
+
+  test('the concurrency limit of a WebSocket call gives the slot back when the call throws before it has a future', async ctx => {
+
+    const files = await ImplementationTestUtils.getFileContentsFromPath(writeCallbackDocument(), {clientTransport: 'WEBSOCKET', concurrencyLimit: true});
+    const client = files.get('ApiClient.java') ?? '';
+
+    ctx.expect(client).toMatch(/\.whenComplete\([^;]*\.release\(startNanos, error == null\)\)/);
+    ctx.expect(client).toMatch(/catch \(Throwable ex\) \{\s*[^;]*\.release\(startNanos, false\);\s*return CompletableFuture\.failedFuture\(ex\);\s*}/);
+  });
+});
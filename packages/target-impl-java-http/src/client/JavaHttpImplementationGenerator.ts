@@ -13,18 +13,20 @@ import {type ImplementationArgs} from './ImplementationArgs';
 import {
   AstNode,
   AstTransformer,
+  Direction,
   OmniComparisonOperator,
+  OmniEndpoint,
   OmniHardcodedReferenceType, OmniItemKind,
   OmniObjectType,
   OmniOutput, OmniPrimitiveConstantValue,
   OmniType,
-  OmniTypeKind, PackageOptions,
+  OmniTypeKind, OmniUnknownType, PackageOptions,
   RootAstNode,
   TargetOptions,
   TypeNode,
   UnknownKind,
 } from '@omnigen/api';
-import {ImplementationOptions} from './ImplementationOptions';
+import {ClientTransport, ImplementationOptions, SubscriptionOverflow} from './ImplementationOptions';
 import {LoggerFactory} from '@omnigen/core-log';
 import {Case, Naming, OmniUtil} from '@omnigen/core';
 import {
@@ -38,9 +40,32 @@ import {
   ReorderMembersAstTransformer,
   ResolveGenericSourceIdentifiersAstTransformer,
 } from '@omnigen/target-code';
+import {JavaReactiveServerImplementationGenerator} from '../server/JavaReactiveServerImplementationGenerator';
+import {COMPLETABLE_FUTURE, JavaWebSocketTransportGenerator, JSON_NODE, WebSocketTransport} from './JavaWebSocketTransportGenerator';
+import {ConcurrencyLimit, JavaConcurrencyLimitGenerator} from './JavaConcurrencyLimitGenerator';
 
 const logger = LoggerFactory.create(import.meta.url);
 
+const SUBMISSION_PUBLISHER: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'concurrent'], edgeName: 'SubmissionPublisher'}};
+const FLOW_PUBLISHER: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'concurrent', {name: 'Flow', nested: true}], edgeName: 'Publisher'}};
+const CONCURRENT_LINKED_QUEUE: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'concurrent'], edgeName: 'ConcurrentLinkedQueue'}};
+const ATOMIC_INTEGER: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'concurrent', 'atomic'], edgeName: 'AtomicInteger'}};
+const ARRAY_LIST: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util'], edgeName: 'ArrayList'}};
+const TIME_UNIT: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'concurrent'], edgeName: 'TimeUnit'}};
+const REJECTED_EXECUTION_EXCEPTION: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'concurrent'], edgeName: 'RejectedExecutionException'}};
+const THROWABLE: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'Throwable'}};
+const SYSTEM: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'System'}};
+const INTEGER: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'Integer'}};
+const FORK_JOIN_POOL: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'concurrent'], edgeName: 'ForkJoinPool'}};
+const FLOW_SUBSCRIBER: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'concurrent', {name: 'Flow', nested: true}], edgeName: 'Subscriber'}};
+const FLOW_SUBSCRIPTION: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'concurrent', {name: 'Flow', nested: true}], edgeName: 'Subscription'}};
+const BI_CONSUMER: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'function'], edgeName: 'BiConsumer'}};
+const RUNNABLE: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'Runnable'}};
+const OBJECT: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'Object'}};
+const OVERRIDE: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'Override'}};
+const ILLEGAL_STATE_EXCEPTION: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'IllegalStateException'}};
+const URI: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'net'], edgeName: 'URI'}};
+
 type JavaHttpGeneratorType = ImplementationGenerator<RootAstNode, JavaAndTargetOptions, ImplementationOptions>;
 type JavaHttpArgs = ImplementationArgs<Java.JavaAstRootNode, JavaAndTargetOptions, ImplementationOptions>;
 
@@ -76,13 +101,9 @@ export class JavaHttpImplementationGenerator implements JavaHttpGeneratorType {
       promises.push(this.generateClient(args));
     }
 
-    // for (const endpoint of args.model.endpoints) {
-    //   if (args.options.generateServer) {
-    //     if (endpoint.responses) {
-    //
-    //     }
-    //   }
-    // }
+    if (args.implOptions.generateServer) {
+      promises.push(new JavaReactiveServerImplementationGenerator().generate(args).then(it => it[0]));
+    }
 
     return Promise.all(promises)
       .then(rootNodes => {
@@ -161,13 +182,77 @@ export class JavaHttpImplementationGenerator implements JavaHttpGeneratorType {
     // TODO: Transformer that adds functionality of keeping track of all instantiations of the object
 
     const requestIdentifier = new Java.Identifier('request');
-    const pathIdentifier = new Java.Identifier('path');
 
-    const callMethod = this.createCallMethod(pathIdentifier, requestIdentifier, objectMapperField);
-    client.body.children.push(callMethod);
+    const webSocket = args.implOptions.clientTransport === ClientTransport.WEBSOCKET;
+
+    let callMethod: Java.MethodDeclaration;
+    let transport: WebSocketTransport | undefined;
+    let transportField: Java.Field | undefined;
+    let endpointField: Java.Field | undefined;
+    if (webSocket) {
+
+      // All calls share one connection, so the client is given the transport instead of opening a request per call.
+      transport = new JavaWebSocketTransportGenerator().create(args.root, 'JsonRpcWebSocketTransport');
+      callMethod = transport.callMethod;
+      transportField = new Java.Field(
+        new Java.EdgeType(transport.declaration.type.omniType),
+        new Java.Identifier('transport'),
+        new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE), new Java.Modifier(Java.ModifierKind.FINAL)),
+      );
 
+      client.body.children.push(transportField);
+      root.children.push(new Java.CompilationUnit(
+        new Java.PackageDeclaration(args.implOptions.clientPackage),
+        new Java.ImportList(),
+        transport.declaration,
+      ));
+    } else {
+
+      // Given to the constructor, so requests and notifications are all sent to the endpoint the client was created for.
+      endpointField = new Java.Field(
+        new Java.EdgeType(URI),
+        new Java.Identifier('endpoint'),
+        new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE), new Java.Modifier(Java.ModifierKind.FINAL)),
+      );
+
+      callMethod = this.createCallMethod(requestIdentifier, objectMapperField, endpointField);
+      client.body.children.push(endpointField, callMethod);
+    }
+
+    let concurrencyLimit: ConcurrencyLimit | undefined;
+    if (args.implOptions.concurrencyLimit) {
+      concurrencyLimit = new JavaConcurrencyLimitGenerator().create(args.root, 'AdaptiveConcurrencyLimit');
+      root.children.push(new Java.CompilationUnit(
+        new Java.PackageDeclaration(args.implOptions.clientPackage),
+        new Java.ImportList(),
+        concurrencyLimit.declaration,
+      ));
+    }
+
+    let sendNotificationMethod: Java.MethodDeclaration | undefined;
+    let callbackSubscriber: Java.ClassDeclaration | undefined;
     for (const endpoint of args.model.endpoints) {
 
+      if (transport && transportField && this.isReceivedEndpoint(endpoint)) {
+        if (!callbackSubscriber) {
+          callbackSubscriber = this.createCallbackSubscriberClass(args);
+          root.children.push(new Java.CompilationUnit(
+            new Java.PackageDeclaration(args.implOptions.clientPackage),
+            new Java.ImportList(),
+            callbackSubscriber,
+          ));
+        }
+
+        client.body.children.push(this.createPublisherMethod(args, endpoint, transport, transportField, objectMapperField, callbackSubscriber));
+        continue;
+      }
+
+      if (endpoint.responses.length == 0) {
+        sendNotificationMethod ??= this.addNotificationMembers(args, client, objectMapperField, transport, transportField, endpointField);
+        client.body.children.push(this.createNotificationMethod(endpoint, sendNotificationMethod));
+        continue;
+      }
+
       // TODO: A few different method signatures per request-type
       //        * One with the whole payload as argument
       //        * One with only the required properties of the request body, and build it dynamically
@@ -191,17 +276,80 @@ export class JavaHttpImplementationGenerator implements JavaHttpGeneratorType {
       const regularResponses: OmniOutput[] = [];
       const errorResponses: OmniOutput[] = [];
 
-      const responseDeclaration = new Java.VariableDeclaration(
-        responseIdentifier,
-        new Java.MethodCall(
-          new Java.MemberAccess(new Java.SelfReference(), callMethod.signature.identifier),
-          new Java.ArgumentList(
-            new Java.DeclarationReference(requestParameter),
+      let limitField: Java.Field | undefined;
+      let startDeclaration: Java.VariableDeclaration | undefined;
+      if (concurrencyLimit) {
+        limitField = this.createConcurrencyLimitField(args, endpoint, concurrencyLimit);
+        client.body.children.push(limitField);
+        startDeclaration = new Java.VariableDeclaration(
+          new Java.Identifier('startNanos'),
+          new Java.MethodCall(new Java.MemberAccess(new Java.ClassName(new Java.EdgeType(SYSTEM)), new Java.Identifier('nanoTime')), new Java.ArgumentList()),
+          undefined,
+          true,
+        );
+      }
+
+      let responseDeclaration: Java.VariableDeclaration | Java.Parameter;
+      let responseBlock: Java.Block;
+      if (transportField) {
+
+        // The response is handled once it arrives, in the same way as the blocking call would, but inside a function given to the future.
+        responseDeclaration = new Java.Parameter(
+          new Java.EdgeType({kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: JACKSON_JSON_NODE}),
+          responseIdentifier,
+        );
+        responseBlock = new Java.Block();
+
+        let called: Code.AbstractCodeNode = new Java.MethodCall(
+          new Java.MemberAccess(new Java.FieldReference(transportField), callMethod.signature.identifier),
+          new Java.ArgumentList(new Java.DeclarationReference(requestParameter)),
+        );
+
+        if (concurrencyLimit && limitField && startDeclaration) {
+
+          // The slot is given back when the response arrives, whether or not it can be handled, and not when the method returns.
+          const errorParameter = new Java.Parameter(new Java.EdgeType(THROWABLE), new Java.Identifier('error'));
+          called = new Java.MethodCall(
+            new Java.MemberAccess(called, new Java.Identifier('whenComplete')),
+            new Java.ArgumentList(new Java.Lambda(
+              new Java.ParameterList(
+                new Java.Parameter(new Java.EdgeType(JSON_NODE), new Java.Identifier('completed')),
+                errorParameter,
+              ),
+              this.createReleaseCall(
+                concurrencyLimit,
+                limitField,
+                startDeclaration,
+                new Java.BinaryExpression(new Java.DeclarationReference(errorParameter), Java.TokenKind.EQUALS, new Java.Literal(null)),
+              ),
+            )),
+          );
+        }
+
+        methodBlock.children.push(new Java.Statement(new Java.ReturnStatement(
+          new Java.MethodCall(
+            new Java.MemberAccess(
+              called,
+              new Java.Identifier('thenApply'),
+            ),
+            new Java.ArgumentList(new Java.Lambda(new Java.ParameterList(responseDeclaration), responseBlock)),
           ),
-        ),
-      );
+        )));
+      } else {
+
+        responseDeclaration = new Java.VariableDeclaration(
+          responseIdentifier,
+          new Java.MethodCall(
+            new Java.MemberAccess(new Java.SelfReference(), callMethod.signature.identifier),
+            new Java.ArgumentList(
+              new Java.DeclarationReference(requestParameter),
+            ),
+          ),
+        );
 
-      methodBlock.children.push(new Java.Statement(responseDeclaration));
+        responseBlock = methodBlock;
+        methodBlock.children.push(new Java.Statement(responseDeclaration));
+      }
 
       const throwsTypeList = new Java.TypeList();
 
@@ -210,13 +358,13 @@ export class JavaHttpImplementationGenerator implements JavaHttpGeneratorType {
 
         if (response.qualifiers.length > 0) {
 
-          const qualifierResultBlock = this.addResponseWithQualifiers(response, responseDeclaration, methodBlock);
+          const qualifierResultBlock = this.addResponseWithQualifiers(response, responseDeclaration, responseBlock);
 
           if (response.error) {
             errorResponses.push(response);
             // TODO: Need to throw the actual exception :)
             qualifierResultBlock.children.push(
-              ...this.createExceptionThrowingBlock(args, objectMapperField, responseDeclaration, response.type, client.body, throwsTypeList),
+              ...this.createExceptionThrowingBlock(args, objectMapperField, responseDeclaration, response.type, client.body, webSocket ? undefined : throwsTypeList),
             );
           } else {
             regularResponses.push(response);
@@ -235,7 +383,7 @@ export class JavaHttpImplementationGenerator implements JavaHttpGeneratorType {
       }
 
       if (unqualifiedResponses == 0) {
-        methodBlock.children.push(
+        responseBlock.children.push(
           new Java.Statement(
             new Java.ThrowStatement(
               new Java.NewStatement(
@@ -252,7 +400,9 @@ export class JavaHttpImplementationGenerator implements JavaHttpGeneratorType {
         );
       }
 
-      const methodResponseType = this.getMethodResponseType(args, regularResponses, errorResponses);
+      const methodResponseType = webSocket
+        ? new Java.GenericType(COMPLETABLE_FUTURE, new Java.EdgeType(COMPLETABLE_FUTURE), [this.getMethodResponseType(args, regularResponses, errorResponses, true)])
+        : this.getMethodResponseType(args, regularResponses, errorResponses);
 
       const requestMethod = new Java.MethodDeclaration(
         new Java.MethodDeclarationSignature(
@@ -264,7 +414,9 @@ export class JavaHttpImplementationGenerator implements JavaHttpGeneratorType {
           undefined,
           throwsTypeList,
         ),
-        methodBlock,
+        (concurrencyLimit && limitField && startDeclaration)
+          ? this.createConcurrencyLimitedBlock(endpoint, webSocket, concurrencyLimit, limitField, startDeclaration, methodBlock)
+          : methodBlock,
       );
 
       client.body.children.push(requestMethod);
@@ -277,16 +429,670 @@ export class JavaHttpImplementationGenerator implements JavaHttpGeneratorType {
     ));
   }
 
+  private createConcurrencyLimitField(args: JavaHttpArgs, endpoint: OmniEndpoint, concurrencyLimit: ConcurrencyLimit): Java.Field {
+
+    const limitType = concurrencyLimit.declaration.type.omniType;
+    return new Java.Field(
+      new Java.EdgeType(limitType),
+      new Java.Identifier(`${Case.camel(endpoint.name)}Limit`),
+      new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE), new Java.Modifier(Java.ModifierKind.FINAL)),
+      new Java.NewStatement(new Java.EdgeType(limitType), new Java.ArgumentList(
+        this.createIntegerProperty(args, 'concurrencyLimitInitial', args.implOptions.concurrencyLimitInitial),
+        this.createIntegerProperty(args, 'concurrencyLimitMin', args.implOptions.concurrencyLimitMin),
+        this.createIntegerProperty(args, 'concurrencyLimitMax', args.implOptions.concurrencyLimitMax),
+      )),
+    );
+  }
+
+  /**
+   * Reads the system property `<clientPackage>.<name>` when the client is created, so the option can be changed without generating again.
+   * The value of the option is used when the property is not set.
+   */
+  private createIntegerProperty(args: JavaHttpArgs, name: string, defaultValue: number): Java.MethodCall {
+    return new Java.MethodCall(
+      new Java.MemberAccess(new Java.ClassName(new Java.EdgeType(INTEGER)), new Java.Identifier('getInteger')),
+      new Java.ArgumentList(new Java.Literal(`${args.implOptions.clientPackage}.${name}`), new Java.Literal(defaultValue)),
+    );
+  }
+
+  private createReleaseCall(
+    concurrencyLimit: ConcurrencyLimit,
+    limitField: Java.Field,
+    startDeclaration: Java.VariableDeclaration,
+    succeeded: Code.AbstractCodeNode,
+  ): Java.MethodCall {
+    return new Java.MethodCall(
+      new Java.MemberAccess(new Java.FieldReference(limitField), concurrencyLimit.releaseMethod.signature.identifier),
+      new Java.ArgumentList(new Java.DeclarationReference(startDeclaration), succeeded),
+    );
+  }
+
+  /**
+   * Guards the method body with the concurrency limit of the endpoint.
+   *
+   * A call that does not fit below the limit is rejected right away, without being sent, so that an overloaded server is given room to recover.
+   * A blocking call gives its slot back when it returns or throws, while an asynchronous call does it when its future completes,
+   * or right away if it throws before it has a future, which is then returned as a failed future instead.
+   * A call that threw or whose future failed is not measured by the limit.
+   */
+  private createConcurrencyLimitedBlock(
+    endpoint: OmniEndpoint,
+    webSocket: boolean,
+    concurrencyLimit: ConcurrencyLimit,
+    limitField: Java.Field,
+    startDeclaration: Java.VariableDeclaration,
+    methodBlock: Java.Block,
+  ): Java.Block {
+
+    const rejection = new Java.NewStatement(
+      new Java.EdgeType(REJECTED_EXECUTION_EXCEPTION),
+      new Java.ArgumentList(new Java.Literal(`Concurrency limit reached for ${endpoint.name}`)),
+    );
+
+    const reject = webSocket
+      ? new Java.Statement(new Java.ReturnStatement(new Java.MethodCall(
+        new Java.MemberAccess(new Java.ClassName(new Java.EdgeType(COMPLETABLE_FUTURE)), new Java.Identifier('failedFuture')),
+        new Java.ArgumentList(rejection),
+      )))
+      : new Java.Statement(new Java.ThrowStatement(rejection));
+
+    const block = new Java.Block(
+      new Java.IfStatement(
+        new Java.BinaryExpression(
+          new Java.MethodCall(
+            new Java.MemberAccess(new Java.FieldReference(limitField), concurrencyLimit.tryAcquireMethod.signature.identifier),
+            new Java.ArgumentList(),
+          ),
+          Java.TokenKind.EQUALS,
+          new Java.Literal(false),
+        ),
+        new Java.Block(reject),
+      ),
+      new Java.Statement(startDeclaration),
+    );
+
+    if (webSocket) {
+
+      // The slot is otherwise given back when the future completes, so a call that throws before it has a future must give it back here.
+      const caughtParameter = new Java.Parameter(new Java.EdgeType(THROWABLE), new Java.Identifier('ex'));
+      block.children.push(
+        new Java.TryCatchStatement(
+          methodBlock,
+          caughtParameter,
+          new Java.Block(
+            new Java.Statement(this.createReleaseCall(concurrencyLimit, limitField, startDeclaration, new Java.Literal(false))),
+            new Java.Statement(new Java.ReturnStatement(new Java.MethodCall(
+              new Java.MemberAccess(new Java.ClassName(new Java.EdgeType(COMPLETABLE_FUTURE)), new Java.Identifier('failedFuture')),
+              new Java.ArgumentList(new Java.DeclarationReference(caughtParameter)),
+            ))),
+          ),
+        ),
+      );
+    } else {
+
+      // The failure is kept rather than the success, since the method body returns from more than one place.
+      const failureDeclaration = new Java.VariableDeclaration(new Java.Identifier('failure'), new Java.Literal(null), new Java.EdgeType(THROWABLE));
+      const caughtParameter = new Java.Parameter(new Java.EdgeType(THROWABLE), new Java.Identifier('ex'));
+      block.children.push(
+        new Java.Statement(failureDeclaration),
+        new Java.TryCatchStatement(
+          methodBlock,
+          caughtParameter,
+          new Java.Block(
+            new Java.Statement(new Java.BinaryExpression(
+              new Java.DeclarationReference(failureDeclaration),
+              Java.TokenKind.ASSIGN,
+              new Java.DeclarationReference(caughtParameter),
+            )),
+            new Java.Statement(new Java.ThrowStatement(new Java.DeclarationReference(caughtParameter))),
+          ),
+          new Java.Block(new Java.Statement(this.createReleaseCall(
+            concurrencyLimit,
+            limitField,
+            startDeclaration,
+            new Java.BinaryExpression(new Java.DeclarationReference(failureDeclaration), Java.TokenKind.EQUALS, new Java.Literal(null)),
+          ))),
+        ),
+      );
+    }
+
+    return block;
+  }
+
+  /**
+   * An endpoint whose request is sent to us rather than by us, like a JsonRpc callback, cannot be called.
+   * It can only be listened to.
+   */
+  private isReceivedEndpoint(endpoint: OmniEndpoint): boolean {
+    return endpoint.request.type.kind === OmniTypeKind.OBJECT && endpoint.request.type.direction === Direction.IN;
+  }
+
+  /**
+   * Creates a method that returns a `Flow.Publisher` of the decoded params of each notification the server sends for the endpoint.
+   *
+   * Each subscriber is given its own `SubmissionPublisher` with a bounded buffer, fed by its own handler on the transport.
+   * Items are offered rather than submitted, so a subscriber that does not keep up never blocks the transport listener,
+   * and what happens to it is instead decided by the `subscriptionOverflow` option.
+   * The handler is removed from the transport once the subscription is cancelled or has ended, which it does when the transport closes.
+   */
+  private createPublisherMethod(
+    args: JavaHttpArgs,
+    endpoint: OmniEndpoint,
+    transport: WebSocketTransport,
+    transportField: Java.Field,
+    objectMapperField: Java.Field,
+    callbackSubscriber: Java.ClassDeclaration,
+  ): Java.MethodDeclaration {
+
+    const astUtils = args.root.getAstUtils();
+    const requestType = endpoint.request.type;
+    const paramsProperty = (requestType.kind === OmniTypeKind.OBJECT)
+      ? requestType.properties.find(it => OmniUtil.getPropertyName(it.name) === 'params')
+      : undefined;
+
+    // The params are decoded on their own if we know their type, otherwise the whole message is decoded into the request type.
+    const itemType = OmniUtil.toReferenceType(paramsProperty?.type ?? requestType);
+
+    const publisherType = new Java.GenericType(SUBMISSION_PUBLISHER, new Java.EdgeType(SUBMISSION_PUBLISHER), [
+      astUtils.createTypeNode(itemType, false),
+    ]);
+
+    const publisherDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('publisher'),
+      new Java.NewStatement(publisherType, new Java.ArgumentList(
+        this.call(new Java.ClassName(new Java.EdgeType(FORK_JOIN_POOL)), 'commonPool'),
+        new Java.Literal(args.implOptions.subscriptionBufferSize),
+      )),
+      undefined,
+      true,
+    );
+    const publisher = () => new Java.DeclarationReference(publisherDeclaration);
+
+    const messageParameter = new Java.Parameter(new Java.EdgeType(JSON_NODE), new Java.Identifier('message'));
+    const errorParameter = new Java.Parameter(new Java.EdgeType(THROWABLE), new Java.Identifier('error'));
+    const exceptionParameter = new Java.Parameter(
+      new Java.EdgeType({kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'RuntimeException'}}),
+      new Java.Identifier('ex'),
+    );
+
+    const decodeSource = paramsProperty
+      ? this.call(new Java.DeclarationReference(messageParameter), 'path', new Java.Literal('params'))
+      : new Java.DeclarationReference(messageParameter);
+
+    // Uses `convertValue` since it does not throw a checked exception, which a handler function is not allowed to do.
+    const decoded = this.call(
+      new Java.FieldReference(objectMapperField),
+      'convertValue',
+      decodeSource,
+      new Java.ClassReference(new Java.ClassName(astUtils.createTypeNode(itemType, false))),
+    );
+
+    // Without a drop handler the item is only left out for subscribers without room for it, and the number of them is returned as negative.
+    const offer = this.call(publisher(), 'offer', decoded, new Java.Literal(null));
+    const onItem = (args.implOptions.subscriptionOverflow === SubscriptionOverflow.FAIL)
+      ? new Java.IfStatement(
+        new Java.BinaryExpression(offer, Java.TokenKind.LT, new Java.Literal(0)),
+        new Java.Block(
+          new Java.Statement(this.call(publisher(), 'closeExceptionally', new Java.NewStatement(
+            new Java.EdgeType(ILLEGAL_STATE_EXCEPTION),
+            new Java.ArgumentList(new Java.Literal(`Subscriber fell more than ${args.implOptions.subscriptionBufferSize} items behind`)),
+          ))),
+        ),
+      )
+      : new Java.Statement(offer);
+
+    // Called without a message when the transport closes. A message that cannot be decoded ends the stream for its subscriber instead of failing the transport.
+    const handlerDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('handler'),
+      new Java.Lambda(
+        new Java.ParameterList(messageParameter, errorParameter),
+        new Java.Block(
+          new Java.TryCatchStatement(
+            new Java.Block(
+              new Java.IfElseStatement(
+                [
+                  new Java.IfStatement(
+                    new Java.BinaryExpression(
+                      new Java.DeclarationReference(messageParameter),
+                      Java.TokenKind.EQUALS,
+                      new Java.Literal(null),
+                    ),
+                    new Java.Block(
+                      new Java.IfElseStatement(
+                        [
+                          new Java.IfStatement(
+                            new Java.BinaryExpression(new Java.DeclarationReference(errorParameter), Java.TokenKind.EQUALS, new Java.Literal(null)),
+                            new Java.Block(new Java.Statement(this.call(publisher(), 'close'))),
+                          ),
+                        ],
+                        new Java.Block(new Java.Statement(this.call(publisher(), 'closeExceptionally', new Java.DeclarationReference(errorParameter)))),
+                      ),
+                    ),
+                  ),
+                ],
+                new Java.Block(onItem),
+              ),
+            ),
+            exceptionParameter,
+            new Java.Block(
+              new Java.Statement(this.call(publisher(), 'closeExceptionally', new Java.DeclarationReference(exceptionParameter))),
+            ),
+          ),
+        ),
+      ),
+      new Java.GenericType(BI_CONSUMER, new Java.EdgeType(BI_CONSUMER), [new Java.EdgeType(JSON_NODE), new Java.EdgeType(THROWABLE)]),
+      true,
+    );
+
+    const methodName = new Java.Literal(endpoint.name);
+    const wildcard: OmniUnknownType = {kind: OmniTypeKind.UNKNOWN, unknownKind: UnknownKind.WILDCARD};
+    const subscriberParameter = new Java.Parameter(
+      new Java.GenericType(FLOW_SUBSCRIBER, new Java.EdgeType(FLOW_SUBSCRIBER), [
+        new Java.BoundedType(wildcard, new Java.WildcardType(wildcard), undefined, astUtils.createTypeNode(itemType, false)),
+      ]),
+      new Java.Identifier('subscriber'),
+    );
+
+    // The subscriber receives nothing but the item type, so it is safe to hand it on as a subscriber of any object.
+    const subscribe = this.call(publisher(), 'subscribe', new Java.NewStatement(
+      new Java.EdgeType(callbackSubscriber.type.omniType),
+      new Java.ArgumentList(
+        new Java.Cast(
+          new Java.GenericType(FLOW_SUBSCRIBER, new Java.EdgeType(FLOW_SUBSCRIBER), [new Java.EdgeType(OBJECT)]),
+          new Java.DeclarationReference(subscriberParameter),
+        ),
+        new Java.Lambda(
+          new Java.ParameterList(),
+          this.call(new Java.FieldReference(transportField), transport.removeNotificationMethod.signature.identifier, methodName, new Java.DeclarationReference(handlerDeclaration)),
+        ),
+      ),
+    ));
+
+    const signature = new Java.MethodDeclarationSignature(
+      new Java.Identifier(Case.camel(endpoint.name)),
+      new Java.GenericType(FLOW_PUBLISHER, new Java.EdgeType(FLOW_PUBLISHER), [astUtils.createTypeNode(itemType, false)]),
+    );
+
+    if (endpoint.description || endpoint.summary) {
+      signature.comments = new Java.Comment(endpoint.description ?? endpoint.summary ?? '');
+    }
+
+    // The handler is registered before subscribing, so a subscriber that cancels right away always finds it to remove.
+    return new Java.MethodDeclaration(
+      signature,
+      new Java.Block(
+        new Java.Statement(new Java.ReturnStatement(new Java.Lambda(
+          new Java.ParameterList(subscriberParameter),
+          new Java.Block(
+            new Java.Statement(publisherDeclaration),
+            new Java.Statement(handlerDeclaration),
+            new Java.Statement(this.call(
+              new Java.FieldReference(transportField),
+              transport.onNotificationMethod.signature.identifier,
+              new Java.Literal(endpoint.name),
+              new Java.DeclarationReference(handlerDeclaration),
+            )),
+            new Java.Statement(subscribe),
+          ),
+        ))),
+      ),
+    );
+  }
+
+  /**
+   * Creates a subscriber that passes everything on to another subscriber, and runs a callback once its subscription is cancelled or has ended.
+   *
+   * It is a class of its own since `Flow.Subscriber` has more than one method, so it cannot be given as a lambda.
+   */
+  private createCallbackSubscriberClass(args: JavaHttpArgs): Java.ClassDeclaration {
+
+    const name = 'CallbackSubscriber';
+    const declaration = new Java.ClassDeclaration(
+      new Java.EdgeType({kind: OmniTypeKind.OBJECT, name: name, properties: []}, true),
+      new Java.Identifier(name),
+      new Java.Block(),
+    );
+
+    const subscriberType = () => new Java.GenericType(FLOW_SUBSCRIBER, new Java.EdgeType(FLOW_SUBSCRIBER), [new Java.EdgeType(OBJECT)]);
+    declaration.implements = new Java.ImplementsDeclaration(new Java.TypeList(subscriberType(), new Java.EdgeType(FLOW_SUBSCRIPTION)));
+
+    const privateFinal = () => new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE), new Java.Modifier(Java.ModifierKind.FINAL));
+    const subscriberField = new Java.Field(subscriberType(), new Java.Identifier('subscriber'), privateFinal());
+    const onEndField = new Java.Field(new Java.EdgeType(RUNNABLE), new Java.Identifier('onEnd'), privateFinal());
+    const subscriptionField = new Java.Field(
+      new Java.EdgeType(FLOW_SUBSCRIPTION),
+      new Java.Identifier('subscription'),
+      new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE)),
+    );
+
+    const subscriber = () => new Java.FieldReference(subscriberField);
+    const subscription = () => new Java.FieldReference(subscriptionField);
+    const onEnd = () => new Java.Statement(this.call(new Java.FieldReference(onEndField), 'run'));
+
+    const upstreamParameter = new Java.Parameter(new Java.EdgeType(FLOW_SUBSCRIPTION), new Java.Identifier('upstream'));
+    const itemParameter = new Java.Parameter(new Java.EdgeType(OBJECT), new Java.Identifier('item'));
+    const errorParameter = new Java.Parameter(new Java.EdgeType(THROWABLE), new Java.Identifier('error'));
+    const countParameter = new Java.Parameter(args.root.getAstUtils().createTypeNode({kind: OmniTypeKind.LONG}), new Java.Identifier('n'));
+
+    const override = (methodName: string, parameters: Java.ParameterList, ...statements: AstNode[]) => new Java.MethodDeclaration(
+      new Java.MethodDeclarationSignature(
+        new Java.Identifier(methodName),
+        new Java.EdgeType({kind: OmniTypeKind.VOID}),
+        parameters,
+        new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PUBLIC)),
+        new Java.AnnotationList([new Java.Annotation(new Java.EdgeType(OVERRIDE))]),
+      ),
+      new Java.Block(...statements),
+    );
+
+    declaration.body.children.push(
+      subscriberField,
+      onEndField,
+      subscriptionField,
+      override(
+        'onSubscribe',
+        new Java.ParameterList(upstreamParameter),
+        new Java.Statement(new Java.BinaryExpression(subscription(), Java.TokenKind.ASSIGN, new Java.DeclarationReference(upstreamParameter))),
+        new Java.Statement(this.call(subscriber(), 'onSubscribe', new Java.SelfReference())),
+      ),
+      override(
+        'onNext',
+        new Java.ParameterList(itemParameter),
+        new Java.Statement(this.call(subscriber(), 'onNext', new Java.DeclarationReference(itemParameter))),
+      ),
+      override(
+        'onError',
+        new Java.ParameterList(errorParameter),
+        onEnd(),
+        new Java.Statement(this.call(subscriber(), 'onError', new Java.DeclarationReference(errorParameter))),
+      ),
+      override(
+        'onComplete',
+        new Java.ParameterList(),
+        onEnd(),
+        new Java.Statement(this.call(subscriber(), 'onComplete')),
+      ),
+      override(
+        'request',
+        new Java.ParameterList(countParameter),
+        new Java.Statement(this.call(subscription(), 'request', new Java.DeclarationReference(countParameter))),
+      ),
+      override(
+        'cancel',
+        new Java.ParameterList(),
+        onEnd(),
+        new Java.Statement(this.call(subscription(), 'cancel')),
+      ),
+    );
+
+    return declaration;
+  }
+
+  /**
+   * An endpoint without any responses, like a JsonRpc notification, is sent without waiting for or parsing any response.
+   */
+  private createNotificationMethod(endpoint: OmniEndpoint, sendNotificationMethod: Java.MethodDeclaration): Java.MethodDeclaration {
+
+    const requestParameter = new Java.Parameter(new Java.EdgeType(endpoint.request.type), new Java.Identifier('request'));
+    const signature = new Java.MethodDeclarationSignature(
+      new Java.Identifier(Case.camel(endpoint.name)),
+      new Java.EdgeType({kind: OmniTypeKind.VOID}),
+      new Java.ParameterList(requestParameter),
+    );
+
+    if (endpoint.description || endpoint.summary) {
+      signature.comments = new Java.Comment(endpoint.description ?? endpoint.summary ?? '');
+    }
+
+    return new Java.MethodDeclaration(
+      signature,
+      new Java.Block(
+        new Java.Statement(new Java.MethodCall(
+          new Java.MemberAccess(new Java.SelfReference(), sendNotificationMethod.signature.identifier),
+          new Java.ArgumentList(new Java.DeclarationReference(requestParameter)),
+        )),
+      ),
+    );
+  }
+
+  /**
+   * Adds the members needed to send notifications, and returns the method that the notification endpoint methods should call.
+   *
+   * If notifications are batched, they are queued and sent as one JsonRpc batch array, either when the batch size is reached,
+   * or when the oldest queued notification has waited for the flush delay. The delay uses the shared `CompletableFuture` scheduler,
+   * so the client does not need to own and shut down an executor of its own.
+   */
+  private addNotificationMembers(
+    args: JavaHttpArgs,
+    client: Java.ClassDeclaration,
+    objectMapperField: Java.Field,
+    transport: WebSocketTransport | undefined,
+    transportField: Java.Field | undefined,
+    endpointField: Java.Field | undefined,
+  ): Java.MethodDeclaration {
+
+    const notifyMethod = this.createNotifyMethod(client, objectMapperField, transport, transportField, endpointField);
+    client.body.children.push(notifyMethod);
+
+    if (args.implOptions.notificationBatchSize <= 1) {
+      return notifyMethod;
+    }
+
+    const objectType = () => new Java.EdgeType({kind: OmniTypeKind.UNKNOWN, unknownKind: UnknownKind.OBJECT}, false);
+    const privateFinal = () => new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE), new Java.Modifier(Java.ModifierKind.FINAL));
+
+    const queueField = new Java.Field(
+      new Java.GenericType(CONCURRENT_LINKED_QUEUE, new Java.EdgeType(CONCURRENT_LINKED_QUEUE), [objectType()]),
+      new Java.Identifier('pendingNotifications'),
+      privateFinal(),
+      new Java.NewStatement(new Java.GenericType(CONCURRENT_LINKED_QUEUE, new Java.EdgeType(CONCURRENT_LINKED_QUEUE), []), new Java.ArgumentList()),
+    );
+    const countField = new Java.Field(
+      new Java.EdgeType(ATOMIC_INTEGER),
+      new Java.Identifier('pendingNotificationCount'),
+      privateFinal(),
+      new Java.NewStatement(new Java.EdgeType(ATOMIC_INTEGER), new Java.ArgumentList()),
+    );
+
+    // The count is reset before draining, so a notification queued during a flush is either drained by it, or starts a new delay.
+    const batchDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('batch'),
+      new Java.NewStatement(new Java.GenericType(ARRAY_LIST, new Java.EdgeType(ARRAY_LIST), [objectType()]), new Java.ArgumentList()),
+      undefined,
+      true,
+    );
+    const drainedParameter = new Java.Parameter(objectType(), new Java.Identifier('notification'));
+
+    const flushSignature = new Java.MethodDeclarationSignature(
+      new Java.Identifier('flushNotifications'),
+      new Java.EdgeType({kind: OmniTypeKind.VOID}),
+      new Java.ParameterList(),
+      new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PUBLIC)),
+    );
+    flushSignature.comments = new Java.Comment('Sends all queued notifications now, instead of waiting for the batch to fill up or the flush delay to pass.');
+
+    const flushMethod = new Java.MethodDeclaration(
+      flushSignature,
+      new Java.Block(
+        new Java.Statement(new Java.MethodCall(
+          new Java.MemberAccess(new Java.FieldReference(countField), new Java.Identifier('set')),
+          new Java.ArgumentList(new Java.Literal(0)),
+        )),
+        new Java.Statement(batchDeclaration),
+        new Java.Statement(new Java.MethodCall(
+          new Java.MemberAccess(new Java.FieldReference(queueField), new Java.Identifier('removeIf')),
+          new Java.ArgumentList(new Java.Lambda(
+            new Java.ParameterList(drainedParameter),
+            new Java.MethodCall(
+              new Java.MemberAccess(new Java.DeclarationReference(batchDeclaration), new Java.Identifier('add')),
+              new Java.ArgumentList(new Java.DeclarationReference(drainedParameter)),
+            ),
+          )),
+        )),
+        new Java.IfStatement(
+          new Java.BinaryExpression(
+            new Java.MethodCall(new Java.MemberAccess(new Java.DeclarationReference(batchDeclaration), new Java.Identifier('isEmpty'))),
+            Java.TokenKind.EQUALS,
+            new Java.Literal(false),
+          ),
+          new Java.Block(
+            new Java.Statement(new Java.MethodCall(
+              new Java.MemberAccess(new Java.SelfReference(), notifyMethod.signature.identifier),
+              new Java.ArgumentList(new Java.DeclarationReference(batchDeclaration)),
+            )),
+          ),
+        ),
+      ),
+    );
+
+    const notificationParameter = new Java.Parameter(objectType(), new Java.Identifier('notification'));
+    const pendingDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('pending'),
+      new Java.MethodCall(new Java.MemberAccess(new Java.FieldReference(countField), new Java.Identifier('incrementAndGet'))),
+      undefined,
+      true,
+    );
+
+    const flushCall = () => new Java.MethodCall(new Java.MemberAccess(new Java.SelfReference(), flushSignature.identifier));
+
+    const queueMethod = new Java.MethodDeclaration(
+      new Java.MethodDeclarationSignature(
+        new Java.Identifier('_queueNotification'),
+        new Java.EdgeType({kind: OmniTypeKind.VOID}),
+        new Java.ParameterList(notificationParameter),
+        new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE)),
+      ),
+      new Java.Block(
+        new Java.Statement(new Java.MethodCall(
+          new Java.MemberAccess(new Java.FieldReference(queueField), new Java.Identifier('add')),
+          new Java.ArgumentList(new Java.DeclarationReference(notificationParameter)),
+        )),
+        new Java.Statement(pendingDeclaration),
+        new Java.IfStatement(
+          new Java.BinaryExpression(new Java.DeclarationReference(pendingDeclaration), Java.TokenKind.EQUALS, new Java.Literal(1)),
+          new Java.Block(
+            new Java.Statement(new Java.MethodCall(
+              new Java.MemberAccess(
+                new Java.MethodCall(
+                  new Java.MemberAccess(new Java.ClassName(new Java.EdgeType(COMPLETABLE_FUTURE)), new Java.Identifier('delayedExecutor')),
+                  new Java.ArgumentList(
+                    new Java.Literal(args.implOptions.notificationFlushMillis, OmniTypeKind.LONG),
+                    new Java.MemberAccess(new Java.ClassName(new Java.EdgeType(TIME_UNIT)), new Java.Identifier('MILLISECONDS')),
+                  ),
+                ),
+                new Java.Identifier('execute'),
+              ),
+              new Java.ArgumentList(new Java.Lambda(new Java.ParameterList(), flushCall())),
+            )),
+          ),
+        ),
+        new Java.IfStatement(
+          new Java.BinaryExpression(new Java.DeclarationReference(pendingDeclaration), Java.TokenKind.GTE, new Java.Literal(args.implOptions.notificationBatchSize)),
+          new Java.Block(
+            new Java.Statement(flushCall()),
+          ),
+        ),
+      ),
+    );
+
+    client.body.children.push(queueField, countField, flushMethod, queueMethod);
+    return queueMethod;
+  }
+
+  private createNotifyMethod(
+    client: Java.ClassDeclaration,
+    objectMapperField: Java.Field,
+    transport: WebSocketTransport | undefined,
+    transportField: Java.Field | undefined,
+    endpointField: Java.Field | undefined,
+  ): Java.MethodDeclaration {
+
+    const notificationParameter = new Java.Parameter(
+      new Java.EdgeType({kind: OmniTypeKind.UNKNOWN, unknownKind: UnknownKind.OBJECT}, false),
+      new Java.Identifier('notification'),
+    );
+
+    const body = new Java.Block();
+    if (transport && transportField) {
+
+      body.children.push(new Java.Statement(new Java.MethodCall(
+        new Java.MemberAccess(new Java.FieldReference(transportField), transport.sendNotificationMethod.signature.identifier),
+        new Java.ArgumentList(new Java.DeclarationReference(notificationParameter)),
+      )));
+    } else if (endpointField) {
+
+      // Unlike the blocking call, one client is kept and reused, since a notification should cost as little as possible.
+      const httpClientField = new Java.Field(
+        new Java.EdgeType({kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'net', 'http'], edgeName: 'HttpClient'}}),
+        new Java.Identifier('httpClient'),
+        new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE), new Java.Modifier(Java.ModifierKind.FINAL)),
+        new Java.MethodCall(
+          new Java.MemberAccess(
+            new Java.ClassName(new Java.EdgeType({kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'net', 'http'], edgeName: 'HttpClient'}})),
+            new Java.Identifier('newHttpClient'),
+          ),
+          new Java.ArgumentList(),
+        ),
+      );
+      client.body.children.push(httpClientField);
+
+      // Serialized through the tree, since it does not throw a checked exception, just like the WebSocket transport does.
+      const [httpRequestBuilderDeclaration, httpRequestVariableDeclaration] = this.createHttpRequestDeclarations(
+        new Java.FieldReference(endpointField),
+        new Java.MethodCall(
+          new Java.MemberAccess(
+            new Java.MethodCall(
+              new Java.MemberAccess(new Java.FieldReference(objectMapperField), new Java.Identifier('valueToTree')),
+              new Java.ArgumentList(new Java.DeclarationReference(notificationParameter)),
+            ),
+            new Java.Identifier('toString'),
+          ),
+          new Java.ArgumentList(),
+        ),
+      );
+
+      body.children.push(
+        new Java.Statement(httpRequestBuilderDeclaration),
+        new Java.Statement(httpRequestVariableDeclaration),
+        new Java.Statement(new Java.MethodCall(
+          new Java.MemberAccess(new Java.FieldReference(httpClientField), new Java.Identifier('sendAsync')),
+          new Java.ArgumentList(
+            new Java.DeclarationReference(httpRequestVariableDeclaration),
+            new Java.MethodCall(
+              new Java.MemberAccess(
+                new Java.ClassName(new Java.EdgeType({
+                  kind: OmniTypeKind.HARDCODED_REFERENCE,
+                  fqn: {namespace: ['java', 'net', 'http', {name: 'HttpResponse', nested: true}], edgeName: 'BodyHandlers'},
+                })),
+                new Java.Identifier('discarding'),
+              ),
+              new Java.ArgumentList(),
+            ),
+          ),
+        )),
+      );
+    }
+
+    return new Java.MethodDeclaration(
+      new Java.MethodDeclarationSignature(
+        new Java.Identifier('_notify'),
+        new Java.EdgeType({kind: OmniTypeKind.VOID}),
+        new Java.ParameterList(notificationParameter),
+        new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE)),
+      ),
+      body,
+    );
+  }
+
   private createCallMethod(
-    pathIdentifier: Java.Identifier,
     requestIdentifier: Java.Identifier,
     objectMapperField: Java.Field,
+    endpointField: Java.Field,
   ) {
 
     const httpClientBuilderIdentifier = new Java.Identifier('builder');
     const httpClientIdentifier = new Java.Identifier('client');
     const stringValueIdentifier = new Java.Identifier('stringValue');
-    const httpRequestIdentifier = new Java.Identifier('httpRequest');
     const httpResponseIdentifier = new Java.Identifier('httpResponse');
 
     const httpClientBuilderDeclaration = new Java.VariableDeclaration(
@@ -309,68 +1115,7 @@ export class JavaHttpImplementationGenerator implements JavaHttpGeneratorType {
       requestIdentifier,
     );
 
-    const httpRequestBuilderDeclaration = new Java.VariableDeclaration(
-      new Java.Identifier('httpRequestBuilder'),
-      new Java.MethodCall(
-        new Java.MemberAccess(
-          new Java.ClassName(new Java.EdgeType({
-            kind: OmniTypeKind.HARDCODED_REFERENCE,
-            fqn: {namespace: ['java', 'net', 'http'], edgeName: 'HttpRequest'},
-          })),
-          new Java.Identifier('newBuilder'),
-        ),
-        new Java.ArgumentList(
-          new Java.MethodCall(
-            new Java.MemberAccess(
-              new Java.ClassName(new Java.EdgeType({
-                kind: OmniTypeKind.HARDCODED_REFERENCE,
-                fqn: {namespace: ['java', 'net'], edgeName: 'URI'},
-              })),
-              new Java.Identifier('create'),
-            ),
-            new Java.ArgumentList(
-              new Java.Literal('https://google.com'),
-            ),
-          ),
-        ),
-      ),
-      undefined, true,
-    );
-
-    const httpRequestVariableDeclaration = new Java.VariableDeclaration(
-      httpRequestIdentifier,
-      new Java.MethodCall(
-        new Java.MemberAccess(
-          new Java.MethodCall(
-            new Java.MemberAccess(
-              new Java.MethodCall(
-                new Java.MemberAccess(
-                  new Java.DeclarationReference(httpRequestBuilderDeclaration),
-                  new Java.Identifier('header'),
-                ),
-                new Java.ArgumentList(new Java.Literal('Content-Type'), new Java.Literal('application/json')),
-              ),
-              new Java.Identifier('POST'),
-            ),
-            new Java.ArgumentList(
-              new Java.MethodCall(
-                new Java.MemberAccess(
-                  new Java.ClassName(new Java.EdgeType({
-                    kind: OmniTypeKind.HARDCODED_REFERENCE,
-                    fqn: {namespace: ['java', 'net', 'http', {name: 'HttpRequest', nested: true}], edgeName: 'BodyPublishers'},
-                  })),
-                  new Java.Identifier('ofString'),
-                ),
-                new Java.ArgumentList(stringValueIdentifier),
-              ),
-            ),
-          ),
-          new Java.Identifier('build'),
-        ),
-        new Java.ArgumentList(),
-      ),
-      undefined, true,
-    );
+    const [httpRequestBuilderDeclaration, httpRequestVariableDeclaration] = this.createHttpRequestDeclarations(new Java.FieldReference(endpointField), stringValueIdentifier);
 
     // TODO: Is there some way of outsourcing this to another transformer that can add the type for us?
     const httpClientDeclaration = new Java.VariableDeclaration(
@@ -431,13 +1176,7 @@ export class JavaHttpImplementationGenerator implements JavaHttpGeneratorType {
       new Java.MethodDeclarationSignature(
         new Java.Identifier('_call'),
         new Java.EdgeType({kind: OmniTypeKind.UNKNOWN, unknownKind: UnknownKind.OBJECT}, false),
-        new Java.ParameterList(
-          new Java.Parameter(
-            new Java.EdgeType({kind: OmniTypeKind.STRING}),
-            pathIdentifier,
-          ),
-          requestArgumentDeclaration,
-        ),
+        new Java.ParameterList(requestArgumentDeclaration),
         new Java.ModifierList(
           new Java.Modifier(Java.ModifierKind.PRIVATE),
         ),
@@ -499,6 +1238,61 @@ export class JavaHttpImplementationGenerator implements JavaHttpGeneratorType {
     // return callMethod;
   }
 
+  private createHttpRequestDeclarations(uri: Code.AbstractCodeNode, body: Code.AbstractCodeNode): [Java.VariableDeclaration, Java.VariableDeclaration] {
+
+    const httpRequestBuilderDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('httpRequestBuilder'),
+      new Java.MethodCall(
+        new Java.MemberAccess(
+          new Java.ClassName(new Java.EdgeType({
+            kind: OmniTypeKind.HARDCODED_REFERENCE,
+            fqn: {namespace: ['java', 'net', 'http'], edgeName: 'HttpRequest'},
+          })),
+          new Java.Identifier('newBuilder'),
+        ),
+        new Java.ArgumentList(uri),
+      ),
+      undefined, true,
+    );
+
+    const httpRequestVariableDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('httpRequest'),
+      new Java.MethodCall(
+        new Java.MemberAccess(
+          new Java.MethodCall(
+            new Java.MemberAccess(
+              new Java.MethodCall(
+                new Java.MemberAccess(
+                  new Java.DeclarationReference(httpRequestBuilderDeclaration),
+                  new Java.Identifier('header'),
+                ),
+                new Java.ArgumentList(new Java.Literal('Content-Type'), new Java.Literal('application/json')),
+              ),
+              new Java.Identifier('POST'),
+            ),
+            new Java.ArgumentList(
+              new Java.MethodCall(
+                new Java.MemberAccess(
+                  new Java.ClassName(new Java.EdgeType({
+                    kind: OmniTypeKind.HARDCODED_REFERENCE,
+                    fqn: {namespace: ['java', 'net', 'http', {name: 'HttpRequest', nested: true}], edgeName: 'BodyPublishers'},
+                  })),
+                  new Java.Identifier('ofString'),
+                ),
+                new Java.ArgumentList(body),
+              ),
+            ),
+          ),
+          new Java.Identifier('build'),
+        ),
+        new Java.ArgumentList(),
+      ),
+      undefined, true,
+    );
+
+    return [httpRequestBuilderDeclaration, httpRequestVariableDeclaration];
+  }
+
   private addResponseWithQualifiers(
     response: OmniOutput,
     responseDeclaration: Java.Parameter | Java.VariableDeclaration,
@@ -583,7 +1377,7 @@ export class JavaHttpImplementationGenerator implements JavaHttpGeneratorType {
     fromValueDeclaration: Java.VariableDeclaration | Java.Parameter,
     type: OmniType,
     cuBody: Java.Block,
-    throws: Java.TypeList,
+    throws: Java.TypeList | undefined,
   ): Java.Statement[] {
 
     const result = this.createConverterMethodCall(args.root, converterField, fromValueDeclaration, type);
@@ -595,19 +1389,29 @@ export class JavaHttpImplementationGenerator implements JavaHttpGeneratorType {
     );
 
     const astType = this.getOrCreateExceptionAstType(args, type, cuBody);
-    throws.children.push(astType);
+
+    let exception = new Java.NewStatement(
+      astType,
+      new Java.ArgumentList(
+        new Java.DeclarationReference(resultVariable),
+      ),
+    );
+
+    if (throws) {
+      throws.children.push(astType);
+    } else {
+
+      // Without anywhere to declare the checked exception, it is wrapped so the future completes exceptionally with it as the cause.
+      exception = new Java.NewStatement(
+        new Java.EdgeType({kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'concurrent'], edgeName: 'CompletionException'}}),
+        new Java.ArgumentList(exception),
+      );
+    }
 
     return [
       new Java.Statement(resultVariable),
       new Java.Statement(
-        new Java.ThrowStatement(
-          new Java.NewStatement(
-            astType,
-            new Java.ArgumentList(
-              new Java.DeclarationReference(resultVariable),
-            ),
-          ),
-        ),
+        new Java.ThrowStatement(exception),
       ),
     ];
   }
@@ -691,15 +1495,18 @@ export class JavaHttpImplementationGenerator implements JavaHttpGeneratorType {
     args: JavaHttpArgs,
     regularResponses: OmniOutput[],
     errorResponses: OmniOutput[],
+    referenceType = false,
   ): TypeNode {
 
+    const createTypeNode = (type: OmniType) => args.root.getAstUtils().createTypeNode(referenceType ? OmniUtil.toReferenceType(type) : type, false);
+
     if (regularResponses.length == 1) {
 
       if (args.implOptions.onErrorThrowExceptions) {
-        return args.root.getAstUtils().createTypeNode(regularResponses[0].type, false);
+        return createTypeNode(regularResponses[0].type);
       } else {
         if (errorResponses.length == 0) {
-          return args.root.getAstUtils().createTypeNode(regularResponses[0].type, false);
+          return createTypeNode(regularResponses[0].type);
         } else {
           // TODO: We need to merge the different responses into on container object. An XOR composition.
           //        (and then run the XOR composition transformer over it all)
@@ -711,10 +1518,10 @@ export class JavaHttpImplementationGenerator implements JavaHttpGeneratorType {
     }
 
     if (regularResponses.length == 0) {
-      return args.root.getAstUtils().createTypeNode({kind: OmniTypeKind.UNKNOWN}, false);
+      return createTypeNode({kind: OmniTypeKind.UNKNOWN});
     }
 
-    return args.root.getAstUtils().createTypeNode(regularResponses[0].type, false);
+    return createTypeNode(regularResponses[0].type);
   }
 
   private getTypeAndLiteral(value: unknown | undefined): ['null' | 'string' | 'number' | 'boolean', OmniPrimitiveConstantValue] {
@@ -742,6 +1549,11 @@ export class JavaHttpImplementationGenerator implements JavaHttpGeneratorType {
     return ['null', null];
   }
 
+  private call(owner: Code.AbstractCodeNode, method: string | AstNode, ...methodArguments: Code.AbstractCodeNode[]): Java.MethodCall {
+    const member = (typeof method === 'string') ? new Java.Identifier(method) : method;
+    return new Java.MethodCall(new Java.MemberAccess(owner, member), new Java.ArgumentList(...methodArguments));
+  }
+
   private getJsonObjectValueGetter(type: 'null' | 'string' | 'number' | 'boolean'): string {
     switch (type) {
       case 'null':
@@ -0,0 +1,36 @@
+import {describe, test} from 'vitest';
+import {ImplementationTestUtils} from '../util';
+
+describe('JavaWebSocketTransportGenerator', () => {
+
+  test('a message that cannot be read is dropped without stalling or failing other calls', async ctx => {
+
+    const files = await ImplementationTestUtils.getFileContentsFromFile('petstore-expanded.json', {clientTransport: 'WEBSOCKET'});
+    const transport = files.get('JsonRpcWebSocketTransport.java') ?? '';
+
+    const onText = transport.substring(transport.indexOf('onText('), transport.indexOf('onClose('));
+    ctx.expect(onText).toMatch(/catch \(Exception ex\) \{\s*LOGGER\.log\([\w.]*Level\.WARNING, "Dropped a received message that could not be read or handled", ex\);\s*}/);
+    ctx.expect(onText).toMatch(/finally \{\s*if \(last\) \{\s*frames\.clear\(\);\s*}\s*webSocket\.request\(1\);\s*}/);
+    ctx.expect(onText).not.toContain('failAll');
+  });
+
+  test('a call that cannot be serialized is not left waiting in flight', async ctx => {
+
+    const files = await ImplementationTestUtils.getFileContentsFromFile('petstore-expanded.json', {clientTransport: 'WEBSOCKET'});
+    const transport = files.get('JsonRpcWebSocketTransport.java') ?? '';
+
+    const call = transport.substring(transport.indexOf(' call('), transport.indexOf('sendNotification('));
+    ctx.expect(call.indexOf('valueToTree')).toBeGreaterThan(-1);
+    ctx.expect(call.indexOf('valueToTree')).toBeLessThan(call.indexOf('inFlight.put'));
+  });
+
+  test('a throwing handler fails the answered call instead of escaping the listener', async ctx => {
+
+    const files = await ImplementationTestUtils.getFileContentsFromFile('petstore-expanded.json', {clientTransport: 'WEBSOCKET'});
+    const transport = files.get('JsonRpcWebSocketTransport.java') ?? '';
+
+    const complete = transport.substring(transport.indexOf('void complete('), transport.indexOf('void failAll('));
+    ctx.expect(complete).toMatch(/catch \(RuntimeException ex\) \{\s*LOGGER\.log\([\w.]*Level\.WARNING, "A handler of a received message failed", ex\);\s*if \(pending != null\) \{\s*pending\.completeExceptionally\(ex\);/);
+    ctx.expect(complete.indexOf('pending.complete(message)')).toBeGreaterThan(complete.indexOf('catch'));
+  });
+});
@@ -0,0 +1,756 @@
+import {AstNode, OmniHardcodedReferenceType, OmniTypeKind, RootAstNode, TypeNode, UnknownKind} from '@omnigen/api';
+import {JACKSON_JSON_NODE, JACKSON_OBJECT_MAPPER, Java, ToHardCodedTypeJavaAstTransformer} from '@omnigen/target-java';
+import {OmniUtil} from '@omnigen/core';
+import {Code} from '@omnigen/target-code';
+
+export const COMPLETABLE_FUTURE: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'concurrent'], edgeName: 'CompletableFuture'}};
+const COMPLETION_STAGE: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'concurrent'], edgeName: 'CompletionStage'}};
+const CONCURRENT_HASH_MAP: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'concurrent'], edgeName: 'ConcurrentHashMap'}};
+const ATOMIC_LONG: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'concurrent', 'atomic'], edgeName: 'AtomicLong'}};
+const ATOMIC_REFERENCE: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'concurrent', 'atomic'], edgeName: 'AtomicReference'}};
+const WEB_SOCKET: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'net', 'http'], edgeName: 'WebSocket'}};
+const WEB_SOCKET_LISTENER: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'net', 'http', {name: 'WebSocket', nested: true}], edgeName: 'Listener'}};
+const CHAR_BUFFER: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'nio'], edgeName: 'CharBuffer'}};
+const CHAR_ARRAY_READER: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'io'], edgeName: 'CharArrayReader'}};
+const RUNTIME_EXCEPTION: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'RuntimeException'}};
+const EXCEPTION: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'Exception'}};
+const IO_EXCEPTION: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'io'], edgeName: 'IOException'}};
+const CHAR_SEQUENCE: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'CharSequence'}};
+const BI_CONSUMER: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util', 'function'], edgeName: 'BiConsumer'}};
+const SET: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'util'], edgeName: 'Set'}};
+const THROWABLE: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'Throwable'}};
+const VOID: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'Void'}};
+const MATH: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'Math'}};
+const OVERRIDE: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'Override'}};
+const SYSTEM_LOGGER: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang', {name: 'System', nested: true}], edgeName: 'Logger'}};
+const SYSTEM_LOGGER_LEVEL: OmniHardcodedReferenceType = {
+  kind: OmniTypeKind.HARDCODED_REFERENCE,
+  fqn: {namespace: ['java', 'lang', {name: 'System', nested: true}, {name: 'Logger', nested: true}], edgeName: 'Level'},
+};
+const JACKSON_OBJECT_NODE: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['com', 'fasterxml', 'jackson', 'databind', 'node'], edgeName: 'ObjectNode'}};
+export const JSON_NODE: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: JACKSON_JSON_NODE};
+const OBJECT_MAPPER: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: JACKSON_OBJECT_MAPPER};
+
+/**
+ * The result of {@link JavaWebSocketTransportGenerator#create}, with the members that the client needs to know about to call the transport.
+ */
+export interface WebSocketTransport {
+  declaration: Java.ClassDeclaration;
+  callMethod: Java.MethodDeclaration;
+  sendNotificationMethod: Java.MethodDeclaration;
+  onNotificationMethod: Java.MethodDeclaration;
+  removeNotificationMethod: Java.MethodDeclaration;
+}
+
+/**
+ * Creates a JsonRpc transport over one single `java.net.http.WebSocket`, which the client can use instead of opening a new HTTP request per call.
+ *
+ * Any number of requests can be in flight at the same time. Each request is given a new `long` id from an atomic counter,
+ * and its response future is kept in a concurrent map until a message with the same id arrives.
+ *
+ * Sends are chained after each other without locking, since a `WebSocket` does not allow a new send until the previous one has completed.
+ * The listener requests `demand` messages up front, and one more after each received message, so a slow consumer pushes back on the server.
+ * Fragmented messages are gathered in a reused `CharBuffer` and parsed straight from its backing array, without creating a `String`.
+ *
+ * Messages with a `method`, like JsonRpc notifications and callbacks, are given to the handlers registered for that method.
+ * Since the handlers are called on the listener thread, a handler that blocks also holds back the demand for more messages.
+ * When the connection closes, every handler is called one last time without a message, and with the error if the connection failed.
+ */
+export class JavaWebSocketTransportGenerator {
+
+  create(root: RootAstNode, name: string): WebSocketTransport {
+
+    const declaration = new Java.ClassDeclaration(
+      new Java.EdgeType({kind: OmniTypeKind.OBJECT, name: name, properties: []}, true),
+      new Java.Identifier(name),
+      new Java.Block(),
+    );
+
+    declaration.implements = new Java.ImplementsDeclaration(new Java.TypeList(new Java.EdgeType(WEB_SOCKET_LISTENER)));
+
+    const privateFinal = () => new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE), new Java.Modifier(Java.ModifierKind.FINAL));
+
+    const loggerField = new Java.Field(
+      new Java.EdgeType(SYSTEM_LOGGER),
+      new Java.Identifier('LOGGER'),
+      new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE), new Java.Modifier(Java.ModifierKind.STATIC), new Java.Modifier(Java.ModifierKind.FINAL)),
+      this.staticCall(
+        {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['java', 'lang'], edgeName: 'System'}},
+        'getLogger',
+        this.call(new Java.ClassReference(new Java.ClassName(new Java.EdgeType(declaration.type.omniType))), 'getName'),
+      ),
+    );
+    const objectMapperField = new Java.Field(new Java.EdgeType(OBJECT_MAPPER), new Java.Identifier('objectMapper'), privateFinal());
+    const demandField = new Java.Field(root.getAstUtils().createTypeNode({kind: OmniTypeKind.LONG}), new Java.Identifier('demand'), privateFinal());
+    const nextIdField = new Java.Field(
+      new Java.EdgeType(ATOMIC_LONG),
+      new Java.Identifier('nextId'),
+      privateFinal(),
+      new Java.NewStatement(new Java.EdgeType(ATOMIC_LONG), new Java.ArgumentList()),
+    );
+    const inFlightField = new Java.Field(
+      this.generic(CONCURRENT_HASH_MAP, root.getAstUtils().createTypeNode(OmniUtil.toReferenceType({kind: OmniTypeKind.LONG})), this.responseFutureType()),
+      new Java.Identifier('inFlight'),
+      privateFinal(),
+      new Java.NewStatement(this.generic(CONCURRENT_HASH_MAP), new Java.ArgumentList()),
+    );
+    const openedField = new Java.Field(
+      this.generic(COMPLETABLE_FUTURE, new Java.EdgeType(WEB_SOCKET)),
+      new Java.Identifier('opened'),
+      privateFinal(),
+      new Java.NewStatement(this.generic(COMPLETABLE_FUTURE), new Java.ArgumentList()),
+    );
+
+    // The tail is the completion of the latest queued send. Each new send swaps in its own future and waits for the one it replaced.
+    const sendTailField = new Java.Field(
+      this.generic(ATOMIC_REFERENCE, this.generic(COMPLETABLE_FUTURE, new Java.EdgeType(VOID))),
+      new Java.Identifier('sendTail'),
+      privateFinal(),
+      new Java.NewStatement(this.generic(ATOMIC_REFERENCE), new Java.ArgumentList(
+        this.staticCall(COMPLETABLE_FUTURE, 'completedFuture', new Java.Literal(null)),
+      )),
+    );
+
+    const notificationHandlersField = new Java.Field(
+      this.generic(
+        CONCURRENT_HASH_MAP,
+        root.getAstUtils().createTypeNode({kind: OmniTypeKind.STRING}),
+        this.notificationHandlerSetType(),
+      ),
+      new Java.Identifier('notificationHandlers'),
+      privateFinal(),
+      new Java.NewStatement(this.generic(CONCURRENT_HASH_MAP), new Java.ArgumentList()),
+    );
+
+    // Only touched from the listener callbacks, which the WebSocket never invokes concurrently.
+    const framesField = new Java.Field(
+      new Java.EdgeType(CHAR_BUFFER),
+      new Java.Identifier('frames'),
+      new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE)),
+      this.staticCall(CHAR_BUFFER, 'allocate', new Java.Literal(1024)),
+    );
+
+    const failAllMethod = this.createFailAllMethod(inFlightField);
+    const completeMethod = this.createCompleteMethod(loggerField, inFlightField, notificationHandlersField);
+    const closeHandlersMethod = this.createCloseHandlersMethod(notificationHandlersField);
+    const onNotificationMethod = this.createOnNotificationMethod(root, notificationHandlersField);
+    const removeNotificationMethod = this.createRemoveNotificationMethod(root, notificationHandlersField);
+    const appendMethod = this.createAppendMethod(framesField);
+    const sendMethod = this.createSendMethod(openedField, sendTailField);
+    const callMethod = this.createCallMethod(objectMapperField, nextIdField, inFlightField, sendMethod);
+    const sendNotificationMethod = this.createSendNotificationMethod(objectMapperField, sendMethod);
+
+    declaration.body.children.push(
+      loggerField,
+      objectMapperField,
+      demandField,
+      nextIdField,
+      inFlightField,
+      openedField,
+      sendTailField,
+      notificationHandlersField,
+      framesField,
+      callMethod,
+      sendNotificationMethod,
+      onNotificationMethod,
+      removeNotificationMethod,
+      this.createOnOpenMethod(openedField, demandField),
+      this.createOnTextMethod(root, loggerField, objectMapperField, framesField, appendMethod, completeMethod),
+      this.createOnCloseMethod(root, failAllMethod, closeHandlersMethod),
+      this.createOnErrorMethod(openedField, failAllMethod, closeHandlersMethod),
+      sendMethod,
+      appendMethod,
+      completeMethod,
+      failAllMethod,
+      closeHandlersMethod,
+    );
+
+    return {
+      declaration,
+      callMethod,
+      sendNotificationMethod,
+      onNotificationMethod,
+      removeNotificationMethod,
+    };
+  }
+
+  private createSendMethod(openedField: Java.Field, sendTailField: Java.Field): Java.MethodDeclaration {
+
+    const payloadParameter = new Java.Parameter(new Java.EdgeType(CHAR_SEQUENCE), new Java.Identifier('payload'));
+    const sentDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('sent'),
+      new Java.NewStatement(this.generic(COMPLETABLE_FUTURE, new Java.EdgeType(VOID)), new Java.ArgumentList()),
+      undefined,
+      true,
+    );
+
+    const ignoredParameter = new Java.Parameter(new Java.EdgeType(VOID), new Java.Identifier('ignored'));
+    const webSocketParameter = new Java.Parameter(new Java.EdgeType(WEB_SOCKET), new Java.Identifier('webSocket'));
+    const sentWebSocketParameter = new Java.Parameter(new Java.EdgeType(WEB_SOCKET), new Java.Identifier('webSocket'));
+    const errorParameter = new Java.Parameter(new Java.EdgeType(THROWABLE), new Java.Identifier('error'));
+
+    const resultDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('result'),
+      this.call(
+        this.call(
+          this.call(new Java.FieldReference(sendTailField), 'getAndSet', new Java.DeclarationReference(sentDeclaration)),
+          'thenCompose',
+          new Java.Lambda(new Java.ParameterList(ignoredParameter), new Java.FieldReference(openedField)),
+        ),
+        'thenCompose',
+        new Java.Lambda(
+          new Java.ParameterList(webSocketParameter),
+          this.call(new Java.DeclarationReference(webSocketParameter), 'sendText', new Java.DeclarationReference(payloadParameter), new Java.Literal(true)),
+        ),
+      ),
+      undefined,
+      true,
+    );
+
+    return new Java.MethodDeclaration(
+      new Java.MethodDeclarationSignature(
+        new Java.Identifier('send'),
+        this.generic(COMPLETABLE_FUTURE, new Java.EdgeType(WEB_SOCKET)),
+        new Java.ParameterList(payloadParameter),
+        new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE)),
+      ),
+      new Java.Block(
+        new Java.Statement(sentDeclaration),
+        new Java.Statement(resultDeclaration),
+        // A failed send does not fail the chain, so one oversized or rejected message does not take the following ones down with it.
+        new Java.Statement(this.call(
+          new Java.DeclarationReference(resultDeclaration),
+          'whenComplete',
+          new Java.Lambda(
+            new Java.ParameterList(sentWebSocketParameter, errorParameter),
+            this.call(new Java.DeclarationReference(sentDeclaration), 'complete', new Java.Literal(null)),
+          ),
+        )),
+        new Java.Statement(new Java.ReturnStatement(new Java.DeclarationReference(resultDeclaration))),
+      ),
+    );
+  }
+
+  private createCallMethod(
+    objectMapperField: Java.Field,
+    nextIdField: Java.Field,
+    inFlightField: Java.Field,
+    sendMethod: Java.MethodDeclaration,
+  ): Java.MethodDeclaration {
+
+    const requestParameter = new Java.Parameter(
+      new Java.EdgeType({kind: OmniTypeKind.UNKNOWN, unknownKind: UnknownKind.OBJECT}, false),
+      new Java.Identifier('request'),
+    );
+
+    const idDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('id'),
+      this.call(new Java.FieldReference(nextIdField), 'incrementAndGet'),
+      undefined,
+      true,
+    );
+    const responseDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('response'),
+      new Java.NewStatement(this.responseFutureType(), new Java.ArgumentList()),
+      undefined,
+      true,
+    );
+    const messageDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('message'),
+      this.call(new Java.FieldReference(objectMapperField), 'valueToTree', new Java.DeclarationReference(requestParameter)),
+      new Java.EdgeType(JACKSON_OBJECT_NODE),
+      true,
+    );
+
+    const webSocketParameter = new Java.Parameter(new Java.EdgeType(WEB_SOCKET), new Java.Identifier('webSocket'));
+    const errorParameter = new Java.Parameter(new Java.EdgeType(THROWABLE), new Java.Identifier('error'));
+
+    const send = this.call(
+      this.call(new Java.SelfReference(), sendMethod.signature.identifier, this.call(new Java.DeclarationReference(messageDeclaration), 'toString')),
+      'whenComplete',
+      new Java.Lambda(
+        new Java.ParameterList(webSocketParameter, errorParameter),
+        new Java.Block(
+          new Java.IfStatement(
+            new Java.BinaryExpression(new Java.DeclarationReference(errorParameter), Java.TokenKind.NOT_EQUALS, new Java.Literal(null)),
+            new Java.Block(
+              new Java.Statement(this.call(new Java.FieldReference(inFlightField), 'remove', new Java.DeclarationReference(idDeclaration))),
+              new Java.Statement(this.call(new Java.DeclarationReference(responseDeclaration), 'completeExceptionally', new Java.DeclarationReference(errorParameter))),
+            ),
+          ),
+        ),
+      ),
+    );
+
+    const signature = new Java.MethodDeclarationSignature(
+      new Java.Identifier('call'),
+      this.responseFutureType(),
+      new Java.ParameterList(requestParameter),
+      new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PUBLIC)),
+    );
+
+    signature.comments = new Java.Comment('Sends the request with a new unique id, replacing any id it already had, and completes when the response with that id arrives.');
+
+    return new Java.MethodDeclaration(
+      signature,
+      new Java.Block(
+        // The message is made before the future is registered, so a request that cannot be serialized leaves nothing behind that is never completed.
+        new Java.Statement(idDeclaration),
+        new Java.Statement(messageDeclaration),
+        new Java.Statement(this.call(new Java.DeclarationReference(messageDeclaration), 'put', new Java.Literal('id'), new Java.DeclarationReference(idDeclaration))),
+        new Java.Statement(responseDeclaration),
+        new Java.Statement(this.call(new Java.FieldReference(inFlightField), 'put', new Java.DeclarationReference(idDeclaration), new Java.DeclarationReference(responseDeclaration))),
+        new Java.Statement(send),
+        new Java.Statement(new Java.ReturnStatement(new Java.DeclarationReference(responseDeclaration))),
+      ),
+    );
+  }
+
+  private createSendNotificationMethod(objectMapperField: Java.Field, sendMethod: Java.MethodDeclaration): Java.MethodDeclaration {
+
+    const notificationParameter = new Java.Parameter(
+      new Java.EdgeType({kind: OmniTypeKind.UNKNOWN, unknownKind: UnknownKind.OBJECT}, false),
+      new Java.Identifier('notification'),
+    );
+
+    const signature = new Java.MethodDeclarationSignature(
+      new Java.Identifier('sendNotification'),
+      this.generic(COMPLETABLE_FUTURE, new Java.EdgeType(WEB_SOCKET)),
+      new Java.ParameterList(notificationParameter),
+      new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PUBLIC)),
+    );
+
+    signature.comments = new Java.Comment('Sends the notification, or array of notifications, as it is. Nothing is ever awaited from the server, the returned future only tells when it was sent.');
+
+    return new Java.MethodDeclaration(
+      signature,
+      new Java.Block(
+        new Java.Statement(new Java.ReturnStatement(this.call(
+          new Java.SelfReference(),
+          sendMethod.signature.identifier,
+          this.call(this.call(new Java.FieldReference(objectMapperField), 'valueToTree', new Java.DeclarationReference(notificationParameter)), 'toString'),
+        ))),
+      ),
+    );
+  }
+
+  private createOnNotificationMethod(root: RootAstNode, notificationHandlersField: Java.Field): Java.MethodDeclaration {
+
+    const methodParameter = new Java.Parameter(root.getAstUtils().createTypeNode({kind: OmniTypeKind.STRING}), new Java.Identifier('method'));
+    const handlerParameter = new Java.Parameter(this.notificationHandlerType(), new Java.Identifier('handler'));
+    const keyParameter = new Java.Parameter(root.getAstUtils().createTypeNode({kind: OmniTypeKind.STRING}), new Java.Identifier('key'));
+
+    const signature = new Java.MethodDeclarationSignature(
+      new Java.Identifier('onNotification'),
+      new Java.EdgeType({kind: OmniTypeKind.VOID}),
+      new Java.ParameterList(methodParameter, handlerParameter),
+      new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PUBLIC)),
+    );
+
+    signature.comments = new Java.Comment(
+      'Registers a handler that is given each received message with the method name, until it is removed with `removeNotification`.'
+      + ' It is called one last time with a `null` message when the connection closes.',
+    );
+
+    // A concurrent key set per method, so a received message can be given to all handlers while others are added or removed, without any locking.
+    return new Java.MethodDeclaration(
+      signature,
+      new Java.Block(
+        new Java.Statement(this.call(
+          this.call(
+            new Java.FieldReference(notificationHandlersField),
+            'computeIfAbsent',
+            new Java.DeclarationReference(methodParameter),
+            new Java.Lambda(new Java.ParameterList(keyParameter), this.staticCall(CONCURRENT_HASH_MAP, 'newKeySet')),
+          ),
+          'add',
+          new Java.DeclarationReference(handlerParameter),
+        )),
+      ),
+    );
+  }
+
+  private createRemoveNotificationMethod(root: RootAstNode, notificationHandlersField: Java.Field): Java.MethodDeclaration {
+
+    const methodParameter = new Java.Parameter(root.getAstUtils().createTypeNode({kind: OmniTypeKind.STRING}), new Java.Identifier('method'));
+    const handlerParameter = new Java.Parameter(this.notificationHandlerType(), new Java.Identifier('handler'));
+    const handlersDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('handlers'),
+      this.call(new Java.FieldReference(notificationHandlersField), 'get', new Java.DeclarationReference(methodParameter)),
+      undefined,
+      true,
+    );
+
+    const signature = new Java.MethodDeclarationSignature(
+      new Java.Identifier('removeNotification'),
+      new Java.EdgeType({kind: OmniTypeKind.VOID}),
+      new Java.ParameterList(methodParameter, handlerParameter),
+      new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PUBLIC)),
+    );
+
+    signature.comments = new Java.Comment('Removes a handler registered with `onNotification`, so it is given no more messages.');
+
+    // The set of the method is kept even when empty, since there is only ever one per method name.
+    return new Java.MethodDeclaration(
+      signature,
+      new Java.Block(
+        new Java.Statement(handlersDeclaration),
+        new Java.IfStatement(
+          new Java.BinaryExpression(new Java.DeclarationReference(handlersDeclaration), Java.TokenKind.NOT_EQUALS, new Java.Literal(null)),
+          new Java.Block(
+            new Java.Statement(this.call(new Java.DeclarationReference(handlersDeclaration), 'remove', new Java.DeclarationReference(handlerParameter))),
+          ),
+        ),
+      ),
+    );
+  }
+
+  /**
+   * Calls every handler without a message, so that whatever they feed can be told that nothing more will come.
+   */
+  private createCloseHandlersMethod(notificationHandlersField: Java.Field): Java.MethodDeclaration {
+
+    const errorParameter = new Java.Parameter(new Java.EdgeType(THROWABLE), new Java.Identifier('error'));
+    const handlersParameter = new Java.Parameter(this.notificationHandlerSetType(), new Java.Identifier('handlers'));
+    const handlerParameter = new Java.Parameter(this.notificationHandlerType(), new Java.Identifier('handler'));
+
+    return new Java.MethodDeclaration(
+      new Java.MethodDeclarationSignature(
+        new Java.Identifier('closeHandlers'),
+        new Java.EdgeType({kind: OmniTypeKind.VOID}),
+        new Java.ParameterList(errorParameter),
+        new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE)),
+      ),
+      new Java.Block(
+        new Java.Statement(this.call(
+          this.call(new Java.FieldReference(notificationHandlersField), 'values'),
+          'forEach',
+          new Java.Lambda(
+            new Java.ParameterList(handlersParameter),
+            this.call(
+              new Java.DeclarationReference(handlersParameter),
+              'forEach',
+              new Java.Lambda(
+                new Java.ParameterList(handlerParameter),
+                this.call(new Java.DeclarationReference(handlerParameter), 'accept', new Java.Literal(null), new Java.DeclarationReference(errorParameter)),
+              ),
+            ),
+          ),
+        )),
+      ),
+    );
+  }
+
+  private createOnOpenMethod(openedField: Java.Field, demandField: Java.Field): Java.MethodDeclaration {
+
+    const webSocketParameter = new Java.Parameter(new Java.EdgeType(WEB_SOCKET), new Java.Identifier('webSocket'));
+
+    return new Java.MethodDeclaration(
+      this.createListenerSignature('onOpen', undefined, webSocketParameter),
+      new Java.Block(
+        new Java.Statement(this.call(new Java.FieldReference(openedField), 'complete', new Java.DeclarationReference(webSocketParameter))),
+        new Java.Statement(this.call(new Java.DeclarationReference(webSocketParameter), 'request', new Java.FieldReference(demandField))),
+      ),
+    );
+  }
+
+  private createOnTextMethod(
+    root: RootAstNode,
+    loggerField: Java.Field,
+    objectMapperField: Java.Field,
+    framesField: Java.Field,
+    appendMethod: Java.MethodDeclaration,
+    completeMethod: Java.MethodDeclaration,
+  ): Java.MethodDeclaration {
+
+    const webSocketParameter = new Java.Parameter(new Java.EdgeType(WEB_SOCKET), new Java.Identifier('webSocket'));
+    const dataParameter = new Java.Parameter(new Java.EdgeType(CHAR_SEQUENCE), new Java.Identifier('data'));
+    const lastParameter = new Java.Parameter(root.getAstUtils().createTypeNode({kind: OmniTypeKind.BOOL}), new Java.Identifier('last'));
+    const exceptionParameter = new Java.Parameter(new Java.EdgeType(EXCEPTION), new Java.Identifier('ex'));
+
+    const reader = new Java.NewStatement(new Java.EdgeType(CHAR_ARRAY_READER), new Java.ArgumentList(
+      this.call(new Java.FieldReference(framesField), 'array'),
+      new Java.Literal(0),
+      this.call(new Java.FieldReference(framesField), 'position'),
+    ));
+
+    // A message that could not be read has no id that tells which call it answers, so it is dropped and every call keeps waiting for its own response.
+    // The buffer is cleared and more is requested whatever happens, so one bad message or throwing handler does not stall the connection.
+    return new Java.MethodDeclaration(
+      this.createListenerSignature('onText', this.createCompletionStageType(root), webSocketParameter, dataParameter, lastParameter),
+      new Java.Block(
+        new Java.TryCatchStatement(
+          new Java.Block(
+            new Java.Statement(this.call(new Java.SelfReference(), appendMethod.signature.identifier, new Java.DeclarationReference(dataParameter))),
+            new Java.IfStatement(
+              new Java.DeclarationReference(lastParameter),
+              new Java.Block(
+                new Java.Statement(this.call(
+                  new Java.SelfReference(),
+                  completeMethod.signature.identifier,
+                  this.call(new Java.FieldReference(objectMapperField), 'readTree', reader),
+                )),
+              ),
+            ),
+          ),
+          exceptionParameter,
+          new Java.Block(
+            new Java.Statement(this.call(
+              new Java.FieldReference(loggerField),
+              'log',
+              new Java.MemberAccess(new Java.ClassName(new Java.EdgeType(SYSTEM_LOGGER_LEVEL)), new Java.Identifier('WARNING')),
+              new Java.Literal('Dropped a received message that could not be read or handled'),
+              new Java.DeclarationReference(exceptionParameter),
+            )),
+          ),
+          new Java.Block(
+            new Java.IfStatement(
+              new Java.DeclarationReference(lastParameter),
+              new Java.Block(
+                new Java.Statement(this.call(new Java.FieldReference(framesField), 'clear')),
+              ),
+            ),
+            new Java.Statement(this.call(new Java.DeclarationReference(webSocketParameter), 'request', new Java.Literal(1))),
+          ),
+        ),
+        new Java.Statement(new Java.ReturnStatement(new Java.Literal(null))),
+      ),
+    );
+  }
+
+  private createOnCloseMethod(root: RootAstNode, failAllMethod: Java.MethodDeclaration, closeHandlersMethod: Java.MethodDeclaration): Java.MethodDeclaration {
+
+    const webSocketParameter = new Java.Parameter(new Java.EdgeType(WEB_SOCKET), new Java.Identifier('webSocket'));
+    const statusCodeParameter = new Java.Parameter(root.getAstUtils().createTypeNode({kind: OmniTypeKind.INTEGER}), new Java.Identifier('statusCode'));
+    const reasonParameter = new Java.Parameter(root.getAstUtils().createTypeNode({kind: OmniTypeKind.STRING}), new Java.Identifier('reason'));
+
+    // Calls that are still waiting will never get a response, but a stream of notifications ending when the connection closes is not an error.
+    return new Java.MethodDeclaration(
+      this.createListenerSignature('onClose', this.createCompletionStageType(root), webSocketParameter, statusCodeParameter, reasonParameter),
+      new Java.Block(
+        new Java.Statement(this.call(
+          new Java.SelfReference(),
+          failAllMethod.signature.identifier,
+          new Java.NewStatement(new Java.EdgeType(IO_EXCEPTION), new Java.ArgumentList(
+            new Java.BinaryExpression(new Java.Literal('WebSocket closed with status '), Java.TokenKind.ADD, new Java.DeclarationReference(statusCodeParameter)),
+          )),
+        )),
+        new Java.Statement(this.call(new Java.SelfReference(), closeHandlersMethod.signature.identifier, new Java.Literal(null))),
+        new Java.Statement(new Java.ReturnStatement(new Java.Literal(null))),
+      ),
+    );
+  }
+
+  private createOnErrorMethod(openedField: Java.Field, failAllMethod: Java.MethodDeclaration, closeHandlersMethod: Java.MethodDeclaration): Java.MethodDeclaration {
+
+    const webSocketParameter = new Java.Parameter(new Java.EdgeType(WEB_SOCKET), new Java.Identifier('webSocket'));
+    const errorParameter = new Java.Parameter(new Java.EdgeType(THROWABLE), new Java.Identifier('error'));
+
+    return new Java.MethodDeclaration(
+      this.createListenerSignature('onError', undefined, webSocketParameter, errorParameter),
+      new Java.Block(
+        new Java.Statement(this.call(new Java.FieldReference(openedField), 'completeExceptionally', new Java.DeclarationReference(errorParameter))),
+        new Java.Statement(this.call(new Java.SelfReference(), failAllMethod.signature.identifier, new Java.DeclarationReference(errorParameter))),
+        new Java.Statement(this.call(new Java.SelfReference(), closeHandlersMethod.signature.identifier, new Java.DeclarationReference(errorParameter))),
+      ),
+    );
+  }
+
+  private createAppendMethod(framesField: Java.Field): Java.MethodDeclaration {
+
+    const dataParameter = new Java.Parameter(new Java.EdgeType(CHAR_SEQUENCE), new Java.Identifier('data'));
+    const dataLength = () => this.call(new Java.DeclarationReference(dataParameter), 'length');
+
+    const grownDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('grown'),
+      this.staticCall(CHAR_BUFFER, 'allocate', this.staticCall(
+        MATH,
+        'max',
+        new Java.BinaryExpression(this.call(new Java.FieldReference(framesField), 'capacity'), Java.TokenKind.MULTIPLY, new Java.Literal(2)),
+        new Java.BinaryExpression(this.call(new Java.FieldReference(framesField), 'position'), Java.TokenKind.ADD, dataLength()),
+      )),
+      undefined,
+      true,
+    );
+
+    return new Java.MethodDeclaration(
+      new Java.MethodDeclarationSignature(
+        new Java.Identifier('append'),
+        new Java.EdgeType({kind: OmniTypeKind.VOID}),
+        new Java.ParameterList(dataParameter),
+        new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE)),
+      ),
+      new Java.Block(
+        new Java.IfStatement(
+          new Java.BinaryExpression(this.call(new Java.FieldReference(framesField), 'remaining'), Java.TokenKind.LT, dataLength()),
+          new Java.Block(
+            new Java.Statement(grownDeclaration),
+            new Java.Statement(this.call(new Java.DeclarationReference(grownDeclaration), 'put', this.call(new Java.FieldReference(framesField), 'flip'))),
+            new Java.Statement(new Java.BinaryExpression(new Java.FieldReference(framesField), Java.TokenKind.ASSIGN, new Java.DeclarationReference(grownDeclaration))),
+          ),
+        ),
+        // Wrapping is only a view of the received characters, so they are copied once, straight into the buffer.
+        new Java.Statement(this.call(
+          new Java.FieldReference(framesField),
+          'put',
+          this.staticCall(CHAR_BUFFER, 'wrap', new Java.DeclarationReference(dataParameter)),
+        )),
+      ),
+    );
+  }
+
+  private createCompleteMethod(loggerField: Java.Field, inFlightField: Java.Field, notificationHandlersField: Java.Field): Java.MethodDeclaration {
+
+    const messageParameter = new Java.Parameter(new Java.EdgeType(JSON_NODE), new Java.Identifier('message'));
+    const handlerParameter = new Java.Parameter(this.notificationHandlerType(), new Java.Identifier('handler'));
+    const exceptionParameter = new Java.Parameter(new Java.EdgeType(RUNTIME_EXCEPTION), new Java.Identifier('ex'));
+
+    // Messages without a numeric id, like notifications, are given an id that is never handed out.
+    const pendingDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('pending'),
+      this.call(
+        new Java.FieldReference(inFlightField),
+        'remove',
+        this.call(this.call(new Java.DeclarationReference(messageParameter), 'path', new Java.Literal('id')), 'asLong', new Java.Literal(-1)),
+      ),
+      undefined,
+      true,
+    );
+
+    // Responses have no method, so only notifications and callbacks can find any handlers.
+    const handlersDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('handlers'),
+      this.call(
+        new Java.FieldReference(notificationHandlersField),
+        'get',
+        this.call(this.call(new Java.DeclarationReference(messageParameter), 'path', new Java.Literal('method')), 'asText'),
+      ),
+      undefined,
+      true,
+    );
+
+    const isPending = () => new Java.BinaryExpression(new Java.DeclarationReference(pendingDeclaration), Java.TokenKind.NOT_EQUALS, new Java.Literal(null));
+
+    // A throwing handler fails the call that the message answers, if any, instead of escaping the listener. The call is completed last, so it sees that failure.
+    return new Java.MethodDeclaration(
+      new Java.MethodDeclarationSignature(
+        new Java.Identifier('complete'),
+        new Java.EdgeType({kind: OmniTypeKind.VOID}),
+        new Java.ParameterList(messageParameter),
+        new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE)),
+      ),
+      new Java.Block(
+        new Java.Statement(pendingDeclaration),
+        new Java.TryCatchStatement(
+          new Java.Block(
+            new Java.Statement(handlersDeclaration),
+            new Java.IfStatement(
+              new Java.BinaryExpression(new Java.DeclarationReference(handlersDeclaration), Java.TokenKind.NOT_EQUALS, new Java.Literal(null)),
+              new Java.Block(
+                new Java.Statement(this.call(
+                  new Java.DeclarationReference(handlersDeclaration),
+                  'forEach',
+                  new Java.Lambda(
+                    new Java.ParameterList(handlerParameter),
+                    this.call(new Java.DeclarationReference(handlerParameter), 'accept', new Java.DeclarationReference(messageParameter), new Java.Literal(null)),
+                  ),
+                )),
+              ),
+            ),
+          ),
+          exceptionParameter,
+          new Java.Block(
+            new Java.Statement(this.call(
+              new Java.FieldReference(loggerField),
+              'log',
+              new Java.MemberAccess(new Java.ClassName(new Java.EdgeType(SYSTEM_LOGGER_LEVEL)), new Java.Identifier('WARNING')),
+              new Java.Literal('A handler of a received message failed'),
+              new Java.DeclarationReference(exceptionParameter),
+            )),
+            new Java.IfStatement(
+              isPending(),
+              new Java.Block(
+                new Java.Statement(this.call(new Java.DeclarationReference(pendingDeclaration), 'completeExceptionally', new Java.DeclarationReference(exceptionParameter))),
+              ),
+            ),
+          ),
+        ),
+        new Java.IfStatement(
+          isPending(),
+          new Java.Block(
+            new Java.Statement(this.call(new Java.DeclarationReference(pendingDeclaration), 'complete', new Java.DeclarationReference(messageParameter))),
+          ),
+        ),
+      ),
+    );
+  }
+
+  private createFailAllMethod(inFlightField: Java.Field): Java.MethodDeclaration {
+
+    const errorParameter = new Java.Parameter(new Java.EdgeType(THROWABLE), new Java.Identifier('error'));
+    const pendingParameter = new Java.Parameter(this.responseFutureType(), new Java.Identifier('pending'));
+
+    // Removing while iterating makes sure a future added concurrently is either failed here, or left for a later response.
+    return new Java.MethodDeclaration(
+      new Java.MethodDeclarationSignature(
+        new Java.Identifier('failAll'),
+        new Java.EdgeType({kind: OmniTypeKind.VOID}),
+        new Java.ParameterList(errorParameter),
+        new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE)),
+      ),
+      new Java.Block(
+        new Java.Statement(this.call(
+          this.call(new Java.FieldReference(inFlightField), 'values'),
+          'removeIf',
+          new Java.Lambda(
+            new Java.ParameterList(pendingParameter),
+            new Java.Block(
+              new Java.Statement(this.call(new Java.DeclarationReference(pendingParameter), 'completeExceptionally', new Java.DeclarationReference(errorParameter))),
+              new Java.Statement(new Java.ReturnStatement(new Java.Literal(true))),
+            ),
+          ),
+        )),
+      ),
+    );
+  }
+
+  private createListenerSignature(name: string, returnType: TypeNode | undefined, ...parameters: Java.Parameter[]): Java.MethodDeclarationSignature {
+
+    return new Java.MethodDeclarationSignature(
+      new Java.Identifier(name),
+      returnType ?? new Java.EdgeType({kind: OmniTypeKind.VOID}),
+      new Java.ParameterList(...parameters),
+      new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PUBLIC)),
+      new Java.AnnotationList([new Java.Annotation(new Java.EdgeType(OVERRIDE))]),
+    );
+  }
+
+  private createCompletionStageType(root: RootAstNode): TypeNode {
+    return this.generic(COMPLETION_STAGE, ToHardCodedTypeJavaAstTransformer.getUnknownClassName(UnknownKind.WILDCARD, false, root.getAstUtils()));
+  }
+
+  private notificationHandlerType(): Java.GenericType {
+    return this.generic(BI_CONSUMER, new Java.EdgeType(JSON_NODE), new Java.EdgeType(THROWABLE));
+  }
+
+  private notificationHandlerSetType(): Java.GenericType {
+    return this.generic(SET, this.notificationHandlerType());
+  }
+
+  private responseFutureType(): Java.GenericType {
+    return this.generic(COMPLETABLE_FUTURE, new Java.EdgeType(JSON_NODE));
+  }
+
+  private generic(type: OmniHardcodedReferenceType, ...genericArguments: TypeNode[]): Java.GenericType {
+    return new Java.GenericType(type, new Java.EdgeType(type), genericArguments);
+  }
+
+  private call(owner: Code.AbstractCodeNode, method: string | AstNode, ...methodArguments: Code.AbstractCodeNode[]): Java.MethodCall {
+    const member = (typeof method === 'string') ? new Java.Identifier(method) : method;
+    return new Java.MethodCall(new Java.MemberAccess(owner, member), new Java.ArgumentList(...methodArguments));
+  }
+
+  private staticCall(type: OmniHardcodedReferenceType, method: string, ...methodArguments: Code.AbstractCodeNode[]): Java.MethodCall {
+    return this.call(new Java.ClassName(new Java.EdgeType(type)), method, ...methodArguments);
+  }
+}
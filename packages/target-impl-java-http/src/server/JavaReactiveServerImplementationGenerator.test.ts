@@ -0,0 +1,34 @@
+import {describe, test} from 'vitest';
+import {ImplementationTestUtils} from '../util';
+
+describe('JavaReactiveServerImplementationGenerator', () => {
+
+  test('dispatches JsonRpc methods by payload', async ctx => {
+
+    const files = await ImplementationTestUtils.getFileContentsFromFile('petstore-expanded.json', {generateClient: false, generateServer: true});
+
+    const controller = files.get('ApiController.java') ?? '';
+    ctx.expect(controller).toContain('getPets(Mono<GetPetsRequest> request)');
+    ctx.expect(controller).not.toContain('@PostMapping');
+
+    const dispatcher = files.get('ApiControllerDispatcher.java') ?? '';
+    ctx.expect(dispatcher).toContain('@RestController');
+    ctx.expect(dispatcher).toContain('"get_pets".equals(request.at("/method").asText())');
+  });
+
+  test('answers undecodable and unmatched requests with JsonRpc errors', async ctx => {
+
+    const files = await ImplementationTestUtils.getFileContentsFromFile('petstore-expanded.json', {generateClient: false, generateServer: true});
+    const dispatcher = files.get('ApiControllerDispatcher.java') ?? '';
+
+    ctx.expect(dispatcher).toContain('return Mono.defer(() -> {');
+    ctx.expect(dispatcher).toContain('return delegate.getPets(Mono.just(objectMapper.treeToValue(request, GetPetsRequest.class)));');
+    ctx.expect(dispatcher).toContain('} catch (JsonProcessingException error) {');
+    ctx.expect(dispatcher).not.toContain('.cast(');
+    ctx.expect(dispatcher).toContain('createErrorResponse(request, -32602, error.getOriginalMessage())');
+    ctx.expect(dispatcher).toContain('createErrorResponse(request, -32601, "No endpoint matched the request")');
+    ctx.expect(dispatcher).toContain('response.put("jsonrpc", "2.0");');
+    ctx.expect(dispatcher).toContain('response.set("id", request.get("id"));');
+    ctx.expect(dispatcher).not.toContain('IllegalArgumentException');
+  });
+});
@@ -0,0 +1,403 @@
+import {
+  AstNode,
+  AstTransformer,
+  AstTransformerArguments,
+  OmniComparisonOperator,
+  OmniEndpoint,
+  OmniHardcodedReferenceType,
+  OmniItemKind,
+  OmniPayloadPathQualifier,
+  OmniTypeKind,
+  PackageOptions,
+  RootAstNode,
+  TargetOptions,
+  TypeNode,
+  UnknownKind,
+} from '@omnigen/api';
+import {
+  AddThrowsForKnownMethodsJavaAstTransformer,
+  JACKSON_JSON_NODE,
+  JACKSON_OBJECT_MAPPER,
+  Java,
+  JAVA_FEATURES,
+  JavaAndTargetOptions,
+  JavaOptions,
+  ToHardCodedTypeJavaAstTransformer,
+} from '@omnigen/target-java';
+import {
+  AddConstructorAstTransformer,
+  Code,
+  PackageResolverAstTransformer,
+  ReorderMembersAstTransformer,
+} from '@omnigen/target-code';
+import {Case, OmniUtil} from '@omnigen/core';
+import {LoggerFactory} from '@omnigen/core-log';
+import {ImplementationGenerator} from '../client/ImplementationGenerator';
+import {ImplementationArgs} from '../client/ImplementationArgs';
+import {ImplementationOptions} from '../client/ImplementationOptions';
+
+const logger = LoggerFactory.create(import.meta.url);
+
+type JavaReactiveServerGeneratorType = ImplementationGenerator<RootAstNode, JavaAndTargetOptions, ImplementationOptions>;
+type JavaReactiveServerArgs = ImplementationArgs<Java.JavaAstRootNode, JavaAndTargetOptions, ImplementationOptions>;
+
+const REACTOR_MONO: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['reactor', 'core', 'publisher'], edgeName: 'Mono'}};
+const SPRING_POST_MAPPING: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['org', 'springframework', 'web', 'bind', 'annotation'], edgeName: 'PostMapping'}};
+const SPRING_REQUEST_BODY: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['org', 'springframework', 'web', 'bind', 'annotation'], edgeName: 'RequestBody'}};
+const SPRING_REST_CONTROLLER: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['org', 'springframework', 'web', 'bind', 'annotation'], edgeName: 'RestController'}};
+const JSON_PROCESSING_EXCEPTION: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['com', 'fasterxml', 'jackson', 'core'], edgeName: 'JsonProcessingException'}};
+const JSON_NODE: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: JACKSON_JSON_NODE};
+const OBJECT_NODE: OmniHardcodedReferenceType = {kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['com', 'fasterxml', 'jackson', 'databind', 'node'], edgeName: 'ObjectNode'}};
+
+const JSON_RPC_METHOD_NOT_FOUND = -32601;
+const JSON_RPC_INVALID_PARAMS = -32602;
+
+/**
+ * Creates a Spring WebFlux controller interface, where each endpoint is a non-blocking method returning a `Mono` of the response.
+ *
+ * Endpoints that can be told apart by their transport path are mapped directly with `@PostMapping`,
+ * and the request body is given as a `Mono` of the request class, so Spring decodes it using Jackson's non-blocking parser.
+ *
+ * Endpoints that share the same path and are only told apart by their payload (like JsonRpc methods) are instead given to a generated dispatcher,
+ * which decodes the body once into a `JsonNode` and forwards it to the matching interface method based on the endpoint request qualifiers.
+ * Only JsonRpc endpoints are told apart by their payload, so the dispatcher answers requests it cannot decode or match with a JsonRpc error response.
+ *
+ * Every endpoint is mapped as `POST` with the whole request as the body, since that is all that endpoint transports and requests can describe.
+ */
+export class JavaReactiveServerImplementationGenerator implements JavaReactiveServerGeneratorType {
+
+  async generate(args: JavaReactiveServerArgs): Promise<AstNode[]> {
+
+    const root = new Java.JavaAstRootNode();
+
+    const controllerName = 'ApiController';
+    const controller = new Java.InterfaceDeclaration(
+      new Java.EdgeType({kind: OmniTypeKind.OBJECT, name: controllerName, properties: []}),
+      new Java.Identifier(controllerName),
+      new Java.Block(),
+    );
+
+    const dispatched: OmniEndpoint[] = [];
+    for (const endpoint of args.model.endpoints) {
+
+      const routedByPayload = (endpoint.requestQualifiers?.length ?? 0) > 0;
+      controller.body.children.push(new Java.Statement(this.createEndpointSignature(args, endpoint, !routedByPayload)));
+
+      if (routedByPayload) {
+        dispatched.push(endpoint);
+      }
+    }
+
+    root.children.push(new Java.CompilationUnit(
+      new Java.PackageDeclaration(args.implOptions.serverPackage),
+      new Java.ImportList(),
+      controller,
+    ));
+
+    if (dispatched.length > 0) {
+      root.children.push(new Java.CompilationUnit(
+        new Java.PackageDeclaration(args.implOptions.serverPackage),
+        new Java.ImportList(),
+        this.createDispatcher(args, controller, dispatched),
+      ));
+    }
+
+    const implTargetOptions: JavaAndTargetOptions = {
+      ...args.targetOptions,
+      package: args.implOptions.serverPackage,
+    };
+
+    const transformers: AstTransformer<Code.CodeRootAstNode, PackageOptions & TargetOptions & JavaOptions>[] = [
+      new AddConstructorAstTransformer(),
+      new AddThrowsForKnownMethodsJavaAstTransformer(),
+      new PackageResolverAstTransformer(),
+      new ReorderMembersAstTransformer(),
+    ];
+
+    const transformerArgs: AstTransformerArguments<Code.CodeRootAstNode, JavaAndTargetOptions> = {
+      root: root,
+      options: implTargetOptions,
+      model: args.model,
+      externals: [{
+        node: args.root,
+        options: args.targetOptions,
+      }],
+      features: JAVA_FEATURES,
+    };
+
+    for (const transformer of transformers) {
+      await transformer.transformAst(transformerArgs);
+    }
+
+    logger.debug(`Created reactive controller with ${args.model.endpoints.length} endpoint(s), ${dispatched.length} dispatched by payload`);
+    return [transformerArgs.root];
+  }
+
+  private createEndpointSignature(args: JavaReactiveServerArgs, endpoint: OmniEndpoint, mapped: boolean): Java.MethodDeclarationSignature {
+
+    const requestType = new Java.GenericType(REACTOR_MONO, new Java.EdgeType(REACTOR_MONO), [
+      args.root.getAstUtils().createTypeNode(OmniUtil.toReferenceType(endpoint.request.type), false),
+    ]);
+
+    const requestParameter = new Java.Parameter(requestType, new Java.Identifier('request'));
+    const annotations = new Java.AnnotationList();
+
+    if (mapped) {
+      requestParameter.annotations = new Java.AnnotationList([new Java.Annotation(new Java.EdgeType(SPRING_REQUEST_BODY))], false);
+      annotations.children.push(this.createPostMapping(this.getPath(endpoint), endpoint.request.contentType));
+    }
+
+    const signature = new Java.MethodDeclarationSignature(
+      new Java.Identifier(Case.camel(endpoint.name)),
+      this.createResponseType(args, endpoint),
+      new Java.ParameterList(requestParameter),
+      new Java.ModifierList(),
+      annotations,
+    );
+
+    if (endpoint.description || endpoint.summary) {
+      signature.comments = new Java.Comment(endpoint.description ?? endpoint.summary ?? '');
+    }
+
+    return signature;
+  }
+
+  private createResponseType(args: JavaReactiveServerArgs, endpoint: OmniEndpoint): TypeNode {
+
+    const regularResponses = endpoint.responses.filter(it => !it.error);
+
+    // There is no one class for an endpoint with several regular responses, so it can return any of them.
+    const responseTypeNode = (regularResponses.length == 1)
+      ? args.root.getAstUtils().createTypeNode(OmniUtil.toReferenceType(regularResponses[0].type), false)
+      : ToHardCodedTypeJavaAstTransformer.getUnknownClassName(UnknownKind.WILDCARD, false, args.root.getAstUtils());
+
+    return new Java.GenericType(REACTOR_MONO, new Java.EdgeType(REACTOR_MONO), [responseTypeNode]);
+  }
+
+  private createDispatcher(
+    args: JavaReactiveServerArgs,
+    controller: Java.InterfaceDeclaration,
+    dispatched: OmniEndpoint[],
+  ): Java.ClassDeclaration {
+
+    const dispatcherName = `${controller.name.value}Dispatcher`;
+    const dispatcher = new Java.ClassDeclaration(
+      new Java.EdgeType({kind: OmniTypeKind.OBJECT, name: dispatcherName, properties: []}, true),
+      new Java.Identifier(dispatcherName),
+      new Java.Block(),
+    );
+
+    dispatcher.annotations = new Java.AnnotationList([new Java.Annotation(new Java.EdgeType(SPRING_REST_CONTROLLER))]);
+
+    const delegateField = new Java.Field(
+      new Java.EdgeType(controller.type.omniType),
+      new Java.Identifier('delegate'),
+      new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE), new Java.Modifier(Java.ModifierKind.FINAL)),
+    );
+
+    const objectMapperField = new Java.Field(
+      new Java.EdgeType({kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: JACKSON_OBJECT_MAPPER}),
+      new Java.Identifier('objectMapper'),
+      new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE), new Java.Modifier(Java.ModifierKind.FINAL)),
+    );
+
+    dispatcher.body.children.push(delegateField, objectMapperField);
+
+    const errorResponseMethod = this.createErrorResponseMethod(args, objectMapperField);
+    const paths = [...new Set(dispatched.map(it => this.getPath(it)))];
+    const dispatchMethods = paths.map((path, idx) => this.createDispatchMethod(
+      args,
+      idx == 0 ? 'dispatch' : `dispatch${idx}`,
+      path,
+      delegateField,
+      objectMapperField,
+      errorResponseMethod,
+      dispatched.filter(it => this.getPath(it) == path),
+    ));
+
+    dispatcher.body.children.push(...dispatchMethods, errorResponseMethod);
+
+    return dispatcher;
+  }
+
+  private createDispatchMethod(
+    args: JavaReactiveServerArgs,
+    name: string,
+    path: string,
+    delegateField: Java.Field,
+    objectMapperField: Java.Field,
+    errorResponseMethod: Java.MethodDeclaration,
+    dispatched: OmniEndpoint[],
+  ): Java.MethodDeclaration {
+
+    // The body is decoded once, non-blocking, by Spring into a tree. Each endpoint then converts the tree into its own request class.
+    const requestParameter = new Java.Parameter(
+      new Java.EdgeType(JSON_NODE),
+      new Java.Identifier('request'),
+      new Java.AnnotationList([new Java.Annotation(new Java.EdgeType(SPRING_REQUEST_BODY))], false),
+    );
+
+    const body = new Java.Block();
+    for (const endpoint of dispatched) {
+
+      const predicate = (endpoint.requestQualifiers ?? [])
+        .map(it => this.createQualifierPredicate(requestParameter, it))
+        .reduce((left, right) => new Java.BinaryExpression(left, Java.TokenKind.AND, right));
+
+      const requestClass = new Java.ClassReference(new Java.ClassName(
+        args.root.getAstUtils().createTypeNode(OmniUtil.toReferenceType(endpoint.request.type), false),
+      ));
+
+      // Converted when the returned Mono is subscribed, so a request that does not match the request class is answered by the Mono instead of failing the dispatcher.
+      // Both returns are in the one deferred lambda, so Java infers a common element type without the dispatcher casting each response.
+      const decodedRequest = this.createMonoCall('just',
+        this.call(new Java.FieldReference(objectMapperField), 'treeToValue', new Java.DeclarationReference(requestParameter), requestClass),
+      );
+
+      const errorParameter = new Java.Parameter(new Java.EdgeType(JSON_PROCESSING_EXCEPTION), new Java.Identifier('error'));
+      const response = this.createMonoCall('defer', new Java.Lambda(
+        new Java.ParameterList(),
+        new Java.Block(new Java.TryCatchStatement(
+          new Java.Block(new Java.Statement(new Java.ReturnStatement(
+            this.call(new Java.FieldReference(delegateField), Case.camel(endpoint.name), decodedRequest),
+          ))),
+          errorParameter,
+          new Java.Block(new Java.Statement(new Java.ReturnStatement(
+            this.createMonoCall('just', this.call(
+              new Java.SelfReference(),
+              errorResponseMethod.signature.identifier.value,
+              new Java.DeclarationReference(requestParameter),
+              new Java.Literal(JSON_RPC_INVALID_PARAMS),
+              this.call(new Java.DeclarationReference(errorParameter), 'getOriginalMessage'),
+            )),
+          ))),
+        )),
+      ));
+
+      body.children.push(new Java.IfStatement(
+        predicate,
+        new Java.Block(new Java.Statement(new Java.ReturnStatement(response))),
+      ));
+    }
+
+    body.children.push(new Java.Statement(new Java.ReturnStatement(
+      this.createMonoCall('just', this.call(
+        new Java.SelfReference(),
+        errorResponseMethod.signature.identifier.value,
+        new Java.DeclarationReference(requestParameter),
+        new Java.Literal(JSON_RPC_METHOD_NOT_FOUND),
+        new Java.Literal('No endpoint matched the request'),
+      )),
+    )));
+
+    return new Java.MethodDeclaration(
+      new Java.MethodDeclarationSignature(
+        new Java.Identifier(name),
+        new Java.GenericType(REACTOR_MONO, new Java.EdgeType(REACTOR_MONO), [
+          ToHardCodedTypeJavaAstTransformer.getUnknownClassName(UnknownKind.WILDCARD, false, args.root.getAstUtils()),
+        ]),
+        new Java.ParameterList(requestParameter),
+        undefined,
+        new Java.AnnotationList([this.createPostMapping(path, 'application/json')]),
+      ),
+      body,
+    );
+  }
+
+  /**
+   * Creates a method that builds a JsonRpc error response, with the same `id` as the request so the client can tell which call failed.
+   */
+  private createErrorResponseMethod(args: JavaReactiveServerArgs, objectMapperField: Java.Field): Java.MethodDeclaration {
+
+    const requestParameter = new Java.Parameter(new Java.EdgeType(JSON_NODE), new Java.Identifier('request'));
+    const codeParameter = new Java.Parameter(args.root.getAstUtils().createTypeNode({kind: OmniTypeKind.INTEGER}), new Java.Identifier('code'));
+    const messageParameter = new Java.Parameter(args.root.getAstUtils().createTypeNode({kind: OmniTypeKind.STRING}), new Java.Identifier('message'));
+
+    const responseDeclaration = new Java.VariableDeclaration(
+      new Java.Identifier('response'),
+      this.call(new Java.FieldReference(objectMapperField), 'createObjectNode'),
+      new Java.EdgeType(OBJECT_NODE),
+      true,
+    );
+    const response = () => new Java.DeclarationReference(responseDeclaration);
+
+    return new Java.MethodDeclaration(
+      new Java.MethodDeclarationSignature(
+        new Java.Identifier('createErrorResponse'),
+        new Java.EdgeType(OBJECT_NODE),
+        new Java.ParameterList(requestParameter, codeParameter, messageParameter),
+        new Java.ModifierList(new Java.Modifier(Java.ModifierKind.PRIVATE)),
+      ),
+      new Java.Block(
+        new Java.Statement(responseDeclaration),
+        new Java.Statement(this.call(response(), 'put', new Java.Literal('jsonrpc'), new Java.Literal('2.0'))),
+        new Java.Statement(this.call(response(), 'set', new Java.Literal('id'), this.call(new Java.DeclarationReference(requestParameter), 'get', new Java.Literal('id')))),
+        new Java.Statement(this.call(
+          this.call(
+            this.call(response(), 'putObject', new Java.Literal('error')),
+            'put', new Java.Literal('code'), new Java.DeclarationReference(codeParameter),
+          ),
+          'put', new Java.Literal('message'), new Java.DeclarationReference(messageParameter),
+        )),
+        new Java.Statement(new Java.ReturnStatement(response())),
+      ),
+    );
+  }
+
+  private createQualifierPredicate(requestParameter: Java.Parameter, qualifier: OmniPayloadPathQualifier): Code.AbstractCodeNode {
+
+    const atPath = new Java.MethodCall(
+      new Java.MemberAccess(new Java.DeclarationReference(requestParameter), new Java.Identifier('at')),
+      new Java.ArgumentList(new Java.Literal(`/${qualifier.path.join('/')}`)),
+    );
+
+    switch (qualifier.operator) {
+      case OmniComparisonOperator.DEFINED:
+        return new Java.BinaryExpression(
+          new Java.MethodCall(new Java.MemberAccess(atPath, new Java.Identifier('isMissingNode'))),
+          Java.TokenKind.EQUALS,
+          new Java.Literal(false),
+        );
+      case OmniComparisonOperator.EQUALS:
+        // Compared as text, so that the literal is on the left side and a missing node can never cause a null pointer.
+        return new Java.MethodCall(
+          new Java.MemberAccess(new Java.Literal(String(qualifier.value)), new Java.Identifier('equals')),
+          new Java.ArgumentList(new Java.MethodCall(new Java.MemberAccess(atPath, new Java.Identifier('asText')))),
+        );
+    }
+  }
+
+  private call(target: Code.AbstractCodeNode, methodName: string, ...args: Code.AbstractCodeNode[]): Java.MethodCall {
+    return new Java.MethodCall(new Java.MemberAccess(target, new Java.Identifier(methodName)), new Java.ArgumentList(...args));
+  }
+
+  private createMonoCall(methodName: string, argument: Code.AbstractCodeNode): Java.MethodCall {
+    return new Java.MethodCall(
+      new Java.MemberAccess(new Java.ClassName(new Java.EdgeType(REACTOR_MONO)), new Java.Identifier(methodName)),
+      new Java.ArgumentList(argument),
+    );
+  }
+
+  private createPostMapping(path: string, contentType: string): Java.Annotation {
+
+    return new Java.Annotation(
+      new Java.EdgeType(SPRING_POST_MAPPING),
+      new Java.AnnotationKeyValuePairList(
+        new Java.AnnotationKeyValuePair(new Java.Identifier('path'), new Java.Literal(path)),
+        new Java.AnnotationKeyValuePair(new Java.Identifier('consumes'), new Java.Literal(contentType)),
+        new Java.AnnotationKeyValuePair(new Java.Identifier('produces'), new Java.Literal('application/json')),
+      ),
+    );
+  }
+
+  private getPath(endpoint: OmniEndpoint): string {
+
+    for (const transport of endpoint.transports) {
+      if (transport.kind == OmniItemKind.TRANSPORT_HTTP && transport.path.length > 0) {
+        return transport.path.startsWith('/') ? transport.path : `/${transport.path}`;
+      }
+    }
+
+    return '/';
+  }
+}
@@ -0,0 +1,60 @@
+import {RenderedCompilationUnit} from '@omnigen/api';
+import {Util} from '@omnigen/core';
+import {renderCompilationUnits} from '@omnigen/target-code';
+import {createJavaRenderer, Java, JavaPlugins} from '@omnigen/target-java';
+import {JavaTestUtils} from '@omnigen/test-openrpc-java';
+import {ImplementationOptions, ZodImplementationOptions} from '../client/ImplementationOptions';
+import {JavaHttpImplementationGenerator} from '../client/JavaHttpImplementationGenerator';
+
+export class ImplementationTestUtils {
+
+  /**
+   * Generates the implementation of an OpenRPC example, for the model that the Java target has made from it.
+   *
+   * @return The content of every generated file, by file name
+   */
+  static async getFileContentsFromFile(fileName: string, implOptions: Partial<ImplementationOptions>): Promise<Map<string, string>> {
+    return ImplementationTestUtils.getFileContentsFromPath(Util.getPathFromRoot(`./packages/parser-openrpc/examples/${fileName}`), implOptions);
+  }
+
+  static async getFileContentsFromPath(filePath: string, implOptions: Partial<ImplementationOptions>): Promise<Map<string, string>> {
+
+    const fileContents = new Map<string, string>();
+    for (const unit of await ImplementationTestUtils.renderFromPath(filePath, implOptions, false)) {
+      fileContents.set(unit.fileName, unit.content);
+    }
+
+    return fileContents;
+  }
+
+  /**
+   * Renders the implementation of the document, and optionally also the model that it uses, so the whole can be compiled.
+   */
+  static async renderFromPath(filePath: string, implOptions: Partial<ImplementationOptions>, includeModel: boolean): Promise<RenderedCompilationUnit[]> {
+
+    const ctx = await JavaTestUtils.getResultFromFilePath(
+      filePath,
+      {},
+      JavaPlugins.ZodJavaContextOut,
+      JavaPlugins.JavaRendererCtxIn,
+    );
+
+    const modelRoot = ctx.astNode as Java.JavaAstRootNode;
+    const nodes = await new JavaHttpImplementationGenerator().generate({
+      model: ctx.model,
+      root: modelRoot,
+      targetOptions: {...ctx.packageOptions, ...ctx.targetOptions, ...ctx.javaOptions},
+      implOptions: ZodImplementationOptions.parse(implOptions),
+    });
+
+    const roots = includeModel ? [modelRoot, ...nodes] : nodes;
+
+    const units: RenderedCompilationUnit[] = [];
+    for (const node of roots) {
+      const root = node as Java.JavaAstRootNode;
+      units.push(...renderCompilationUnits(root, createJavaRenderer(root, ctx.javaOptions)));
+    }
+
+    return units;
+  }
+}
@@ -4,6 +4,7 @@ import {
   LATER_IS_BETTER,
   PluginAutoRegistry,
   PluginScoreKind,
+  ZodFileWriteOptions,
   ZodModelContext,
   ZodModelTransformOptionsContext,
   ZodPackageOptionsContext,
@@ -47,7 +48,15 @@ import {
   ZodTargetOptions,
 } from '@omnigen/api';
 import {z} from 'zod';
-import {AlignObjectWithInterfaceModelTransformer, GenericsModelTransformer, SimplifyGenericsModelTransformer, ZodCompilationUnitsContext} from '@omnigen/core';
+import {
+  AlignObjectWithInterfaceModelTransformer,
+  FileWriter,
+  GenericsModelTransformer,
+  OmniUtil,
+  SimplifyGenericsModelTransformer,
+  ZodCompilationUnitsContext,
+  ZodWrittenFilesContext,
+} from '@omnigen/core';
 import * as Java from './ast/JavaAst';
 import {CodeRootAstNode} from './ast/JavaAst';
 import {LoggerFactory} from '@omnigen/core-log';
@@ -60,6 +69,7 @@ import {
   AddConstructorAstTransformer,
   AddFieldsAstTransformer, AddFinalToApplicableFieldsAstTransformer,
   AddObjectDeclarationsCodeAstTransformer,
+  FusedAstTransformer,
   AggregateIntersectionsModelTransformer,
   ElevatePropertiesModelTransformer,
   InnerTypeCompressionAstTransformer,
@@ -73,6 +83,7 @@ import {
   SimplifyAndCleanAstTransformer,
   SimplifyGenericsAstTransformer,
   SimplifyUnnecessaryCompositionsModelTransformer,
+  renderCompilationUnits,
   ToConstructorBodySuperCallAstTransformer,
 } from '@omnigen/target-code';
 import {BeanValidationJavaAstTransformer, MapMemberAccessToJavaAstTransformer, SimplifyTypePathsJavaAstTransformer, SingleFileJavaAstTransformer, ToJavaAstTransformer} from './transform';
@@ -163,9 +174,7 @@ export const JavaPlugin = createPlugin(
 
     ];
 
-    for (const transformer of transformers) {
-      transformer.transformModel(transformerArgs);
-    }
+    OmniUtil.runModelTransformers(transformers, transformerArgs);
 
     const modelTransformer2Args: OmniModelTransformer2ndPassArgs<ParserOptions & TargetOptions & JavaOptions> = {
       model: transformerArgs.model,
@@ -183,9 +192,7 @@ export const JavaPlugin = createPlugin(
       new SimplifyGenericsModelTransformer(),
     ] as const;
 
-    for (const transformer of transformers2) {
-      transformer.transformModel2ndPass(modelTransformer2Args);
-    }
+    OmniUtil.runModelTransformers2ndPass(transformers2, modelTransformer2Args);
 
     const astTransformers: AstTransformer<CodeRootAstNode, JavaAndTargetOptions>[] = [];
     astTransformers.push(new AddObjectDeclarationsCodeAstTransformer());
@@ -244,12 +251,8 @@ export const JavaPlugin = createPlugin(
       features: JAVA_FEATURES,
     };
 
-    for (const transformer of astTransformers) {
-
-      // We do the transformers in order.
-      // Later we might batch them together based on "type" or "group" or whatever.
-      transformer.transformAst(astArgs);
-    }
+    // The transformers are run in order, but neighbouring ones that can share one reduction of the tree are fused together.
+    FusedAstTransformer.execute(astTransformers, astArgs);
 
     return {
       ...ctx,
@@ -268,7 +271,8 @@ export const JavaRendererCtxIn = ZodModelContext
 export const JavaRendererCtxOut = JavaRendererCtxIn
   .merge(ZodAstNodeContext)
   .merge(ZodRenderersContext)
-  .merge(ZodCompilationUnitsContext);
+  .merge(ZodCompilationUnitsContext)
+  .merge(ZodWrittenFilesContext.partial());
 
 export const JavaRendererPlugin = createPlugin(
   {name: 'java-render', in: JavaRendererCtxIn, out: JavaRendererCtxOut, score: PluginScoreKind.IMPORTANT},
@@ -276,7 +280,22 @@ export const JavaRendererPlugin = createPlugin(
 
     const javaRootNode = ctx.astNode as Java.JavaAstRootNode;
     const renderer = createJavaRenderer(javaRootNode, ctx.javaOptions);
-    const rendered = renderer.executeRender(ctx.astNode, renderer);
+    const fileWriteOptions = ZodFileWriteOptions.parse({...ctx.defaults, ...ctx.arguments});
+    if (fileWriteOptions.outputFiles && fileWriteOptions.streamOutput && !FileWriter.isFilePath(fileWriteOptions.outputDirBase)) {
+
+      // Each unit is written and let go of before the next one is rendered, so all rendered output is never in memory at once.
+      const writtenFiles = await new FileWriter(fileWriteOptions.outputDirBase, fileWriteOptions.writeConcurrency).writeAll(renderCompilationUnits(javaRootNode, renderer));
+      logger.info(`Streamed ${writtenFiles.length} compilation units to ${fileWriteOptions.outputDirBase}`);
+
+      return {
+        ...ctx,
+        renderers: [renderer],
+        compilationUnits: [],
+        writtenFiles: writtenFiles,
+      };
+    }
+
+    const rendered = [...renderCompilationUnits(javaRootNode, renderer)];
 
     return {
       ...ctx,
@@ -3,7 +3,7 @@ import * as Java from '../ast/JavaAst';
 import {JavaOptions} from '../options';
 import {createJavaVisitor, JavaVisitor} from '../visit';
 import {JavaUtil} from '../util';
-import {CodeRenderContext, CodeRendererOptions, createCodeRenderer, DefaultCodeRendererOptions, render} from '@omnigen/target-code';
+import {CodeRenderContext, CodeRendererOptions, createCodeRenderer, DefaultCodeRendererOptions, render, renderLambda} from '@omnigen/target-code';
 import {ToHardCodedTypeJavaAstTransformer} from '../transform';
 
 export type JavaRenderer = JavaVisitor<string> & Renderer;
@@ -46,5 +46,6 @@ export const createJavaRenderer = (root: Java.JavaAstRootNode, options: JavaOpti
     },
 
     visitFreeTextRemark: (node, visitor) => `\n<p>\n${render(node.content, visitor)}`,
+    visitLambda: (n, v) => renderLambda(n, '->', v),
   };
 };
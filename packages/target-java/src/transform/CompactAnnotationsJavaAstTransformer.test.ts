@@ -0,0 +1,71 @@
+import {describe, test} from 'vitest';
+import {DEFAULT_PACKAGE_OPTIONS, OmniItemKind, OmniTypeKind} from '@omnigen/api';
+import * as Java from '../ast/JavaAst';
+import {DEFAULT_JAVA_OPTIONS} from '../options';
+import {JAVA_FEATURES} from '../index';
+import {JavaAstTransformerArgs} from './AbstractJavaAstTransformer';
+import {CompactAnnotationsJavaAstTransformer} from './CompactAnnotationsJavaAstTransformer';
+
+describe('CompactAnnotationsJavaAstTransformer', () => {
+
+  function createAnnotationList(): Java.AnnotationList {
+    return new Java.AnnotationList([
+      new Java.Annotation(new Java.EdgeType({kind: OmniTypeKind.HARDCODED_REFERENCE, fqn: {namespace: ['javax', 'annotation'], edgeName: 'Nonnull'}})),
+    ]);
+  }
+
+  function createArgs(field: Java.Field, compactAnnotations: boolean): JavaAstTransformerArgs {
+
+    const root = new Java.JavaAstRootNode();
+    root.children.push(field);
+
+    return {
+      model: {kind: OmniItemKind.MODEL, schemaType: 'other', types: [], endpoints: []},
+      root: root,
+      options: {...DEFAULT_JAVA_OPTIONS, ...DEFAULT_PACKAGE_OPTIONS, compactAnnotations: compactAnnotations},
+      features: JAVA_FEATURES,
+      externals: [],
+    };
+  }
+
+  function createField(): Java.Field {
+
+    const parameter = new Java.Parameter(new Java.EdgeType({kind: OmniTypeKind.STRING}), new Java.Identifier('value'), createAnnotationList());
+    const lambda = new Java.Lambda(new Java.ParameterList(parameter), new Java.DeclarationReference(parameter));
+
+    return new Java.Field(
+      new Java.EdgeType({kind: OmniTypeKind.UNKNOWN}),
+      new Java.Identifier('mapper'),
+      undefined,
+      lambda,
+      createAnnotationList(),
+    );
+  }
+
+  test('compacts the annotations of the field and those nested inside it', ctx => {
+
+    const field = createField();
+    const args = createArgs(field, true);
+    new CompactAnnotationsJavaAstTransformer().transformAst(args);
+
+    const reduced = args.root.children[0] as Java.Field;
+    const lambda = reduced.initializer as Java.Lambda;
+
+    ctx.expect(reduced.annotations?.multiline).toEqual(false);
+    ctx.expect(lambda.parameters.children[0]?.annotations?.multiline).toEqual(false);
+
+    // The original nodes might be shared with other parts of the tree, so they are left as they were.
+    ctx.expect(field.annotations?.multiline).toEqual(true);
+    ctx.expect((field.initializer as Java.Lambda).parameters.children[0]?.annotations?.multiline).toEqual(true);
+  });
+
+  test('leaves the annotations as they are when not enabled', ctx => {
+
+    const field = createField();
+    const args = createArgs(field, false);
+    new CompactAnnotationsJavaAstTransformer().transformAst(args);
+
+    ctx.expect(args.root.children[0]).toBe(field);
+    ctx.expect(field.annotations?.multiline).toEqual(true);
+  });
+});
@@ -1,47 +1,46 @@
-import {AbstractJavaAstTransformer, JavaAstTransformerArgs} from './AbstractJavaAstTransformer';
+import {AbstractJavaAstTransformer, JavaAndTargetOptions, JavaAstTransformerArgs} from './AbstractJavaAstTransformer';
 import * as Java from '../ast/JavaAst';
 import {LoggerFactory} from '@omnigen/core-log';
+import {CodeNodeKind, CodeReducer, FusableAstTransformer, FusedAstTransformer, ReducerHooks} from '@omnigen/target-code';
 
 const logger = LoggerFactory.create(import.meta.url);
 
 /**
  * Make annotations compact where applicable.
  */
-export class CompactAnnotationsJavaAstTransformer extends AbstractJavaAstTransformer {
+export class CompactAnnotationsJavaAstTransformer extends AbstractJavaAstTransformer implements FusableAstTransformer<Java.JavaAstRootNode, JavaAndTargetOptions> {
+
+  readonly reads: ReadonlyArray<CodeNodeKind> = ['Field', 'AnnotationList'];
+  readonly writes: ReadonlyArray<CodeNodeKind> = ['Field', 'AnnotationList'];
 
   transformAst(args: JavaAstTransformerArgs): void {
+    FusedAstTransformer.reduce([this], args);
+  }
+
+  createHooks(args: JavaAstTransformerArgs): ReducerHooks | undefined {
 
     if (!args.options.compactAnnotations) {
-      return;
+      return undefined;
     }
 
-    let insideField = 0;
-
+    // Every annotation list inside the field is made compact, like the annotations of a lambda parameter in its initializer, and not only those of the field itself.
+    // The field has already been reduced, so this only visits the field again, and only nodes that contain a multiline list are replaced.
     const defaultReducer = args.root.createReducer();
-    const newRoot = args.root.reduce({
+    const compactReducer: CodeReducer = {
       ...defaultReducer,
-      reduceField: (n, r) => {
-        try {
-          insideField++;
-          return defaultReducer.reduceField(n, r);
-        } finally {
-          insideField--;
-        }
-      },
       reduceAnnotationList: (n, r) => {
 
-        if (insideField && n.multiline && n.children) {
-          const newList = new Java.AnnotationList(n.children).withIdFrom(n);
-          newList.multiline = false;
-          return newList;
+        const reduced = defaultReducer.reduceAnnotationList(n, r);
+        if (reduced && reduced.multiline) {
+          return new Java.AnnotationList(reduced.children, false).withIdFrom(reduced);
         }
 
-        return defaultReducer.reduceAnnotationList(n, r);
+        return reduced;
       },
-    });
+    };
 
-    if (newRoot) {
-      args.root = newRoot;
-    }
+    return {
+      reduceField: reduced => reduced.reduce(compactReducer),
+    };
   }
 }
@@ -1,37 +1,41 @@
-import {AbstractJavaAstTransformer, JavaAstTransformerArgs} from './AbstractJavaAstTransformer';
-import {JavaReducer} from '../reduce';
+import {AbstractJavaAstTransformer, JavaAndTargetOptions, JavaAstTransformerArgs} from './AbstractJavaAstTransformer';
 import {AstNode, TypeNode} from '@omnigen/api';
 import * as Code from '@omnigen/target-code/ast';
+import {CodeNodeKind, FusableAstTransformer, FusedAstTransformer, ReducerHooks} from '@omnigen/target-code';
+import {JavaAstRootNode} from '../ast/JavaAstRootNode';
 
 /**
  * Simplify Java generics, such as making the RHS of an assignment's generics into short-hand diamond generics, such as: `Map<String, Object> map = new HashMap<>()`
  */
-export class SimplifyGenericsJavaAstTransformer extends AbstractJavaAstTransformer {
+export class SimplifyGenericsJavaAstTransformer extends AbstractJavaAstTransformer implements FusableAstTransformer<JavaAstRootNode, JavaAndTargetOptions> {
+
+  readonly reads: ReadonlyArray<CodeNodeKind> = ['Field', 'GenericType', 'NewStatement'];
+  readonly writes: ReadonlyArray<CodeNodeKind> = ['Field', 'GenericType'];
 
   transformAst(args: JavaAstTransformerArgs): void {
+    FusedAstTransformer.reduce([this], args);
+  }
+
+  createHooks(): ReducerHooks {
 
-    const defaultReducer = args.root.createReducer();
-    const reducer: JavaReducer = {
-      ...defaultReducer,
-      reduceField: (n, r) => {
+    return {
+      reduceField: reduced => {
 
-        const reduced = defaultReducer.reduceField(n, r);
-        if (reduced && reduced instanceof Code.Field && reduced.initializer) {
+        if (reduced.initializer) {
 
           const simplerInitializer = this.reduceRhsGenericToDiamond(reduced.type, reduced.initializer);
           if (simplerInitializer) {
-            reduced.initializer = simplerInitializer;
+
+            // The field might be shared with other parts of the tree, so the new initializer is given to a copy of it.
+            const field = reduced.shallowCopy();
+            field.initializer = simplerInitializer;
+            return field;
           }
         }
 
         return reduced;
       },
     };
-
-    const newRoot = args.root.reduce(reducer);
-    if (newRoot) {
-      args.root = newRoot;
-    }
   }
 
   private reduceRhsGenericToDiamond(left: TypeNode, rightNode: AstNode): AstNode | undefined {
@@ -42,8 +46,9 @@ export class SimplifyGenericsJavaAstTransformer extends AbstractJavaAstTransform
 
         // If given:    `private Map<String, Object> field = new HashMap<String, Object>()`
         // It becomes:  `private Map<String, Object> field = new HashMap<>()`
-        right.genericArguments.length = 0;
-        return rightNode;
+        // The type node can be shared with other parts of the tree, so a new one is created instead of clearing the arguments of the existing one.
+        const diamond = new Code.GenericType(right.omniType, right.baseType, []).withIdFrom(right);
+        return new Code.NewStatement(diamond, rightNode.constructorArguments).withIdFrom(rightNode);
       }
     }
 
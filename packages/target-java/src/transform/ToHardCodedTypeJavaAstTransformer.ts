@@ -1,19 +1,25 @@
-import {AbstractJavaAstTransformer, JavaAstTransformerArgs} from './AbstractJavaAstTransformer.js';
+import {AbstractJavaAstTransformer, JavaAndTargetOptions, JavaAstTransformerArgs} from './AbstractJavaAstTransformer.js';
 import {AstTargetFunctions, OmniArrayKind, OmniGenericSourceIdentifierType, OmniGenericSourceType, OmniGenericTargetType, OmniType, OmniTypeKind, UnknownKind} from '@omnigen/api';
 import * as Java from '../ast/JavaAst';
+import {CodeNodeKind, FusableAstTransformer, FusedAstTransformer, ReducerHooks} from '@omnigen/target-code';
 
-export class ToHardCodedTypeJavaAstTransformer extends AbstractJavaAstTransformer {
+export class ToHardCodedTypeJavaAstTransformer extends AbstractJavaAstTransformer implements FusableAstTransformer<Java.JavaAstRootNode, JavaAndTargetOptions> {
 
   private static readonly _MAP_GENERIC_SOURCES = new Map<String, OmniGenericSourceType>();
   private static readonly _LIST_GENERIC_SOURCES = new Map<String, OmniGenericSourceType>();
 
+  readonly reads: ReadonlyArray<CodeNodeKind> = ['WildcardType', 'EdgeType', 'ArrayType'];
+  readonly writes: ReadonlyArray<CodeNodeKind> = ['WildcardType', 'EdgeType', 'ArrayType'];
+
   transformAst(args: JavaAstTransformerArgs): void {
+    FusedAstTransformer.reduce([this], args);
+  }
+
+  createHooks(args: JavaAstTransformerArgs): ReducerHooks {
 
-    const defaultReducer = args.root.createReducer();
     const astUtils = args.root.getAstUtils();
 
-    const newRoot = args.root.reduce({
-      ...defaultReducer,
+    return {
       reduceWildcardType: n => {
         return ToHardCodedTypeJavaAstTransformer.getUnknownClassName(n.omniType.unknownKind ?? args.options.unknownType, n.implementation, astUtils).setId(n.id);
       },
@@ -34,47 +40,38 @@ export class ToHardCodedTypeJavaAstTransformer extends AbstractJavaAstTransforme
           };
 
           return astUtils.createTypeNode(genericTargetType, implementation).reduce(r);
-
-        } else {
-          return defaultReducer.reduceEdgeType(n, r);
         }
+
+        return n;
       },
-      reduceArrayType: (n, r) => {
-
-        const reduced = defaultReducer.reduceArrayType(n, r);
-
-        if (reduced && reduced instanceof Java.ArrayType) {
-          let baseType: string | undefined = undefined;
-          if (reduced.omniType.arrayKind === OmniArrayKind.SET) {
-            baseType = n.implementation ? `HashSet` : `Set`;
-          } else if (reduced.omniType.arrayKind === OmniArrayKind.LIST) {
-            baseType = reduced.implementation ? `ArrayList` : `List`;
-          }
-
-          if (baseType) {
-
-            const implementation = n.implementation ?? false;
-            const source = ToHardCodedTypeJavaAstTransformer.getListGenericSource(baseType);
-            const genericTargetType: OmniGenericTargetType = {
-              kind: OmniTypeKind.GENERIC_TARGET,
-              source: source,
-              targetIdentifiers: [
-                {kind: OmniTypeKind.GENERIC_TARGET_IDENTIFIER, type: n.itemTypeNode.omniType, sourceIdentifier: source.sourceIdentifiers[0]},
-              ],
-            };
-
-            return astUtils.createTypeNode(genericTargetType, implementation).reduce(r);
-          }
+      reduceArrayType: (reduced, r) => {
+
+        let baseType: string | undefined = undefined;
+        if (reduced.omniType.arrayKind === OmniArrayKind.SET) {
+          baseType = reduced.implementation ? `HashSet` : `Set`;
+        } else if (reduced.omniType.arrayKind === OmniArrayKind.LIST) {
+          baseType = reduced.implementation ? `ArrayList` : `List`;
+        }
+
+        if (baseType) {
+
+          const implementation = reduced.implementation ?? false;
+          const source = ToHardCodedTypeJavaAstTransformer.getListGenericSource(baseType);
+          const genericTargetType: OmniGenericTargetType = {
+            kind: OmniTypeKind.GENERIC_TARGET,
+            source: source,
+            targetIdentifiers: [
+              {kind: OmniTypeKind.GENERIC_TARGET_IDENTIFIER, type: reduced.itemTypeNode.omniType, sourceIdentifier: source.sourceIdentifiers[0]},
+            ],
+          };
+
+          return astUtils.createTypeNode(genericTargetType, implementation).reduce(r);
         }
 
         // Keep it as-is, and it will be rendered as something special by its renderer.
         return reduced;
       },
-    });
-
-    if (newRoot) {
-      args.root = newRoot;
-    }
+    };
   }
 
   public static getUnknownClassName(
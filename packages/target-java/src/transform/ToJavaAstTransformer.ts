@@ -1,5 +1,6 @@
-import {AbstractJavaAstTransformer, JavaAstTransformerArgs} from './AbstractJavaAstTransformer';
+import {AbstractJavaAstTransformer, JavaAndTargetOptions, JavaAstTransformerArgs} from './AbstractJavaAstTransformer';
 import * as Java from '../ast/JavaAst';
+import {CodeNodeKind, FusableAstTransformer, FusedAstTransformer, ReducerHooks} from '@omnigen/target-code';
 
 /**
  * For fixing or replacing some more generic AST-structures into Java-specific ones.
@@ -7,14 +8,18 @@ import * as Java from '../ast/JavaAst';
  * Such as:
  * - Replace generic modifiers into specific Java modifiers, like `const` -> `static final`
  */
-export class ToJavaAstTransformer extends AbstractJavaAstTransformer {
+export class ToJavaAstTransformer extends AbstractJavaAstTransformer implements FusableAstTransformer<Java.JavaAstRootNode, JavaAndTargetOptions> {
+
+  readonly reads: ReadonlyArray<CodeNodeKind> = ['ModifierList'];
+  readonly writes: ReadonlyArray<CodeNodeKind> = ['ModifierList'];
 
   transformAst(args: JavaAstTransformerArgs): void {
+    FusedAstTransformer.reduce([this], args);
+  }
 
-    const baseReducer = args.root.createReducer();
-    const newRoot = args.root.reduce({
-      ...baseReducer,
+  createHooks(): ReducerHooks {
 
+    return {
       reduceModifierList: n => {
 
         const constIndex = n.children.findIndex(it => it.kind === Java.ModifierKind.CONST);
@@ -30,10 +35,6 @@ export class ToJavaAstTransformer extends AbstractJavaAstTransformer {
 
         return n;
       },
-    });
-
-    if (newRoot) {
-      args.root = newRoot;
-    }
+    };
   }
 }
@@ -24,6 +24,7 @@ import {
   DEFAULT_PACKAGE_OPTIONS,
   DEFAULT_TARGET_OPTIONS,
   OmniModelTransformer,
+  OmniModel2ndPassTransformer,
   OmniModelTransformer2ndPassArgs,
   OmniModelTransformerArgs,
   PackageOptions,
@@ -32,7 +33,7 @@ import {
   ZodAstNodeContext,
 } from '@omnigen/api';
 import {z} from 'zod';
-import {AlignObjectWithInterfaceModelTransformer, GenericsModelTransformer, SimplifyGenericsModelTransformer, Visitor, ZodCompilationUnitsContext} from '@omnigen/core';
+import {AlignObjectWithInterfaceModelTransformer, GenericsModelTransformer, OmniUtil, SimplifyGenericsModelTransformer, Visitor, ZodCompilationUnitsContext} from '@omnigen/core';
 import {createTypeScriptRenderer} from './render';
 import {
   AddAbstractAccessorsAstTransformer,
@@ -148,9 +149,7 @@ export const TypeScriptPlugin = createPlugin(
       new SimplifyUnnecessaryCompositionsModelTransformer(),
     ];
 
-    for (const transformer of transformers) {
-      transformer.transformModel(modelArgs);
-    }
+    OmniUtil.runModelTransformers(transformers, modelArgs);
 
     // Then do 2nd pass transforming
 
@@ -160,7 +159,7 @@ export const TypeScriptPlugin = createPlugin(
       features: TYPESCRIPT_FEATURES,
     };
 
-    const transformers2 = [
+    const transformers2: OmniModel2ndPassTransformer<ParserOptions & TargetOptions & TypeScriptOptions>[] = [
       new ElevatePropertiesModelTransformer(), // First move the obvious properties
       new GenericsModelTransformer(),
       new ElevatePropertiesModelTransformer(true), // Then move those untouched by the generics transformer
@@ -173,11 +172,9 @@ export const TypeScriptPlugin = createPlugin(
       new AlignObjectWithInterfaceModelTransformer(),
       new SimplifyGenericsModelTransformer(),
       new InlineUnnamedCompositionsTypeScriptModelTransformer(),
-    ] as const;
+    ];
 
-    for (const transformer of transformers2) {
-      transformer.transformModel2ndPass(modelArgs2);
-    }
+    OmniUtil.runModelTransformers2ndPass(transformers2, modelArgs2);
 
     // Then run certain transformers again, to clean up changes done by other transformers.
     const again_modelArgs: OmniModelTransformerArgs = {
@@ -189,9 +186,7 @@ export const TypeScriptPlugin = createPlugin(
       new SimplifyUnnecessaryCompositionsModelTransformer(),
     ];
 
-    for (const again_transformer of again_transformers) {
-      again_transformer.transformModel(again_modelArgs);
-    }
+    OmniUtil.runModelTransformers(again_transformers, again_modelArgs);
 
     const astNode = new Ts.TsRootNode([]);
 
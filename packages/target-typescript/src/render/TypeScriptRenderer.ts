@@ -2,7 +2,7 @@ import {OmniTypeKind, PackageOptions, Renderer, TargetOptions} from '@omnigen/ap
 import {TypeScriptOptions} from '../options';
 import {createTypeScriptVisitor, TypeScriptVisitor} from '../visit';
 import {OmniUtil} from '@omnigen/core';
-import {Code, CodeRenderContext, CodeRendererOptions, CodeUtil, createCodeRenderer, DefaultCodeRendererOptions, FreeTextUtils, render} from '@omnigen/target-code';
+import {Code, CodeRenderContext, CodeRendererOptions, CodeUtil, createCodeRenderer, DefaultCodeRendererOptions, FreeTextUtils, render, renderJoined} from '@omnigen/target-code';
 import {Ts} from '../ast';
 import {CommentKind, ModifierKind} from '@omnigen/target-code/ast';
 
@@ -40,7 +40,7 @@ export const createTypeScriptRenderer = (root: Ts.TsRootNode, options: PackageOp
       }
     },
 
-    visitEnumItemList: (n, v) => `${n.children.map(it => render(it, v)).join(',\n')},\n`,
+    visitEnumItemList: (n, v) => `${renderJoined(n.children, ',\n', v)},\n`,
     visitEnumItem: (n, v) => {
 
       const comment = n.comment ? `${render(n.comment, v)}\n` : '';
@@ -1 +1 @@
-
+export * from './util';